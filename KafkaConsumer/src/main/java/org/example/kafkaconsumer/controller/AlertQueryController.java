@@ -0,0 +1,64 @@
+package org.example.kafkaconsumer.controller;
+
+import org.example.kafkaconsumer.postgres.entity.Alert;
+import org.example.kafkaconsumer.postgres.repository.AlertFilter;
+import org.example.kafkaconsumer.postgres.repository.AlertQueryRepository;
+import org.example.kafkaconsumer.postgres.repository.KeysetCursor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+// Alert queries, most recently raised first.
+//
+//   GET /api/alerts?from=...&to=...&ip=...&severity=HIGH&status=NEW&type=...&limit=100&cursor=...
+//   GET /api/alerts/export?<same filters>   (application/x-ndjson, one alert per line)
+//
+// from/to filter on raised_at; ip (address or CIDR range) matches the source or destination of the log that
+// triggered the alert.
+@RestController
+@RequestMapping("/api/alerts")
+public class AlertQueryController {
+
+    private final AlertQueryRepository alertQueryRepository;
+
+    public AlertQueryController(AlertQueryRepository alertQueryRepository) {
+        this.alertQueryRepository = alertQueryRepository;
+    }
+
+    @GetMapping
+    public Mono<Page<Alert>> list(@RequestParam(required = false) Instant from,
+                                  @RequestParam(required = false) Instant to,
+                                  @RequestParam(required = false) String ip,
+                                  @RequestParam(required = false) String severity,
+                                  @RequestParam(required = false) String status,
+                                  @RequestParam(required = false) String type,
+                                  @RequestParam(defaultValue = "100") int limit,
+                                  @RequestParam(required = false) String cursor) {
+        AlertFilter filter = filter(from, to, ip, severity, status, type);
+        KeysetCursor after = QueryParams.cursor(cursor);
+        return QueryParams.page(rows -> alertQueryRepository.findPage(filter, after, rows),
+                QueryParams.limit(limit), AlertQueryRepository::cursorOf);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Alert> export(@RequestParam(required = false) Instant from,
+                              @RequestParam(required = false) Instant to,
+                              @RequestParam(required = false) String ip,
+                              @RequestParam(required = false) String severity,
+                              @RequestParam(required = false) String status,
+                              @RequestParam(required = false) String type) {
+        return alertQueryRepository.streamAll(filter(from, to, ip, severity, status, type), QueryParams.EXPORT_PAGE_SIZE);
+    }
+
+    private static AlertFilter filter(Instant from, Instant to, String ip, String severity, String status, String type) {
+        QueryParams.checkRange(from, to);
+        return new AlertFilter(from, to, QueryParams.ipRange(ip), severity != null ? severity.toUpperCase() : null,
+                status != null ? status.toUpperCase() : null, type);
+    }
+}
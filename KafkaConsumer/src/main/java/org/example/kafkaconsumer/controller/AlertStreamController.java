@@ -0,0 +1,61 @@
+package org.example.kafkaconsumer.controller;
+
+import org.example.kafkaconsumer.postgres.entity.Alert;
+import org.example.kafkaconsumer.service.AlertBroadcaster;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+// Live alerts as Server-Sent Events:
+//
+//   GET /api/alerts/stream?severity=HIGH,CRITICAL&type=Suspicious%20Port
+//
+// Both filters are optional and take comma-separated values. Each event carries one alert as JSON (event name
+// "alert", id = alert id); the most recent alerts are replayed on connect. A comment line is sent every
+// heartbeat interval so proxies keep idle connections open.
+@RestController
+@RequestMapping("/api/alerts")
+public class AlertStreamController {
+
+    private final AlertBroadcaster alertBroadcaster;
+    private final Duration heartbeat;
+
+    public AlertStreamController(AlertBroadcaster alertBroadcaster,
+                                 @Value("${threatsense.alerting.stream.heartbeat:15s}") Duration heartbeat) {
+        this.alertBroadcaster = alertBroadcaster;
+        this.heartbeat = heartbeat;
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Alert>> stream(@RequestParam(required = false) List<String> severity,
+                                               @RequestParam(required = false) List<String> type) {
+        Flux<ServerSentEvent<Alert>> alerts = alertBroadcaster.subscribe(filter(severity, type))
+                .map(alert -> ServerSentEvent.builder(alert)
+                        .id(Long.toString(alert.getId()))
+                        .event("alert")
+                        .build());
+        Flux<ServerSentEvent<Alert>> heartbeats = Flux.interval(heartbeat)
+                .map(tick -> ServerSentEvent.<Alert>builder().comment("heartbeat").build());
+        return Flux.merge(alerts, heartbeats);
+    }
+
+    static Predicate<Alert> filter(List<String> severities, List<String> types) {
+        Set<String> severitySet = severities == null || severities.isEmpty() ? null
+                : severities.stream().map(String::trim).map(String::toUpperCase).collect(Collectors.toSet());
+        Set<String> typeSet = types == null || types.isEmpty() ? null
+                : types.stream().map(String::trim).collect(Collectors.toSet());
+        return alert -> (severitySet == null || severitySet.contains(alert.getSeverity()))
+                && (typeSet == null || typeSet.contains(alert.getAlertType()));
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.kafkaconsumer.controller;
+
+import org.example.kafkaconsumer.service.BackfillService;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+
+// Backfill jobs (see BackfillService).
+//
+//   POST   /api/backfill?from=...&to=...&chunkSize=PT1H   starts a job in the background, or resumes the same range
+//   GET    /api/backfill/{jobId}                          per-chunk progress
+//   DELETE /api/backfill/{jobId}                          stops a running job; POSTing the same range resumes it
+//
+// from/to are ISO-8601 instants (from inclusive, to exclusive) and chunkSize an ISO-8601 duration.
+@RestController
+@RequestMapping("/api/backfill")
+public class BackfillController {
+
+    private final BackfillService backfillService;
+
+    public BackfillController(BackfillService backfillService) {
+        this.backfillService = backfillService;
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public Mono<BackfillService.Job> start(@RequestParam Instant from,
+                                           @RequestParam Instant to,
+                                           @RequestParam(required = false) Duration chunkSize) {
+        try {
+            return Mono.just(backfillService.start(from, to, chunkSize));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+
+    @GetMapping("/{jobId}")
+    public Mono<BackfillService.Status> status(@PathVariable String jobId) {
+        return backfillService.status(jobId)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown backfill " + jobId)));
+    }
+
+    @DeleteMapping("/{jobId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void stop(@PathVariable String jobId) {
+        if (!backfillService.stop(jobId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Backfill " + jobId + " is not running");
+        }
+    }
+}
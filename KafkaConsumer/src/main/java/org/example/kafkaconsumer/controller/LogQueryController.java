@@ -0,0 +1,66 @@
+package org.example.kafkaconsumer.controller;
+
+import org.example.kafkaconsumer.postgres.entity.StructuredNetworkLog;
+import org.example.kafkaconsumer.postgres.repository.KeysetCursor;
+import org.example.kafkaconsumer.postgres.repository.LogFilter;
+import org.example.kafkaconsumer.postgres.repository.StructuredLogQueryRepository;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+// Structured log queries, newest first.
+//
+//   GET /api/logs?from=...&to=...&ip=...&srcIp=...&destIp=...&protocol=TCP&port=22&limit=100&cursor=...
+//   GET /api/logs/export?<same filters>   (application/x-ndjson, one log per line)
+//
+// All filters are optional; from/to are ISO-8601 instants (from inclusive, to exclusive), and the IP filters take
+// an address or a CIDR range (ip=10.0.0.0/8). A page's nextCursor fetches the next page. The export streams every
+// matching log and reads the next rows from PostgreSQL only as fast as the client consumes them.
+@RestController
+@RequestMapping("/api/logs")
+public class LogQueryController {
+
+    private final StructuredLogQueryRepository structuredLogQueryRepository;
+
+    public LogQueryController(StructuredLogQueryRepository structuredLogQueryRepository) {
+        this.structuredLogQueryRepository = structuredLogQueryRepository;
+    }
+
+    @GetMapping
+    public Mono<Page<StructuredNetworkLog>> list(@RequestParam(required = false) Instant from,
+                                                 @RequestParam(required = false) Instant to,
+                                                 @RequestParam(required = false) String ip,
+                                                 @RequestParam(required = false) String srcIp,
+                                                 @RequestParam(required = false) String destIp,
+                                                 @RequestParam(required = false) String protocol,
+                                                 @RequestParam(required = false) Long port,
+                                                 @RequestParam(defaultValue = "100") int limit,
+                                                 @RequestParam(required = false) String cursor) {
+        LogFilter filter = filter(from, to, ip, srcIp, destIp, protocol, port);
+        KeysetCursor after = QueryParams.cursor(cursor);
+        return QueryParams.page(rows -> structuredLogQueryRepository.findPage(filter, after, rows),
+                QueryParams.limit(limit), StructuredLogQueryRepository::cursorOf);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<StructuredNetworkLog> export(@RequestParam(required = false) Instant from,
+                                             @RequestParam(required = false) Instant to,
+                                             @RequestParam(required = false) String ip,
+                                             @RequestParam(required = false) String srcIp,
+                                             @RequestParam(required = false) String destIp,
+                                             @RequestParam(required = false) String protocol,
+                                             @RequestParam(required = false) Long port) {
+        return structuredLogQueryRepository.streamAll(filter(from, to, ip, srcIp, destIp, protocol, port), QueryParams.EXPORT_PAGE_SIZE);
+    }
+
+    private static LogFilter filter(Instant from, Instant to, String ip, String srcIp, String destIp, String protocol, Long port) {
+        QueryParams.checkRange(from, to);
+        return new LogFilter(from, to, QueryParams.ipRange(ip), QueryParams.ipRange(srcIp), QueryParams.ipRange(destIp), protocol, port);
+    }
+}
@@ -0,0 +1,8 @@
+package org.example.kafkaconsumer.controller;
+
+import java.util.List;
+
+// One page of a keyset-paginated listing. nextCursor is passed back as ?cursor= for the following page and is
+// null on the last page.
+public record Page<T>(List<T> items, String nextCursor) {
+}
@@ -0,0 +1,83 @@
+package org.example.kafkaconsumer.controller;
+
+import org.example.kafkaconsumer.model.IpAddress;
+import org.example.kafkaconsumer.postgres.repository.KeysetCursor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Function;
+
+// Request parameter handling shared by the listing endpoints
+final class QueryParams {
+
+    static final int MAX_PAGE_SIZE = 1000;
+    // Rows per query when an export reads a whole result
+    static final int EXPORT_PAGE_SIZE = 1000;
+
+    private QueryParams() {
+    }
+
+    static KeysetCursor cursor(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            return KeysetCursor.decode(token);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+
+    // Validates an IP address or CIDR range ("10.0.0.0/8") and returns it in canonical inet syntax, or null
+    static String ipRange(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        int slash = text.indexOf('/');
+        IpAddress address = IpAddress.tryParse(slash < 0 ? text.strip() : text.substring(0, slash).strip());
+        if (address == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid IP address or CIDR range: '" + text + "'");
+        }
+        int maxLength = address.isIpv4() ? 32 : 128;
+        int length = maxLength;
+        if (slash >= 0) {
+            try {
+                length = Integer.parseInt(text.substring(slash + 1).strip());
+            } catch (NumberFormatException e) {
+                length = -1;
+            }
+            if (length < 0 || length > maxLength) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid IP address or CIDR range: '" + text + "'");
+            }
+        }
+        return address + "/" + length;
+    }
+
+    static int limit(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'limit' must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return limit;
+    }
+
+    static void checkRange(Instant from, Instant to) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'from' must be before 'to'");
+        }
+    }
+
+    // Reads limit + 1 rows so that a next cursor is only handed out when another row exists
+    static <T> Mono<Page<T>> page(Function<Integer, Flux<T>> query, int limit, Function<T, KeysetCursor> cursorOf) {
+        return query.apply(limit + 1).collectList().map(rows -> {
+            if (rows.size() <= limit) {
+                return new Page<>(rows, null);
+            }
+            List<T> items = rows.subList(0, limit);
+            return new Page<>(items, cursorOf.apply(items.get(limit - 1)).encode());
+        });
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.kafkaconsumer.controller;
+
+import org.example.kafkaconsumer.postgres.entity.TrafficPoint;
+import org.example.kafkaconsumer.postgres.entity.TrafficTotal;
+import org.example.kafkaconsumer.postgres.repository.TrafficRollupRepository;
+import org.example.kafkaconsumer.postgres.repository.TrafficRollupRepository.Resolution;
+import org.example.kafkaconsumer.rollup.TrafficDimension;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+// Traffic queries served from the rollup tables maintained by TrafficRollupService.
+//
+//   GET /api/traffic/top?dimension=src_ip&from=...&to=...&limit=10&by=bytes|connections
+//   GET /api/traffic/series?dimension=dest_ip&value=10.0.0.5&from=...&to=...
+//
+// from/to are ISO-8601 instants (default: the last hour). Ranges longer than threatsense.rollups.hourly-above are
+// answered from the hourly table unless resolution=1m is given; resolution=1h forces the hourly table.
+@RestController
+@RequestMapping("/api/traffic")
+public class TrafficController {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final TrafficRollupRepository trafficRollupRepository;
+    private final Duration hourlyAbove;
+
+    public TrafficController(TrafficRollupRepository trafficRollupRepository,
+                             @Value("${threatsense.rollups.hourly-above:6h}") Duration hourlyAbove) {
+        this.trafficRollupRepository = trafficRollupRepository;
+        this.hourlyAbove = hourlyAbove;
+    }
+
+    @GetMapping("/top")
+    public Flux<TrafficTotal> top(@RequestParam String dimension,
+                                  @RequestParam(required = false) Instant from,
+                                  @RequestParam(required = false) Instant to,
+                                  @RequestParam(defaultValue = "10") int limit,
+                                  @RequestParam(defaultValue = "bytes") String by,
+                                  @RequestParam(required = false) String resolution) {
+        if (!by.equals("bytes") && !by.equals("connections")) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'by' must be bytes or connections");
+        }
+        TimeRange range = TimeRange.of(from, to, resolution, hourlyAbove);
+        return trafficRollupRepository.findTop(range.resolution, dimension(dimension), range.from, range.to,
+                by.equals("connections"), Math.max(1, Math.min(limit, MAX_LIMIT)));
+    }
+
+    @GetMapping("/series")
+    public Flux<TrafficPoint> series(@RequestParam String dimension,
+                                     @RequestParam(required = false) String value,
+                                     @RequestParam(required = false) Instant from,
+                                     @RequestParam(required = false) Instant to,
+                                     @RequestParam(required = false) String resolution) {
+        TimeRange range = TimeRange.of(from, to, resolution, hourlyAbove);
+        String column = dimension(dimension);
+        String storedValue = value != null ? TrafficDimension.parse(column).normalize(value) : null;
+        return trafficRollupRepository.findSeries(range.resolution, column, storedValue, range.from, range.to);
+    }
+
+    private static String dimension(String text) {
+        try {
+            return TrafficDimension.parse(text).column();
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private record TimeRange(Instant from, Instant to, Resolution resolution) {
+
+        static TimeRange of(Instant from, Instant to, String resolution, Duration hourlyAbove) {
+            Instant end = to != null ? to : Instant.now();
+            Instant start = from != null ? from : end.minus(Duration.ofHours(1));
+            if (!start.isBefore(end)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'from' must be before 'to'");
+            }
+            Resolution chosen;
+            if (resolution == null) {
+                chosen = Duration.between(start, end).compareTo(hourlyAbove) > 0 ? Resolution.HOUR : Resolution.MINUTE;
+            } else if (resolution.equals("1m")) {
+                chosen = Resolution.MINUTE;
+            } else if (resolution.equals("1h")) {
+                chosen = Resolution.HOUR;
+            } else {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'resolution' must be 1m or 1h");
+            }
+            // widen to whole buckets so that the partial first bucket is included
+            ChronoUnit unit = chosen == Resolution.HOUR ? ChronoUnit.HOURS : ChronoUnit.MINUTES;
+            return new TimeRange(start.truncatedTo(unit), end, chosen);
+        }
+    }
+}
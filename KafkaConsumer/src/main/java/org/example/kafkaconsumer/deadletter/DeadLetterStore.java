@@ -0,0 +1,129 @@
+package org.example.kafkaconsumer.deadletter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.example.kafkaconsumer.model.RawNetworkLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Local store for raw log batches that could not be ingested right now: batches whose PostgreSQL write or
+// alerting kept failing, and logs shed under overload (see IngestionGate). Each parked batch is one NDJSON file
+// ("<millis>-<seq>-<reason>.ndjson", written to a temp file and moved into place), so a crash never leaves a
+// half-written entry behind, and entries are redelivered oldest first.
+//
+// The store holds at most max-bytes; park() refuses batches beyond that so a long outage fills the disk only up to
+// a known limit. Methods block on file I/O and are meant to run on a boundedElastic thread.
+@Component
+public class DeadLetterStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeadLetterStore.class);
+    private static final String SUFFIX = ".ndjson";
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+    private final Path directory;
+    private final long maxBytes;
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public DeadLetterStore(ObjectMapper objectMapper,
+                           @Value("${threatsense.ingest.dead-letter.dir:dead-letters}") String directory,
+                           @Value("${threatsense.ingest.dead-letter.max-bytes:1GB}") DataSize maxBytes) throws IOException {
+        this.objectMapper = objectMapper;
+        this.writer = objectMapper.writerFor(RawNetworkLog.class);
+        this.directory = Path.of(directory);
+        this.maxBytes = maxBytes.toBytes();
+        Files.createDirectories(this.directory);
+        try (DirectoryStream<Path> temps = Files.newDirectoryStream(this.directory, "*.tmp")) {
+            for (Path temp : temps) { // left behind by a crash during park()
+                Files.delete(temp);
+            }
+        }
+        List<Path> entries = entries();
+        for (Path entry : entries) {
+            bytes.addAndGet(Files.size(entry));
+        }
+        if (!entries.isEmpty()) {
+            logger.info("Dead-letter store {} holds {} parked batches ({} bytes)", this.directory.toAbsolutePath(), entries.size(), bytes.get());
+        }
+    }
+
+    // Writes the batch as one entry. Returns false, without writing, if the store would grow beyond max-bytes.
+    public boolean park(List<RawNetworkLog> rawLogs, String reason) throws IOException {
+        if (rawLogs.isEmpty()) {
+            return true;
+        }
+        if (bytes.get() >= maxBytes) {
+            return false;
+        }
+        String name = System.currentTimeMillis() + "-" + String.format("%06d", sequence.incrementAndGet() % 1_000_000) + "-" + reason + SUFFIX;
+        Path temp = Files.createTempFile(directory, name, ".tmp");
+        try {
+            try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (RawNetworkLog rawLog : rawLogs) {
+                    out.write(writer.writeValueAsString(rawLog));
+                    out.write('\n');
+                }
+            }
+            long size = Files.size(temp);
+            if (bytes.addAndGet(size) > maxBytes) {
+                bytes.addAndGet(-size);
+                Files.delete(temp);
+                return false;
+            }
+            Files.move(temp, directory.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    // Parked entries, oldest first
+    public List<Path> entries() throws IOException {
+        List<Path> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            stream.forEach(entries::add);
+        }
+        entries.sort(null); // names start with the epoch millis, then the zero-padded sequence
+        return entries;
+    }
+
+    public List<RawNetworkLog> read(Path entry) throws IOException {
+        List<RawNetworkLog> rawLogs = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(entry, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.isBlank()) {
+                    rawLogs.add(objectMapper.readValue(line, RawNetworkLog.class));
+                }
+            }
+        }
+        return rawLogs;
+    }
+
+    public void delete(Path entry) throws IOException {
+        long size = Files.size(entry);
+        Files.delete(entry);
+        bytes.addAndGet(-size);
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+}
@@ -0,0 +1,264 @@
+package org.example.kafkaconsumer.detection;
+
+import jakarta.annotation.PreDestroy;
+import org.example.kafkaconsumer.model.IpAddress;
+import org.example.kafkaconsumer.postgres.entity.StructuredNetworkLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+
+// Online byte-volume baselining for exfiltration detection, fed by the ingestion stream.
+// Bytes are summed per source host and per (src, dest) pair into fixed event-time buckets. When a bucket
+// completes, its total updates an exponentially weighted mean and variance of that key's volume per bucket.
+// A key is reported as soon as its running bucket total exceeds mean + deviations * stddev, once per bucket, after
+// min-samples buckets of history and only above min-bytes. Buckets without traffic are not counted, so the
+// baseline is "volume per active bucket".
+//
+// Baselines live in VolumeBaselineTable (48 bytes per key, optionally off-heap, grown as keys arrive); keys idle for
+// idle-eviction are dropped when a table fills up, sweeping it at most once per bucket. The tables are snapshotted to snapshot-file periodically and on shutdown, and
+// loaded at startup, so a restart keeps what was learned. Non-IPv4 keys are 64-bit hashes (see ConnectionKeys).
+@Component
+public class ByteVolumeDetector {
+
+    // A key whose volume in the current bucket crossed its baseline with this event; destIP is null for hosts
+    public record Finding(IpAddress srcIP, IpAddress destIP, long bytes, double mean, double stddev) {
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(ByteVolumeDetector.class);
+    private static final int SNAPSHOT_MAGIC = 0x54535642; // "TSVB"
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final boolean enabled;
+    private final long bucketMillis;
+    private final double alpha;
+    private final double deviations;
+    private final int minSamples;
+    private final long minBytes;
+    private final long idleBuckets;
+    private final int maxHosts;
+    private final int maxPairs;
+    private final boolean offHeap;
+    private final Path snapshotFile;
+    private final VolumeBaselineTable hosts;
+    private final VolumeBaselineTable pairs;
+
+    private long watermarkBucket; // newest event bucket seen
+    private long droppedKeys;
+
+    public ByteVolumeDetector(@Value("${threatsense.detection.byte-volume.enabled:true}") boolean enabled,
+                              @Value("${threatsense.detection.byte-volume.bucket:1m}") Duration bucket,
+                              @Value("${threatsense.detection.byte-volume.alpha:0.05}") double alpha,
+                              @Value("${threatsense.detection.byte-volume.deviations:4}") double deviations,
+                              @Value("${threatsense.detection.byte-volume.min-samples:30}") int minSamples,
+                              @Value("${threatsense.detection.byte-volume.min-bytes:1000000}") long minBytes,
+                              @Value("${threatsense.detection.byte-volume.idle-eviction:7d}") Duration idleEviction,
+                              @Value("${threatsense.detection.byte-volume.max-hosts:262144}") int maxHosts,
+                              @Value("${threatsense.detection.byte-volume.max-pairs:524288}") int maxPairs,
+                              @Value("${threatsense.detection.byte-volume.off-heap:false}") boolean offHeap,
+                              @Value("${threatsense.detection.byte-volume.snapshot-file:}") String snapshotFile) {
+        if (alpha <= 0 || alpha > 1) {
+            throw new IllegalArgumentException("alpha must be in (0, 1]: " + alpha);
+        }
+        this.enabled = enabled;
+        this.bucketMillis = Math.max(1, bucket.toMillis());
+        this.alpha = alpha;
+        this.deviations = deviations;
+        this.minSamples = minSamples;
+        this.minBytes = minBytes;
+        this.idleBuckets = Math.max(1, idleEviction.toMillis() / bucketMillis);
+        this.maxHosts = maxHosts;
+        this.maxPairs = maxPairs;
+        this.offHeap = offHeap;
+        this.snapshotFile = snapshotFile.isBlank() ? null : Path.of(snapshotFile);
+        this.hosts = new VolumeBaselineTable(maxHosts, offHeap);
+        this.pairs = new VolumeBaselineTable(maxPairs, offHeap);
+        if (enabled) {
+            loadSnapshot();
+        }
+    }
+
+    // A detector with the same settings, no baselines and no snapshot file, for replaying a separate stretch of
+    // event time (backfill); it learns its baselines from the replayed traffic only
+    public ByteVolumeDetector withEmptyState() {
+        return new ByteVolumeDetector(enabled, getBucket(), alpha, deviations, minSamples, minBytes,
+                Duration.ofMillis(idleBuckets * bucketMillis), maxHosts, maxPairs, offHeap, "");
+    }
+
+    // Adds the log's bytes to its host and pair; returns the findings this event triggered (host first), or null
+    public Finding[] record(StructuredNetworkLog log) {
+        if (!enabled || log.getTimestamp() == null || log.getSrcIP() == null || log.getDestIP() == null) {
+            return null;
+        }
+        long hostKey = ConnectionKeys.hostKey(log.getSrcIP());
+        long pairKey = ConnectionKeys.pairKey(log.getSrcIP(), log.getDestIP());
+        long bucket = Math.floorDiv(log.getTimestamp().toEpochMilli(), bucketMillis);
+
+        synchronized (this) {
+            if (bucket > watermarkBucket) {
+                watermarkBucket = bucket;
+            }
+            Finding host = add(hosts, hostKey, bucket, log.getBytes(), log.getSrcIP(), null);
+            Finding pair = add(pairs, pairKey, bucket, log.getBytes(), log.getSrcIP(), log.getDestIP());
+            if (host == null && pair == null) {
+                return null;
+            }
+            return host == null ? new Finding[]{pair} : pair == null ? new Finding[]{host} : new Finding[]{host, pair};
+        }
+    }
+
+    public Duration getBucket() {
+        return Duration.ofMillis(bucketMillis);
+    }
+
+    public synchronized long droppedKeys() {
+        return droppedKeys;
+    }
+
+    private Finding add(VolumeBaselineTable table, long key, long bucket, long bytes, IpAddress srcIP, IpAddress destIP) {
+        int slot = table.slotFor(key);
+        if (slot < 0) {
+            // a full table is swept at most once per bucket: until the watermark moves on, no further key goes idle
+            if (watermarkBucket >= table.nextSweepBucket()) {
+                table.removeIdle(watermarkBucket - idleBuckets);
+                table.setNextSweepBucket(watermarkBucket + 1);
+                slot = table.slotFor(key);
+            }
+            if (slot < 0) {
+                droppedKeys++;
+                return null;
+            }
+        }
+
+        long current = table.bucket(slot);
+        if (table.samples(slot) == 0 && table.current(slot) == 0) {
+            table.setBucket(slot, bucket); // new key
+        } else if (bucket > current) {
+            completeBucket(table, slot);
+            table.setBucket(slot, bucket);
+            table.setCurrent(slot, 0);
+            table.setFlag(slot, VolumeBaselineTable.ALERTED, false);
+        } else if (bucket < current) {
+            return null; // late event for a bucket that has already been folded into the baseline
+        }
+
+        long total = table.current(slot) + bytes;
+        table.setCurrent(slot, total);
+        if (table.samples(slot) < minSamples || total < minBytes || table.hasFlag(slot, VolumeBaselineTable.ALERTED)) {
+            return null;
+        }
+        double mean = table.mean(slot);
+        double stddev = Math.sqrt(table.variance(slot));
+        if (total <= mean + deviations * stddev) {
+            return null;
+        }
+        table.setFlag(slot, VolumeBaselineTable.ALERTED, true);
+        return new Finding(srcIP, destIP, total, mean, stddev);
+    }
+
+    // Folds the finished bucket's total into the EWMA mean and variance (incremental form, West 1979)
+    private void completeBucket(VolumeBaselineTable table, int slot) {
+        double x = table.current(slot);
+        int samples = table.samples(slot);
+        if (samples == 0) {
+            table.setBaseline(slot, x, 0);
+        } else {
+            double mean = table.mean(slot);
+            double diff = x - mean;
+            double increment = alpha * diff;
+            table.setBaseline(slot, mean + increment, (1 - alpha) * (table.variance(slot) + diff * increment));
+        }
+        if (samples < Integer.MAX_VALUE) {
+            table.setSamples(slot, samples + 1);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${threatsense.detection.byte-volume.snapshot-interval:5m}",
+            fixedDelayString = "${threatsense.detection.byte-volume.snapshot-interval:5m}")
+    public void snapshot() {
+        if (!enabled || snapshotFile == null) {
+            return;
+        }
+        ByteBuffer hostRecords;
+        ByteBuffer pairRecords;
+        long bucketSize;
+        synchronized (this) { // copy under the lock, write to disk outside of it
+            hostRecords = hosts.export();
+            pairRecords = pairs.export();
+            bucketSize = bucketMillis;
+        }
+        ByteBuffer header = ByteBuffer.allocate(28)
+                .putInt(SNAPSHOT_MAGIC)
+                .putInt(SNAPSHOT_VERSION)
+                .putLong(bucketSize)
+                .putInt(VolumeBaselineTable.RECORD_SIZE)
+                .putInt(hostRecords.remaining() / VolumeBaselineTable.RECORD_SIZE)
+                .putInt(pairRecords.remaining() / VolumeBaselineTable.RECORD_SIZE)
+                .flip();
+        try {
+            Path parent = snapshotFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (header.hasRemaining() || hostRecords.hasRemaining() || pairRecords.hasRemaining()) {
+                    channel.write(new ByteBuffer[]{header, hostRecords, pairRecords});
+                }
+                channel.force(false);
+            }
+            Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Saved byte-volume baselines to {}", snapshotFile);
+        } catch (IOException e) {
+            logger.warn("Could not save byte-volume baselines to {}: {}", snapshotFile, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        snapshot();
+    }
+
+    private void loadSnapshot() {
+        if (snapshotFile == null || !Files.exists(snapshotFile)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            ByteBuffer data = ByteBuffer.allocate((int) channel.size());
+            while (data.hasRemaining() && channel.read(data) >= 0) {
+                // read until full
+            }
+            data.flip();
+            if (data.remaining() < 28 || data.getInt() != SNAPSHOT_MAGIC || data.getInt() != SNAPSHOT_VERSION) {
+                logger.warn("Ignoring {}: not a byte-volume snapshot", snapshotFile);
+                return;
+            }
+            long snapshotBucketMillis = data.getLong();
+            int recordSize = data.getInt();
+            int hostCount = data.getInt();
+            int pairCount = data.getInt();
+            if (snapshotBucketMillis != bucketMillis || recordSize != VolumeBaselineTable.RECORD_SIZE
+                    || data.remaining() != (hostCount + pairCount) * recordSize) {
+                logger.warn("Ignoring {}: written with a different bucket size or layout", snapshotFile);
+                return;
+            }
+            int skipped = hosts.importRecords(data.slice(data.position(), hostCount * recordSize))
+                    + pairs.importRecords(data.slice(data.position() + hostCount * recordSize, pairCount * recordSize));
+            logger.info("Loaded {} host and {} pair byte-volume baselines from {} ({} did not fit)",
+                    hosts.size(), pairs.size(), snapshotFile, skipped);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not load byte-volume baselines from {}, starting empty: {}", snapshotFile, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.example.kafkaconsumer.detection;
+
+import org.example.kafkaconsumer.model.IpAddress;
+
+// Primitive keys for per-host and per-(src, dest) detector state.
+// IPv4 hosts and IPv4 pairs map to their exact 32/64-bit value; anything else falls back to a 64-bit hash of the
+// 128-bit addresses, so detectors keep the addresses next to hashed entries and compare them on a hit.
+final class ConnectionKeys {
+
+    private ConnectionKeys() {
+    }
+
+    static long hostKey(IpAddress ip) {
+        return ip.isIpv4() ? ip.ipv4() : mix(mix(0x2545F4914F6CDD1DL, ip.hi()), ip.lo());
+    }
+
+    static long pairKey(IpAddress src, IpAddress dest) {
+        if (src.isIpv4() && dest.isIpv4()) {
+            return (src.ipv4() << 32) | dest.ipv4();
+        }
+        return mix(mix(mix(mix(0x2545F4914F6CDD1DL, src.hi()), src.lo()), dest.hi()), dest.lo());
+    }
+
+    private static long mix(long h, long value) {
+        h = (h ^ value) * 0xBF58476D1CE4E5B9L;
+        return h ^ (h >>> 31);
+    }
+}
@@ -0,0 +1,172 @@
+package org.example.kafkaconsumer.detection;
+
+import org.example.kafkaconsumer.model.IpAddress;
+import org.example.kafkaconsumer.postgres.entity.FrequentConnectionAlertDTO;
+import org.example.kafkaconsumer.postgres.entity.StructuredNetworkLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+
+// Incremental version of StructuredLogRepository.findFrequentConnectionsInWindow, fed by the ingestion stream.
+// Each (srcIP, destIP) pair keeps a ring of per-bucket counts covering the sliding window, so a new event costs
+// one map lookup and a few array writes, and a pair is reported the moment its window count crosses the threshold.
+// A pair reports once per burst: it re-arms after its count drops back to the threshold.
+// Pairs idle for a whole window are evicted, and maxPairs caps memory; the SQL query stays available for
+// reconciliation and backfill.
+@Component
+public class FrequentConnectionDetector {
+
+    private final boolean enabled;
+    private final long bucketMillis;
+    private final int bucketCount;
+    private final long windowMillis;
+    private final long threshold;
+    private final int maxPairs;
+    private final LongKeyedStateMap<PairWindow> pairs;
+
+    private long watermark;   // newest event time seen (ms)
+    private long nextSweepAt; // event time at which idle pairs are swept next
+    private long droppedPairs;
+
+    public FrequentConnectionDetector(@Value("${threatsense.detection.frequent-connection.enabled:true}") boolean enabled,
+                                      @Value("${threatsense.detection.frequent-connection.window:60s}") Duration window,
+                                      @Value("${threatsense.detection.frequent-connection.bucket:5s}") Duration bucket,
+                                      @Value("${threatsense.detection.frequent-connection.threshold:50}") long threshold,
+                                      @Value("${threatsense.detection.frequent-connection.max-pairs:200000}") int maxPairs) {
+        this.enabled = enabled;
+        this.bucketMillis = Math.max(1, bucket.toMillis());
+        this.bucketCount = (int) Math.max(1, window.toMillis() / bucketMillis);
+        this.windowMillis = bucketMillis * bucketCount;
+        this.threshold = threshold;
+        this.maxPairs = maxPairs;
+        this.pairs = new LongKeyedStateMap<>(maxPairs);
+    }
+
+    // A detector with the same settings and no pairs, for replaying a separate stretch of event time (backfill)
+    public FrequentConnectionDetector withEmptyState() {
+        return new FrequentConnectionDetector(enabled, getWindow(), Duration.ofMillis(bucketMillis), threshold, maxPairs);
+    }
+
+    // Counts the connection and returns an alert if this event pushed the pair over the threshold, otherwise null
+    public FrequentConnectionAlertDTO record(StructuredNetworkLog log) {
+        if (!enabled || log.getTimestamp() == null || log.getSrcIP() == null || log.getDestIP() == null) {
+            return null;
+        }
+        boolean exact = log.getSrcIP().isIpv4() && log.getDestIP().isIpv4();
+        long key = ConnectionKeys.pairKey(log.getSrcIP(), log.getDestIP());
+        long time = log.getTimestamp().toEpochMilli();
+        long bucket = Math.floorDiv(time, bucketMillis);
+
+        synchronized (this) {
+            if (time > watermark) {
+                watermark = time;
+            }
+            if (watermark >= nextSweepAt) {
+                evictIdlePairs();
+            }
+
+            PairWindow pair = pairs.get(key);
+            if (pair == null) {
+                pair = new PairWindow(log.getSrcIP(), log.getDestIP(), exact, bucketCount, bucket);
+                if (!pairs.put(key, pair)) {
+                    evictIdlePairs();
+                    if (!pairs.put(key, pair)) {
+                        droppedPairs++;
+                        return null;
+                    }
+                }
+            } else if (!(exact && pair.exact) && !pair.matches(log.getSrcIP(), log.getDestIP())) {
+                return null; // 64-bit hash collision between two non-IPv4 pairs
+            }
+
+            if (!pair.add(bucket, bucketCount)) {
+                return null; // older than the window
+            }
+            if (time >= pair.latestTime) {
+                pair.latestTime = time;
+                pair.latestLogId = log.getId();
+                pair.latestTimestamp = log.getTimestamp(); // exact value: alerts reference the log by (id, timestamp)
+            }
+
+            if (pair.total <= threshold) {
+                pair.alerted = false;
+                return null;
+            }
+            if (pair.alerted) {
+                return null;
+            }
+            pair.alerted = true;
+            return new FrequentConnectionAlertDTO(pair.srcIP, pair.destIP, pair.total,
+                    pair.latestTimestamp, pair.latestLogId);
+        }
+    }
+
+    public Duration getWindow() {
+        return Duration.ofMillis(windowMillis);
+    }
+
+    public synchronized int trackedPairs() {
+        return pairs.size();
+    }
+
+    public synchronized long droppedPairs() {
+        return droppedPairs;
+    }
+
+    private void evictIdlePairs() {
+        long oldestLiveBucket = Math.floorDiv(watermark - windowMillis, bucketMillis);
+        pairs.removeIf(pair -> pair.newestBucket < oldestLiveBucket);
+        nextSweepAt = watermark + windowMillis;
+    }
+
+    private static final class PairWindow {
+        final IpAddress srcIP;
+        final IpAddress destIP;
+        final boolean exact;
+        final int[] counts;
+        long newestBucket;
+        long total;
+        long latestTime;
+        Long latestLogId;
+        Instant latestTimestamp;
+        boolean alerted;
+
+        PairWindow(IpAddress srcIP, IpAddress destIP, boolean exact, int bucketCount, long bucket) {
+            this.srcIP = srcIP;
+            this.destIP = destIP;
+            this.exact = exact;
+            this.counts = new int[bucketCount];
+            this.newestBucket = bucket;
+        }
+
+        boolean matches(IpAddress src, IpAddress dest) {
+            return srcIP.equals(src) && destIP.equals(dest);
+        }
+
+        // Slides the ring forward to bucket if needed and counts one event; false if bucket already left the window
+        boolean add(long bucket, int bucketCount) {
+            if (bucket > newestBucket) {
+                long steps = bucket - newestBucket;
+                if (steps >= bucketCount) {
+                    Arrays.fill(counts, 0);
+                    total = 0;
+                } else {
+                    for (long b = newestBucket + 1; b <= bucket; b++) {
+                        int index = Math.floorMod(b, bucketCount);
+                        total -= counts[index];
+                        counts[index] = 0;
+                    }
+                }
+                newestBucket = bucket;
+            } else if (bucket <= newestBucket - bucketCount) {
+                return false;
+            }
+            counts[Math.floorMod(bucket, bucketCount)]++;
+            total++;
+            return true;
+        }
+    }
+}
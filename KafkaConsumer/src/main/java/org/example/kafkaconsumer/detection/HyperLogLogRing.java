@@ -0,0 +1,93 @@
+package org.example.kafkaconsumer.detection;
+
+import java.util.Arrays;
+
+// Distinct-count sketch over a sliding window: a ring of HyperLogLog sketches, one per sub-window, stored in a
+// single byte array (sub-window s owns registers [s*m, (s+1)*m)). The window estimate is the estimate of the
+// register-wise maximum over the ring, and a sub-window is cleared when the window slides past it, so memory is
+// subWindows * 2^precision bytes no matter how many distinct values are added.
+//
+// Relative standard error is about 1.04 / sqrt(2^precision), e.g. 13% at precision 6 and 6.5% at precision 8;
+// small counts use linear counting and are close to exact. Not thread-safe.
+final class HyperLogLogRing {
+
+    private final int precision;
+    private final int registers;
+    private final double alphaMM;
+    private final byte[] ring;
+
+    HyperLogLogRing(int precision, int subWindows) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("precision must be between 4 and 16: " + precision);
+        }
+        this.precision = precision;
+        this.registers = 1 << precision;
+        this.alphaMM = alpha(registers) * registers * registers;
+        this.ring = new byte[subWindows * registers];
+    }
+
+    // Adds a hashed value to a sub-window. Returns true if this raised the window-wide maximum of its register,
+    // i.e. the window estimate may have changed; most repeated values return false without further work.
+    boolean add(int subWindow, long hash) {
+        int register = (int) (hash >>> (64 - precision));
+        // the guard bit caps the rank at 64 - precision + 1
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1);
+        int slot = subWindow * registers + register;
+        if (ring[slot] >= rank) {
+            return false;
+        }
+        ring[slot] = rank;
+        for (int i = register; i < ring.length; i += registers) {
+            if (i != slot && ring[i] >= rank) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void clear(int subWindow) {
+        Arrays.fill(ring, subWindow * registers, (subWindow + 1) * registers, (byte) 0);
+    }
+
+    void clearAll() {
+        Arrays.fill(ring, (byte) 0);
+    }
+
+    // Distinct values added across all sub-windows
+    long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (int register = 0; register < registers; register++) {
+            int max = 0;
+            for (int i = register; i < ring.length; i += registers) {
+                max = Math.max(max, ring[i]);
+            }
+            if (max == 0) {
+                zeros++;
+            }
+            sum += Math.scalb(1.0, -max);
+        }
+        double estimate = alphaMM / sum;
+        if (estimate <= 2.5 * registers && zeros > 0) {
+            estimate = registers * Math.log((double) registers / zeros); // linear counting for small cardinalities
+        }
+        return Math.round(estimate);
+    }
+
+    // 64-bit finalizer (SplitMix64) so that sequential ports and addresses spread over all registers
+    static long hash(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static double alpha(int m) {
+        return switch (m) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+    }
+}
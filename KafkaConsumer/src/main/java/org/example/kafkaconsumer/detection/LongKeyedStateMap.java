@@ -0,0 +1,99 @@
+package org.example.kafkaconsumer.detection;
+
+import java.util.function.Predicate;
+
+// Open-addressing hash map from primitive long keys to per-key detector state, with a hard entry limit.
+// Keys are never boxed and there are no per-entry node objects, so the only per-key garbage is the state itself.
+// Not thread-safe: detectors guard it with their own lock.
+public final class LongKeyedStateMap<V> {
+
+    private final int maxEntries;
+    private final int mask;
+    private long[] keys;
+    private Object[] values; // null marks an empty slot
+    private int size;
+
+    public LongKeyedStateMap(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        int capacity = Integer.highestOneBit(Math.max(4, maxEntries + maxEntries / 3) - 1) << 1; // load factor <= 0.75
+        this.mask = capacity - 1;
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int slot = slot(key);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    // Inserts or replaces the state for key. Returns false (and stores nothing) if the map is full.
+    public boolean put(long key, V value) {
+        int slot = slot(key);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size >= maxEntries) {
+            return false;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        return true;
+    }
+
+    // Removes every entry whose state matches, e.g. idle keys. Rebuilds the probe sequences in one pass.
+    @SuppressWarnings("unchecked")
+    public int removeIf(Predicate<? super V> evict) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[oldKeys.length];
+        values = new Object[oldValues.length];
+        int removed = 0;
+        size = 0;
+        for (int i = 0; i < oldValues.length; i++) {
+            Object value = oldValues[i];
+            if (value == null) {
+                continue;
+            }
+            if (evict.test((V) value)) {
+                removed++;
+            } else {
+                int slot = slot(oldKeys[i]);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = value;
+                size++;
+            }
+        }
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size >= maxEntries;
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L; // Fibonacci hashing spreads sequential IPs across the table
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
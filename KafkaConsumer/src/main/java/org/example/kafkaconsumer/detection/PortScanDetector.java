@@ -0,0 +1,187 @@
+package org.example.kafkaconsumer.detection;
+
+import org.example.kafkaconsumer.model.IpAddress;
+import org.example.kafkaconsumer.postgres.entity.StructuredNetworkLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Streaming port-scan and host-sweep detection, fed by the ingestion stream.
+// Every source IP keeps two sliding-window HyperLogLog sketches: distinct destination ports and distinct
+// destination hosts over the window, built from 'sub-windows' ring slots. A source is reported when either
+// estimate crosses its threshold, once per burst (it re-arms after the estimate drops back to the threshold).
+// A source costs 2 * sub-windows * 2^precision bytes however many ports or hosts it touches; sources idle for a
+// whole window are evicted and max-sources caps the total, like FrequentConnectionDetector.
+@Component
+public class PortScanDetector {
+
+    // Estimates of a source that crossed a threshold with this event
+    public record Finding(IpAddress srcIP, boolean portScan, long distinctPorts, boolean hostSweep, long distinctHosts) {
+    }
+
+    private final boolean enabled;
+    private final int precision;
+    private final long subWindowMillis;
+    private final int subWindows;
+    private final long windowMillis;
+    private final long portThreshold;
+    private final long hostThreshold;
+    private final int maxSources;
+    private final LongKeyedStateMap<SourceWindow> sources;
+
+    private long watermark;   // newest event time seen (ms)
+    private long nextSweepAt; // event time at which idle sources are swept next
+    private long droppedSources;
+
+    public PortScanDetector(@Value("${threatsense.detection.port-scan.enabled:true}") boolean enabled,
+                            @Value("${threatsense.detection.port-scan.window:60s}") Duration window,
+                            @Value("${threatsense.detection.port-scan.sub-windows:4}") int subWindows,
+                            @Value("${threatsense.detection.port-scan.port-threshold:100}") long portThreshold,
+                            @Value("${threatsense.detection.port-scan.host-threshold:50}") long hostThreshold,
+                            @Value("${threatsense.detection.port-scan.precision:6}") int precision,
+                            @Value("${threatsense.detection.port-scan.max-sources:50000}") int maxSources) {
+        this.enabled = enabled;
+        this.subWindows = Math.max(1, subWindows);
+        this.subWindowMillis = Math.max(1, window.toMillis() / this.subWindows);
+        this.windowMillis = subWindowMillis * this.subWindows;
+        this.portThreshold = portThreshold;
+        this.hostThreshold = hostThreshold;
+        this.precision = precision;
+        this.maxSources = maxSources;
+        this.sources = new LongKeyedStateMap<>(maxSources);
+        new HyperLogLogRing(precision, 1); // fail fast on an invalid precision
+    }
+
+    // A detector with the same settings and no sources, for replaying a separate stretch of event time (backfill)
+    public PortScanDetector withEmptyState() {
+        return new PortScanDetector(enabled, getWindow(), subWindows, portThreshold, hostThreshold, precision, maxSources);
+    }
+
+    // Adds the connection to its source's sketches; returns a finding if this event pushed the source over a
+    // threshold, otherwise null
+    public Finding record(StructuredNetworkLog log) {
+        if (!enabled || log.getTimestamp() == null || log.getSrcIP() == null || log.getDestIP() == null) {
+            return null;
+        }
+        boolean exact = log.getSrcIP().isIpv4();
+        long key = ConnectionKeys.hostKey(log.getSrcIP());
+        long portHash = HyperLogLogRing.hash(log.getPort());
+        long hostHash = HyperLogLogRing.hash(ConnectionKeys.hostKey(log.getDestIP()));
+        long time = log.getTimestamp().toEpochMilli();
+        long subWindow = Math.floorDiv(time, subWindowMillis);
+
+        synchronized (this) {
+            if (time > watermark) {
+                watermark = time;
+            }
+            if (watermark >= nextSweepAt) {
+                evictIdleSources();
+            }
+
+            SourceWindow source = sources.get(key);
+            if (source == null) {
+                source = new SourceWindow(log.getSrcIP(), exact, precision, subWindows, subWindow);
+                if (!sources.put(key, source)) {
+                    evictIdleSources();
+                    if (!sources.put(key, source)) {
+                        droppedSources++;
+                        return null;
+                    }
+                }
+            } else if (!(exact && source.exact) && !source.srcIP.equals(log.getSrcIP())) {
+                return null; // 64-bit hash collision between two non-IPv4 sources
+            }
+
+            if (!source.slideTo(subWindow, subWindows)) {
+                return null; // older than the window
+            }
+            int slot = Math.floorMod(subWindow, subWindows);
+            // estimates are only recomputed when a sketch register actually grew
+            if (source.ports.add(slot, portHash) || source.portsStale) {
+                source.distinctPorts = source.ports.estimate();
+                source.portsStale = false;
+            }
+            if (source.hosts.add(slot, hostHash) || source.hostsStale) {
+                source.distinctHosts = source.hosts.estimate();
+                source.hostsStale = false;
+            }
+
+            boolean portScan = crossed(source.distinctPorts, portThreshold, source.portScanAlerted);
+            boolean hostSweep = crossed(source.distinctHosts, hostThreshold, source.hostSweepAlerted);
+            source.portScanAlerted = source.distinctPorts > portThreshold;
+            source.hostSweepAlerted = source.distinctHosts > hostThreshold;
+            if (!portScan && !hostSweep) {
+                return null;
+            }
+            return new Finding(source.srcIP, portScan, source.distinctPorts, hostSweep, source.distinctHosts);
+        }
+    }
+
+    public Duration getWindow() {
+        return Duration.ofMillis(windowMillis);
+    }
+
+    public synchronized int trackedSources() {
+        return sources.size();
+    }
+
+    public synchronized long droppedSources() {
+        return droppedSources;
+    }
+
+    private static boolean crossed(long estimate, long threshold, boolean alerted) {
+        return estimate > threshold && !alerted;
+    }
+
+    private void evictIdleSources() {
+        long oldestLiveSubWindow = Math.floorDiv(watermark - windowMillis, subWindowMillis);
+        sources.removeIf(source -> source.newestSubWindow < oldestLiveSubWindow);
+        nextSweepAt = watermark + windowMillis;
+    }
+
+    private static final class SourceWindow {
+        final IpAddress srcIP;
+        final boolean exact;
+        final HyperLogLogRing ports;
+        final HyperLogLogRing hosts;
+        long newestSubWindow;
+        long distinctPorts;
+        long distinctHosts;
+        boolean portsStale; // a sub-window was cleared, so the cached estimates may be too high
+        boolean hostsStale;
+        boolean portScanAlerted;
+        boolean hostSweepAlerted;
+
+        SourceWindow(IpAddress srcIP, boolean exact, int precision, int subWindows, long subWindow) {
+            this.srcIP = srcIP;
+            this.exact = exact;
+            this.ports = new HyperLogLogRing(precision, subWindows);
+            this.hosts = new HyperLogLogRing(precision, subWindows);
+            this.newestSubWindow = subWindow;
+        }
+
+        // Clears the ring slots the window slid past; false if subWindow already left the window
+        boolean slideTo(long subWindow, int subWindows) {
+            if (subWindow > newestSubWindow) {
+                long steps = subWindow - newestSubWindow;
+                if (steps >= subWindows) {
+                    ports.clearAll();
+                    hosts.clearAll();
+                } else {
+                    for (long s = newestSubWindow + 1; s <= subWindow; s++) {
+                        int slot = Math.floorMod(s, subWindows);
+                        ports.clear(slot);
+                        hosts.clear(slot);
+                    }
+                }
+                newestSubWindow = subWindow;
+                portsStale = true;
+                hostsStale = true;
+            } else if (subWindow <= newestSubWindow - subWindows) {
+                return false;
+            }
+            return true;
+        }
+    }
+}
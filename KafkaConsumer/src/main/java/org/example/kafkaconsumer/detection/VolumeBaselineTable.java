@@ -0,0 +1,246 @@
+package org.example.kafkaconsumer.detection;
+
+import java.nio.ByteBuffer;
+
+// Open-addressing table from primitive long keys to a fixed-size byte-volume baseline record, stored in one
+// ByteBuffer: on the heap, or off-heap (direct) so that millions of baselines are invisible to the GC.
+// There are no per-entry objects at all; callers address a record by its slot index. The buffer starts small and
+// doubles as keys arrive, up to the capacity for maxEntries, so a table that only sees a few keys (e.g. a backfill
+// chunk's) stays small.
+// Not thread-safe: ByteVolumeDetector guards it with its own lock.
+//
+// Record layout (48 bytes): key, EWMA mean, EWMA variance, current bucket index, bytes in the current bucket,
+// completed bucket count, flags.
+final class VolumeBaselineTable {
+
+    static final int RECORD_SIZE = 48;
+    private static final ByteBuffer EMPTY_RECORD = ByteBuffer.allocate(RECORD_SIZE);
+    private static final int KEY = 0;
+    private static final int MEAN = 8;
+    private static final int VARIANCE = 16;
+    private static final int BUCKET = 24;
+    private static final int CURRENT = 32;
+    private static final int SAMPLES = 40;
+    private static final int FLAGS = 44;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    static final int OCCUPIED = 1;
+    static final int ALERTED = 2; // already alerted for the current bucket
+
+    private final int maxEntries;
+    private final int maxCapacity;
+    private final boolean offHeap;
+    private int mask;
+    private ByteBuffer records;
+    private int size;
+    private long nextSweepBucket; // bucket from which the owner's next removeIdle() can free anything new
+
+    VolumeBaselineTable(int maxEntries, boolean offHeap) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        int capacity = Integer.highestOneBit(Math.max(4, maxEntries + maxEntries / 3) - 1) << 1; // load factor <= 0.75
+        if ((long) capacity * RECORD_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("maxEntries too large for one buffer: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.maxCapacity = capacity;
+        this.offHeap = offHeap;
+        this.mask = Math.min(INITIAL_CAPACITY, capacity) - 1;
+        this.records = allocate(mask + 1);
+    }
+
+    // Slot of key, inserting an empty record for it if absent; -1 if the table is full
+    int slotFor(long key) {
+        int slot = home(key);
+        while (isOccupied(slot)) {
+            if (records.getLong(slot * RECORD_SIZE + KEY) == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size >= maxEntries) {
+            return -1;
+        }
+        if (growIfNeeded()) {
+            slot = home(key);
+            while (isOccupied(slot)) {
+                slot = (slot + 1) & mask;
+            }
+        }
+        int base = slot * RECORD_SIZE;
+        records.putLong(base + KEY, key);
+        records.putInt(base + FLAGS, OCCUPIED);
+        size++;
+        return slot;
+    }
+
+    long key(int slot) {
+        return records.getLong(slot * RECORD_SIZE + KEY);
+    }
+
+    double mean(int slot) {
+        return records.getDouble(slot * RECORD_SIZE + MEAN);
+    }
+
+    double variance(int slot) {
+        return records.getDouble(slot * RECORD_SIZE + VARIANCE);
+    }
+
+    void setBaseline(int slot, double mean, double variance) {
+        records.putDouble(slot * RECORD_SIZE + MEAN, mean);
+        records.putDouble(slot * RECORD_SIZE + VARIANCE, variance);
+    }
+
+    long bucket(int slot) {
+        return records.getLong(slot * RECORD_SIZE + BUCKET);
+    }
+
+    void setBucket(int slot, long bucket) {
+        records.putLong(slot * RECORD_SIZE + BUCKET, bucket);
+    }
+
+    long current(int slot) {
+        return records.getLong(slot * RECORD_SIZE + CURRENT);
+    }
+
+    void setCurrent(int slot, long bytes) {
+        records.putLong(slot * RECORD_SIZE + CURRENT, bytes);
+    }
+
+    int samples(int slot) {
+        return records.getInt(slot * RECORD_SIZE + SAMPLES);
+    }
+
+    void setSamples(int slot, int samples) {
+        records.putInt(slot * RECORD_SIZE + SAMPLES, samples);
+    }
+
+    boolean hasFlag(int slot, int flag) {
+        return (records.getInt(slot * RECORD_SIZE + FLAGS) & flag) != 0;
+    }
+
+    void setFlag(int slot, int flag, boolean on) {
+        int flags = records.getInt(slot * RECORD_SIZE + FLAGS);
+        records.putInt(slot * RECORD_SIZE + FLAGS, on ? flags | flag : flags & ~flag);
+    }
+
+    long nextSweepBucket() {
+        return nextSweepBucket;
+    }
+
+    void setNextSweepBucket(long bucket) {
+        nextSweepBucket = bucket;
+    }
+
+    // Removes every record whose current bucket is older than oldestBucket, in place: each removal shifts the rest
+    // of its probe run back (backward-shift deletion), so no buffer is allocated and lookups need no tombstones.
+    // The scan starts after an empty slot (the load factor guarantees one), so no probe run wraps past its start.
+    int removeIdle(long oldestBucket) {
+        int start = 0;
+        while (isOccupied(start)) {
+            start++;
+        }
+        int before = size;
+        for (int i = 1; i <= mask + 1; i++) {
+            int slot = (start + i) & mask;
+            // a record shifted into this slot has not been looked at yet, so the slot is checked again
+            while (isOccupied(slot) && records.getLong(slot * RECORD_SIZE + BUCKET) < oldestBucket) {
+                delete(slot);
+            }
+        }
+        return before - size;
+    }
+
+    // Copy of all occupied records, packed back to back (for snapshots)
+    ByteBuffer export() {
+        ByteBuffer packed = ByteBuffer.allocate(size * RECORD_SIZE);
+        for (int slot = 0; slot <= mask; slot++) {
+            if (isOccupied(slot)) {
+                packed.put(records.slice(slot * RECORD_SIZE, RECORD_SIZE));
+            }
+        }
+        return packed.flip();
+    }
+
+    // Loads records produced by export(); returns how many did not fit
+    int importRecords(ByteBuffer packed) {
+        int skipped = 0;
+        for (int base = packed.position(); base + RECORD_SIZE <= packed.limit(); base += RECORD_SIZE) {
+            if (size >= maxEntries) {
+                skipped++;
+            } else {
+                growIfNeeded();
+                copyIn(packed, base);
+            }
+        }
+        return skipped;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    // Doubles the buffer once one more record would push the load factor over 0.75; true if it did
+    private boolean growIfNeeded() {
+        int capacity = mask + 1;
+        if (capacity >= maxCapacity || (size + 1) * 4L <= capacity * 3L) {
+            return false;
+        }
+        ByteBuffer old = records;
+        records = allocate(capacity * 2);
+        mask = capacity * 2 - 1;
+        size = 0;
+        for (int base = 0; base < capacity * RECORD_SIZE; base += RECORD_SIZE) {
+            if ((old.getInt(base + FLAGS) & OCCUPIED) != 0) {
+                copyIn(old, base);
+            }
+        }
+        return true;
+    }
+
+    // Empties the slot and moves later records of its probe run back into the gap, so that none of them becomes
+    // unreachable from its home slot
+    private void delete(int slot) {
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (isOccupied(next)) {
+            int home = home(records.getLong(next * RECORD_SIZE + KEY));
+            // the record may fill the gap unless its home lies cyclically in (gap, next]
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                records.put(gap * RECORD_SIZE, records, next * RECORD_SIZE, RECORD_SIZE);
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        records.put(gap * RECORD_SIZE, EMPTY_RECORD, 0, RECORD_SIZE);
+        size--;
+    }
+
+    private void copyIn(ByteBuffer source, int base) {
+        int slot = home(source.getLong(base + KEY));
+        while (isOccupied(slot)) {
+            slot = (slot + 1) & mask;
+        }
+        records.put(slot * RECORD_SIZE, source, base, RECORD_SIZE);
+        size++;
+    }
+
+    private boolean isOccupied(int slot) {
+        return (records.getInt(slot * RECORD_SIZE + FLAGS) & OCCUPIED) != 0;
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return offHeap ? ByteBuffer.allocateDirect(capacity * RECORD_SIZE) : ByteBuffer.allocate(capacity * RECORD_SIZE);
+    }
+
+    private int home(long key) {
+        long h = key * 0x9E3779B97F4A7C15L; // same spreading as LongKeyedStateMap
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,341 @@
+package org.example.kafkaconsumer.detection.rules;
+
+import org.example.kafkaconsumer.intel.IpAddresses;
+import org.example.kafkaconsumer.intel.IpPrefixTrie;
+import org.example.kafkaconsumer.intel.PortSet;
+import org.example.kafkaconsumer.intel.ThreatIntelIndex;
+import org.example.kafkaconsumer.model.IpAddress;
+import org.example.kafkaconsumer.postgres.entity.StructuredNetworkLog;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Up to 64 DetectionRules compiled into one evaluator. Rule i owns bit i of a long, and every field has a lookup
+// structure that yields the set of rules whose condition on that field holds:
+//
+//   port      long[65536] table of rule bits, plus the rules that reference the intel port feed
+//   protocol  rule bits per protocol name
+//   bytes     min/max bounds of the few rules that have them
+//   IPs       IpPrefixTrie per field whose prefix values are rule bits (match() ORs every containing prefix),
+//             plus the rules that reference the intel blacklist
+//
+// A rule matches when every field accepts it, so evaluate() is a chain of ANDs that stops as soon as no candidate
+// is left; fields without a condition for a rule leave its bit set ("don't care"). The cheap fields go first and
+// the IP lookups only run while a rule with an IP condition is still a candidate, on the log's already parsed
+// addresses. The no-match path does not allocate. Immutable once compiled.
+public final class CompiledRuleSet {
+
+    public static final int MAX_RULES = 64;
+
+    private static final CompiledRuleSet EMPTY = new CompiledRuleSet(List.of());
+
+    private final DetectionRule[] rules;
+    private final MessageTemplate[] messages;
+    private final long allRules;
+
+    private final long portRules;
+    private final long[] portMasks; // null when no rule lists explicit ports
+    private final long intelPortRules;
+
+    private final long protocolRules;
+    private final String[] protocolNames;
+    private final long[] protocolMasks;
+
+    private final long byteRules;
+    private final int[] byteRuleBits;
+    private final long[] minBytes;
+    private final long[] maxBytes;
+
+    private final IpCondition src;
+    private final IpCondition dest;
+    private final IpCondition any;
+
+    private CompiledRuleSet(List<DetectionRule> definitions) {
+        if (definitions.size() > MAX_RULES) {
+            throw new IllegalArgumentException("At most " + MAX_RULES + " detection rules are supported, got " + definitions.size());
+        }
+        rules = definitions.toArray(new DetectionRule[0]);
+        messages = new MessageTemplate[rules.length];
+        src = new IpCondition();
+        dest = new IpCondition();
+        any = new IpCondition();
+
+        long all = 0;
+        long withPorts = 0;
+        long intelPorts = 0;
+        long[] portTable = null;
+        long withProtocols = 0;
+        Map<String, Long> protocols = new LinkedHashMap<>();
+        long withBytes = 0;
+        List<Integer> byteBits = new ArrayList<>();
+
+        for (int bit = 0; bit < rules.length; bit++) {
+            DetectionRule rule = rules[bit];
+            long mask = 1L << bit;
+            all |= mask;
+            messages[bit] = MessageTemplate.parse(rule);
+
+            if (rule.ports() != null) {
+                withPorts |= mask;
+                for (String entry : rule.ports()) {
+                    if (DetectionRule.INTEL_SUSPICIOUS_PORTS.equals(entry)) {
+                        intelPorts |= mask;
+                        continue;
+                    }
+                    if (portTable == null) {
+                        portTable = new long[PortSet.MAX_PORT + 1];
+                    }
+                    int[] range = parsePortRange(rule, entry);
+                    for (int port = range[0]; port <= range[1]; port++) {
+                        portTable[port] |= mask;
+                    }
+                }
+            }
+            if (rule.protocols() != null) {
+                withProtocols |= mask;
+                for (String protocol : rule.protocols()) {
+                    protocols.merge(protocol.trim().toUpperCase(Locale.ROOT), mask, (a, b) -> a | b);
+                }
+            }
+            if (rule.minBytes() != null || rule.maxBytes() != null) {
+                withBytes |= mask;
+                byteBits.add(bit);
+            }
+            src.add(rule, bit, rule.srcIps());
+            dest.add(rule, bit, rule.destIps());
+            any.add(rule, bit, rule.anyIps());
+        }
+
+        allRules = all;
+        portRules = withPorts;
+        portMasks = portTable;
+        intelPortRules = intelPorts;
+        protocolRules = withProtocols;
+        protocolNames = protocols.keySet().toArray(new String[0]);
+        protocolMasks = protocols.values().stream().mapToLong(Long::longValue).toArray();
+        byteRules = withBytes;
+        byteRuleBits = byteBits.stream().mapToInt(Integer::intValue).toArray();
+        minBytes = new long[byteRuleBits.length];
+        maxBytes = new long[byteRuleBits.length];
+        for (int i = 0; i < byteRuleBits.length; i++) {
+            DetectionRule rule = rules[byteRuleBits[i]];
+            minBytes[i] = rule.minBytes() != null ? rule.minBytes() : Long.MIN_VALUE;
+            maxBytes[i] = rule.maxBytes() != null ? rule.maxBytes() : Long.MAX_VALUE;
+        }
+    }
+
+    public static CompiledRuleSet compile(List<DetectionRule> rules) {
+        return rules.isEmpty() ? EMPTY : new CompiledRuleSet(rules);
+    }
+
+    // Bit set of the rules matching the log; 0 when none do
+    public long evaluate(StructuredNetworkLog log, ThreatIntelIndex intel) {
+        long candidates = allRules;
+
+        if (portRules != 0) {
+            long port = log.getPort();
+            long matched = portMasks != null && port >= 0 && port <= PortSet.MAX_PORT ? portMasks[(int) port] : 0L;
+            if (intelPortRules != 0 && intel.isSuspiciousPort(port)) {
+                matched |= intelPortRules;
+            }
+            candidates &= matched | ~portRules;
+            if (candidates == 0) {
+                return 0;
+            }
+        }
+
+        if ((candidates & protocolRules) != 0) {
+            long matched = 0;
+            String protocol = log.getProtocol();
+            if (protocol != null) {
+                for (int i = 0; i < protocolNames.length; i++) {
+                    if (protocolNames[i].equalsIgnoreCase(protocol)) {
+                        matched = protocolMasks[i];
+                        break;
+                    }
+                }
+            }
+            candidates &= matched | ~protocolRules;
+            if (candidates == 0) {
+                return 0;
+            }
+        }
+
+        if ((candidates & byteRules) != 0) {
+            long bytes = log.getBytes();
+            for (int i = 0; i < byteRuleBits.length; i++) {
+                if (bytes < minBytes[i] || bytes > maxBytes[i]) {
+                    candidates &= ~(1L << byteRuleBits[i]);
+                }
+            }
+            if (candidates == 0) {
+                return 0;
+            }
+        }
+
+        if ((candidates & src.rules) != 0) {
+            candidates &= src.match(log.getSrcIP(), intel) | ~src.rules;
+        }
+        if ((candidates & dest.rules) != 0) {
+            candidates &= dest.match(log.getDestIP(), intel) | ~dest.rules;
+        }
+        if ((candidates & any.rules) != 0) {
+            long matched = any.match(log.getSrcIP(), intel);
+            if ((candidates & any.rules & ~matched) != 0) { // the destination only matters for rules the source did not satisfy
+                matched |= any.match(log.getDestIP(), intel);
+            }
+            candidates &= matched | ~any.rules;
+        }
+        return candidates;
+    }
+
+    public DetectionRule rule(int bit) {
+        return rules[bit];
+    }
+
+    public int size() {
+        return rules.length;
+    }
+
+    // Alert message of a rule that matched the log
+    public String message(int bit, StructuredNetworkLog log, ThreatIntelIndex intel) {
+        return messages[bit].render(log, matchedIp(bit, log, intel));
+    }
+
+    private IpAddress matchedIp(int bit, StructuredNetworkLog log, ThreatIntelIndex intel) {
+        long mask = 1L << bit;
+        if ((any.rules & mask) != 0) {
+            return (any.match(log.getSrcIP(), intel) & mask) != 0 ? log.getSrcIP() : log.getDestIP();
+        }
+        return (dest.rules & mask) != 0 && (src.rules & mask) == 0 ? log.getDestIP() : log.getSrcIP();
+    }
+
+    private static int[] parsePortRange(DetectionRule rule, String entry) {
+        String text = entry.trim();
+        int dash = text.indexOf('-');
+        try {
+            int from = Integer.parseInt(dash < 0 ? text : text.substring(0, dash).trim());
+            int to = dash < 0 ? from : Integer.parseInt(text.substring(dash + 1).trim());
+            if (from < 0 || to > PortSet.MAX_PORT || from > to) {
+                throw new NumberFormatException();
+            }
+            return new int[]{from, to};
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Detection rule " + rule.id() + ": invalid port or port range '" + entry + "'");
+        }
+    }
+
+    // IP condition on one field (source, destination or either): static prefixes in a trie plus the intel blacklist
+    private static final class IpCondition {
+        private long rules;
+        private long intelRules;
+        private IpPrefixTrie trie;
+        private final long[] ipv6 = new long[2]; // only used while compiling
+
+        void add(DetectionRule rule, int bit, List<String> entries) {
+            if (entries == null) {
+                return;
+            }
+            long mask = 1L << bit;
+            rules |= mask;
+            for (String entry : entries) {
+                String text = entry.trim();
+                if (DetectionRule.INTEL_BLACKLIST.equals(text)) {
+                    intelRules |= mask;
+                    continue;
+                }
+                if (trie == null) {
+                    trie = new IpPrefixTrie();
+                }
+                if (!insert(text, mask)) {
+                    throw new IllegalArgumentException("Detection rule " + rule.id() + ": invalid IP or CIDR range '" + entry + "'");
+                }
+            }
+        }
+
+        private boolean insert(String entry, long mask) {
+            int slash = entry.indexOf('/');
+            String address = slash < 0 ? entry : entry.substring(0, slash);
+            int length;
+            try {
+                length = slash < 0 ? -1 : Integer.parseInt(entry.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            long ipv4 = IpAddresses.parseIpv4(address);
+            if (ipv4 >= 0 && length <= 32) {
+                trie.insertIpv4(ipv4, length < 0 ? 32 : length, mask);
+                return true;
+            }
+            if (ipv4 < 0 && length <= 128 && IpAddresses.parseIpv6(address, ipv6)) {
+                trie.insert(ipv6[0], ipv6[1], length < 0 ? 128 : length, mask);
+                return true;
+            }
+            return false;
+        }
+
+        // Rules of this condition that the address satisfies
+        long match(IpAddress ip, ThreatIntelIndex intel) {
+            long matched = trie != null ? trie.match(ip.hi(), ip.lo()) : 0L;
+            if (intelRules != 0 && intel.isBlacklisted(ip)) {
+                matched |= intelRules;
+            }
+            return matched;
+        }
+    }
+
+    // Alert message template, split into literal text and placeholders once at compile time
+    private static final class MessageTemplate {
+        private static final List<String> FIELDS = List.of("srcIP", "destIP", "port", "protocol", "bytes", "logId", "matchedIp");
+
+        private final String[] literals; // literals[i] precedes fields[i]; the last literal ends the message
+        private final int[] fields;
+
+        private MessageTemplate(String[] literals, int[] fields) {
+            this.literals = literals;
+            this.fields = fields;
+        }
+
+        static MessageTemplate parse(DetectionRule rule) {
+            String template = rule.message() != null ? rule.message()
+                    : rule.alertType() + ": {srcIP} -> {destIP}:{port} ({protocol})";
+            List<String> literals = new ArrayList<>();
+            List<Integer> fields = new ArrayList<>();
+            int position = 0;
+            int open;
+            while ((open = template.indexOf('{', position)) >= 0) {
+                int close = template.indexOf('}', open);
+                int field = close < 0 ? -1 : FIELDS.indexOf(template.substring(open + 1, close));
+                if (field < 0) {
+                    throw new IllegalArgumentException("Detection rule " + rule.id() + ": unknown placeholder in message '" + template
+                            + "', expected one of " + FIELDS);
+                }
+                literals.add(template.substring(position, open));
+                fields.add(field);
+                position = close + 1;
+            }
+            literals.add(template.substring(position));
+            return new MessageTemplate(literals.toArray(new String[0]), fields.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        String render(StructuredNetworkLog log, IpAddress matchedIp) {
+            StringBuilder message = new StringBuilder(128);
+            for (int i = 0; i < fields.length; i++) {
+                message.append(literals[i]);
+                switch (fields[i]) {
+                    case 0 -> message.append(log.getSrcIP());
+                    case 1 -> message.append(log.getDestIP());
+                    case 2 -> message.append(log.getPort());
+                    case 3 -> message.append(log.getProtocol());
+                    case 4 -> message.append(log.getBytes());
+                    case 5 -> message.append(log.getLogId());
+                    default -> message.append(matchedIp);
+                }
+            }
+            return message.append(literals[fields.length]).toString();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.example.kafkaconsumer.detection.rules;
+
+import java.util.List;
+
+// Declarative detection rule: an alert of alertType/severity is raised for every log that satisfies all of the
+// rule's conditions. A null condition is "don't care"; a rule needs at least one condition.
+//
+//   ports      ports or "from-to" ranges, or "intel:suspicious-ports" for the threat-intel port feed
+//   protocols  protocol names, e.g. TCP, HTTPS (case-insensitive)
+//   srcIps     IPs or CIDR ranges the source must be in, or "intel:blacklist"
+//   destIps    same, for the destination
+//   anyIps     same, for either the source or the destination
+//   minBytes   inclusive lower bound on bytes
+//   maxBytes   inclusive upper bound on bytes
+//
+// message is a template: {srcIP}, {destIP}, {port}, {protocol}, {bytes}, {logId} and {matchedIp} (the address
+// that satisfied the IP condition) are replaced with the log's values when the alert is raised.
+public record DetectionRule(String id,
+                            String alertType,
+                            String severity,
+                            String message,
+                            List<String> ports,
+                            List<String> protocols,
+                            List<String> srcIps,
+                            List<String> destIps,
+                            List<String> anyIps,
+                            Long minBytes,
+                            Long maxBytes) {
+
+    public static final String INTEL_SUSPICIOUS_PORTS = "intel:suspicious-ports";
+    public static final String INTEL_BLACKLIST = "intel:blacklist";
+
+    public DetectionRule {
+        if (id == null || id.isBlank()) {
+            throw new IllegalArgumentException("Detection rule needs an id");
+        }
+        if (alertType == null || alertType.isBlank() || severity == null || severity.isBlank()) {
+            throw new IllegalArgumentException("Detection rule " + id + " needs an alert type and a severity");
+        }
+        if (ports == null && protocols == null && srcIps == null && destIps == null && anyIps == null
+                && minBytes == null && maxBytes == null) {
+            throw new IllegalArgumentException("Detection rule " + id + " has no conditions");
+        }
+        ports = ports == null ? null : List.copyOf(ports);
+        protocols = protocols == null ? null : List.copyOf(protocols);
+        srcIps = srcIps == null ? null : List.copyOf(srcIps);
+        destIps = destIps == null ? null : List.copyOf(destIps);
+        anyIps = anyIps == null ? null : List.copyOf(anyIps);
+    }
+}
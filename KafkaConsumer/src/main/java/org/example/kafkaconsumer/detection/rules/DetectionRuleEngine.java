@@ -0,0 +1,80 @@
+package org.example.kafkaconsumer.detection.rules;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Owns the active CompiledRuleSet. Rules come from the rules file (threatsense.detection.rules-file, or the bundled
+// detection-rules.yml when unset) plus every DetectionRuleProvider bean. Like the threat-intel feeds, the file is
+// re-checked periodically and a changed file is compiled off to the side and swapped in with one volatile write;
+// an invalid file keeps the previous rules. Intel references are resolved at evaluation time, so a feed reload
+// needs no recompilation.
+@Service
+public class DetectionRuleEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(DetectionRuleEngine.class);
+    private static final String DEFAULT_RULES = "/detection-rules.yml";
+
+    private final Path rulesFile;
+    private final ObjectProvider<DetectionRuleProvider> providers;
+
+    private volatile CompiledRuleSet ruleSet;
+    private FileTime rulesFileModified;
+
+    public DetectionRuleEngine(@Value("${threatsense.detection.rules-file:}") String rulesFile,
+                               ObjectProvider<DetectionRuleProvider> providers) {
+        this.rulesFile = rulesFile.isBlank() ? null : Path.of(rulesFile);
+        this.providers = providers;
+        reload();
+    }
+
+    public CompiledRuleSet current() {
+        return ruleSet;
+    }
+
+    @Scheduled(initialDelayString = "${threatsense.detection.rules-reload-interval:30s}", fixedDelayString = "${threatsense.detection.rules-reload-interval:30s}")
+    public void reloadIfChanged() {
+        try {
+            if (rulesFile != null && !Files.getLastModifiedTime(rulesFile).equals(rulesFileModified)) {
+                reload();
+            }
+        } catch (IOException e) {
+            logger.warn("Cannot stat {}: {}", rulesFile, e.getMessage());
+        }
+    }
+
+    public synchronized void reload() {
+        try {
+            FileTime modified = rulesFile != null ? Files.getLastModifiedTime(rulesFile) : null;
+            List<DetectionRule> rules = new ArrayList<>();
+            try (InputStream in = rulesFile != null ? Files.newInputStream(rulesFile) : DetectionRuleEngine.class.getResourceAsStream(DEFAULT_RULES)) {
+                if (in == null) {
+                    throw new IOException("Missing bundled " + DEFAULT_RULES);
+                }
+                rules.addAll(DetectionRuleLoader.load(in));
+            }
+            providers.orderedStream().forEach(provider -> rules.addAll(provider.rules()));
+
+            CompiledRuleSet compiled = CompiledRuleSet.compile(rules);
+            this.ruleSet = compiled;
+            this.rulesFileModified = modified;
+            logger.info("Compiled {} detection rules from {}", compiled.size(), rulesFile != null ? rulesFile : "classpath:" + DEFAULT_RULES);
+        } catch (IOException | RuntimeException e) {
+            if (ruleSet == null) {
+                throw new IllegalStateException("Could not load detection rules", e);
+            }
+            logger.warn("Detection rule reload failed, keeping previous rules: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.example.kafkaconsumer.detection.rules;
+
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Reads detection rules from YAML:
+//
+//   rules:
+//     - id: suspicious-port
+//       alert-type: Suspicious Port Activity
+//       severity: HIGH
+//       message: "Detected connection to suspicious port: {port} from {srcIP} to {destIP}. Protocol: {protocol}"
+//       enabled: true                     # optional, default true
+//       when:                             # all conditions must hold
+//         port: [intel:suspicious-ports]  # port, protocol, src-ip, dest-ip, any-ip: one value or a list
+//         min-bytes: 1000000              # min-bytes, max-bytes: inclusive bounds
+//
+// Unknown keys are rejected so that a typo cannot silently widen a rule.
+final class DetectionRuleLoader {
+
+    private static final Set<String> RULE_KEYS = Set.of("id", "alert-type", "severity", "message", "enabled", "when");
+    private static final Set<String> CONDITION_KEYS = Set.of("port", "protocol", "src-ip", "dest-ip", "any-ip", "min-bytes", "max-bytes");
+
+    private DetectionRuleLoader() {
+    }
+
+    static List<DetectionRule> load(InputStream yaml) {
+        Object document = new Yaml(new SafeConstructor(new LoaderOptions())).load(yaml);
+        if (document == null) {
+            return List.of();
+        }
+        Object entries = asMap(document, "rules file").get("rules");
+        if (entries == null) {
+            return List.of();
+        }
+        if (!(entries instanceof List<?> list)) {
+            throw new IllegalArgumentException("'rules' must be a list");
+        }
+        List<DetectionRule> rules = new ArrayList<>(list.size());
+        for (Object entry : list) {
+            DetectionRule rule = toRule(asMap(entry, "rule"));
+            if (rule != null) {
+                rules.add(rule);
+            }
+        }
+        return rules;
+    }
+
+    private static DetectionRule toRule(Map<?, ?> definition) {
+        String id = string(definition.get("id"));
+        checkKeys(definition, RULE_KEYS, id);
+        if (Boolean.FALSE.equals(definition.get("enabled"))) {
+            return null;
+        }
+        Map<?, ?> when = definition.get("when") != null ? asMap(definition.get("when"), "rule " + id + " 'when'") : Map.of();
+        checkKeys(when, CONDITION_KEYS, id);
+        return new DetectionRule(
+                id,
+                string(definition.get("alert-type")),
+                string(definition.get("severity")),
+                string(definition.get("message")),
+                strings(when.get("port")),
+                strings(when.get("protocol")),
+                strings(when.get("src-ip")),
+                strings(when.get("dest-ip")),
+                strings(when.get("any-ip")),
+                number(when.get("min-bytes"), id),
+                number(when.get("max-bytes"), id));
+    }
+
+    private static Map<?, ?> asMap(Object value, String what) {
+        if (!(value instanceof Map<?, ?> map)) {
+            throw new IllegalArgumentException(what + " must be a mapping");
+        }
+        return map;
+    }
+
+    private static void checkKeys(Map<?, ?> map, Set<String> allowed, String id) {
+        for (Object key : map.keySet()) {
+            if (!allowed.contains(String.valueOf(key))) {
+                throw new IllegalArgumentException("Detection rule " + id + ": unknown key '" + key + "', expected one of " + allowed);
+            }
+        }
+    }
+
+    private static String string(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    private static List<String> strings(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Collection<?> values) {
+            return values.stream().map(String::valueOf).toList();
+        }
+        return List.of(value.toString());
+    }
+
+    private static Long number(Object value, String id) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        try {
+            return Long.parseLong(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Detection rule " + id + ": '" + value + "' is not a number");
+        }
+    }
+}
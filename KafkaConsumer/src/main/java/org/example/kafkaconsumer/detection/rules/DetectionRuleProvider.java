@@ -0,0 +1,10 @@
+package org.example.kafkaconsumer.detection.rules;
+
+import java.util.List;
+
+// Extension point for rules defined in code: every Spring bean implementing this interface contributes its rules
+// next to the ones from the rules file. rules() is called again on every reload.
+public interface DetectionRuleProvider {
+
+    List<DetectionRule> rules();
+}
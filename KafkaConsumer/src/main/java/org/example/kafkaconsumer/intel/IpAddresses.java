@@ -0,0 +1,153 @@
+package org.example.kafkaconsumer.intel;
+
+// Parsing of textual IPv4/IPv6 addresses into primitive form, without allocating: an IPv4 address comes back as a
+// long, an IPv6 address is written into an array the caller provides (and can reuse).
+// Every address is viewed as a 128-bit value (hi, lo); IPv4 uses the IPv4-mapped range ::ffff:0:0/96
+// so one trie can hold both families.
+public final class IpAddresses {
+
+    public static final int IPV4_MAPPED_OFFSET = 96; // prefix length of ::ffff:0:0/96
+    private static final long IPV4_MAPPED_MARKER = 0x0000_FFFF_0000_0000L;
+
+    private IpAddresses() {
+    }
+
+    // Returns the address as an unsigned 32-bit value, or -1 if the text is not a dotted-quad IPv4 address
+    public static long parseIpv4(CharSequence text) {
+        return text == null ? -1 : parseIpv4(text, 0, text.length());
+    }
+
+    public static long parseIpv4(CharSequence text, int start, int end) {
+        long address = 0;
+        int octets = 0;
+        int i = start;
+        while (octets < 4) {
+            int value = 0;
+            int digits = 0;
+            while (i < end && digits < 4) {
+                char c = text.charAt(i);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                value = value * 10 + (c - '0');
+                digits++;
+                i++;
+            }
+            if (digits == 0 || digits > 3 || value > 255) {
+                return -1;
+            }
+            address = (address << 8) | value;
+            octets++;
+            if (octets < 4) {
+                if (i >= end || text.charAt(i) != '.') {
+                    return -1;
+                }
+                i++;
+            }
+        }
+        return i == end ? address : -1;
+    }
+
+    // Parses an IPv6 address (including "::" compression, an embedded IPv4 tail and a "%zone" suffix)
+    // into out[0] (high 64 bits) and out[1] (low 64 bits). Returns false if the text is not valid IPv6.
+    public static boolean parseIpv6(CharSequence text, long[] out) {
+        if (text == null) {
+            return false;
+        }
+        int end = text.length();
+        for (int i = 0; i < end; i++) {
+            if (text.charAt(i) == '%') {
+                end = i; // ignore the zone id
+                break;
+            }
+        }
+        if (end < 2) {
+            return false;
+        }
+
+        // Groups before a "::" (or all of them) are put at their final position; groups after it are shifted in
+        // from the right, which leaves them at the end of the address. No group array is needed.
+        long hi = 0;
+        long lo = 0;
+        long tailHi = 0;
+        long tailLo = 0;
+        int count = 0;
+        int gapAt = -1;
+        int i = 0;
+        if (text.charAt(0) == ':') {
+            if (text.charAt(1) != ':') {
+                return false;
+            }
+            gapAt = 0;
+            i = 2;
+        }
+        while (i < end) {
+            int groupStart = i;
+            int value = 0;
+            int digits = 0;
+            while (i < end) {
+                int hex = Character.digit(text.charAt(i), 16);
+                if (hex < 0) {
+                    break;
+                }
+                value = (value << 4) | hex;
+                digits++;
+                i++;
+            }
+            if (i < end && text.charAt(i) == '.') {
+                long ipv4 = parseIpv4(text, groupStart, end);
+                if (ipv4 < 0 || count > 6) {
+                    return false;
+                }
+                if (gapAt < 0) {
+                    lo |= ipv4; // groups 6 and 7 (any other count fails the check below)
+                } else {
+                    tailHi = (tailHi << 32) | (tailLo >>> 32);
+                    tailLo = (tailLo << 32) | ipv4;
+                }
+                count += 2;
+                i = end;
+                break;
+            }
+            if (digits == 0 || digits > 4 || count == 8) {
+                return false;
+            }
+            if (gapAt >= 0) {
+                tailHi = (tailHi << 16) | (tailLo >>> 48);
+                tailLo = (tailLo << 16) | value;
+            } else if (count < 4) {
+                hi |= (long) value << (16 * (3 - count));
+            } else {
+                lo |= (long) value << (16 * (7 - count));
+            }
+            count++;
+            if (i == end) {
+                break;
+            }
+            if (text.charAt(i) != ':') {
+                return false;
+            }
+            i++;
+            if (i < end && text.charAt(i) == ':') {
+                if (gapAt >= 0) {
+                    return false; // only one "::" is allowed
+                }
+                gapAt = count;
+                i++;
+            } else if (i == end) {
+                return false; // trailing single ':'
+            }
+        }
+        if (gapAt < 0 ? count != 8 : count > 7) {
+            return false;
+        }
+        out[0] = hi | tailHi;
+        out[1] = lo | tailLo;
+        return true;
+    }
+
+    // Low 64 bits of the IPv4-mapped form of an IPv4 address (the high 64 bits are zero)
+    public static long ipv4MappedLow(long ipv4) {
+        return IPV4_MAPPED_MARKER | (ipv4 & 0xFFFF_FFFFL);
+    }
+}
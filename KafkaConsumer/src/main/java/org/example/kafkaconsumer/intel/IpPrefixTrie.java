@@ -0,0 +1,196 @@
+package org.example.kafkaconsumer.intel;
+
+import java.util.Arrays;
+
+// Path-compressed binary (Patricia) trie over 128-bit keys. Each stored prefix carries a long bit set;
+// match() ORs together the values of every stored prefix that contains the address.
+// Nodes live in parallel primitive arrays, so a lookup touches at most 129 nodes regardless of how many
+// prefixes are loaded and never allocates. Not thread-safe for writes: build it fully, then publish it.
+public final class IpPrefixTrie {
+
+    private static final int NONE = -1;
+
+    private long[] keyHi;
+    private long[] keyLo;
+    private int[] prefixLength;
+    private int[] left;
+    private int[] right;
+    private long[] values;
+    private int nodeCount;
+    private int root = NONE;
+    private int prefixCount;
+
+    public IpPrefixTrie() {
+        this(16);
+    }
+
+    public IpPrefixTrie(int expectedPrefixes) {
+        int capacity = Math.max(16, expectedPrefixes * 2);
+        keyHi = new long[capacity];
+        keyLo = new long[capacity];
+        prefixLength = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        values = new long[capacity];
+    }
+
+    public void insertIpv4(long ipv4, int length, long value) {
+        insert(0L, IpAddresses.ipv4MappedLow(ipv4), length + IpAddresses.IPV4_MAPPED_OFFSET, value);
+    }
+
+    public void insert(long hi, long lo, int length, long value) {
+        if (length < 0 || length > 128) {
+            throw new IllegalArgumentException("Prefix length must be between 0 and 128: " + length);
+        }
+        if (value == 0L) {
+            throw new IllegalArgumentException("Prefix value must be non-zero");
+        }
+        hi &= maskHi(length);
+        lo &= maskLo(length);
+
+        if (root == NONE) {
+            root = newNode(hi, lo, length, value);
+            return;
+        }
+
+        int parent = NONE;
+        boolean parentRight = false;
+        int node = root;
+        while (true) {
+            int nodeLength = prefixLength[node];
+            int common = Math.min(commonPrefix(keyHi[node], keyLo[node], hi, lo), Math.min(nodeLength, length));
+
+            if (common == nodeLength) {
+                if (nodeLength == length) {
+                    if (values[node] == 0) {
+                        prefixCount++; // an internal split node becomes a stored prefix
+                    }
+                    values[node] |= value;
+                    return;
+                }
+                boolean bit = bitAt(hi, lo, nodeLength);
+                int child = bit ? right[node] : left[node];
+                if (child == NONE) {
+                    setChild(node, bit, newNode(hi, lo, length, value));
+                    return;
+                }
+                parent = node;
+                parentRight = bit;
+                node = child;
+                continue;
+            }
+
+            // The new prefix diverges inside this node's compressed path: split it
+            int replacement;
+            if (common == length) {
+                replacement = newNode(hi, lo, length, value);
+                setChild(replacement, bitAt(keyHi[node], keyLo[node], length), node);
+            } else {
+                replacement = newNode(hi & maskHi(common), lo & maskLo(common), common, 0L);
+                boolean leafBit = bitAt(hi, lo, common);
+                setChild(replacement, leafBit, newNode(hi, lo, length, value));
+                setChild(replacement, !leafBit, node);
+            }
+            if (parent == NONE) {
+                root = replacement;
+            } else {
+                setChild(parent, parentRight, replacement);
+            }
+            return;
+        }
+    }
+
+    public long matchIpv4(long ipv4) {
+        return match(0L, IpAddresses.ipv4MappedLow(ipv4));
+    }
+
+    public long match(long hi, long lo) {
+        long result = 0L;
+        int node = root;
+        while (node != NONE) {
+            int length = prefixLength[node];
+            if (((hi ^ keyHi[node]) & maskHi(length)) != 0 || ((lo ^ keyLo[node]) & maskLo(length)) != 0) {
+                break;
+            }
+            result |= values[node];
+            if (length == 128) {
+                break;
+            }
+            node = bitAt(hi, lo, length) ? right[node] : left[node];
+        }
+        return result;
+    }
+
+    public boolean contains(long hi, long lo) {
+        return match(hi, lo) != 0L;
+    }
+
+    public boolean containsIpv4(long ipv4) {
+        return matchIpv4(ipv4) != 0L;
+    }
+
+    // Number of distinct prefixes stored
+    public int size() {
+        return prefixCount;
+    }
+
+    private int newNode(long hi, long lo, int length, long value) {
+        if (nodeCount == keyHi.length) {
+            int capacity = nodeCount * 2;
+            keyHi = Arrays.copyOf(keyHi, capacity);
+            keyLo = Arrays.copyOf(keyLo, capacity);
+            prefixLength = Arrays.copyOf(prefixLength, capacity);
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        int node = nodeCount++;
+        keyHi[node] = hi;
+        keyLo[node] = lo;
+        prefixLength[node] = length;
+        left[node] = NONE;
+        right[node] = NONE;
+        values[node] = value;
+        if (value != 0L) {
+            prefixCount++;
+        }
+        return node;
+    }
+
+    private void setChild(int node, boolean rightSide, int child) {
+        if (rightSide) {
+            right[node] = child;
+        } else {
+            left[node] = child;
+        }
+    }
+
+    private static int commonPrefix(long hi1, long lo1, long hi2, long lo2) {
+        long high = hi1 ^ hi2;
+        if (high != 0) {
+            return Long.numberOfLeadingZeros(high);
+        }
+        long low = lo1 ^ lo2;
+        return low == 0 ? 128 : 64 + Long.numberOfLeadingZeros(low);
+    }
+
+    private static boolean bitAt(long hi, long lo, int position) {
+        return position < 64
+                ? ((hi >>> (63 - position)) & 1L) != 0
+                : ((lo >>> (127 - position)) & 1L) != 0;
+    }
+
+    private static long maskHi(int length) {
+        if (length >= 64) {
+            return -1L;
+        }
+        return length == 0 ? 0L : -1L << (64 - length);
+    }
+
+    private static long maskLo(int length) {
+        if (length <= 64) {
+            return 0L;
+        }
+        return length == 128 ? -1L : -1L << (128 - length);
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.kafkaconsumer.intel;
+
+// Fixed 8 KB bit set covering every TCP/UDP port (0-65535); membership is one array read.
+public final class PortSet {
+
+    public static final int MAX_PORT = 65535;
+
+    private final long[] words = new long[(MAX_PORT + 1) >>> 6];
+    private int size;
+
+    public void add(int port) {
+        addRange(port, port);
+    }
+
+    public void addRange(int from, int to) {
+        if (from < 0 || to > MAX_PORT || from > to) {
+            throw new IllegalArgumentException("Invalid port range: " + from + "-" + to);
+        }
+        for (int port = from; port <= to; port++) {
+            long bit = 1L << port;
+            if ((words[port >>> 6] & bit) == 0) {
+                words[port >>> 6] |= bit;
+                size++;
+            }
+        }
+    }
+
+    public boolean contains(long port) {
+        return port >= 0 && port <= MAX_PORT && (words[(int) port >>> 6] & (1L << port)) != 0;
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.kafkaconsumer.intel;
+
+import org.example.kafkaconsumer.model.IpAddress;
+
+import java.time.Instant;
+
+// Immutable snapshot of the threat-intel feeds: blacklisted IPs/CIDR ranges and suspicious ports.
+// ThreatIntelService publishes a new instance on every reload, so readers never see a half-built index.
+public final class ThreatIntelIndex {
+
+    private static final long BLACKLISTED = 1L;
+
+    private final IpPrefixTrie blacklist;
+    private final PortSet suspiciousPorts;
+    private final Instant loadedAt;
+
+    private ThreatIntelIndex(IpPrefixTrie blacklist, PortSet suspiciousPorts) {
+        this.blacklist = blacklist;
+        this.suspiciousPorts = suspiciousPorts;
+        this.loadedAt = Instant.now();
+    }
+
+    public boolean isBlacklisted(String ip) {
+        long ipv4 = IpAddresses.parseIpv4(ip);
+        if (ipv4 >= 0) {
+            return blacklist.containsIpv4(ipv4);
+        }
+        long[] ipv6 = new long[2]; // IPv6 is the rare case and allocates this scratch array; the IPv4 path above does not
+        return IpAddresses.parseIpv6(ip, ipv6) && blacklist.contains(ipv6[0], ipv6[1]);
+    }
+
+    public boolean isBlacklisted(IpAddress ip) {
+        return blacklist.contains(ip.hi(), ip.lo());
+    }
+
+    // Variants for callers that have already parsed the address (see IpAddresses)
+    public boolean isBlacklistedIpv4(long ipv4) {
+        return blacklist.containsIpv4(ipv4);
+    }
+
+    public boolean isBlacklisted(long hi, long lo) {
+        return blacklist.contains(hi, lo);
+    }
+
+    public boolean isSuspiciousPort(long port) {
+        return suspiciousPorts.contains(port);
+    }
+
+    public int blacklistSize() {
+        return blacklist.size();
+    }
+
+    public int suspiciousPortCount() {
+        return suspiciousPorts.size();
+    }
+
+    public Instant getLoadedAt() {
+        return loadedAt;
+    }
+
+    public static Builder builder(int expectedIps) {
+        return new Builder(expectedIps);
+    }
+
+    public static final class Builder {
+        private final IpPrefixTrie blacklist;
+        private final PortSet suspiciousPorts = new PortSet();
+        private final long[] ipv6 = new long[2];
+        private int rejected;
+
+        private Builder(int expectedIps) {
+            this.blacklist = new IpPrefixTrie(expectedIps);
+        }
+
+        // Accepts a single address ("1.2.3.4", "2001:db8::1") or a CIDR range ("10.0.0.0/8", "2001:db8::/32")
+        public boolean addIpOrCidr(String entry) {
+            int slash = entry.indexOf('/');
+            String address = slash < 0 ? entry : entry.substring(0, slash);
+            int length;
+            try {
+                length = slash < 0 ? -1 : Integer.parseInt(entry.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                rejected++;
+                return false;
+            }
+
+            long ipv4 = IpAddresses.parseIpv4(address);
+            if (ipv4 >= 0 && length <= 32) {
+                blacklist.insertIpv4(ipv4, length < 0 ? 32 : length, BLACKLISTED);
+                return true;
+            }
+            if (ipv4 < 0 && length <= 128 && IpAddresses.parseIpv6(address, ipv6)) {
+                blacklist.insert(ipv6[0], ipv6[1], length < 0 ? 128 : length, BLACKLISTED);
+                return true;
+            }
+            rejected++;
+            return false;
+        }
+
+        // Accepts a single port ("3389") or an inclusive range ("6000-6063")
+        public boolean addPortOrRange(String entry) {
+            int dash = entry.indexOf('-');
+            try {
+                if (dash < 0) {
+                    suspiciousPorts.add(Integer.parseInt(entry));
+                } else {
+                    suspiciousPorts.addRange(Integer.parseInt(entry.substring(0, dash)), Integer.parseInt(entry.substring(dash + 1)));
+                }
+                return true;
+            } catch (IllegalArgumentException e) { // includes NumberFormatException
+                rejected++;
+                return false;
+            }
+        }
+
+        public int getRejected() {
+            return rejected;
+        }
+
+        public ThreatIntelIndex build() {
+            return new ThreatIntelIndex(blacklist, suspiciousPorts);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.kafkaconsumer.intel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.function.Predicate;
+
+// Loads the threat-intel feeds from local files and hot-reloads them when they change.
+// A reload builds a complete new ThreatIntelIndex off to the side and swaps it in with a single volatile write,
+// so lookups on the ingestion path never block and never see a partially loaded feed.
+//
+// Feed format (both files): one entry per line, '#' starts a comment, anything after the first
+// whitespace or comma is ignored. IP feed entries are addresses or CIDR ranges; port feed entries
+// are ports or "from-to" ranges. Without a configured file the built-in defaults are used.
+@Service
+public class ThreatIntelService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThreatIntelService.class);
+
+    private final Path ipFeed;
+    private final Path portFeed;
+    private final List<String> defaultBlacklistedIps;
+    private final List<String> defaultSuspiciousPorts;
+
+    private volatile ThreatIntelIndex index;
+    private FileTime ipFeedModified;
+    private FileTime portFeedModified;
+
+    public ThreatIntelService(@Value("${threatsense.intel.ip-feed:}") String ipFeed,
+                              @Value("${threatsense.intel.port-feed:}") String portFeed,
+                              @Value("${threatsense.intel.blacklisted-ips:1.2.3.4,192.0.2.1,10.0.0.1}") List<String> defaultBlacklistedIps,
+                              @Value("${threatsense.intel.suspicious-ports:23,3389,22,445}") List<String> defaultSuspiciousPorts) {
+        this.ipFeed = ipFeed.isBlank() ? null : Path.of(ipFeed);
+        this.portFeed = portFeed.isBlank() ? null : Path.of(portFeed);
+        this.defaultBlacklistedIps = defaultBlacklistedIps;
+        this.defaultSuspiciousPorts = defaultSuspiciousPorts;
+        reload();
+    }
+
+    public ThreatIntelIndex current() {
+        return index;
+    }
+
+    @Scheduled(initialDelayString = "${threatsense.intel.reload-interval:30s}", fixedDelayString = "${threatsense.intel.reload-interval:30s}")
+    public void reloadIfChanged() {
+        if (modifiedSince(ipFeed, ipFeedModified) || modifiedSince(portFeed, portFeedModified)) {
+            reload();
+        }
+    }
+
+    public synchronized void reload() {
+        try {
+            FileTime ipModified = lastModified(ipFeed);
+            FileTime portModified = lastModified(portFeed);
+            int expectedIps = ipFeed != null ? (int) Math.min(Files.size(ipFeed) / 8, 1 << 24) : defaultBlacklistedIps.size();
+
+            ThreatIntelIndex.Builder builder = ThreatIntelIndex.builder(expectedIps);
+            if (ipFeed != null) {
+                readEntries(ipFeed, builder::addIpOrCidr);
+            } else {
+                defaultBlacklistedIps.forEach(ip -> builder.addIpOrCidr(ip.trim()));
+            }
+            if (portFeed != null) {
+                readEntries(portFeed, builder::addPortOrRange);
+            } else {
+                defaultSuspiciousPorts.forEach(port -> builder.addPortOrRange(port.trim()));
+            }
+
+            ThreatIntelIndex loaded = builder.build();
+            this.index = loaded;
+            this.ipFeedModified = ipModified;
+            this.portFeedModified = portModified;
+            logger.info("Loaded {} blacklisted IPs/ranges and {} suspicious ports ({} invalid entries skipped)",
+                    loaded.blacklistSize(), loaded.suspiciousPortCount(), builder.getRejected());
+        } catch (IOException | RuntimeException e) {
+            if (index == null) {
+                throw new IllegalStateException("Could not load threat-intel feeds", e);
+            }
+            logger.warn("Reload failed, keeping previous feed: {}", e.getMessage());
+        }
+    }
+
+    private static void readEntries(Path file, Predicate<String> sink) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.strip();
+                int end = line.length();
+                for (int i = 0; i < line.length(); i++) {
+                    char c = line.charAt(i);
+                    if (c == '#' || c == ',' || Character.isWhitespace(c)) {
+                        end = i;
+                        break;
+                    }
+                }
+                if (end > 0) {
+                    sink.test(line.substring(0, end));
+                }
+            }
+        }
+    }
+
+    private static boolean modifiedSince(Path file, FileTime previous) {
+        try {
+            return file != null && !lastModified(file).equals(previous);
+        } catch (IOException e) {
+            logger.warn("Cannot stat {}: {}", file, e.getMessage());
+            return false;
+        }
+    }
+
+    private static FileTime lastModified(Path file) throws IOException {
+        return file == null ? null : Files.getLastModifiedTime(file);
+    }
+}
@@ -0,0 +1,172 @@
+package org.example.kafkaconsumer.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Micrometer instrumentation of the ingestion pipeline, exposed through /actuator/metrics and /actuator/prometheus.
+//
+//   threatsense.ingest.receive.lag      time from the source commit (change-stream clusterTime or Kafka record
+//                                       timestamp) until the consumer received the event, tagged by source
+//   threatsense.ingest.save             multi-row INSERT of one batch into PostgreSQL
+//   threatsense.ingest.batch.size       logs per saved batch
+//   threatsense.ingest.analysis         alert analysis of one saved batch, including its alert writes
+//   threatsense.alert.write             one alert INSERT, tagged with outcome inserted/duplicate/error/cancelled
+//   threatsense.pipeline.lag            end to end: now minus the log's own timestamp once it has been analyzed
+//   threatsense.alerts.raised           alerts written, tagged by alert type (a coalesced alert counts once)
+//   threatsense.ingest.records.skipped  source records that could not be decoded
+//   threatsense.ingest.batches.in-flight, threatsense.alert.writes.in-flight
+//
+// Timers publish percentile histograms so latency percentiles can be aggregated across instances.
+@Component
+public class PipelineMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Timer saveTimer;
+    private final DistributionSummary batchSize;
+    private final Timer analysisTimer;
+    private final Timer pipelineLag;
+    private final Counter skippedRecords;
+    private final AtomicInteger batchesInFlight = new AtomicInteger();
+    private final AtomicInteger alertWritesInFlight = new AtomicInteger();
+
+    // Tagged meters are looked up once per tag value instead of on every event
+    private final Map<String, Timer> receiveLag = new ConcurrentHashMap<>();
+    private final Map<String, Timer> alertWrites = new ConcurrentHashMap<>();
+    private final Map<String, Counter> alertsRaised = new ConcurrentHashMap<>();
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.saveTimer = latencyTimer("threatsense.ingest.save", "PostgreSQL insert of one structured log batch").register(registry);
+        this.batchSize = DistributionSummary.builder("threatsense.ingest.batch.size")
+                .description("Structured logs per saved batch")
+                .baseUnit("logs")
+                .register(registry);
+        this.analysisTimer = latencyTimer("threatsense.ingest.analysis", "Alert analysis of one saved batch").register(registry);
+        this.pipelineLag = latencyTimer("threatsense.pipeline.lag", "Time from the log's timestamp until it has been stored and analyzed")
+                .maximumExpectedValue(Duration.ofMinutes(10))
+                .register(registry);
+        this.skippedRecords = Counter.builder("threatsense.ingest.records.skipped")
+                .description("Source records that could not be decoded")
+                .register(registry);
+        Gauge.builder("threatsense.ingest.batches.in-flight", batchesInFlight, AtomicInteger::get)
+                .description("Batches being saved or analyzed")
+                .register(registry);
+        Gauge.builder("threatsense.alert.writes.in-flight", alertWritesInFlight, AtomicInteger::get)
+                .description("Alert INSERTs awaiting a response")
+                .register(registry);
+    }
+
+    private static Timer.Builder latencyTimer(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1));
+    }
+
+    // Source commit time -> receipt; a null or future commit time (clock skew) is ignored
+    public void recordReceived(String source, Instant committedAt) {
+        if (committedAt != null) {
+            recordReceived(source, committedAt.toEpochMilli());
+        }
+    }
+
+    public void recordReceived(String source, long committedAtMillis) {
+        long lag = System.currentTimeMillis() - committedAtMillis;
+        if (lag >= 0) {
+            receiveLag.computeIfAbsent(source, s -> latencyTimer("threatsense.ingest.receive.lag", "Time from source commit until the consumer received the event")
+                            .maximumExpectedValue(Duration.ofMinutes(10))
+                            .tag("source", s)
+                            .register(registry))
+                    .record(lag, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void recordSkipped() {
+        skippedRecords.increment();
+    }
+
+    public <T> Mono<T> timeSave(int logs, Mono<T> save) {
+        batchSize.record(logs);
+        return timed(save, saveTimer);
+    }
+
+    public <T> Mono<T> timeAnalysis(Mono<T> analysis) {
+        return timed(analysis, analysisTimer);
+    }
+
+    // Tracks the batch as in flight from subscription until the returned Mono terminates or is cancelled
+    public <T> Mono<T> trackBatch(Mono<T> batch) {
+        return trackInFlight(batch, batchesInFlight);
+    }
+
+    // Times one alert INSERT ... ON CONFLICT DO NOTHING RETURNING id: a returned id is a new alert, empty means the
+    // (log, type) pair already had one
+    public Mono<Long> timeAlertWrite(String alertType, Mono<Long> insert) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            alertWritesInFlight.incrementAndGet();
+            return insert
+                    .doOnSuccess(id -> {
+                        finishAlertWrite(start, id != null ? "inserted" : "duplicate");
+                        if (id != null) {
+                            recordAlertRaised(alertType);
+                        }
+                    })
+                    .doOnError(e -> finishAlertWrite(start, "error"))
+                    .doOnCancel(() -> finishAlertWrite(start, "cancelled"));
+        });
+    }
+
+    // An alert row written outside timeAlertWrite (coalesced alerts are inserted in batches)
+    public void recordAlertRaised(String alertType) {
+        alertsRaised.computeIfAbsent(alertType, type -> Counter.builder("threatsense.alerts.raised")
+                        .description("Alerts written to PostgreSQL")
+                        .tag("type", type)
+                        .register(registry))
+                .increment();
+    }
+
+    private void finishAlertWrite(long start, String outcome) {
+        alertWritesInFlight.decrementAndGet();
+        alertWrites.computeIfAbsent(outcome, o -> latencyTimer("threatsense.alert.write", "One alert INSERT")
+                        .tag("outcome", o)
+                        .register(registry))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPipelineLag(Instant logTimestamp, long nowMillis) {
+        if (logTimestamp != null) {
+            long lag = nowMillis - logTimestamp.toEpochMilli();
+            if (lag >= 0) {
+                pipelineLag.record(lag, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private static <T> Mono<T> timed(Mono<T> mono, Timer timer) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return mono.doFinally(signal -> timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    private static <T> Mono<T> trackInFlight(Mono<T> mono, AtomicInteger counter) {
+        return Mono.defer(() -> {
+            counter.incrementAndGet();
+            return mono.doFinally(signal -> counter.decrementAndGet());
+        });
+    }
+}
@@ -0,0 +1,171 @@
+package org.example.kafkaconsumer.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+import org.example.kafkaconsumer.intel.IpAddresses;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+// An IPv4 or IPv6 address as a 128-bit value (hi, lo), parsed once when a log is ingested.
+// IPv4 uses the IPv4-mapped range ::ffff:0:0/96 (see IpAddresses), so both families share one representation,
+// equality and hashing are two long comparisons, and the value can be handed straight to IpPrefixTrie.
+// Stored in PostgreSQL as inet (see IpAddressConverters) and written as text in JSON.
+public final class IpAddress implements Comparable<IpAddress> {
+
+    private static final long IPV4_MAPPED_HIGH_BITS = 0x0000_FFFFL; // lo >>> 32 of an IPv4-mapped address
+
+    private final long hi;
+    private final long lo;
+
+    private IpAddress(long hi, long lo) {
+        this.hi = hi;
+        this.lo = lo;
+    }
+
+    public static IpAddress of(long hi, long lo) {
+        return new IpAddress(hi, lo);
+    }
+
+    public static IpAddress ofIpv4(long ipv4) {
+        return new IpAddress(0L, IpAddresses.ipv4MappedLow(ipv4));
+    }
+
+    // Parses a dotted-quad IPv4 or textual IPv6 address; throws IllegalArgumentException if it is neither
+    @JsonCreator
+    public static IpAddress parse(String text) {
+        IpAddress address = tryParse(text);
+        if (address == null) {
+            throw new IllegalArgumentException("Invalid IP address: '" + text + "'");
+        }
+        return address;
+    }
+
+    // Same as parse, but returns null for invalid or missing input. Besides the result, an IPv6 address costs a
+    // two-long scratch array; an IPv4 address costs nothing more.
+    public static IpAddress tryParse(String text) {
+        long ipv4 = IpAddresses.parseIpv4(text);
+        if (ipv4 >= 0) {
+            return ofIpv4(ipv4);
+        }
+        long[] ipv6 = new long[2];
+        return IpAddresses.parseIpv6(text, ipv6) ? new IpAddress(ipv6[0], ipv6[1]) : null;
+    }
+
+    public static IpAddress fromInetAddress(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        if (bytes.length == 4) {
+            return ofIpv4(readInt(bytes, 0) & 0xFFFF_FFFFL);
+        }
+        return new IpAddress(((long) readInt(bytes, 0) << 32) | (readInt(bytes, 4) & 0xFFFF_FFFFL),
+                ((long) readInt(bytes, 8) << 32) | (readInt(bytes, 12) & 0xFFFF_FFFFL));
+    }
+
+    public InetAddress toInetAddress() {
+        byte[] bytes;
+        if (isIpv4()) {
+            bytes = new byte[4];
+            writeInt(bytes, 0, (int) lo);
+        } else {
+            bytes = new byte[16];
+            writeInt(bytes, 0, (int) (hi >>> 32));
+            writeInt(bytes, 4, (int) hi);
+            writeInt(bytes, 8, (int) (lo >>> 32));
+            writeInt(bytes, 12, (int) lo);
+        }
+        try {
+            return InetAddress.getByAddress(bytes); // no name lookup for a raw address
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e); // only thrown for illegal lengths
+        }
+    }
+
+    public boolean isIpv4() {
+        return hi == 0 && (lo >>> 32) == IPV4_MAPPED_HIGH_BITS;
+    }
+
+    // The unsigned 32-bit IPv4 address; only meaningful when isIpv4()
+    public long ipv4() {
+        return lo & 0xFFFF_FFFFL;
+    }
+
+    public long hi() {
+        return hi;
+    }
+
+    public long lo() {
+        return lo;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof IpAddress address && address.hi == hi && address.lo == lo;
+    }
+
+    @Override
+    public int hashCode() {
+        long h = (hi * 0x9E3779B97F4A7C15L) ^ lo;
+        h *= 0xBF58476D1CE4E5B9L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    public int compareTo(IpAddress other) {
+        int byHigh = Long.compareUnsigned(hi, other.hi);
+        return byHigh != 0 ? byHigh : Long.compareUnsigned(lo, other.lo);
+    }
+
+    // Dotted quad for IPv4, RFC 5952 form (lower case, longest zero run as "::") for IPv6
+    @JsonValue
+    @Override
+    public String toString() {
+        if (isIpv4()) {
+            return ((lo >>> 24) & 0xFF) + "." + ((lo >>> 16) & 0xFF) + "." + ((lo >>> 8) & 0xFF) + "." + (lo & 0xFF);
+        }
+        int[] groups = new int[8];
+        for (int i = 0; i < 4; i++) {
+            groups[i] = (int) (hi >>> (48 - 16 * i)) & 0xFFFF;
+            groups[i + 4] = (int) (lo >>> (48 - 16 * i)) & 0xFFFF;
+        }
+        int bestStart = -1;
+        int bestLength = 1; // a single zero group is not compressed
+        for (int i = 0; i < 8; ) {
+            if (groups[i] != 0) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < 8 && groups[i] == 0) {
+                i++;
+            }
+            if (i - start > bestLength) {
+                bestStart = start;
+                bestLength = i - start;
+            }
+        }
+        StringBuilder text = new StringBuilder(39);
+        for (int i = 0; i < 8; i++) {
+            if (i == bestStart) {
+                text.append("::");
+                i += bestLength - 1;
+                continue;
+            }
+            if (text.length() > 0 && text.charAt(text.length() - 1) != ':') {
+                text.append(':');
+            }
+            text.append(Integer.toHexString(groups[i]));
+        }
+        return text.toString();
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16 | (bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,14 @@
+package org.example.kafkaconsumer.mongodb.checkpoint;
+
+import org.bson.BsonDocument;
+import reactor.core.publisher.Mono;
+
+// Persists the resume token of the last fully processed change-stream event, so a restarted consumer
+// continues right after it instead of losing or re-reading events.
+public interface ChangeStreamCheckpointStore {
+
+    // Completes empty when no checkpoint has been written yet
+    Mono<BsonDocument> load();
+
+    Mono<Void> save(BsonDocument resumeToken);
+}
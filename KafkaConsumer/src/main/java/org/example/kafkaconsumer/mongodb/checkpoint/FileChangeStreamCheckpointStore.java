@@ -0,0 +1,45 @@
+package org.example.kafkaconsumer.mongodb.checkpoint;
+
+import org.bson.BsonDocument;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+// Default checkpoint store: the resume token as JSON in a local file, replaced atomically on every save
+@Component
+@ConditionalOnProperty(name = "threatsense.ingest.change-stream.checkpoint.store", havingValue = "file", matchIfMissing = true)
+public class FileChangeStreamCheckpointStore implements ChangeStreamCheckpointStore {
+
+    private final Path file;
+
+    public FileChangeStreamCheckpointStore(@Value("${threatsense.ingest.change-stream.checkpoint.file:checkpoints/network_logs.resume-token.json}") String file) {
+        this.file = Path.of(file);
+    }
+
+    @Override
+    public Mono<BsonDocument> load() {
+        return Mono.fromCallable(() -> Files.exists(file) ? BsonDocument.parse(Files.readString(file, StandardCharsets.UTF_8)) : null)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<Void> save(BsonDocument resumeToken) {
+        return Mono.fromCallable(() -> {
+                    Path directory = file.toAbsolutePath().getParent();
+                    Files.createDirectories(directory);
+                    Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+                    Files.writeString(temp, resumeToken.toJson(), StandardCharsets.UTF_8);
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    return file;
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.kafkaconsumer.mongodb.checkpoint;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+// Keeps the resume token in MongoDB itself (collection change_stream_checkpoints), for consumers without durable local disk
+@Component
+@ConditionalOnProperty(name = "threatsense.ingest.change-stream.checkpoint.store", havingValue = "mongo")
+public class MongoChangeStreamCheckpointStore implements ChangeStreamCheckpointStore {
+
+    private static final String COLLECTION = "change_stream_checkpoints";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final String checkpointId;
+
+    public MongoChangeStreamCheckpointStore(ReactiveMongoTemplate mongoTemplate,
+                                            @Value("${threatsense.ingest.change-stream.checkpoint.id:network_logs}") String checkpointId) {
+        this.mongoTemplate = mongoTemplate;
+        this.checkpointId = checkpointId;
+    }
+
+    @Override
+    public Mono<BsonDocument> load() {
+        return mongoTemplate.findById(checkpointId, Document.class, COLLECTION)
+                .mapNotNull(document -> document.get("resumeToken", Document.class))
+                .map(token -> BsonDocument.parse(token.toJson()));
+    }
+
+    @Override
+    public Mono<Void> save(BsonDocument resumeToken) {
+        Update update = new Update()
+                .set("resumeToken", Document.parse(resumeToken.toJson()))
+                .set("updatedAt", Instant.now());
+        return mongoTemplate.upsert(Query.query(Criteria.where("_id").is(checkpointId)), update, COLLECTION).then();
+    }
+}
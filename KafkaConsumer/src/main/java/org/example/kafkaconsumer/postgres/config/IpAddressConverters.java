@@ -0,0 +1,35 @@
+package org.example.kafkaconsumer.postgres.config;
+
+import org.example.kafkaconsumer.model.IpAddress;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+
+import java.net.InetAddress;
+
+// Maps IpAddress to and from java.net.InetAddress, which the R2DBC PostgreSQL driver reads and writes as inet
+public final class IpAddressConverters {
+
+    private IpAddressConverters() {
+    }
+
+    @WritingConverter
+    public enum ToInetAddress implements Converter<IpAddress, InetAddress> {
+        INSTANCE;
+
+        @Override
+        public InetAddress convert(IpAddress source) {
+            return source.toInetAddress();
+        }
+    }
+
+    @ReadingConverter
+    public enum FromInetAddress implements Converter<InetAddress, IpAddress> {
+        INSTANCE;
+
+        @Override
+        public IpAddress convert(InetAddress source) {
+            return IpAddress.fromInetAddress(source);
+        }
+    }
+}
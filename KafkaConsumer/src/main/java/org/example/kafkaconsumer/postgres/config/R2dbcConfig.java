@@ -0,0 +1,19 @@
+package org.example.kafkaconsumer.postgres.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
+import org.springframework.data.r2dbc.dialect.PostgresDialect;
+
+import java.util.List;
+
+// Custom R2DBC conversions, replacing Spring Boot's default R2dbcCustomConversions bean
+@Configuration
+public class R2dbcConfig {
+
+    @Bean
+    public R2dbcCustomConversions r2dbcCustomConversions() {
+        return R2dbcCustomConversions.of(PostgresDialect.INSTANCE,
+                List.of(IpAddressConverters.ToInetAddress.INSTANCE, IpAddressConverters.FromInetAddress.INSTANCE));
+    }
+}
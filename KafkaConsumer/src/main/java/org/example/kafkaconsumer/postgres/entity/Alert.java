@@ -25,6 +25,9 @@ public class Alert {
     @Column("network_log_id")
     private Long networkLogId; // Foreign key to network_logs table
 
+    @Column("network_log_timestamp")
+    private Instant networkLogTimestamp; // Timestamp of that log: the partition key and the rest of the foreign key
+
     @Column("alert_type")
     private String alertType; // "Blacklisted IP, Suspicious port, etc"
 
@@ -42,13 +45,24 @@ public class Alert {
     @Column("acknowledged_at")
     private Instant acknowledgedAt;
 
-    public Alert(Long networkLogId, String alertType, String severity, String alertMessage) {
+    @Column("occurrence_count")
+    private long occurrenceCount; // Occurrences folded into this alert, see AlertCoalescer
+    @Column("first_seen")
+    private Instant firstSeen;    // Log timestamps of the first and last occurrence
+    @Column("last_seen")
+    private Instant lastSeen;
+
+    public Alert(Long networkLogId, Instant networkLogTimestamp, String alertType, String severity, String alertMessage) {
         this.alertId = UUID.randomUUID().toString();
         this.networkLogId = networkLogId;
+        this.networkLogTimestamp = networkLogTimestamp;
         this.alertType = alertType;
         this.severity = severity;
         this.alertMessage = alertMessage;
         this.status = "NEW";
         this.raisedAt = Instant.now();
+        this.occurrenceCount = 1;
+        this.firstSeen = networkLogTimestamp;
+        this.lastSeen = networkLogTimestamp;
     }
 }
@@ -0,0 +1,7 @@
+package org.example.kafkaconsumer.postgres.entity;
+
+import java.time.Instant;
+
+// Further occurrences of an already stored (coalesced) alert: added to its occurrence_count, widening first_seen/last_seen
+public record AlertOccurrences(long alertId, Instant networkLogTimestamp, long count, Instant firstSeen, Instant lastSeen) {
+}
@@ -0,0 +1,12 @@
+package org.example.kafkaconsumer.postgres.entity;
+
+import java.time.Instant;
+
+// Progress of one chunk of a backfill job (backfill_progress)
+public record BackfillChunk(Instant chunkStart, Instant chunkEnd, String status, long logsProcessed, String error,
+                            Instant updatedAt) {
+
+    public static final String RUNNING = "RUNNING";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+}
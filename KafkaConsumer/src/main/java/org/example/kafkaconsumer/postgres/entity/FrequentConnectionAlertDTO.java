@@ -5,14 +5,16 @@ package org.example.kafkaconsumer.postgres.entity;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.example.kafkaconsumer.model.IpAddress;
+
 import java.time.Instant;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class FrequentConnectionAlertDTO {
-    private String srcIP;
-    private String destIP;
+    private IpAddress srcIP;
+    private IpAddress destIP;
     private Long connectionCount;
     private Instant latestLogTimestamp;
     private Long latestLogId;
@@ -1,5 +1,6 @@
 package org.example.kafkaconsumer.postgres.entity; // New package for PostgreSQL entities
 
+import org.example.kafkaconsumer.model.IpAddress;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
@@ -23,9 +24,9 @@ public class StructuredNetworkLog {
     @Column("timestamp")
     private Instant timestamp;
     @Column("src_ip")
-    private String srcIP;
+    private IpAddress srcIP; // inet column
     @Column("dest_ip")
-    private String destIP;
+    private IpAddress destIP;
     private long port;
     private String protocol;
     private long bytes;
@@ -40,7 +41,7 @@ public class StructuredNetworkLog {
 
 
     // All-argument constructor (without 'id' as it's auto-generated by DB)
-    public StructuredNetworkLog(String srcIP, String destIP, long port, String protocol, long bytes, Instant timestamp, String message, String rawLog) {
+    public StructuredNetworkLog(IpAddress srcIP, IpAddress destIP, long port, String protocol, long bytes, Instant timestamp, String message, String rawLog) {
         this(); // Call no-arg constructor to generate logId
         this.srcIP = srcIP;
         this.destIP = destIP;
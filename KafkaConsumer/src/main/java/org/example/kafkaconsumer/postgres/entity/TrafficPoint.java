@@ -0,0 +1,7 @@
+package org.example.kafkaconsumer.postgres.entity;
+
+import java.time.Instant;
+
+// Traffic within one bucket of a time series
+public record TrafficPoint(Instant bucketStart, long bytes, long connections) {
+}
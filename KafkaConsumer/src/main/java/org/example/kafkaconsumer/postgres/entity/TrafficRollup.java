@@ -0,0 +1,7 @@
+package org.example.kafkaconsumer.postgres.entity;
+
+import java.time.Instant;
+
+// One row of traffic_rollups_1m / traffic_rollups_1h: traffic of one dimension value within one bucket
+public record TrafficRollup(String dimension, Instant bucketStart, String value, long bytes, long connections) {
+}
@@ -0,0 +1,5 @@
+package org.example.kafkaconsumer.postgres.entity;
+
+// Traffic of one dimension value summed over a time range (top-talker queries)
+public record TrafficTotal(String value, long bytes, long connections) {
+}
@@ -0,0 +1,123 @@
+package org.example.kafkaconsumer.postgres.repository;
+
+import org.example.kafkaconsumer.postgres.entity.Alert;
+import org.example.kafkaconsumer.postgres.entity.AlertOccurrences;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Multi-row writes of coalesced alerts (AlertCoalescer): new alerts in one INSERT, and further occurrences of stored
+// alerts in one UPDATE ... FROM (VALUES ...), instead of a statement per alert. findId() looks up the stored row an
+// alert conflicted with.
+@Repository
+public class AlertBatchRepository {
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO alerts (alert_id, network_log_id, network_log_timestamp, alert_type, severity, status, alert_message, " +
+            "raised_at, occurrence_count, first_seen, last_seen) VALUES ";
+    private static final String INSERT_SUFFIX =
+            " ON CONFLICT (network_log_id, network_log_timestamp, alert_type) DO NOTHING RETURNING id, network_log_id, alert_type";
+    private static final int INSERT_COLUMN_COUNT = 11;
+
+    // Rows are matched on the full primary key so that only the alert's own partition is touched
+    private static final String UPDATE_PREFIX =
+            "UPDATE alerts a SET occurrence_count = a.occurrence_count + v.count, " +
+            "first_seen = LEAST(a.first_seen, v.first_seen), last_seen = GREATEST(a.last_seen, v.last_seen) FROM (VALUES ";
+    private static final String UPDATE_SUFFIX =
+            ") AS v (id, network_log_timestamp, count, first_seen, last_seen) " +
+            "WHERE a.id = v.id AND a.network_log_timestamp = v.network_log_timestamp";
+    private static final String[] UPDATE_CASTS = {"bigint", "timestamptz", "bigint", "timestamptz", "timestamptz"};
+
+    private static final String FIND_ID =
+            "SELECT id FROM alerts WHERE network_log_id = $1 AND network_log_timestamp = $2 AND alert_type = $3";
+
+    // Callers split larger sets into statements of at most this many rows
+    public static final int MAX_INSERT_ROWS_PER_STATEMENT = 500;
+    public static final int MAX_UPDATE_ROWS_PER_STATEMENT = 1000;
+
+    private final DatabaseClient databaseClient;
+    private final Map<Integer, String> insertSqlBySize = new ConcurrentHashMap<>();
+    private final Map<Integer, String> updateSqlBySize = new ConcurrentHashMap<>();
+
+    public AlertBatchRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    // Inserts the alerts with their occurrence counts in one statement, sets the generated id on each alert that was
+    // inserted and emits it. An alert whose (log, type) already has a row (a re-delivered log) is skipped and not
+    // emitted. (network_log_id, alert_type) must be unique within one call.
+    public Flux<Alert> insertAll(List<Alert> alerts) {
+        if (alerts.isEmpty()) {
+            return Flux.empty();
+        }
+        if (alerts.size() > MAX_INSERT_ROWS_PER_STATEMENT) {
+            throw new IllegalArgumentException("At most " + MAX_INSERT_ROWS_PER_STATEMENT + " alerts per statement, got " + alerts.size());
+        }
+        Map<AlertKey, Alert> byKey = new HashMap<>(alerts.size() * 2);
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql(insertSqlBySize, alerts.size(), INSERT_PREFIX, INSERT_SUFFIX, INSERT_COLUMN_COUNT, null));
+        int index = 0;
+        for (Alert alert : alerts) {
+            byKey.put(new AlertKey(alert.getNetworkLogId(), alert.getAlertType()), alert);
+            spec = spec.bind(index++, alert.getAlertId())
+                    .bind(index++, alert.getNetworkLogId())
+                    .bind(index++, alert.getNetworkLogTimestamp())
+                    .bind(index++, alert.getAlertType())
+                    .bind(index++, alert.getSeverity())
+                    .bind(index++, alert.getStatus());
+            spec = alert.getAlertMessage() != null ? spec.bind(index++, alert.getAlertMessage()) : spec.bindNull(index++, String.class);
+            spec = spec.bind(index++, alert.getRaisedAt())
+                    .bind(index++, alert.getOccurrenceCount())
+                    .bind(index++, alert.getFirstSeen())
+                    .bind(index++, alert.getLastSeen());
+        }
+        return spec.map((row, metadata) -> {
+                    Alert alert = byKey.get(new AlertKey(row.get("network_log_id", Long.class), row.get("alert_type", String.class)));
+                    alert.setId(row.get("id", Long.class));
+                    return alert;
+                })
+                .all();
+    }
+
+    // Adds further occurrences to stored alerts in one statement; alert ids must be unique within one call
+    public Mono<Long> addOccurrences(List<AlertOccurrences> occurrences) {
+        if (occurrences.isEmpty()) {
+            return Mono.just(0L);
+        }
+        if (occurrences.size() > MAX_UPDATE_ROWS_PER_STATEMENT) {
+            throw new IllegalArgumentException("At most " + MAX_UPDATE_ROWS_PER_STATEMENT + " rows per statement, got " + occurrences.size());
+        }
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql(updateSqlBySize, occurrences.size(), UPDATE_PREFIX, UPDATE_SUFFIX, UPDATE_CASTS.length, UPDATE_CASTS));
+        int index = 0;
+        for (AlertOccurrences occurrence : occurrences) {
+            spec = spec.bind(index++, occurrence.alertId())
+                    .bind(index++, occurrence.networkLogTimestamp())
+                    .bind(index++, occurrence.count())
+                    .bind(index++, occurrence.firstSeen())
+                    .bind(index++, occurrence.lastSeen());
+        }
+        return spec.fetch().rowsUpdated();
+    }
+
+    // Id of the stored alert of the alert's (log, type), if any
+    public Mono<Long> findId(Alert alert) {
+        return databaseClient.sql(FIND_ID)
+                .bind(0, alert.getNetworkLogId())
+                .bind(1, alert.getNetworkLogTimestamp())
+                .bind(2, alert.getAlertType())
+                .map((row, metadata) -> row.get("id", Long.class))
+                .one();
+    }
+
+    private static String sql(Map<Integer, String> cache, int rows, String prefix, String suffix, int columns, String[] casts) {
+        return cache.computeIfAbsent(rows, size -> MultiRowSql.build(prefix, size, columns, casts, suffix));
+    }
+
+    private record AlertKey(Long networkLogId, String alertType) {
+    }
+}
@@ -0,0 +1,8 @@
+package org.example.kafkaconsumer.postgres.repository;
+
+import java.time.Instant;
+
+// Optional filters of an alerts query; null fields are not applied. from/to apply to raised_at, and 'ip' matches
+// either endpoint (address or CIDR range) of the log that triggered the alert.
+public record AlertFilter(Instant from, Instant to, String ip, String severity, String status, String alertType) {
+}
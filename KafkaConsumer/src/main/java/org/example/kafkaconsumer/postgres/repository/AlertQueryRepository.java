@@ -0,0 +1,75 @@
+package org.example.kafkaconsumer.postgres.repository;
+
+import io.r2dbc.spi.Row;
+import org.example.kafkaconsumer.postgres.entity.Alert;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+
+// Filtered, keyset-paginated reads of alerts, most recently raised first. Pages seek on (raised_at, id) through
+// idx_alerts_raised_at_id. alerts is partitioned on the log timestamp, not raised_at, so every partition's index
+// is probed; the IP filter joins the triggering log on its full key (id, timestamp).
+@Repository
+public class AlertQueryRepository {
+
+    private static final String SELECT =
+            "SELECT a.id, a.alert_id, a.network_log_id, a.network_log_timestamp, a.alert_type, a.severity, a.status, " +
+            "a.alert_message, a.raised_at, a.acknowledged_by, a.acknowledged_at, a.occurrence_count, a.first_seen, a.last_seen " +
+            "FROM alerts a";
+    private static final String JOIN_LOG =
+            " JOIN network_logs l ON l.id = a.network_log_id AND l.timestamp = a.network_log_timestamp";
+
+    private final DatabaseClient databaseClient;
+
+    public AlertQueryRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    // Up to 'limit' alerts matching the filter that come after 'after' (null for the first page)
+    public Flux<Alert> findPage(AlertFilter filter, KeysetCursor after, int limit) {
+        SqlFilter where = new SqlFilter()
+                .and("a.raised_at >= ?", filter.from())
+                .and("a.raised_at < ?", filter.to())
+                .and("(l.src_ip <<= ?::inet OR l.dest_ip <<= ?::inet)", filter.ip(), filter.ip())
+                .and("a.severity = ?", filter.severity())
+                .and("a.status = ?", filter.status())
+                .and("a.alert_type = ?", filter.alertType());
+        if (after != null) {
+            where.and("(a.raised_at, a.id) < (?, ?)", after.time(), after.id());
+        }
+        String sql = SELECT + (filter.ip() != null ? JOIN_LOG : "") + where.where()
+                + " ORDER BY a.raised_at DESC, a.id DESC LIMIT " + where.marker(limit);
+        return where.bind(databaseClient.sql(sql))
+                .map((row, metadata) -> toAlert(row))
+                .all();
+    }
+
+    // Every matching alert, most recent first, read in pages of pageSize as the subscriber requests them
+    public Flux<Alert> streamAll(AlertFilter filter, int pageSize) {
+        return KeysetCursor.readAll(after -> findPage(filter, after, pageSize), AlertQueryRepository::cursorOf, pageSize);
+    }
+
+    public static KeysetCursor cursorOf(Alert alert) {
+        return new KeysetCursor(alert.getRaisedAt(), alert.getId());
+    }
+
+    private static Alert toAlert(Row row) {
+        return new Alert(
+                row.get("id", Long.class),
+                row.get("alert_id", String.class),
+                row.get("network_log_id", Long.class),
+                row.get("network_log_timestamp", Instant.class),
+                row.get("alert_type", String.class),
+                row.get("severity", String.class),
+                row.get("status", String.class),
+                row.get("alert_message", String.class),
+                row.get("raised_at", Instant.class),
+                row.get("acknowledged_by", String.class),
+                row.get("acknowledged_at", Instant.class),
+                row.get("occurrence_count", Long.class),
+                row.get("first_seen", Instant.class),
+                row.get("last_seen", Instant.class));
+    }
+}
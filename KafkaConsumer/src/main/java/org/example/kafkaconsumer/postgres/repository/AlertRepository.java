@@ -1,11 +1,23 @@
 package org.example.kafkaconsumer.postgres.repository;
 
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import org.example.kafkaconsumer.postgres.entity.Alert;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
+
 @Repository
 public interface AlertRepository extends ReactiveCrudRepository<Alert, Long> {
-    Mono<Boolean> existsByNetworkLogId(Long networkLogId);
+
+    // Single-statement dedup on (network_log_id, network_log_timestamp, alert_type): returns the new id, or completes
+    // empty when an alert of that type already exists for the log. The log timestamp routes the row to the alerts
+    // partition that matches the log's network_logs partition.
+    @Query("INSERT INTO alerts (alert_id, network_log_id, network_log_timestamp, alert_type, severity, status, alert_message, raised_at, first_seen, last_seen) " +
+            "VALUES (:alertId, :networkLogId, :networkLogTimestamp, :alertType, :severity, :status, :alertMessage, :raisedAt, :firstSeen, :lastSeen) " +
+            "ON CONFLICT (network_log_id, network_log_timestamp, alert_type) DO NOTHING " +
+            "RETURNING id")
+    Mono<Long> insertIfAbsent(String alertId, Long networkLogId, Instant networkLogTimestamp, String alertType, String severity,
+                              String status, String alertMessage, Instant raisedAt, Instant firstSeen, Instant lastSeen);
 }
@@ -0,0 +1,60 @@
+package org.example.kafkaconsumer.postgres.repository;
+
+import org.example.kafkaconsumer.postgres.entity.BackfillChunk;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+// Per-chunk checkpoints of backfill jobs (backfill_progress in db/schema.sql)
+@Repository
+public class BackfillProgressRepository {
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO backfill_progress (job_id, chunk_start, chunk_end, status, logs_processed, error, updated_at) " +
+            "VALUES ($1, $2, $3, $4, $5, $6, now()) " +
+            "ON CONFLICT (job_id, chunk_start) DO UPDATE SET chunk_end = EXCLUDED.chunk_end, status = EXCLUDED.status, " +
+            "logs_processed = EXCLUDED.logs_processed, error = EXCLUDED.error, updated_at = EXCLUDED.updated_at";
+
+    private final DatabaseClient databaseClient;
+
+    public BackfillProgressRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Void> save(String jobId, Instant chunkStart, Instant chunkEnd, String status, long logsProcessed, String error) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(UPSERT_SQL)
+                .bind(0, jobId)
+                .bind(1, chunkStart)
+                .bind(2, chunkEnd)
+                .bind(3, status)
+                .bind(4, logsProcessed);
+        spec = error != null ? spec.bind(5, error) : spec.bindNull(5, String.class);
+        return spec.then();
+    }
+
+    // Start times of the chunks a previous run already completed
+    public Flux<Instant> findDoneChunkStarts(String jobId) {
+        return databaseClient.sql("SELECT chunk_start FROM backfill_progress WHERE job_id = $1 AND status = $2")
+                .bind(0, jobId)
+                .bind(1, BackfillChunk.DONE)
+                .map((row, metadata) -> row.get("chunk_start", Instant.class))
+                .all();
+    }
+
+    public Flux<BackfillChunk> findByJobId(String jobId) {
+        return databaseClient.sql("SELECT chunk_start, chunk_end, status, logs_processed, error, updated_at " +
+                        "FROM backfill_progress WHERE job_id = $1 ORDER BY chunk_start")
+                .bind(0, jobId)
+                .map((row, metadata) -> new BackfillChunk(
+                        row.get("chunk_start", Instant.class),
+                        row.get("chunk_end", Instant.class),
+                        row.get("status", String.class),
+                        row.get("logs_processed", Long.class),
+                        row.get("error", String.class),
+                        row.get("updated_at", Instant.class)))
+                .all();
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.kafkaconsumer.postgres.repository;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+// Heartbeats of the consumer instances sharing the change stream (consumer_instances in db/schema.sql).
+// Times are compared on the database clock, so instances with skewed clocks still agree on who is alive.
+@Repository
+public class ConsumerInstanceRepository {
+
+    private static final String HEARTBEAT_SQL =
+            "INSERT INTO consumer_instances (instance_id, heartbeat_at, processed_up_to) VALUES ($1, now(), $2) " +
+            "ON CONFLICT (instance_id) DO UPDATE SET heartbeat_at = EXCLUDED.heartbeat_at, " +
+            "processed_up_to = COALESCE(EXCLUDED.processed_up_to, consumer_instances.processed_up_to), left_at = NULL";
+
+    private final DatabaseClient databaseClient;
+
+    public ConsumerInstanceRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Void> heartbeat(String instanceId, Instant processedUpTo) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(HEARTBEAT_SQL).bind(0, instanceId);
+        spec = processedUpTo != null ? spec.bind(1, processedUpTo) : spec.bindNull(1, Instant.class);
+        return spec.then();
+    }
+
+    // Instances with a heartbeat within the timeout that have not left
+    public Flux<String> findLive(Duration timeout) {
+        return databaseClient.sql("SELECT instance_id FROM consumer_instances " +
+                        "WHERE left_at IS NULL AND heartbeat_at > now() - $1 * interval '1 millisecond' ORDER BY instance_id")
+                .bind(0, timeout.toMillis())
+                .map((row, metadata) -> row.get("instance_id", String.class))
+                .all();
+    }
+
+    // The oldest progress of any instance still in the table, live or departed
+    public Mono<Instant> findOldestProgress() {
+        return databaseClient.sql("SELECT MIN(processed_up_to) AS oldest FROM consumer_instances")
+                .map((row, metadata) -> Optional.ofNullable(row.get("oldest", Instant.class)))
+                .one()
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    public Mono<Void> leave(String instanceId, Instant processedUpTo) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("UPDATE consumer_instances SET left_at = now(), " +
+                        "processed_up_to = COALESCE($2, processed_up_to) WHERE instance_id = $1")
+                .bind(0, instanceId);
+        spec = processedUpTo != null ? spec.bind(1, processedUpTo) : spec.bindNull(1, Instant.class);
+        return spec.then();
+    }
+
+    // Rows without a heartbeat for longer than 'age'; by then their buckets have long been taken over
+    public Mono<Long> deleteOlderThan(Duration age) {
+        return databaseClient.sql("DELETE FROM consumer_instances WHERE heartbeat_at < now() - $1 * interval '1 millisecond'")
+                .bind(0, age.toMillis())
+                .fetch()
+                .rowsUpdated();
+    }
+}
@@ -0,0 +1,43 @@
+package org.example.kafkaconsumer.postgres.repository;
+
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+// Position in a result ordered by (time DESC, id DESC): the next page continues strictly after this row.
+// Seeking with "(time, id) < (cursor.time, cursor.id)" uses the (time DESC, id DESC) index, so every page costs
+// the same no matter how deep it is. Encoded for clients as an opaque URL-safe token.
+public record KeysetCursor(Instant time, long id) {
+
+    public String encode() {
+        String text = time.getEpochSecond() + "." + time.getNano() + "." + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public static KeysetCursor decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII).split("\\.");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new KeysetCursor(Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1])), Long.parseLong(parts[2]));
+        } catch (RuntimeException e) { // Base64, number and Instant range errors
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    // Streams a whole result by reading it page after page: the next page is queried only after the previous one
+    // has been consumed downstream, so at most about one page is held in memory and no connection stays open
+    // between pages.
+    static <T> Flux<T> readAll(Function<KeysetCursor, Flux<T>> page, Function<T, KeysetCursor> cursorOf, int pageSize) {
+        return page.apply(null).collectList()
+                .expand(rows -> rows.size() < pageSize
+                        ? Flux.empty()
+                        : page.apply(cursorOf.apply(rows.get(rows.size() - 1))).collectList())
+                .concatMapIterable(Function.<List<T>>identity(), 1);
+    }
+}
@@ -0,0 +1,8 @@
+package org.example.kafkaconsumer.postgres.repository;
+
+import java.time.Instant;
+
+// Optional filters of a network_logs query; null fields are not applied. IP filters are addresses or CIDR
+// ranges in PostgreSQL inet syntax, and 'ip' matches either endpoint.
+public record LogFilter(Instant from, Instant to, String ip, String srcIp, String destIp, String protocol, Long port) {
+}
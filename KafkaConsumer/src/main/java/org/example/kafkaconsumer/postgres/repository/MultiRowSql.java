@@ -0,0 +1,47 @@
+package org.example.kafkaconsumer.postgres.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Shared pieces of the multi-row statements (network_logs, alerts, traffic rollups): the "($1, $2, ...), (...)"
+// placeholder list, and the split of a larger set into statements of a bounded number of rows.
+public final class MultiRowSql {
+
+    // The PostgreSQL protocol counts a statement's parameters in 16 bits
+    static final int MAX_BIND_PARAMETERS = 65_535;
+
+    private MultiRowSql() {
+    }
+
+    // "prefix ($1, $2, ...), (...) suffix" with rows * columns markers; casts, if given, type the columns of a
+    // VALUES list that has no target table
+    static String build(String prefix, int rows, int columns, String[] casts, String suffix) {
+        StringBuilder sql = new StringBuilder(prefix.length() + suffix.length() + rows * columns * 6);
+        sql.append(prefix);
+        int marker = 1;
+        for (int row = 0; row < rows; row++) {
+            sql.append(row == 0 ? "(" : ", (");
+            for (int column = 0; column < columns; column++) {
+                if (column > 0) {
+                    sql.append(", ");
+                }
+                sql.append('$').append(marker++);
+                if (casts != null) {
+                    sql.append("::").append(casts[column]);
+                }
+            }
+            sql.append(')');
+        }
+        sql.append(suffix);
+        return sql.toString();
+    }
+
+    // Consecutive views of at most size rows each
+    public static <T> List<List<T>> chunks(List<T> rows, int size) {
+        List<List<T>> chunks = new ArrayList<>((rows.size() + size - 1) / size);
+        for (int from = 0; from < rows.size(); from += size) {
+            chunks.add(rows.subList(from, Math.min(rows.size(), from + size)));
+        }
+        return chunks;
+    }
+}
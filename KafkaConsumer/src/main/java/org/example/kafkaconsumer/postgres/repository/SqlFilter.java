@@ -0,0 +1,52 @@
+package org.example.kafkaconsumer.postgres.repository;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Builds the WHERE clause of a query from optional filters, numbering bind markers ($1, $2, ...) as conditions
+// are added. Each '?' in a condition consumes the next value; conditions with a null value are skipped.
+final class SqlFilter {
+
+    private final StringBuilder where = new StringBuilder();
+    private final List<Object> values = new ArrayList<>();
+
+    SqlFilter and(String condition, Object... conditionValues) {
+        for (Object value : conditionValues) {
+            if (value == null) {
+                return this;
+            }
+        }
+        StringBuilder sql = new StringBuilder(condition.length() + 8);
+        int next = 0;
+        for (int i = 0; i < condition.length(); i++) {
+            char c = condition.charAt(i);
+            if (c == '?') {
+                values.add(conditionValues[next++]);
+                sql.append('$').append(values.size());
+            } else {
+                sql.append(c);
+            }
+        }
+        where.append(where.length() == 0 ? " WHERE " : " AND ").append(sql);
+        return this;
+    }
+
+    // Adds a bind marker for a value outside the WHERE clause (e.g. LIMIT) and returns it
+    String marker(Object value) {
+        values.add(value);
+        return "$" + values.size();
+    }
+
+    String where() {
+        return where.toString();
+    }
+
+    DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec) {
+        for (int i = 0; i < values.size(); i++) {
+            spec = spec.bind(i, values.get(i));
+        }
+        return spec;
+    }
+}
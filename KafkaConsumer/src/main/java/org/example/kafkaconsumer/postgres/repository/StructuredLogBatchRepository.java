@@ -0,0 +1,95 @@
+package org.example.kafkaconsumer.postgres.repository;
+
+import org.example.kafkaconsumer.postgres.entity.StructuredNetworkLog;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Multi-row INSERT for network_logs. ReactiveCrudRepository.saveAll() still issues one INSERT per entity,
+// so batches go through DatabaseClient with a single "VALUES (...), (...), ..." statement instead.
+// The insert is idempotent: logs read from MongoDB carry a log_id derived from their document id, and a row
+// whose (log_id, timestamp) already exists is left as it is and returned with its existing id. Re-delivered
+// change-stream batches and backfills over already ingested ranges therefore neither duplicate rows nor fail.
+@Repository
+public class StructuredLogBatchRepository {
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO network_logs (log_id, timestamp, src_ip, dest_ip, port, protocol, bytes, message, raw_log) VALUES ";
+    // The no-op update makes RETURNING include rows that already existed; xmax is 0 only for a row this statement
+    // inserted (an updated row carries the statement's own transaction id), which tells new rows from re-delivered ones
+    private static final String INSERT_SUFFIX =
+            " ON CONFLICT (log_id, timestamp) DO UPDATE SET log_id = EXCLUDED.log_id RETURNING id, log_id, (xmax = 0) AS inserted";
+    private static final int COLUMN_COUNT = 9;
+
+    // Larger batches are split into several statements, as a statement takes at most 65,535 bind parameters
+    static final int MAX_ROWS_PER_STATEMENT = MultiRowSql.MAX_BIND_PARAMETERS / COLUMN_COUNT;
+
+    // A stored log with its id; inserted is false if the row was already there
+    public record SavedLog(StructuredNetworkLog log, boolean inserted) {
+    }
+
+    private final DatabaseClient databaseClient;
+    private final Map<Integer, String> insertSqlBySize = new ConcurrentHashMap<>(); // batches are mostly full, so few sizes are ever built
+
+    public StructuredLogBatchRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    // Inserts all logs, in one round-trip per MAX_ROWS_PER_STATEMENT rows, and sets the generated (or already
+    // stored) id on each entity. Rows are matched back by log_id because RETURNING order is not guaranteed. A log_id
+    // that occurs twice in the batch is written and returned once.
+    public Flux<SavedLog> insertAll(List<StructuredNetworkLog> logs) {
+        if (logs.isEmpty()) {
+            return Flux.empty();
+        }
+
+        Map<String, StructuredNetworkLog> byLogId = new LinkedHashMap<>(logs.size() * 2);
+        for (StructuredNetworkLog log : logs) {
+            // one statement cannot update the same row twice, so duplicates must not reach ON CONFLICT DO UPDATE
+            byLogId.putIfAbsent(log.getLogId(), log);
+        }
+        List<StructuredNetworkLog> unique = new ArrayList<>(byLogId.values());
+        if (unique.size() <= MAX_ROWS_PER_STATEMENT) {
+            return insert(unique, byLogId);
+        }
+        return Flux.fromIterable(MultiRowSql.chunks(unique, MAX_ROWS_PER_STATEMENT))
+                .concatMap(chunk -> insert(chunk, byLogId));
+    }
+
+    private Flux<SavedLog> insert(List<StructuredNetworkLog> logs, Map<String, StructuredNetworkLog> byLogId) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(insertSql(logs.size()));
+        int index = 0;
+        for (StructuredNetworkLog log : logs) {
+            spec = spec.bind(index++, log.getLogId())
+                    .bind(index++, log.getTimestamp())
+                    .bind(index++, log.getSrcIP().toInetAddress()) // inet
+                    .bind(index++, log.getDestIP().toInetAddress())
+                    .bind(index++, (int) log.getPort())
+                    .bind(index++, log.getProtocol())
+                    .bind(index++, log.getBytes());
+            spec = bindNullable(spec, index++, log.getMessage());
+            spec = bindNullable(spec, index++, log.getRawLog());
+        }
+
+        return spec.map((row, metadata) -> {
+                    StructuredNetworkLog log = byLogId.get(row.get("log_id", String.class));
+                    log.setId(row.get("id", Long.class));
+                    return new SavedLog(log, Boolean.TRUE.equals(row.get("inserted", Boolean.class)));
+                })
+                .all();
+    }
+
+    private String insertSql(int rows) {
+        return insertSqlBySize.computeIfAbsent(rows, size -> MultiRowSql.build(INSERT_PREFIX, size, COLUMN_COUNT, null, INSERT_SUFFIX));
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec spec, int index, String value) {
+        return value != null ? spec.bind(index, value) : spec.bindNull(index, String.class);
+    }
+}
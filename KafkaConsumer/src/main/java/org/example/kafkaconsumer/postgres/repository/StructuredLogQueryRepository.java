@@ -0,0 +1,69 @@
+package org.example.kafkaconsumer.postgres.repository;
+
+import io.r2dbc.spi.Row;
+import org.example.kafkaconsumer.model.IpAddress;
+import org.example.kafkaconsumer.postgres.entity.StructuredNetworkLog;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.net.InetAddress;
+import java.time.Instant;
+
+// Filtered, keyset-paginated reads of network_logs, newest first. Pages seek on (timestamp, id) through
+// idx_network_logs_timestamp_id, and the timestamp bounds let PostgreSQL skip partitions outside the range.
+// IP filters are inet containment ("<<="), so they accept a single address or a CIDR range.
+@Repository
+public class StructuredLogQueryRepository {
+
+    private static final String SELECT =
+            "SELECT id, log_id, timestamp, src_ip, dest_ip, port, protocol, bytes, message, raw_log FROM network_logs";
+
+    private final DatabaseClient databaseClient;
+
+    public StructuredLogQueryRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    // Up to 'limit' logs matching the filter that come after 'after' (null for the first page)
+    public Flux<StructuredNetworkLog> findPage(LogFilter filter, KeysetCursor after, int limit) {
+        SqlFilter where = new SqlFilter()
+                .and("timestamp >= ?", filter.from())
+                .and("timestamp < ?", filter.to())
+                .and("(src_ip <<= ?::inet OR dest_ip <<= ?::inet)", filter.ip(), filter.ip())
+                .and("src_ip <<= ?::inet", filter.srcIp())
+                .and("dest_ip <<= ?::inet", filter.destIp())
+                .and("protocol = ?", filter.protocol())
+                .and("port = ?", filter.port());
+        if (after != null) {
+            where.and("(timestamp, id) < (?, ?)", after.time(), after.id());
+        }
+        String sql = SELECT + where.where() + " ORDER BY timestamp DESC, id DESC LIMIT " + where.marker(limit);
+        return where.bind(databaseClient.sql(sql))
+                .map((row, metadata) -> toLog(row))
+                .all();
+    }
+
+    // Every matching log, newest first, read in pages of pageSize as the subscriber requests them
+    public Flux<StructuredNetworkLog> streamAll(LogFilter filter, int pageSize) {
+        return KeysetCursor.readAll(after -> findPage(filter, after, pageSize), StructuredLogQueryRepository::cursorOf, pageSize);
+    }
+
+    public static KeysetCursor cursorOf(StructuredNetworkLog log) {
+        return new KeysetCursor(log.getTimestamp(), log.getId());
+    }
+
+    private static StructuredNetworkLog toLog(Row row) {
+        return new StructuredNetworkLog(
+                row.get("id", Long.class),
+                row.get("log_id", String.class),
+                row.get("timestamp", Instant.class),
+                IpAddress.fromInetAddress(row.get("src_ip", InetAddress.class)),
+                IpAddress.fromInetAddress(row.get("dest_ip", InetAddress.class)),
+                row.get("port", Long.class),
+                row.get("protocol", String.class),
+                row.get("bytes", Long.class),
+                row.get("message", String.class),
+                row.get("raw_log", String.class));
+    }
+}
@@ -12,6 +12,8 @@ import java.time.Instant;
 @Repository
 public interface StructuredLogRepository extends ReactiveCrudRepository<StructuredNetworkLog, Long> {
     // Spring Data R2DBC automatically provides methods like save(), findById(), findAll(), delete()
+    // network_logs is range-partitioned on timestamp: queries that filter on timestamp only scan the partitions in
+    // range, while lookups by id alone (findById) probe every partition's primary-key index.
     Flux<StructuredNetworkLog> findByTimestampGreaterThan(Instant timestamp);
 
     @Query("SELECT " +
@@ -19,7 +21,7 @@ public interface StructuredLogRepository extends ReactiveCrudRepository<Structur
             "s.dest_ip AS destIP, " +
             "COUNT(s.id) AS connectionCount, " +
             "MAX(s.timestamp) AS latestLogTimestamp, " +
-            "MAX(s.id) AS latestLogId " + // Get the ID of the most recent log
+            "(ARRAY_AGG(s.id ORDER BY s.timestamp DESC, s.id DESC))[1] AS latestLogId " + // ID of the log at latestLogTimestamp; alerts reference logs by (id, timestamp)
             "FROM network_logs s " +
             "WHERE s.timestamp > :fromTime AND s.timestamp <= :toTime " + // Filter by time window
             "GROUP BY  s.src_ip, s.dest_ip " +
@@ -0,0 +1,187 @@
+package org.example.kafkaconsumer.postgres.repository;
+
+import org.example.kafkaconsumer.postgres.entity.TrafficPoint;
+import org.example.kafkaconsumer.postgres.entity.TrafficRollup;
+import org.example.kafkaconsumer.postgres.entity.TrafficTotal;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+
+// Reads and writes the traffic rollup tables (db/schema.sql). Minute rows are upserted additively in multi-row
+// statements; hourly rows are recomputed from the minute rows, so re-running a downsample is idempotent.
+@Repository
+public class TrafficRollupRepository {
+
+    public enum Resolution {
+        MINUTE("traffic_rollups_1m"),
+        HOUR("traffic_rollups_1h");
+
+        private final String table;
+
+        Resolution(String table) {
+            this.table = table;
+        }
+    }
+
+    private static final String UPSERT_PREFIX =
+            "INSERT INTO traffic_rollups_1m (dimension, bucket_start, dim_value, bytes, connections) VALUES ";
+    private static final String UPSERT_SUFFIX =
+            " ON CONFLICT (dimension, bucket_start, dim_value) DO UPDATE SET " +
+            "bytes = traffic_rollups_1m.bytes + EXCLUDED.bytes, " +
+            "connections = traffic_rollups_1m.connections + EXCLUDED.connections";
+    private static final int COLUMN_COUNT = 5;
+
+    // Callers split larger sets into statements of at most this many rows (5 bind parameters per row)
+    public static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    // bucket_start is truncated in UTC so that zones with non-whole-hour offsets still get hour-aligned buckets.
+    // Hour rows of the range that the minute rows no longer produce (after a rebuild) are deleted, as in
+    // REBUILD_MINUTES_SQL.
+    private static final String DOWNSAMPLE_SQL =
+            "WITH fresh AS (" +
+            "SELECT dimension, date_trunc('hour', bucket_start AT TIME ZONE 'UTC') AT TIME ZONE 'UTC' AS bucket_start, dim_value, " +
+            "SUM(bytes) AS bytes, SUM(connections) AS connections " +
+            "FROM traffic_rollups_1m WHERE bucket_start >= $1 AND bucket_start < $2 " +
+            "GROUP BY 1, 2, 3" +
+            "), upserted AS (" +
+            "INSERT INTO traffic_rollups_1h (dimension, bucket_start, dim_value, bytes, connections) " +
+            "SELECT dimension, bucket_start, dim_value, bytes, connections FROM fresh " +
+            "ON CONFLICT (dimension, bucket_start, dim_value) DO UPDATE SET bytes = EXCLUDED.bytes, connections = EXCLUDED.connections" +
+            ") " +
+            "DELETE FROM traffic_rollups_1h r WHERE r.bucket_start >= $1 AND r.bucket_start < $2 AND NOT EXISTS (" +
+            "SELECT 1 FROM fresh f WHERE f.dimension = r.dimension AND f.bucket_start = r.bucket_start AND f.dim_value = r.dim_value)";
+
+    // Minute rows of [$1, $2) recomputed from network_logs itself, overwriting what is stored, and stored rows the
+    // logs no longer produce (e.g. counted twice before, or their logs are gone) deleted, all in one statement.
+    // Values use the same text as the live counters (host() prints an inet without its prefix length, IPv6 in
+    // compressed form). The upsert and the delete touch disjoint rows, as one statement cannot change a row twice.
+    private static final String REBUILD_MINUTES_SQL =
+            "WITH fresh AS (" +
+            "SELECT d.dimension, date_trunc('minute', l.timestamp AT TIME ZONE 'UTC') AT TIME ZONE 'UTC' AS bucket_start, d.dim_value, " +
+            "SUM(l.bytes) AS bytes, COUNT(*) AS connections " +
+            "FROM network_logs l CROSS JOIN LATERAL (VALUES " +
+            "('src_ip', host(l.src_ip)), ('dest_ip', host(l.dest_ip)), ('port', l.port::text), ('protocol', l.protocol::text)" +
+            ") AS d (dimension, dim_value) " +
+            "WHERE l.timestamp >= $1 AND l.timestamp < $2 " +
+            "GROUP BY 1, 2, 3" +
+            "), upserted AS (" +
+            "INSERT INTO traffic_rollups_1m (dimension, bucket_start, dim_value, bytes, connections) " +
+            "SELECT dimension, bucket_start, dim_value, bytes, connections FROM fresh " +
+            "ON CONFLICT (dimension, bucket_start, dim_value) DO UPDATE SET bytes = EXCLUDED.bytes, connections = EXCLUDED.connections" +
+            ") " +
+            "DELETE FROM traffic_rollups_1m r WHERE r.bucket_start >= $1 AND r.bucket_start < $2 AND NOT EXISTS (" +
+            "SELECT 1 FROM fresh f WHERE f.dimension = r.dimension AND f.bucket_start = r.bucket_start AND f.dim_value = r.dim_value)";
+
+    private final DatabaseClient databaseClient;
+    private volatile String fullUpsertSql; // only full statements are cached, the remainders vary in size
+
+    public TrafficRollupRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    // Adds the rows' bytes and connections to the stored minute rollups in one statement.
+    // Keys must be unique within one call (PostgreSQL cannot update the same row twice in one INSERT).
+    public Mono<Void> addMinuteRollups(List<TrafficRollup> rollups) {
+        if (rollups.isEmpty()) {
+            return Mono.empty();
+        }
+        if (rollups.size() > MAX_ROWS_PER_STATEMENT) {
+            throw new IllegalArgumentException("At most " + MAX_ROWS_PER_STATEMENT + " rollups per statement, got " + rollups.size());
+        }
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(upsertSql(rollups.size()));
+        int index = 0;
+        for (TrafficRollup rollup : rollups) {
+            spec = spec.bind(index++, rollup.dimension())
+                    .bind(index++, rollup.bucketStart())
+                    .bind(index++, rollup.value())
+                    .bind(index++, rollup.bytes())
+                    .bind(index++, rollup.connections());
+        }
+        return spec.then();
+    }
+
+    // Recomputes the hourly rollups of [from, to) from the minute rollups; both bounds should be hour-aligned
+    public Mono<Void> downsampleToHourly(Instant from, Instant to) {
+        return databaseClient.sql(DOWNSAMPLE_SQL)
+                .bind(0, from)
+                .bind(1, to)
+                .then();
+    }
+
+    // Recomputes the minute rollups of [from, to) from the stored logs (backfill: the replayed logs never went
+    // through the in-memory counters). Both bounds should be minute-aligned.
+    public Mono<Void> rebuildMinuteRollups(Instant from, Instant to) {
+        return databaseClient.sql(REBUILD_MINUTES_SQL)
+                .bind(0, from)
+                .bind(1, to)
+                .then();
+    }
+
+    public Mono<Long> deleteOlderThan(Resolution resolution, Instant cutoff) {
+        return databaseClient.sql("DELETE FROM " + resolution.table + " WHERE bucket_start < $1")
+                .bind(0, cutoff)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    // Dimension values with the most bytes (or connections) in [from, to)
+    public Flux<TrafficTotal> findTop(Resolution resolution, String dimension, Instant from, Instant to, boolean byConnections, int limit) {
+        String sql = "SELECT dim_value, SUM(bytes) AS total_bytes, SUM(connections) AS total_connections " +
+                "FROM " + resolution.table + " " +
+                "WHERE dimension = $1 AND bucket_start >= $2 AND bucket_start < $3 " +
+                "GROUP BY dim_value " +
+                "ORDER BY " + (byConnections ? "total_connections" : "total_bytes") + " DESC " +
+                "LIMIT $4";
+        return databaseClient.sql(sql)
+                .bind(0, dimension)
+                .bind(1, from)
+                .bind(2, to)
+                .bind(3, limit)
+                .map((row, metadata) -> new TrafficTotal(
+                        row.get("dim_value", String.class),
+                        row.get("total_bytes", Long.class),
+                        row.get("total_connections", Long.class)))
+                .all();
+    }
+
+    // Per-bucket traffic in [from, to) for one dimension value, or for all traffic when value is null
+    // (every log is counted once per dimension, so summing one dimension gives the totals)
+    public Flux<TrafficPoint> findSeries(Resolution resolution, String dimension, String value, Instant from, Instant to) {
+        String sql = "SELECT bucket_start, SUM(bytes) AS total_bytes, SUM(connections) AS total_connections " +
+                "FROM " + resolution.table + " " +
+                "WHERE dimension = $1 AND bucket_start >= $2 AND bucket_start < $3" +
+                (value != null ? " AND dim_value = $4" : "") + " " +
+                "GROUP BY bucket_start ORDER BY bucket_start";
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql)
+                .bind(0, dimension)
+                .bind(1, from)
+                .bind(2, to);
+        if (value != null) {
+            spec = spec.bind(3, value);
+        }
+        return spec.map((row, metadata) -> new TrafficPoint(
+                        row.get("bucket_start", Instant.class),
+                        row.get("total_bytes", Long.class),
+                        row.get("total_connections", Long.class)))
+                .all();
+    }
+
+    private String upsertSql(int rows) {
+        if (rows == MAX_ROWS_PER_STATEMENT) {
+            String sql = fullUpsertSql;
+            if (sql == null) {
+                fullUpsertSql = sql = buildUpsertSql(rows);
+            }
+            return sql;
+        }
+        return buildUpsertSql(rows);
+    }
+
+    private static String buildUpsertSql(int size) {
+        return MultiRowSql.build(UPSERT_PREFIX, size, COLUMN_COUNT, null, UPSERT_SUFFIX);
+    }
+}
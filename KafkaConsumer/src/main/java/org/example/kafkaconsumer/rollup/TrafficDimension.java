@@ -0,0 +1,66 @@
+package org.example.kafkaconsumer.rollup;
+
+import org.example.kafkaconsumer.model.IpAddress;
+import org.example.kafkaconsumer.postgres.entity.StructuredNetworkLog;
+
+// Dimensions that traffic is rolled up by. 'column' is the value stored in the rollup tables' dimension column
+// and accepted by the query API.
+public enum TrafficDimension {
+    SRC_IP("src_ip"),
+    DEST_IP("dest_ip"),
+    PORT("port"),
+    PROTOCOL("protocol");
+
+    private final String column;
+
+    TrafficDimension(String column) {
+        this.column = column;
+    }
+
+    public String column() {
+        return column;
+    }
+
+    // In-memory counter key of the log's value (IpAddress, Long or String); its toString() is the stored value
+    Object keyOf(StructuredNetworkLog log) {
+        return switch (this) {
+            case SRC_IP -> log.getSrcIP();
+            case DEST_IP -> log.getDestIP();
+            case PORT -> log.getPort();
+            case PROTOCOL -> log.getProtocol();
+        };
+    }
+
+    // Counter key of a stored value, the inverse of keyOf(log).toString(); values that do not parse (such as
+    // "(other)") stay strings
+    Object keyOf(String value) {
+        return switch (this) {
+            case SRC_IP, DEST_IP -> {
+                IpAddress ip = IpAddress.tryParse(value);
+                yield ip != null ? ip : value;
+            }
+            case PORT -> {
+                try {
+                    yield Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    yield value;
+                }
+            }
+            case PROTOCOL -> value;
+        };
+    }
+
+    // Stored form of a value given in a query, e.g. the canonical text of an IP address
+    public String normalize(String value) {
+        return String.valueOf(keyOf(value));
+    }
+
+    public static TrafficDimension parse(String text) {
+        for (TrafficDimension dimension : values()) {
+            if (dimension.column.equalsIgnoreCase(text) || dimension.name().equalsIgnoreCase(text.replace('-', '_'))) {
+                return dimension;
+            }
+        }
+        throw new IllegalArgumentException("Unknown traffic dimension '" + text + "', expected one of src_ip, dest_ip, port, protocol");
+    }
+}
@@ -0,0 +1,185 @@
+package org.example.kafkaconsumer.rollup;
+
+import jakarta.annotation.PreDestroy;
+import org.example.kafkaconsumer.postgres.entity.StructuredNetworkLog;
+import org.example.kafkaconsumer.postgres.entity.TrafficRollup;
+import org.example.kafkaconsumer.postgres.repository.MultiRowSql;
+import org.example.kafkaconsumer.postgres.repository.TrafficRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Maintains per-minute traffic rollups (bytes and connection count per src_ip, dest_ip, port and protocol) while
+// logs are ingested, so traffic questions are answered from traffic_rollups_1m / traffic_rollups_1h instead of
+// scanning network_logs.
+//
+// - Saved logs are added to in-memory counters keyed by (event-time minute, dimension, value).
+// - Every flush-interval the counters are swapped out and added to the minute table in multi-row upserts; a
+//   failed statement puts its rows back so they go out with the next flush.
+// - Every downsample-interval the hourly table is recomputed from the minute table for the last few hours, which
+//   also picks up late data. Old rows are deleted after minute-retention / hour-retention.
+//
+// Each dimension keeps at most max-values-per-minute distinct values per minute; further values are counted
+// under "(other)" so that a scan or spoofed sources cannot exhaust memory.
+@Service
+public class TrafficRollupService {
+
+    static final String OTHER = "(other)";
+
+    private static final Logger logger = LoggerFactory.getLogger(TrafficRollupService.class);
+    private static final long MINUTE_MILLIS = 60_000;
+    private static final TrafficDimension[] DIMENSIONS = TrafficDimension.values();
+
+    private final TrafficRollupRepository trafficRollupRepository;
+    private final boolean enabled;
+    private final int maxValuesPerMinute;
+    private final Duration minuteRetention;
+    private final Duration hourRetention;
+
+    private Map<Long, MinuteCounters> pending = new HashMap<>(); // epoch minute -> counters, guarded by this
+
+    public TrafficRollupService(TrafficRollupRepository trafficRollupRepository,
+                                @Value("${threatsense.rollups.enabled:true}") boolean enabled,
+                                @Value("${threatsense.rollups.max-values-per-minute:50000}") int maxValuesPerMinute,
+                                @Value("${threatsense.rollups.minute-retention:7d}") Duration minuteRetention,
+                                @Value("${threatsense.rollups.hour-retention:400d}") Duration hourRetention) {
+        this.trafficRollupRepository = trafficRollupRepository;
+        this.enabled = enabled;
+        this.maxValuesPerMinute = maxValuesPerMinute;
+        this.minuteRetention = minuteRetention;
+        this.hourRetention = hourRetention;
+    }
+
+    public void record(List<StructuredNetworkLog> logs) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            for (StructuredNetworkLog log : logs) {
+                if (log.getTimestamp() == null) {
+                    continue;
+                }
+                MinuteCounters counters = pending.computeIfAbsent(Math.floorDiv(log.getTimestamp().toEpochMilli(), MINUTE_MILLIS),
+                        minute -> new MinuteCounters());
+                for (TrafficDimension dimension : DIMENSIONS) {
+                    counters.add(dimension, dimension.keyOf(log), log.getBytes(), 1, maxValuesPerMinute);
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${threatsense.rollups.flush-interval:5s}")
+    public void flush() {
+        Map<Long, MinuteCounters> drained;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            drained = pending;
+            pending = new HashMap<>();
+        }
+        List<TrafficRollup> rows = toRows(drained);
+        Flux.fromIterable(MultiRowSql.chunks(rows, TrafficRollupRepository.MAX_ROWS_PER_STATEMENT))
+                .concatMap(chunk -> trafficRollupRepository.addMinuteRollups(chunk)
+                        .onErrorResume(e -> {
+                            logger.warn("Could not write {} minute rollups, retrying with the next flush: {}", chunk.size(), e.getMessage());
+                            restore(chunk);
+                            return Mono.empty();
+                        }))
+                .then()
+                .block(Duration.ofMinutes(1));
+        logger.debug("Flushed {} minute rollups", rows.size());
+    }
+
+    @Scheduled(initialDelayString = "${threatsense.rollups.downsample-interval:5m}", fixedDelayString = "${threatsense.rollups.downsample-interval:5m}")
+    public void downsample() {
+        if (!enabled) {
+            return;
+        }
+        Instant now = Instant.now();
+        Instant currentHour = now.truncatedTo(ChronoUnit.HOURS);
+        // The two previous hours are included so that late minute rows and failed runs are caught up
+        trafficRollupRepository.downsampleToHourly(currentHour.minus(Duration.ofHours(2)), currentHour.plus(Duration.ofHours(1)))
+                .then(trafficRollupRepository.deleteOlderThan(TrafficRollupRepository.Resolution.MINUTE, now.minus(minuteRetention)))
+                .then(trafficRollupRepository.deleteOlderThan(TrafficRollupRepository.Resolution.HOUR, now.minus(hourRetention)))
+                .onErrorResume(e -> {
+                    logger.warn("Could not downsample traffic rollups: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .block(Duration.ofMinutes(5));
+    }
+
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+
+    // Puts rows of a failed write back; rows already past the minute retention are dropped
+    private void restore(List<TrafficRollup> rows) {
+        long oldestMinute = Math.floorDiv(Instant.now().minus(minuteRetention).toEpochMilli(), MINUTE_MILLIS);
+        synchronized (this) {
+            for (TrafficRollup row : rows) {
+                long minute = row.bucketStart().toEpochMilli() / MINUTE_MILLIS;
+                if (minute >= oldestMinute) {
+                    TrafficDimension dimension = TrafficDimension.parse(row.dimension());
+                    pending.computeIfAbsent(minute, m -> new MinuteCounters())
+                            .add(dimension, dimension.keyOf(row.value()), row.bytes(), row.connections(), Integer.MAX_VALUE);
+                }
+            }
+        }
+    }
+
+    static List<TrafficRollup> toRows(Map<Long, MinuteCounters> minutes) {
+        List<TrafficRollup> rows = new ArrayList<>();
+        minutes.forEach((minute, counters) -> {
+            Instant bucketStart = Instant.ofEpochMilli(minute * MINUTE_MILLIS);
+            for (TrafficDimension dimension : DIMENSIONS) {
+                counters.byDimension.get(dimension.ordinal()).forEach((value, count) ->
+                        rows.add(new TrafficRollup(dimension.column(), bucketStart, value.toString(), count[0], count[1])));
+            }
+        });
+        return rows;
+    }
+
+    // Counters of one minute: per dimension, value key -> {bytes, connections}. Keys are the parsed values
+    // (IpAddress, Long, String, see TrafficDimension.keyOf), so counting a log does not build any strings.
+    static final class MinuteCounters {
+        final List<Map<Object, long[]>> byDimension = new ArrayList<>(DIMENSIONS.length);
+
+        MinuteCounters() {
+            for (int i = 0; i < DIMENSIONS.length; i++) {
+                byDimension.add(new HashMap<>());
+            }
+        }
+
+        void add(TrafficDimension dimension, Object value, long bytes, long connections, int maxValues) {
+            Map<Object, long[]> values = byDimension.get(dimension.ordinal());
+            Object key = value != null ? value : "";
+            long[] count = values.get(key);
+            if (count == null) {
+                if (values.size() >= maxValues) {
+                    key = OTHER;
+                    count = values.get(OTHER);
+                }
+                if (count == null) {
+                    count = new long[2];
+                    values.put(key, count);
+                }
+            }
+            count[0] += bytes;
+            count[1] += connections;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.kafkaconsumer.serde;
+
+import org.example.kafkaconsumer.model.RawNetworkLog;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+// Decoder for the compact binary NetworkLog format written by the producer module
+// (org.example.producer.serde.NetworkLogBinaryCodec); keep the two in step.
+//
+// Version 1 layout (big-endian):
+//   u8      version (1)
+//   u8      flags: bit0 srcIP is IPv6, bit1 destIP is IPv6, bit2 message present, bit3 rawLog present
+//   4|16 B  srcIP  (raw address bytes)
+//   4|16 B  destIP (raw address bytes)
+//   u16     port
+//   u8      protocol code: 0 none, 1 TCP, 2 UDP, 3 ICMP, 4 HTTP, 5 HTTPS, 127 other (varint length + UTF-8 follow)
+//   varint  bytes (unsigned LEB128)
+//   i64     timestamp in epoch microseconds (Long.MIN_VALUE when absent)
+//   [varint length + UTF-8] message, if flagged
+//   [varint length + UTF-8] rawLog, if flagged
+public final class NetworkLogBinaryCodec {
+
+    public static final byte VERSION = 1;
+
+    private static final int FLAG_SRC_IPV6 = 1;
+    private static final int FLAG_DEST_IPV6 = 1 << 1;
+    private static final int FLAG_MESSAGE = 1 << 2;
+    private static final int FLAG_RAW_LOG = 1 << 3;
+
+    private static final int PROTOCOL_OTHER = 127;
+    private static final String[] PROTOCOLS = {null, "TCP", "UDP", "ICMP", "HTTP", "HTTPS"};
+
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private NetworkLogBinaryCodec() {
+    }
+
+    public static RawNetworkLog decode(byte[] data) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        byte version = in.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported NetworkLog binary version: " + version);
+        }
+        int flags = in.get();
+
+        RawNetworkLog log = new RawNetworkLog();
+        log.setSrcIP(readAddress(in, (flags & FLAG_SRC_IPV6) != 0));
+        log.setDestIP(readAddress(in, (flags & FLAG_DEST_IPV6) != 0));
+        log.setPort(in.getShort() & 0xFFFF);
+        int protocolCode = in.get() & 0xFF;
+        log.setProtocol(protocolCode == PROTOCOL_OTHER ? readString(in)
+                : protocolCode < PROTOCOLS.length ? PROTOCOLS[protocolCode] : null);
+        log.setBytes(readVarint(in));
+        long micros = in.getLong();
+        if (micros != NO_TIMESTAMP) {
+            log.setTimestamp(Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000L));
+        }
+        if ((flags & FLAG_MESSAGE) != 0) {
+            log.setMessage(readString(in));
+        }
+        if ((flags & FLAG_RAW_LOG) != 0) {
+            log.setRawLog(readString(in));
+        }
+        return log;
+    }
+
+    private static String readAddress(ByteBuffer in, boolean ipv6) {
+        if (!ipv6) {
+            return (in.get() & 0xFF) + "." + (in.get() & 0xFF) + "." + (in.get() & 0xFF) + "." + (in.get() & 0xFF);
+        }
+        StringBuilder text = new StringBuilder(39);
+        for (int group = 0; group < 8; group++) {
+            if (group > 0) {
+                text.append(':');
+            }
+            text.append(Integer.toHexString(in.getShort() & 0xFFFF));
+        }
+        return text.toString();
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = (int) readVarint(in);
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.kafkaconsumer.serde;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.kafkaconsumer.model.RawNetworkLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+// Decodes Kafka record values by topic: topics listed in threatsense.ingest.kafka.binary-topics carry the compact
+// binary format, every other topic carries the producer's JSON.
+@Component
+public class NetworkLogDecoder {
+
+    private final ObjectMapper objectMapper;
+    private final Set<String> binaryTopics;
+
+    public NetworkLogDecoder(ObjectMapper objectMapper,
+                             @Value("${threatsense.ingest.kafka.binary-topics:}") List<String> binaryTopics) {
+        this.objectMapper = objectMapper;
+        this.binaryTopics = Set.copyOf(binaryTopics);
+    }
+
+    public RawNetworkLog decode(String topic, byte[] value) throws IOException {
+        if (binaryTopics.contains(topic)) {
+            try {
+                return NetworkLogBinaryCodec.decode(value);
+            } catch (RuntimeException e) { // buffer underflow, unknown version, ...
+                throw new IOException("Malformed binary NetworkLog: " + e.getMessage(), e);
+            }
+        }
+        return objectMapper.readValue(value, RawNetworkLog.class);
+    }
+}
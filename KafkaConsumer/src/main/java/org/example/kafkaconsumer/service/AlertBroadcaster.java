@@ -0,0 +1,57 @@
+package org.example.kafkaconsumer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.kafkaconsumer.postgres.entity.Alert;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+// In-process hot stream of newly saved alerts, feeding the live SSE endpoint.
+// AlertingService publishes every inserted alert; a new subscriber first receives the last replay-size alerts and
+// then live ones. Publishing never waits for subscribers: each subscriber reads through its own bounded buffer
+// that drops its oldest alerts when the client falls behind, so a slow screen loses alerts (counted in
+// threatsense.alerts.stream.dropped) instead of slowing down detection.
+@Component
+public class AlertBroadcaster {
+
+    private final Sinks.Many<Alert> sink;
+    private final int subscriberBuffer;
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Counter dropped;
+
+    public AlertBroadcaster(MeterRegistry registry,
+                            @Value("${threatsense.alerting.stream.replay-size:256}") int replaySize,
+                            @Value("${threatsense.alerting.stream.subscriber-buffer:1024}") int subscriberBuffer) {
+        this.sink = Sinks.many().replay().limit(replaySize);
+        this.subscriberBuffer = subscriberBuffer;
+        this.dropped = Counter.builder("threatsense.alerts.stream.dropped")
+                .description("Live alerts dropped because a stream subscriber fell behind")
+                .register(registry);
+        Gauge.builder("threatsense.alerts.stream.subscribers", subscribers, AtomicInteger::get)
+                .description("Connected live alert stream subscribers")
+                .register(registry);
+    }
+
+    // Called from concurrent alert writes; the sink needs serialized emissions and delivery to the per-subscriber
+    // buffers is quick, so a lock is cheaper than retrying failed emissions
+    public synchronized void publish(Alert alert) {
+        sink.tryEmitNext(alert);
+    }
+
+    // Replayed and live alerts matching the filter. The filter runs before buffering so that alerts a subscriber
+    // does not want never take up its buffer.
+    public Flux<Alert> subscribe(Predicate<Alert> filter) {
+        return sink.asFlux()
+                .filter(filter)
+                .onBackpressureBuffer(subscriberBuffer, alert -> dropped.increment(), BufferOverflowStrategy.DROP_OLDEST)
+                .doOnSubscribe(s -> subscribers.incrementAndGet())
+                .doFinally(signal -> subscribers.decrementAndGet());
+    }
+}
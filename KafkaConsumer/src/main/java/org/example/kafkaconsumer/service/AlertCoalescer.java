@@ -0,0 +1,393 @@
+package org.example.kafkaconsumer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.example.kafkaconsumer.metrics.PipelineMetrics;
+import org.example.kafkaconsumer.model.IpAddress;
+import org.example.kafkaconsumer.postgres.entity.Alert;
+import org.example.kafkaconsumer.postgres.entity.AlertOccurrences;
+import org.example.kafkaconsumer.postgres.repository.AlertBatchRepository;
+import org.example.kafkaconsumer.postgres.repository.MultiRowSql;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// Folds repeated alerts into one row, so that a blacklisted host talking all day produces a handful of alerts
+// with an occurrence count instead of millions of near-identical rows.
+//
+// - Alerts are grouped by (alert type, src IP, dest IP) of their log. The first alert of a group is written by the
+//   caller right away, like an alert without coalescing (offer() returns FIRST, then writeFirst()), so it is stored
+//   before its batch counts as done. Later alerts whose log timestamp is within the window of that first one only
+//   add to its row's count and first_seen/last_seen. An alert outside the window closes the group and starts a new
+//   one (a new row).
+// - If the first alert's (log, type) already has a row (a re-delivered log), the group counts into that row.
+// - Every flush-interval the occurrences gathered since the last flush are added in one multi-row UPDATE per chunk.
+//   A group whose first write failed is inserted by the flush instead, carrying its occurrences so far, unless the
+//   retried batch writes it first. A failed statement puts its counts back so they go out with the next flush.
+// - Groups without occurrences for a window of wall-clock time are flushed and forgotten.
+// - The live pipeline shares this bean. A replay (backfill chunk) gets its own empty coalescer (withEmptyState(),
+//   like its detectors), so its older event times do not close the live groups; it is not flushed on a schedule,
+//   the replay writes it out with flushAll() when it ends.
+//
+// First alerts are as durable as their batch. The occurrence counts of the last flush-interval only live in memory
+// until they are written (as for the traffic rollups) and are flushed on shutdown; repeats that were flushed before
+// a crash are counted again when their batch is re-delivered. At most max-groups groups are kept (open or waiting
+// to be written); offer() refuses new keys beyond that and the caller writes the alert on its own.
+@Component
+public class AlertCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlertCoalescer.class);
+
+    private record GroupKey(String alertType, IpAddress srcIP, IpAddress destIP) {
+    }
+
+    // What offer() did with an alert
+    public enum Offer {
+        COALESCED, // counted into its group, or its group's first alert again
+        FIRST,     // starts a group (or retries a group's failed first write): the caller writes it with writeFirst()
+        REFUSED    // not coalesced: the caller writes it on its own
+    }
+
+    // One coalesced alert. 'pending' occurrences (event times pendingFirst..pendingLast) are not written yet; they do
+    // not include the first alert.
+    static final class Group {
+        final Alert alert;        // the first occurrence; the stored row once alert.getId() != 0
+        final Instant firstSeen;  // event time the window is measured from
+        boolean writing;          // the first alert's insert is in flight (writeFirst)
+        long pending;
+        Instant pendingFirst;
+        Instant pendingLast;
+        long lastActivityNanos;
+
+        Group(Alert alert, long nowNanos) {
+            this.alert = alert;
+            this.firstSeen = alert.getNetworkLogTimestamp();
+            this.writing = true;
+            this.lastActivityNanos = nowNanos;
+        }
+
+        boolean stored() {
+            return alert.getId() != 0;
+        }
+
+        boolean isFirst(Alert other) {
+            return Objects.equals(alert.getNetworkLogId(), other.getNetworkLogId()) && alert.getAlertType().equals(other.getAlertType());
+        }
+
+        void add(long count, Instant first, Instant last) {
+            if (count == 0) {
+                return;
+            }
+            pending += count;
+            pendingFirst = pendingFirst == null || first.isBefore(pendingFirst) ? first : pendingFirst;
+            pendingLast = pendingLast == null || last.isAfter(pendingLast) ? last : pendingLast;
+        }
+    }
+
+    // A group's counts taken out for one flush
+    private record Drained(Group group, long count, Instant first, Instant last, boolean closed) {
+    }
+
+    private final AlertBatchRepository alertBatchRepository;
+    private final AlertBroadcaster alertBroadcaster;
+    private final PipelineMetrics pipelineMetrics;
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final Duration window;
+    private final int maxGroups;
+    private final Counter coalesced;
+    private final Object flushLock = new Object();
+
+    private final Map<GroupKey, Group> open = new HashMap<>(); // guarded by this
+    private List<Group> closed = new ArrayList<>();            // left their window, still to be written; guarded by this
+    private final Map<Alert, Group> writing = new IdentityHashMap<>(); // first alerts being written; guarded by this
+
+    public AlertCoalescer(AlertBatchRepository alertBatchRepository, AlertBroadcaster alertBroadcaster,
+                          PipelineMetrics pipelineMetrics, MeterRegistry registry,
+                          @Value("${threatsense.alerting.coalesce.enabled:true}") boolean enabled,
+                          @Value("${threatsense.alerting.coalesce.window:5m}") Duration window,
+                          @Value("${threatsense.alerting.coalesce.max-groups:100000}") int maxGroups) {
+        if (window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("threatsense.alerting.coalesce.window must be positive");
+        }
+        this.alertBatchRepository = alertBatchRepository;
+        this.alertBroadcaster = alertBroadcaster;
+        this.pipelineMetrics = pipelineMetrics;
+        this.registry = registry;
+        this.enabled = enabled;
+        this.window = window;
+        this.maxGroups = maxGroups;
+        this.coalesced = Counter.builder("threatsense.alerts.coalesced")
+                .description("Alerts folded into the occurrence count of an existing alert instead of written as a row")
+                .register(registry);
+        Gauge.builder("threatsense.alerts.coalesce.groups", this, AlertCoalescer::groups)
+                .description("Coalesced alerts held in memory")
+                .register(registry);
+    }
+
+    // A coalescer with the same settings and no groups, for replaying a separate stretch of event time (backfill).
+    // It counts into the same threatsense.alerts.coalesced counter; the groups gauge keeps showing the live ones.
+    public AlertCoalescer withEmptyState() {
+        return new AlertCoalescer(alertBatchRepository, alertBroadcaster, pipelineMetrics, registry, enabled, window, maxGroups);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Takes the alert of a log from src to dest into its group
+    public Offer offer(Alert alert, IpAddress srcIP, IpAddress destIP) {
+        Instant timestamp = alert.getNetworkLogTimestamp();
+        if (!enabled || timestamp == null) {
+            return Offer.REFUSED;
+        }
+        GroupKey key = new GroupKey(alert.getAlertType(), srcIP, destIP);
+        long now = System.nanoTime();
+        synchronized (this) {
+            Group group = open.get(key);
+            if (group != null) {
+                if (Duration.between(group.firstSeen, timestamp).abs().compareTo(window) < 0) {
+                    group.lastActivityNanos = now;
+                    if (group.isFirst(alert)) { // the batch of the first alert again
+                        if (group.stored() || group.writing) {
+                            return Offer.COALESCED; // already counted
+                        }
+                        group.writing = true;
+                        writing.put(alert, group);
+                        return Offer.FIRST;
+                    }
+                    group.add(1, timestamp, timestamp);
+                    coalesced.increment();
+                    return Offer.COALESCED;
+                }
+                open.remove(key);
+                closed.add(group);
+            }
+            if (open.size() + closed.size() >= maxGroups) {
+                return Offer.REFUSED;
+            }
+            group = new Group(alert, now);
+            open.put(key, group);
+            writing.put(alert, group);
+            return Offer.FIRST;
+        }
+    }
+
+    // Writes the first alert of a group (offer() returned FIRST) with the caller's insert, which emits the stored
+    // alert or completes empty if its (log, type) already has a row; the group then counts into that row. An error
+    // leaves the first alert to the retried batch or the next flush, and is passed on.
+    public Mono<Void> writeFirst(Alert alert, Mono<Alert> insert) {
+        return insert.map(Alert::getId)
+                .switchIfEmpty(Mono.defer(() -> alertBatchRepository.findId(alert)))
+                .doOnNext(id -> firstWritten(alert, id))
+                .switchIfEmpty(Mono.fromRunnable(() -> firstWritten(alert, null)))
+                .doOnError(e -> firstFailed(alert))
+                .doOnCancel(() -> firstFailed(alert))
+                .then();
+    }
+
+    // One flush at a time, so a group is inserted at most once. Alerts keep being offered while a flush writes.
+    @Scheduled(fixedDelayString = "${threatsense.alerting.coalesce.flush-interval:1s}")
+    public void flush() {
+        synchronized (flushLock) {
+            write(false).block(Duration.ofMinutes(1));
+        }
+    }
+
+    // Writes every pending count and forgets all groups; a replay's coalescer once its alerts are all written
+    public Mono<Void> flushAll() {
+        return write(true);
+    }
+
+    private Mono<Void> write(boolean closeAll) {
+        return Mono.defer(() -> {
+            List<Drained> drained = drain(System.nanoTime(), closeAll);
+            if (drained.isEmpty()) {
+                return Mono.empty();
+            }
+            List<Drained> inserts = new ArrayList<>();
+            List<Drained> updates = new ArrayList<>();
+            for (Drained entry : drained) {
+                (entry.group().stored() ? updates : inserts).add(entry);
+            }
+            return Flux.fromIterable(MultiRowSql.chunks(inserts, AlertBatchRepository.MAX_INSERT_ROWS_PER_STATEMENT))
+                    .concatMap(this::insert)
+                    .thenMany(Flux.fromIterable(MultiRowSql.chunks(updates, AlertBatchRepository.MAX_UPDATE_ROWS_PER_STATEMENT)))
+                    .concatMap(this::update)
+                    .then()
+                    .doOnSuccess(v -> logger.debug("Flushed {} new and {} updated coalesced alerts", inserts.size(), updates.size()));
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+
+    synchronized int groups() {
+        return open.size() + closed.size();
+    }
+
+    // Takes out every pending count, and the groups that are closed or idle for a window (all of them with
+    // closeAll). Groups whose first alert is being written stay until it is; groups whose first write failed are
+    // taken out to be inserted.
+    private synchronized List<Drained> drain(long nowNanos, boolean closeAll) {
+        List<Drained> drained = new ArrayList<>();
+        List<Group> stillClosed = new ArrayList<>();
+        for (Group group : closed) {
+            if (group.writing) {
+                stillClosed.add(group);
+            } else if (group.pending > 0 || !group.stored()) {
+                drained.add(take(group, true));
+            }
+        }
+        closed = stillClosed;
+        long idleNanos = window.toNanos();
+        for (Iterator<Group> groups = open.values().iterator(); groups.hasNext(); ) {
+            Group group = groups.next();
+            if (group.writing) {
+                continue;
+            }
+            boolean idle = closeAll || nowNanos - group.lastActivityNanos >= idleNanos;
+            if (idle) {
+                groups.remove();
+            }
+            if (group.pending > 0 || !group.stored()) {
+                drained.add(take(group, idle));
+            }
+        }
+        return drained;
+    }
+
+    private static Drained take(Group group, boolean closed) {
+        Drained drained = new Drained(group, group.pending, group.pendingFirst, group.pendingLast, closed);
+        group.pending = 0;
+        group.pendingFirst = null;
+        group.pendingLast = null;
+        return drained;
+    }
+
+    private synchronized void firstWritten(Alert alert, Long id) {
+        Group group = writing.remove(alert);
+        if (group == null) {
+            return;
+        }
+        group.writing = false;
+        if (id != null) {
+            group.alert.setId(id);
+        } else { // the row is gone (its partition was dropped): nothing to count into
+            forget(group);
+        }
+    }
+
+    private synchronized void firstFailed(Alert alert) {
+        Group group = writing.remove(alert);
+        if (group != null) {
+            group.writing = false;
+        }
+    }
+
+    // Inserts the groups whose first write failed, with the first alert and the occurrences so far
+    private Mono<Void> insert(List<Drained> chunk) {
+        List<Alert> alerts = new ArrayList<>(chunk.size());
+        for (Drained entry : chunk) {
+            Alert alert = entry.group().alert;
+            alert.setOccurrenceCount(entry.count() + 1);
+            alert.setFirstSeen(entry.first() != null && entry.first().isBefore(alert.getNetworkLogTimestamp()) ? entry.first() : alert.getNetworkLogTimestamp());
+            alert.setLastSeen(entry.last() != null && entry.last().isAfter(alert.getNetworkLogTimestamp()) ? entry.last() : alert.getNetworkLogTimestamp());
+            alerts.add(alert);
+        }
+        Set<Alert> inserted = Collections.newSetFromMap(new IdentityHashMap<>());
+        return alertBatchRepository.insertAll(alerts)
+                .doOnNext(alert -> {
+                    inserted.add(alert);
+                    pipelineMetrics.recordAlertRaised(alert.getAlertType());
+                    logger.debug("ALERT GENERATED: {} Severity: {} for log ID: {} (Alert UUID: {}, {} occurrences)",
+                            alert.getAlertType(), alert.getSeverity(), alert.getNetworkLogId(), alert.getAlertId(), alert.getOccurrenceCount());
+                    alertBroadcaster.publish(alert); // live stream, only once the alert is stored
+                })
+                .then(Mono.just(true))
+                .onErrorResume(e -> {
+                    logger.warn("Could not write {} coalesced alerts, retrying with the next flush: {}", chunk.size(), e.getMessage());
+                    restore(chunk);
+                    return Mono.just(false);
+                })
+                .flatMapMany(written -> written ? Flux.fromIterable(chunk) : Flux.empty())
+                .filter(entry -> !inserted.contains(entry.group().alert))
+                .concatMap(this::countIntoExisting)
+                .then();
+    }
+
+    // A group whose insert returned no row conflicted with a stored alert of its first log (written meanwhile by the
+    // retried or re-delivered batch): that row already counts the first alert, the occurrences are added to it
+    private Mono<Void> countIntoExisting(Drained entry) {
+        Group group = entry.group();
+        return alertBatchRepository.findId(group.alert)
+                .flatMap(id -> {
+                    group.alert.setId(id);
+                    return entry.count() > 0 ? update(List.of(entry)) : Mono.<Void>empty();
+                })
+                .switchIfEmpty(Mono.fromRunnable(() -> {
+                    synchronized (this) {
+                        forget(group);
+                    }
+                }))
+                .onErrorResume(e -> {
+                    logger.warn("Could not find the stored alert for log ID {}, retrying with the next flush: {}", group.alert.getNetworkLogId(), e.getMessage());
+                    restore(List.of(entry));
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private Mono<Void> update(List<Drained> chunk) {
+        List<AlertOccurrences> occurrences = new ArrayList<>(chunk.size());
+        for (Drained entry : chunk) {
+            Alert alert = entry.group().alert;
+            occurrences.add(new AlertOccurrences(alert.getId(), alert.getNetworkLogTimestamp(), entry.count(), entry.first(), entry.last()));
+        }
+        return alertBatchRepository.addOccurrences(occurrences)
+                .onErrorResume(e -> {
+                    logger.warn("Could not add occurrences to {} coalesced alerts, retrying with the next flush: {}", chunk.size(), e.getMessage());
+                    restore(chunk);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    // Called with the lock held
+    private void forget(Group group) {
+        open.values().remove(group);
+        closed.remove(group);
+        logger.debug("Dropped coalesced alert for log ID {}: its stored row of type {} is gone",
+                group.alert.getNetworkLogId(), group.alert.getAlertType());
+    }
+
+    private synchronized void restore(List<Drained> chunk) {
+        for (Drained entry : chunk) {
+            Group group = entry.group();
+            group.add(entry.count(), entry.first(), entry.last());
+            if (entry.closed()) {
+                closed.add(group);
+            }
+        }
+    }
+}
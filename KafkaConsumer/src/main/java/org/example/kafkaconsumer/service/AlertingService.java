@@ -1,114 +1,267 @@
 package org.example.kafkaconsumer.service;
 
+import org.example.kafkaconsumer.detection.ByteVolumeDetector;
+import org.example.kafkaconsumer.detection.FrequentConnectionDetector;
+import org.example.kafkaconsumer.detection.PortScanDetector;
+import org.example.kafkaconsumer.detection.rules.CompiledRuleSet;
+import org.example.kafkaconsumer.detection.rules.DetectionRule;
+import org.example.kafkaconsumer.detection.rules.DetectionRuleEngine;
+import org.example.kafkaconsumer.intel.ThreatIntelIndex;
+import org.example.kafkaconsumer.intel.ThreatIntelService;
+import org.example.kafkaconsumer.metrics.PipelineMetrics;
 import org.example.kafkaconsumer.postgres.entity.Alert;
+import org.example.kafkaconsumer.postgres.entity.FrequentConnectionAlertDTO;
 import org.example.kafkaconsumer.postgres.entity.StructuredNetworkLog;
 import org.example.kafkaconsumer.postgres.repository.AlertRepository;
 import org.example.kafkaconsumer.postgres.repository.StructuredLogRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.time.Instant;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID; // Import UUID if StructuredNetworkLog ID is UUID
+import java.util.Set;
 
 @Service
 public class AlertingService {
 
+    // The stateful streaming detectors and the alert coalescer. The live pipeline shares one set; a backfill chunk
+    // replays older event time and gets its own empty set (newDetectors()) so it neither disturbs nor is discarded
+    // by the live windows and groups. A replay ends with finishReplay(), which writes its coalesced counts.
+    public record Detectors(FrequentConnectionDetector frequentConnection, PortScanDetector portScan,
+                            ByteVolumeDetector byteVolume, AlertCoalescer coalescer) {
+
+        Detectors withEmptyState() {
+            return new Detectors(frequentConnection.withEmptyState(), portScan.withEmptyState(), byteVolume.withEmptyState(),
+                    coalescer.withEmptyState());
+        }
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(AlertingService.class);
+    private static final int ALERT_WRITE_PREFETCH = 32;
+
     private final StructuredLogRepository structuredLogRepository;
     private final AlertRepository alertRepository;
+    private final ThreatIntelService threatIntelService; // blacklisted IPs/CIDRs and suspicious ports, hot-reloaded
+    private final DetectionRuleEngine detectionRuleEngine; // configured field-predicate rules, compiled and hot-reloaded
+    // frequent (src, dest) pairs, distinct destination ports/hosts per source (HyperLogLog), and bytes per host and
+    // pair against their learned baseline
+    private final Detectors liveDetectors;
+    private final PipelineMetrics pipelineMetrics;
+    private final AlertBroadcaster alertBroadcaster;
 
-    private static final List<Long> SUSPICIOUS_PORTS = Arrays.asList(23L, 3389L, 22L, 445L);
-    private static final List<String> BLACKLISTED_IPS = Arrays.asList(
-            "1.2.3.4",
-            "192.0.2.1",
-            "10.0.0.1"
-    );
+    private final int maxConcurrentAlertWrites;
+    private final RecentAlertKeyCache recentAlertKeys;
 
-    public AlertingService(StructuredLogRepository structuredLogRepository, AlertRepository alertRepository) {
+    public AlertingService(StructuredLogRepository structuredLogRepository, AlertRepository alertRepository,
+                           ThreatIntelService threatIntelService,
+                           DetectionRuleEngine detectionRuleEngine,
+                           FrequentConnectionDetector frequentConnectionDetector,
+                           PortScanDetector portScanDetector,
+                           ByteVolumeDetector byteVolumeDetector,
+                           PipelineMetrics pipelineMetrics,
+                           AlertBroadcaster alertBroadcaster,
+                           AlertCoalescer alertCoalescer,
+                           @Value("${threatsense.alerting.max-concurrent-writes:16}") int maxConcurrentAlertWrites,
+                           @Value("${threatsense.alerting.recent-key-cache-size:100000}") int recentKeyCacheSize) {
         this.structuredLogRepository = structuredLogRepository;
         this.alertRepository = alertRepository;
+        this.threatIntelService = threatIntelService;
+        this.detectionRuleEngine = detectionRuleEngine;
+        // the coalescer folds repeats of (type, src, dest) into one row with a count
+        this.liveDetectors = new Detectors(frequentConnectionDetector, portScanDetector, byteVolumeDetector, alertCoalescer);
+        this.pipelineMetrics = pipelineMetrics;
+        this.alertBroadcaster = alertBroadcaster;
+        this.maxConcurrentAlertWrites = maxConcurrentAlertWrites;
+        this.recentAlertKeys = new RecentAlertKeyCache(recentKeyCacheSize);
     }
 
+    // Re-analyzes a log that is only known by id. The ingestion path already holds the entity and calls analyze() directly.
     public Mono<Void> analyzeAndAlert(Long logId) { // Adjust Long if your logId is UUID/String
-        System.out.println("Alerting Service: Received trigger for Log ID: " + logId + ". Starting analysis.");
-
         return structuredLogRepository.findById(logId)
-                .doOnSuccess(log -> {
-                    if (log != null) {
-                        System.out.println("Alerting Service: Fetched log " + log.getLogId() + " from PostgreSQL for analysis.");
-                        performThreatAnalysis(log);
-                    } else {
-                        System.out.println("Alerting Service: Log with ID " + logId + " not found in PostgreSQL. Cannot perform analysis.");
-                    }
-                })
-                .doOnError(e -> System.err.println("Alerting Service: Error fetching log " + logId + " for analysis: " + e.getMessage()))
+                .switchIfEmpty(Mono.fromRunnable(() -> logger.info("Log with ID {} not found in PostgreSQL. Cannot perform analysis.", logId)))
+                .flatMap(this::analyze)
+                .doOnError(e -> logger.warn("Error fetching log {} for analysis: {}", logId, e.getMessage()));
+    }
+
+    // Analyzes a batch of already-saved logs in one synchronous pass: every log is run through the compiled
+    // detection rules and the frequent-connection detector, and reactive work is only created for the alerts
+    // that actually fire. With coalescing on, the alerts are handed to the AlertCoalescer: the first alert of each
+    // group is inserted here and repeats only add to its count. At most maxConcurrentAlertWrites alert inserts are
+    // in flight at once, and the returned Mono completes only when every alert write has finished.
+    public Mono<Void> analyzeAll(List<StructuredNetworkLog> logs) {
+        return analyzeAll(logs, liveDetectors);
+    }
+
+    // Same as analyzeAll(logs), with the streaming detectors and coalescer of a replay (see newDetectors())
+    public Mono<Void> analyzeAll(List<StructuredNetworkLog> logs, Detectors detectors) {
+        AlertCoalescer alertCoalescer = detectors.coalescer();
+        CompiledRuleSet rules = detectionRuleEngine.current();
+        ThreatIntelIndex intel = threatIntelService.current();
+        List<Alert> alerts = new ArrayList<>();
+        List<Alert> uncoalesced = new ArrayList<>(); // already marked in recentAlertKeys, written one by one
+        List<Alert> firsts = new ArrayList<>();      // first alerts of coalesced groups, written one by one
+        for (StructuredNetworkLog log : logs) {
+            int first = alerts.size();
+            collectRuleAlerts(log, rules, intel, alerts);
+            collectFrequentConnectionAlert(log, detectors.frequentConnection(), alerts);
+            collectPortScanAlerts(log, detectors.portScan(), alerts);
+            collectByteVolumeAlerts(log, detectors.byteVolume(), alerts);
+            if (alertCoalescer.isEnabled() && alerts.size() > first) {
+                coalesce(log, alerts.subList(first, alerts.size()), alertCoalescer, uncoalesced, firsts);
+            }
+        }
+        if (alerts.isEmpty() && uncoalesced.isEmpty() && firsts.isEmpty()) {
+            return Mono.empty();
+        }
+        // a failed write fails the returned Mono only once the other writes are done, so that the caller
+        // (IngestionGate) can retry the batch: the log insert is idempotent and alerts already written are duplicates
+        return Flux.<Object>mergeDelayError(ALERT_WRITE_PREFETCH,
+                        Flux.fromIterable(alerts).flatMapDelayError(alert -> createAndSaveAlertIfNotDuplicate(alert, alert.getNetworkLogId()),
+                                maxConcurrentAlertWrites, ALERT_WRITE_PREFETCH),
+                        Flux.fromIterable(uncoalesced).flatMapDelayError(this::saveAlert, maxConcurrentAlertWrites, ALERT_WRITE_PREFETCH),
+                        Flux.fromIterable(firsts).flatMapDelayError(alert -> alertCoalescer.writeFirst(alert, saveAlert(alert)),
+                                maxConcurrentAlertWrites, ALERT_WRITE_PREFETCH))
                 .then();
     }
 
-    private void performThreatAnalysis(StructuredNetworkLog log) {
-        Mono<Void> portAnalysis = checkSuspiciousPortActivity(log);
-        Mono<Void> ipAnalysis = checkBlacklistedIpActivity(log);
+    public Mono<Void> analyze(StructuredNetworkLog log) {
+        return analyzeAll(List.of(log));
+    }
 
-        Mono.when(portAnalysis, ipAnalysis)
-                .doOnSuccess((aVoid) -> System.out.println("Alerting Service: Completed all per-log analysis for Log ID: " + log.getLogId()))
-                .doOnError(e -> System.err.println("Alerting Service: Error during combined analysis for Log ID " + log.getLogId() + ": " + e.getMessage()))
-                .subscribe();
+    // True if a configured rule with one of the given severities matches the log. IngestionGate uses it to pick the
+    // logs that are still processed right away when the consumer is overloaded.
+    public boolean matchesRule(StructuredNetworkLog log, Set<String> severities) {
+        CompiledRuleSet rules = detectionRuleEngine.current();
+        long matches = rules.evaluate(log, threatIntelService.current());
+        while (matches != 0) {
+            int bit = Long.numberOfTrailingZeros(matches);
+            matches &= matches - 1;
+            if (severities.contains(rules.rule(bit).severity())) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    private Mono<Void> checkSuspiciousPortActivity(StructuredNetworkLog log) {
-        if (SUSPICIOUS_PORTS.contains(log.getPort())) {
-            System.out.println("DEBUG Alerting Service (Ports): Detected suspicious port: " + log.getPort() + " for Log ID: " + log.getLogId());
-            String alertMessage = "Detected connection to suspicious port: " + log.getPort() +
-                    " from " + log.getSrcIP() + " to " + log.getDestIP() +
-                    ". Protocol: " + log.getProtocol();
+    // Empty detectors and coalescer with the live settings
+    public Detectors newDetectors() {
+        return liveDetectors.withEmptyState();
+    }
 
-            // Use the new Alert constructor: public Alert(Long networkLogId, String alertType, String severity, String alertMessage)
-            Alert alert = new Alert(
-                    log.getId(),
-                    "Suspicious Port Activity",
-                    "HIGH",
+    // Writes the occurrence counts a replay's coalescer still holds, once all of its batches are analyzed
+    public Mono<Void> finishReplay(Detectors detectors) {
+        return detectors.coalescer().flushAll();
+    }
+
+    private void collectRuleAlerts(StructuredNetworkLog log, CompiledRuleSet rules, ThreatIntelIndex intel, List<Alert> alerts) {
+        long matches = rules.evaluate(log, intel);
+        while (matches != 0) {
+            int bit = Long.numberOfTrailingZeros(matches);
+            matches &= matches - 1;
+            DetectionRule rule = rules.rule(bit);
+            logger.debug("Rule {} matched Log ID {}", rule.id(), log.getLogId());
+            alerts.add(new Alert(log.getId(), log.getTimestamp(), rule.alertType(), rule.severity(), rules.message(bit, log, intel)));
+        }
+    }
+
+    private void collectFrequentConnectionAlert(StructuredNetworkLog log, FrequentConnectionDetector frequentConnectionDetector, List<Alert> alerts) {
+        FrequentConnectionAlertDTO frequent = frequentConnectionDetector.record(log);
+        if (frequent != null) {
+            String alertMessage = "Detected " + frequent.getConnectionCount() + " connections from " + frequent.getSrcIP() +
+                    " to " + frequent.getDestIP() + " within " + frequentConnectionDetector.getWindow().toSeconds() + "s" +
+                    ". Latest at " + frequent.getLatestLogTimestamp();
+
+            alerts.add(new Alert(
+                    frequent.getLatestLogId(), // the log that crossed the threshold
+                    frequent.getLatestLogTimestamp(),
+                    "Frequent Connection",
+                    "MEDIUM",
                     alertMessage
-            );
-            return createAndSaveAlertIfNotDuplicate(alert, log.getId()).then();
+            ));
         }
-        return Mono.empty();
     }
 
-    private Mono<Void> checkBlacklistedIpActivity(StructuredNetworkLog log) {
-        boolean isBlacklistedSrc = BLACKLISTED_IPS.contains(log.getSrcIP());
-        boolean isBlacklistedDest = BLACKLISTED_IPS.contains(log.getDestIP());
+    private void collectPortScanAlerts(StructuredNetworkLog log, PortScanDetector portScanDetector, List<Alert> alerts) {
+        PortScanDetector.Finding finding = portScanDetector.record(log);
+        if (finding == null) {
+            return;
+        }
+        long windowSeconds = portScanDetector.getWindow().toSeconds();
+        // both alerts reference the log that crossed the threshold
+        if (finding.portScan()) {
+            alerts.add(new Alert(log.getId(), log.getTimestamp(), "Port Scan", "HIGH",
+                    "Source " + finding.srcIP() + " contacted ~" + finding.distinctPorts() + " distinct destination ports within " + windowSeconds + "s"));
+        }
+        if (finding.hostSweep()) {
+            alerts.add(new Alert(log.getId(), log.getTimestamp(), "Host Sweep", "MEDIUM",
+                    "Source " + finding.srcIP() + " contacted ~" + finding.distinctHosts() + " distinct destination hosts within " + windowSeconds + "s"));
+        }
+    }
 
-        if (isBlacklistedSrc || isBlacklistedDest) {
-            System.out.println("DEBUG Alerting Service (Blacklist): Detected blacklisted IP for Log ID: " + log.getLogId());
-            String detectedIp = isBlacklistedSrc ? log.getSrcIP() : log.getDestIP();
-            String alertMessage = "Detected connection involving blacklisted IP: " + detectedIp +
-                    " (Source: " + log.getSrcIP() + ", Dest: " + log.getDestIP() + ")";
+    private void collectByteVolumeAlerts(StructuredNetworkLog log, ByteVolumeDetector byteVolumeDetector, List<Alert> alerts) {
+        ByteVolumeDetector.Finding[] findings = byteVolumeDetector.record(log);
+        if (findings == null) {
+            return;
+        }
+        long bucketSeconds = byteVolumeDetector.getBucket().toSeconds();
+        for (ByteVolumeDetector.Finding finding : findings) {
+            String subject = finding.destIP() == null ? "Source " + finding.srcIP() : finding.srcIP() + " -> " + finding.destIP();
+            String alertMessage = subject + " sent " + finding.bytes() + " bytes within " + bucketSeconds + "s" +
+                    String.format(" (baseline %.0f +/- %.0f bytes)", finding.mean(), finding.stddev());
+            alerts.add(new Alert(log.getId(), log.getTimestamp(),
+                    finding.destIP() == null ? "Host Volume Anomaly" : "Pair Volume Anomaly", "MEDIUM", alertMessage));
+        }
+    }
 
-            // Use the new Alert constructor
-            Alert alert = new Alert(
-                    log.getId(), // Pass the StructuredNetworkLog's ID as networkLogId
-                    "Blacklisted IP Activity",
-                    "CRITICAL",
-                    alertMessage
-            );
-            return createAndSaveAlertIfNotDuplicate(alert, log.getId()).then();
+    // Moves the log's new alerts into the coalescer; duplicates are dropped, alerts that start a group go to firsts
+    // and those it has no room for to uncoalesced
+    private void coalesce(StructuredNetworkLog log, List<Alert> logAlerts, AlertCoalescer alertCoalescer,
+                          List<Alert> uncoalesced, List<Alert> firsts) {
+        for (Alert alert : logAlerts) {
+            if (!recentAlertKeys.markIfAbsent(alert.getNetworkLogId(), alert.getAlertType())) {
+                continue;
+            }
+            switch (alertCoalescer.offer(alert, log.getSrcIP(), log.getDestIP())) {
+                case FIRST -> firsts.add(alert);
+                case REFUSED -> uncoalesced.add(alert);
+                case COALESCED -> { }
+            }
         }
-        return Mono.empty();
+        logAlerts.clear();
     }
 
+    // At most one write per alert: the recent-key cache skips hot duplicates in memory, and the INSERT itself
+    // dedups on (network_log_id, alert_type) via ON CONFLICT DO NOTHING, so no existence check is needed first.
     private Mono<Alert> createAndSaveAlertIfNotDuplicate(Alert alert, Long networkLogId) { // Adjust Long if networkLogId is UUID
-        return alertRepository.existsByNetworkLogId(networkLogId)
-                .flatMap(exists -> {
-                    if (!exists) {
-                        System.out.println("DEBUG Alerting Service: Attempting to SAVE new alert: " + alert.getAlertType() + " for log ID: " + networkLogId);
-                        return alertRepository.save(alert)
-                                .doOnSuccess(savedAlert -> System.out.println("ALERT GENERATED: " + savedAlert.getAlertType() + " Severity: " + savedAlert.getSeverity() + " for log ID: " + savedAlert.getNetworkLogId() + " (Alert UUID: " + savedAlert.getAlertId() + ")"));
-                    } else {
-                        System.out.println("DEBUG Alerting Service: Duplicate alert found for log ID: " + networkLogId + ". Skipping save.");
-                        return Mono.empty();
+        if (!recentAlertKeys.markIfAbsent(networkLogId, alert.getAlertType())) {
+            return Mono.empty();
+        }
+        return saveAlert(alert);
+    }
+
+    private Mono<Alert> saveAlert(Alert alert) {
+        Long networkLogId = alert.getNetworkLogId();
+        return pipelineMetrics.timeAlertWrite(alert.getAlertType(),
+                        alertRepository.insertIfAbsent(alert.getAlertId(), networkLogId, alert.getNetworkLogTimestamp(), alert.getAlertType(), alert.getSeverity(),
+                                alert.getStatus(), alert.getAlertMessage(), alert.getRaisedAt(), alert.getFirstSeen(), alert.getLastSeen()))
+                .map(id -> {
+                    alert.setId(id);
+                    return alert;
+                })
+                .doOnSuccess(savedAlert -> {
+                    if (savedAlert != null) { // counted per type in threatsense.alerts.raised
+                        logger.debug("ALERT GENERATED: {} Severity: {} for log ID: {} (Alert UUID: {})",
+                                savedAlert.getAlertType(), savedAlert.getSeverity(), savedAlert.getNetworkLogId(), savedAlert.getAlertId());
+                        alertBroadcaster.publish(savedAlert); // live stream, only once the alert is stored
                     }
                 })
-                .doOnError(e -> System.err.println("ERROR: Could not save alert for log ID " + networkLogId + ": " + e.getMessage()));
+                .doOnError(e -> {
+                    recentAlertKeys.forget(networkLogId, alert.getAlertType()); // so the retried batch writes it
+                    logger.warn("Could not save alert for log ID {}: {}", networkLogId, e.getMessage());
+                });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,270 @@
+package org.example.kafkaconsumer.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.kafkaconsumer.model.RawNetworkLog;
+import org.example.kafkaconsumer.postgres.entity.BackfillChunk;
+import org.example.kafkaconsumer.postgres.repository.BackfillProgressRepository;
+import org.example.kafkaconsumer.postgres.repository.TrafficRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+// Replays raw logs of a past time range from MongoDB through the ingestion pipeline, e.g. after an outage or to
+// load logs that predate the consumer. Change-stream mode reads network_logs, the collection the stream watches;
+// Kafka mode reads the raw store its archive writes (RawLogArchiver).
+//
+// - The range is widened to whole minutes and split into chunks of chunk-size; up to 'parallelism' chunks run at
+//   once. A chunk reads its logs with one range query sorted by timestamp (cursor-batch-size documents per
+//   cursor round-trip, further reads only as fast as the chunk writes) and sends them in batches of batch-size
+//   through IngestionPipeline.replay(): the same mapping, idempotent multi-row insert and alerting as live logs.
+// - Each chunk uses its own empty streaming detectors and alert coalescer (AlertingService.newDetectors()), so
+//   windows, baselines and coalesced groups follow the chunk's event time and the live ones are not disturbed.
+//   The chunk's coalesced occurrence counts are written when it ends; a failed attempt's are dropped with it.
+// - Progress is checkpointed per chunk in backfill_progress. A job is identified by its range and chunk size, so
+//   starting the same job again skips chunks that are DONE. A failed chunk is retried chunk-retries times, then
+//   marked FAILED and left for the next run; re-running a partly written chunk is safe because log_ids derive from
+//   the MongoDB document ids and alerts dedup on (log, alert type).
+// - Traffic rollups of a finished chunk are rebuilt from network_logs, and the hourly rollups of the whole range
+//   are recomputed when the job ends.
+@Service
+public class BackfillService {
+
+    // [start, end) of one chunk
+    public record Chunk(Instant start, Instant end) {
+    }
+
+    public record Job(String jobId, Instant from, Instant to, Duration chunkSize, int chunks) {
+    }
+
+    public record Status(String jobId, boolean running, int chunks, int done, int failed, long logsProcessed,
+                         List<BackfillChunk> chunkProgress) {
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(BackfillService.class);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final String sourceCollection;
+    private final IngestionPipeline ingestionPipeline;
+    private final AlertingService alertingService;
+    private final BackfillProgressRepository backfillProgressRepository;
+    private final TrafficRollupRepository trafficRollupRepository;
+    private final Duration defaultChunkSize;
+    private final int parallelism;
+    private final int batchSize;
+    private final int cursorBatchSize;
+    private final int chunkRetries;
+    private final int maxChunks;
+    private final boolean rebuildRollups;
+
+    private final Map<String, Disposable.Swap> running = new ConcurrentHashMap<>(); // job id -> its subscription
+
+    public BackfillService(ReactiveMongoTemplate mongoTemplate,
+                           @Value("${threatsense.ingest.mode:change-stream}") String ingestMode,
+                           @Value("${threatsense.raw-store.collection:raw_logs}") String rawStoreCollection,
+                           IngestionPipeline ingestionPipeline,
+                           AlertingService alertingService,
+                           BackfillProgressRepository backfillProgressRepository,
+                           TrafficRollupRepository trafficRollupRepository,
+                           @Value("${threatsense.backfill.chunk-size:1h}") Duration defaultChunkSize,
+                           @Value("${threatsense.backfill.parallelism:4}") int parallelism,
+                           @Value("${threatsense.backfill.batch-size:1000}") int batchSize,
+                           @Value("${threatsense.backfill.cursor-batch-size:2000}") int cursorBatchSize,
+                           @Value("${threatsense.backfill.chunk-retries:3}") int chunkRetries,
+                           @Value("${threatsense.backfill.max-chunks:10000}") int maxChunks,
+                           @Value("${threatsense.rollups.enabled:true}") boolean rebuildRollups) {
+        this.mongoTemplate = mongoTemplate;
+        this.sourceCollection = "kafka".equals(ingestMode) ? rawStoreCollection : "network_logs";
+        this.ingestionPipeline = ingestionPipeline;
+        this.alertingService = alertingService;
+        this.backfillProgressRepository = backfillProgressRepository;
+        this.trafficRollupRepository = trafficRollupRepository;
+        this.defaultChunkSize = defaultChunkSize;
+        this.parallelism = Math.max(1, parallelism);
+        this.batchSize = batchSize;
+        this.cursorBatchSize = cursorBatchSize;
+        this.chunkRetries = chunkRetries;
+        this.maxChunks = maxChunks;
+        this.rebuildRollups = rebuildRollups;
+    }
+
+    // Starts (or resumes) the backfill of [from, to) in the background; chunkSize null uses the configured one.
+    // Throws IllegalArgumentException for an invalid range and IllegalStateException if the job is already running.
+    public Job start(Instant from, Instant to, Duration chunkSize) {
+        Duration size = chunkSize != null ? chunkSize : defaultChunkSize;
+        List<Chunk> chunks = chunks(from, to, size, maxChunks);
+        Job job = new Job(jobId(from, to, size), chunks.get(0).start(), chunks.get(chunks.size() - 1).end(), size, chunks.size());
+
+        Disposable.Swap subscription = Disposables.swap();
+        if (running.putIfAbsent(job.jobId(), subscription) != null) {
+            throw new IllegalStateException("Backfill " + job.jobId() + " is already running");
+        }
+        logger.info("Starting backfill {} of {} to {} in {} chunks of {}", job.jobId(), job.from(), job.to(), chunks.size(), size);
+        AtomicLong logs = new AtomicLong();
+        AtomicInteger failed = new AtomicInteger();
+        subscription.update(backfillProgressRepository.findDoneChunkStarts(job.jobId())
+                .collect(HashSet<Instant>::new, Set::add)
+                .flatMapMany(done -> Flux.fromIterable(chunks).filter(chunk -> !done.contains(chunk.start())))
+                .flatMap(chunk -> runChunk(job.jobId(), chunk)
+                        .doOnNext(logs::addAndGet)
+                        .switchIfEmpty(Mono.<Long>fromRunnable(failed::incrementAndGet)), parallelism)
+                .then(Mono.defer(() -> rebuildRollups
+                        ? trafficRollupRepository.downsampleToHourly(job.from().truncatedTo(ChronoUnit.HOURS), ceilHour(job.to()))
+                        : Mono.empty()))
+                .doFinally(signal -> running.remove(job.jobId(), subscription))
+                .subscribe(
+                        v -> { },
+                        e -> logger.error("Backfill {} stopped: {}", job.jobId(), e.getMessage()),
+                        () -> logger.info("Backfill {} finished: {} logs written, {} chunks failed", job.jobId(), logs.get(), failed.get())));
+        return job;
+    }
+
+    // Stops a running job; chunks in progress stay RUNNING and are redone when the job is started again
+    public boolean stop(String jobId) {
+        Disposable.Swap subscription = running.remove(jobId);
+        if (subscription == null) {
+            return false;
+        }
+        subscription.dispose();
+        logger.info("Stopped backfill {}", jobId);
+        return true;
+    }
+
+    public Mono<Status> status(String jobId) {
+        boolean isRunning = running.containsKey(jobId);
+        return backfillProgressRepository.findByJobId(jobId)
+                .collectList()
+                .filter(chunks -> isRunning || !chunks.isEmpty())
+                .map(chunks -> {
+                    int done = 0;
+                    int failed = 0;
+                    long logs = 0;
+                    for (BackfillChunk chunk : chunks) {
+                        done += BackfillChunk.DONE.equals(chunk.status()) ? 1 : 0;
+                        failed += BackfillChunk.FAILED.equals(chunk.status()) ? 1 : 0;
+                        logs += chunk.logsProcessed();
+                    }
+                    return new Status(jobId, isRunning, chunks.size(), done, failed, logs, chunks);
+                });
+    }
+
+    @PreDestroy
+    public void stopAll() {
+        running.keySet().forEach(this::stop);
+    }
+
+    // Writes one chunk; emits the number of logs written, or completes empty if the chunk failed
+    private Mono<Long> runChunk(String jobId, Chunk chunk) {
+        // each attempt starts with empty detectors, so a retry does not count the chunk's first logs twice
+        Mono<Long> attempt = Mono.defer(() -> {
+            AlertingService.Detectors detectors = alertingService.newDetectors();
+            return mongoTemplate.find(chunkQuery(chunk), RawNetworkLog.class, sourceCollection)
+                    .filter(firstCopies())
+                    .buffer(batchSize)
+                    .concatMap(batch -> ingestionPipeline.replay(batch, detectors)) // in order: detectors see event time ascending
+                    .reduce(0L, Long::sum)
+                    .flatMap(count -> alertingService.finishReplay(detectors).thenReturn(count));
+        });
+        return backfillProgressRepository.save(jobId, chunk.start(), chunk.end(), BackfillChunk.RUNNING, 0, null)
+                .then(attempt)
+                .flatMap(count -> (rebuildRollups ? trafficRollupRepository.rebuildMinuteRollups(chunk.start(), chunk.end()) : Mono.<Void>empty())
+                        .then(backfillProgressRepository.save(jobId, chunk.start(), chunk.end(), BackfillChunk.DONE, count, null))
+                        .thenReturn(count))
+                .retryWhen(Retry.backoff(chunkRetries, Duration.ofSeconds(1))
+                        .doBeforeRetry(signal -> logger.warn("Backfill {} chunk {} failed, retrying: {}", jobId, chunk.start(), signal.failure().getMessage()))
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .doOnNext(count -> logger.debug("Backfill {} chunk {} done: {} logs", jobId, chunk.start(), count))
+                .onErrorResume(e -> {
+                    logger.warn("Backfill {} chunk {} failed: {}", jobId, chunk.start(), e.getMessage());
+                    return backfillProgressRepository.save(jobId, chunk.start(), chunk.end(), BackfillChunk.FAILED, 0, String.valueOf(e.getMessage()))
+                            .onErrorResume(saveError -> Mono.empty())
+                            .then(Mono.empty());
+                });
+    }
+
+    // The raw store is at-least-once (RawLogArchiver): copies of a document share its _id and timestamp, so in a
+    // stream sorted by timestamp only the ids seen at the current timestamp have to be remembered
+    static Predicate<RawNetworkLog> firstCopies() {
+        Set<String> idsAtTimestamp = new HashSet<>();
+        Instant[] timestamp = new Instant[1];
+        return rawLog -> {
+            if (!Objects.equals(rawLog.getTimestamp(), timestamp[0])) {
+                timestamp[0] = rawLog.getTimestamp();
+                idsAtTimestamp.clear();
+            }
+            return rawLog.getId() == null || idsAtTimestamp.add(rawLog.getId());
+        };
+    }
+
+    // Served by the timestamp index of either collection (mongo-init.js); on the time-series raw store the range
+    // only opens the buckets whose time span overlaps the chunk
+    private Query chunkQuery(Chunk chunk) {
+        return Query.query(Criteria.where("timestamp").gte(chunk.start()).lt(chunk.end()))
+                .with(Sort.by(Sort.Direction.ASC, "timestamp"))
+                .cursorBatchSize(cursorBatchSize);
+    }
+
+    // Splits [from, to), widened to whole minutes, into chunks of chunkSize; the last chunk may be shorter.
+    // Chunks never share a minute, so rebuilding one chunk's minute rollups cannot overwrite another's.
+    static List<Chunk> chunks(Instant from, Instant to, Duration chunkSize, int maxChunks) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        if (chunkSize.compareTo(Duration.ofMinutes(1)) < 0 || !chunkSize.equals(Duration.ofMinutes(chunkSize.toMinutes()))) {
+            throw new IllegalArgumentException("Chunk size must be a whole number of minutes: " + chunkSize);
+        }
+        Instant start = from.truncatedTo(ChronoUnit.MINUTES);
+        Instant end = ceilMinute(to);
+        long count = (Duration.between(start, end).toSeconds() + chunkSize.toSeconds() - 1) / chunkSize.toSeconds();
+        if (count > maxChunks) {
+            throw new IllegalArgumentException("Range needs " + count + " chunks of " + chunkSize + ", at most " + maxChunks + " are allowed");
+        }
+        List<Chunk> chunks = new ArrayList<>((int) count);
+        for (Instant chunkStart = start; chunkStart.isBefore(end); chunkStart = chunkStart.plus(chunkSize)) {
+            Instant chunkEnd = chunkStart.plus(chunkSize);
+            chunks.add(new Chunk(chunkStart, chunkEnd.isBefore(end) ? chunkEnd : end));
+        }
+        return chunks;
+    }
+
+    // The same range and chunk size always give the same job, which is what makes a restart resume
+    static String jobId(Instant from, Instant to, Duration chunkSize) {
+        String key = from.truncatedTo(ChronoUnit.MINUTES) + "/" + ceilMinute(to) + "/" + chunkSize;
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private static Instant ceilMinute(Instant time) {
+        Instant floor = time.truncatedTo(ChronoUnit.MINUTES);
+        return floor.equals(time) ? floor : floor.plus(1, ChronoUnit.MINUTES);
+    }
+
+    private static Instant ceilHour(Instant time) {
+        Instant floor = time.truncatedTo(ChronoUnit.HOURS);
+        return floor.equals(time) ? floor : floor.plus(1, ChronoUnit.HOURS);
+    }
+}
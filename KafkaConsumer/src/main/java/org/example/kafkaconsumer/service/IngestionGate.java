@@ -0,0 +1,249 @@
+package org.example.kafkaconsumer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.kafkaconsumer.deadletter.DeadLetterStore;
+import org.example.kafkaconsumer.model.RawNetworkLog;
+import org.example.kafkaconsumer.postgres.entity.StructuredNetworkLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Overload and failure policy in front of IngestionPipeline for the live sources (change stream, Kafka).
+//
+// - Retries: a batch whose PostgreSQL write or alerting fails is retried with exponential backoff and jitter.
+//   Retrying is safe because log inserts are idempotent and alerts dedup on (log, type).
+// - Dead letters: a batch that still fails is parked in the local DeadLetterStore, and the source moves on.
+// - Shedding: the sources already bound what is held in memory (change-stream prefetch and concurrency, Kafka
+//   max-poll-records), so a burst shows up as receive lag rather than a growing queue. Above shed-lag, every batch
+//   is split into two lanes: logs that match a rule of a priority severity (CRITICAL and HIGH by default) are
+//   processed right away, all others are parked. Parking is a sequential file append, far cheaper than the
+//   insert and analysis, so the consumer catches up (before the oplog or Kafka retention runs out) while the
+//   traffic that raises the important alerts is still analyzed in time.
+// - Redelivery: parked batches are fed through the pipeline again, oldest first, while the consumer is not
+//   overloaded. The streaming detectors see redelivered logs late, so they can miss windows those logs were in.
+//
+// Nothing is dropped silently: a batch that can neither be processed nor parked (the store is full) fails the
+// returned Mono and is counted as rejected. The Kafka listener then leaves its offsets uncommitted, and the change
+// stream keeps its resume token and submits the batch again.
+//
+//   threatsense.deadletter.parked        logs parked, tagged reason=overload (shed) or failure (retries exhausted)
+//   threatsense.ingest.retries           retried batch attempts
+//   threatsense.ingest.rejected          logs that could neither be ingested nor parked
+//   threatsense.deadletter.redelivered   parked logs ingested later
+//   threatsense.deadletter.bytes         size of the dead-letter store
+@Service
+public class IngestionGate {
+
+    static final String OVERLOADED = "overload";
+    static final String FAILED = "failure";
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestionGate.class);
+
+    private final IngestionPipeline ingestionPipeline;
+    private final AlertingService alertingService;
+    private final DeadLetterStore deadLetterStore;
+    private final MeterRegistry registry;
+    private final long shedLagMillis;
+    private final Set<String> prioritySeverities;
+    private final int retries;
+    private final Duration retryBackoff;
+    private final Duration maxRetryBackoff;
+    private final int redeliveryBatchesPerRound;
+
+    private final Map<String, Counter> parked = new ConcurrentHashMap<>();
+    private final Counter retried;
+    private final Counter rejected;
+    private final Counter redelivered;
+
+    private volatile long lastLagMillis;
+    private volatile long lastLagSampledAt;
+
+    public IngestionGate(IngestionPipeline ingestionPipeline, AlertingService alertingService,
+                         DeadLetterStore deadLetterStore, MeterRegistry registry,
+                         @Value("${threatsense.ingest.overload.shed-lag:30s}") Duration shedLag,
+                         @Value("${threatsense.ingest.overload.priority-severities:CRITICAL,HIGH}") Set<String> prioritySeverities,
+                         @Value("${threatsense.ingest.retry.attempts:5}") int retries,
+                         @Value("${threatsense.ingest.retry.backoff:200ms}") Duration retryBackoff,
+                         @Value("${threatsense.ingest.retry.max-backoff:10s}") Duration maxRetryBackoff,
+                         @Value("${threatsense.ingest.dead-letter.redelivery-batches-per-round:50}") int redeliveryBatchesPerRound) {
+        this.ingestionPipeline = ingestionPipeline;
+        this.alertingService = alertingService;
+        this.deadLetterStore = deadLetterStore;
+        this.registry = registry;
+        this.shedLagMillis = shedLag.toMillis();
+        this.prioritySeverities = Set.copyOf(prioritySeverities);
+        this.retries = retries;
+        this.retryBackoff = retryBackoff;
+        this.maxRetryBackoff = maxRetryBackoff;
+        this.redeliveryBatchesPerRound = redeliveryBatchesPerRound;
+        this.retried = Counter.builder("threatsense.ingest.retries")
+                .description("Retried attempts to ingest a batch")
+                .register(registry);
+        this.rejected = Counter.builder("threatsense.ingest.rejected")
+                .description("Logs that could neither be ingested nor parked in the dead-letter store")
+                .register(registry);
+        this.redelivered = Counter.builder("threatsense.deadletter.redelivered")
+                .description("Parked logs ingested from the dead-letter store")
+                .register(registry);
+        Gauge.builder("threatsense.deadletter.bytes", deadLetterStore, DeadLetterStore::getBytes)
+                .description("Size of the dead-letter store")
+                .register(registry);
+    }
+
+    // Ingests a batch from a live source; receiveLagMillis is how far behind the source its oldest record was
+    // received. Completes once the batch is processed or parked.
+    public Mono<Void> submit(List<RawNetworkLog> rawLogs, long receiveLagMillis) {
+        if (rawLogs.isEmpty()) {
+            return Mono.empty();
+        }
+        lastLagMillis = receiveLagMillis;
+        lastLagSampledAt = System.currentTimeMillis();
+        if (receiveLagMillis <= shedLagMillis) {
+            return processOrPark(rawLogs);
+        }
+
+        // each log is mapped (and an invalid one counted) once: both lanes are processed from the mapped logs, their
+        // raw logs are only kept in case a lane has to be parked
+        List<RawNetworkLog> priority = new ArrayList<>();
+        List<StructuredNetworkLog> priorityLogs = new ArrayList<>();
+        List<RawNetworkLog> normal = new ArrayList<>();
+        List<StructuredNetworkLog> normalLogs = new ArrayList<>();
+        for (RawNetworkLog rawLog : rawLogs) {
+            StructuredNetworkLog log = IngestionPipeline.toStructuredLog(rawLog);
+            if (log == null) {
+                ingestionPipeline.skipInvalid(rawLog);
+            } else if (alertingService.matchesRule(log, prioritySeverities)) {
+                priority.add(rawLog);
+                priorityLogs.add(log);
+            } else {
+                normal.add(rawLog);
+                normalLogs.add(log);
+            }
+        }
+        return park(normal, OVERLOADED)
+                .flatMap(shed -> shed
+                        ? processOrPark(priority, ingestionPipeline.processMapped(priorityLogs))
+                        // store full: no shedding
+                        : processOrPark(concat(priority, normal), ingestionPipeline.processMapped(concat(priorityLogs, normalLogs))));
+    }
+
+    // True while the live sources are further behind than shed-lag; a sample older than shed-lag no longer counts
+    public boolean isOverloaded() {
+        return lastLagMillis > shedLagMillis && System.currentTimeMillis() - lastLagSampledAt < shedLagMillis;
+    }
+
+    // Feeds parked batches through the pipeline again, oldest first, while the consumer keeps up. A round handles at
+    // most redelivery-batches-per-round batches so it does not hold a scheduler thread for long. A batch that still
+    // fails stays parked and ends the round, since the database is most likely still unavailable.
+    @Scheduled(initialDelayString = "${threatsense.ingest.dead-letter.redelivery-interval:10s}",
+            fixedDelayString = "${threatsense.ingest.dead-letter.redelivery-interval:10s}")
+    public void redeliver() {
+        List<Path> entries;
+        try {
+            entries = deadLetterStore.entries();
+        } catch (IOException e) {
+            logger.warn("Could not list the dead-letter store: {}", e.getMessage());
+            return;
+        }
+        for (Path entry : entries.subList(0, Math.min(entries.size(), redeliveryBatchesPerRound))) {
+            if (isOverloaded()) {
+                return;
+            }
+            List<RawNetworkLog> rawLogs;
+            try {
+                rawLogs = deadLetterStore.read(entry);
+            } catch (IOException e) {
+                logger.error("Could not read parked batch {}, skipping it: {}", entry, e.getMessage());
+                continue;
+            }
+            try {
+                ingestionPipeline.process(rawLogs).block(Duration.ofMinutes(1));
+                deadLetterStore.delete(entry);
+                redelivered.increment(rawLogs.size());
+                logger.info("Redelivered {} parked logs from {}", rawLogs.size(), entry.getFileName());
+            } catch (IOException e) {
+                logger.warn("Could not delete redelivered batch {}: {}", entry, e.getMessage());
+                return;
+            } catch (RuntimeException e) {
+                logger.warn("Redelivery of parked batch {} failed, retrying later: {}", entry.getFileName(), e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private Mono<Void> processOrPark(List<RawNetworkLog> rawLogs) {
+        return processOrPark(rawLogs, ingestionPipeline.process(rawLogs));
+    }
+
+    // Runs 'processing' of the raw logs with retries, then parks the raw logs if it still fails
+    private Mono<Void> processOrPark(List<RawNetworkLog> rawLogs, Mono<Void> processing) {
+        if (rawLogs.isEmpty()) {
+            return Mono.empty();
+        }
+        return processing
+                .retryWhen(Retry.backoff(retries, retryBackoff)
+                        .maxBackoff(maxRetryBackoff)
+                        .jitter(0.5) // spreads the retries of concurrent batches instead of hitting a recovering database at once
+                        .doBeforeRetry(signal -> {
+                            retried.increment();
+                            logger.warn("Ingesting a batch of {} logs failed (attempt {}), retrying: {}",
+                                    rawLogs.size(), signal.totalRetries() + 1, signal.failure().getMessage());
+                        }))
+                .onErrorResume(e -> {
+                    Throwable cause = Exceptions.isRetryExhausted(e) ? e.getCause() : e;
+                    logger.error("Giving up on a batch of {} logs, parking it: {}", rawLogs.size(), cause.getMessage());
+                    return park(rawLogs, FAILED).flatMap(isParked -> isParked ? Mono.empty() : Mono.error(cause));
+                });
+    }
+
+    // Emits true if the logs were parked; false, after counting them as rejected, if the store is full or failed
+    private Mono<Boolean> park(List<RawNetworkLog> rawLogs, String reason) {
+        if (rawLogs.isEmpty()) {
+            return Mono.just(true);
+        }
+        return Mono.fromCallable(() -> deadLetterStore.park(rawLogs, reason))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(IOException.class, e -> {
+                    logger.error("Could not write to the dead-letter store: {}", e.getMessage());
+                    return Mono.just(false);
+                })
+                .doOnNext(isParked -> {
+                    if (isParked) {
+                        parkedCounter(reason).increment(rawLogs.size());
+                    } else if (FAILED.equals(reason)) { // shed logs that do not fit are processed instead
+                        rejected.increment(rawLogs.size());
+                    }
+                });
+    }
+
+    private static <T> List<T> concat(List<T> first, List<T> second) {
+        List<T> all = new ArrayList<>(first.size() + second.size());
+        all.addAll(first);
+        all.addAll(second);
+        return all;
+    }
+
+    private Counter parkedCounter(String reason) {
+        return parked.computeIfAbsent(reason, r -> Counter.builder("threatsense.deadletter.parked")
+                .description("Logs parked in the dead-letter store")
+                .tag("reason", r)
+                .register(registry));
+    }
+}
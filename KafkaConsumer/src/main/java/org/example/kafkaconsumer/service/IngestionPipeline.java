@@ -0,0 +1,147 @@
+package org.example.kafkaconsumer.service;
+
+import org.example.kafkaconsumer.metrics.PipelineMetrics;
+import org.example.kafkaconsumer.model.IpAddress;
+import org.example.kafkaconsumer.model.RawNetworkLog;
+import org.example.kafkaconsumer.postgres.entity.StructuredNetworkLog;
+import org.example.kafkaconsumer.postgres.repository.StructuredLogBatchRepository;
+import org.example.kafkaconsumer.postgres.repository.StructuredLogBatchRepository.SavedLog;
+import org.example.kafkaconsumer.rollup.TrafficRollupService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Shared processing stage behind every ingestion source (Mongo change stream, Kafka):
+// map raw logs to structured rows, bulk insert them into PostgreSQL, add them to the traffic rollups, then run
+// alerting on the saved entities.
+// The returned Mono completes only after the insert and all alert writes have finished.
+@Service
+public class IngestionPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestionPipeline.class);
+
+    private final StructuredLogBatchRepository structuredLogBatchRepository;
+    private final AlertingService alertingService;
+    private final PipelineMetrics pipelineMetrics;
+    private final TrafficRollupService trafficRollupService;
+
+    public IngestionPipeline(StructuredLogBatchRepository structuredLogBatchRepository, AlertingService alertingService,
+                             PipelineMetrics pipelineMetrics, TrafficRollupService trafficRollupService) {
+        this.structuredLogBatchRepository = structuredLogBatchRepository;
+        this.alertingService = alertingService;
+        this.pipelineMetrics = pipelineMetrics;
+        this.trafficRollupService = trafficRollupService;
+    }
+
+    public Mono<Void> process(List<RawNetworkLog> rawLogs) {
+        return processMapped(toStructuredLogs(rawLogs));
+    }
+
+    // process() for logs the caller has already mapped with toStructuredLog()
+    public Mono<Void> processMapped(List<StructuredNetworkLog> batch) {
+        if (batch.isEmpty()) {
+            return Mono.empty();
+        }
+
+        return pipelineMetrics.trackBatch(
+                pipelineMetrics.timeSave(batch.size(), structuredLogBatchRepository.insertAll(batch).collectList())
+                        // only rows this insert created are counted, so a re-delivered batch, or one retried after
+                        // its insert went through, is not counted twice
+                        .doOnNext(saved -> trafficRollupService.record(insertedLogs(saved)))
+                        // the entities now carry their generated ids, so they are analyzed as-is without re-reading them
+                        .flatMap(saved -> pipelineMetrics.timeAnalysis(alertingService.analyzeAll(logsOf(saved))))
+                        .doOnSuccess(v -> {
+                            long now = System.currentTimeMillis();
+                            for (StructuredNetworkLog log : batch) {
+                                pipelineMetrics.recordPipelineLag(log.getTimestamp(), now);
+                            }
+                            logger.debug("Saved and analyzed batch of {} structured logs", batch.size());
+                        })
+                        .then());
+    }
+
+    // Backfill variant of process(): the same mapping, insert and alerting, but with the caller's streaming
+    // detectors (see AlertingService.newDetectors()). Replayed logs are not added to the traffic rollups, which
+    // BackfillService rebuilds from network_logs per chunk, and are not counted in the pipeline lag.
+    public Mono<Integer> replay(List<RawNetworkLog> rawLogs, AlertingService.Detectors detectors) {
+        List<StructuredNetworkLog> batch = toStructuredLogs(rawLogs);
+        if (batch.isEmpty()) {
+            return Mono.just(0);
+        }
+        return pipelineMetrics.timeSave(batch.size(), structuredLogBatchRepository.insertAll(batch).collectList())
+                .flatMap(saved -> alertingService.analyzeAll(logsOf(saved), detectors).thenReturn(saved.size()));
+    }
+
+    static List<StructuredNetworkLog> logsOf(List<SavedLog> saved) {
+        List<StructuredNetworkLog> logs = new ArrayList<>(saved.size());
+        for (SavedLog savedLog : saved) {
+            logs.add(savedLog.log());
+        }
+        return logs;
+    }
+
+    static List<StructuredNetworkLog> insertedLogs(List<SavedLog> saved) {
+        List<StructuredNetworkLog> logs = new ArrayList<>(saved.size());
+        for (SavedLog savedLog : saved) {
+            if (savedLog.inserted()) {
+                logs.add(savedLog.log());
+            }
+        }
+        return logs;
+    }
+
+    private List<StructuredNetworkLog> toStructuredLogs(List<RawNetworkLog> rawLogs) {
+        List<StructuredNetworkLog> batch = new ArrayList<>(rawLogs.size());
+        for (RawNetworkLog rawLog : rawLogs) {
+            StructuredNetworkLog log = toStructuredLog(rawLog);
+            if (log != null) {
+                batch.add(log);
+            } else {
+                skipInvalid(rawLog);
+            }
+        }
+        return batch;
+    }
+
+    // Counts a log that toStructuredLog() could not map
+    public void skipInvalid(RawNetworkLog rawLog) {
+        pipelineMetrics.recordSkipped();
+        logger.debug("Skipping log with invalid IP address: src={} dest={}", rawLog.getSrcIP(), rawLog.getDestIP());
+    }
+
+    // IPs are parsed here once per log; returns null if either address is missing or invalid.
+    // A log read from MongoDB gets a log_id derived from its document id, so reading it again (a re-delivered
+    // change-stream event, a backfill) maps to the same network_logs row; other logs get a random one.
+    public static StructuredNetworkLog toStructuredLog(RawNetworkLog rawLog) {
+        IpAddress srcIP = IpAddress.tryParse(rawLog.getSrcIP());
+        IpAddress destIP = IpAddress.tryParse(rawLog.getDestIP());
+        if (srcIP == null || destIP == null) {
+            return null;
+        }
+        StructuredNetworkLog log = new StructuredNetworkLog(
+                srcIP,
+                destIP,
+                rawLog.getPort(),
+                rawLog.getProtocol(),
+                rawLog.getBytes(),
+                rawLog.getTimestamp(),
+                rawLog.getMessage(),
+                rawLog.getRawLog()
+        );
+        if (rawLog.getId() != null) {
+            log.setLogId(logIdOf(rawLog.getId()));
+        }
+        return log;
+    }
+
+    // Name-based (version 3) UUID of a MongoDB document id
+    static String logIdOf(String mongoId) {
+        return UUID.nameUUIDFromBytes(("network_logs/" + mongoId).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+}
@@ -0,0 +1,91 @@
+package org.example.kafkaconsumer.service;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.example.kafkaconsumer.metrics.PipelineMetrics;
+import org.example.kafkaconsumer.model.RawNetworkLog;
+import org.example.kafkaconsumer.serde.NetworkLogDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Direct Kafka ingestion mode (threatsense.ingest.mode=kafka): consumes log-topic without the
+// Kafka Connect -> MongoDB -> change stream hops.
+//
+// - Partitions are spread over spring.kafka.listener.concurrency consumer threads. Each partition is owned by one
+//   thread that processes its records in offset order, so per-partition order is kept.
+// - The listener blocks until the PostgreSQL insert and alerting for the poll batch have completed, or the batch
+//   has been parked by IngestionGate (retries exhausted, or low-priority logs shed while far behind); with
+//   ack-mode=batch the offsets are committed only after that. If the batch cannot even be parked the listener
+//   rethrows and the batch is redelivered; each record's log_id derives from its topic, partition and offset, so
+//   redelivered records are not inserted twice.
+// - Record values are decoded per topic by NetworkLogDecoder: JSON by default, the compact binary format for
+//   topics listed in threatsense.ingest.kafka.binary-topics.
+// - Archiving the raw logs to the MongoDB raw store is an optional asynchronous side output (RawLogArchiver).
+@Service
+@ConditionalOnProperty(name = "threatsense.ingest.mode", havingValue = "kafka")
+public class KafkaLogIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(KafkaLogIngestionService.class);
+
+    private final IngestionGate ingestionGate;
+    private final RawLogArchiver rawLogArchiver;
+    private final NetworkLogDecoder networkLogDecoder;
+    private final PipelineMetrics pipelineMetrics;
+    private final boolean archiveRawLogs;
+
+    public KafkaLogIngestionService(IngestionGate ingestionGate,
+                                    RawLogArchiver rawLogArchiver,
+                                    NetworkLogDecoder networkLogDecoder,
+                                    PipelineMetrics pipelineMetrics,
+                                    @Value("${threatsense.ingest.kafka.archive-raw-logs:false}") boolean archiveRawLogs) {
+        this.ingestionGate = ingestionGate;
+        this.rawLogArchiver = rawLogArchiver;
+        this.networkLogDecoder = networkLogDecoder;
+        this.pipelineMetrics = pipelineMetrics;
+        this.archiveRawLogs = archiveRawLogs;
+        logger.info("Starting direct Kafka ingestion (raw log archive to MongoDB {})", archiveRawLogs ? "enabled" : "disabled");
+    }
+
+    @KafkaListener(id = "log-ingestion", topics = "#{'${threatsense.ingest.kafka.topics:log-topic}'.split(',')}")
+    public void onBatch(List<ConsumerRecord<String, byte[]>> records) {
+        List<RawNetworkLog> rawLogs = new ArrayList<>(records.size());
+        long oldest = Long.MAX_VALUE;
+        for (ConsumerRecord<String, byte[]> record : records) {
+            pipelineMetrics.recordReceived("kafka", record.timestamp());
+            oldest = Math.min(oldest, record.timestamp());
+            RawNetworkLog rawLog = decode(record);
+            if (rawLog != null) {
+                // the record's position is its identity: a re-delivered record maps to the same log_id, and the
+                // archived copy keeps it as _id so a backfill from the archive does not duplicate it either
+                rawLog.setId(record.topic() + "-" + record.partition() + "-" + record.offset());
+                rawLogs.add(rawLog);
+            }
+        }
+
+        long lagMillis = oldest > 0 && oldest != Long.MAX_VALUE ? System.currentTimeMillis() - oldest : 0;
+        // throws only if the batch could neither be saved nor parked, so the batch offsets are not committed
+        ingestionGate.submit(rawLogs, lagMillis).block();
+
+        if (archiveRawLogs) {
+            rawLogArchiver.archive(rawLogs);
+        }
+    }
+
+    private RawNetworkLog decode(ConsumerRecord<String, byte[]> record) {
+        try {
+            return networkLogDecoder.decode(record.topic(), record.value());
+        } catch (IOException e) {
+            // A malformed record can never succeed, so it is skipped instead of blocking the partition
+            pipelineMetrics.recordSkipped();
+            logger.warn("Skipping undecodable record {}-{}@{}: {}", record.topic(), record.partition(), record.offset(), e.getMessage());
+            return null;
+        }
+    }
+}
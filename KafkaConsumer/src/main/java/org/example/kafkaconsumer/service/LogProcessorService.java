@@ -1,76 +1,239 @@
 package org.example.kafkaconsumer.service;
 
+import com.mongodb.MongoException;
+import com.mongodb.client.model.changestream.OperationType;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.example.kafkaconsumer.metrics.PipelineMetrics;
 import org.example.kafkaconsumer.model.RawNetworkLog;
-import org.example.kafkaconsumer.postgres.entity.StructuredNetworkLog;
-import org.example.kafkaconsumer.postgres.repository.StructuredLogRepository;
+import org.example.kafkaconsumer.mongodb.checkpoint.ChangeStreamCheckpointStore;
+import org.example.kafkaconsumer.sharding.ShardAssignment;
+import org.example.kafkaconsumer.sharding.ShardMembership;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.data.mongodb.core.ChangeStreamEvent;
-import org.springframework.data.mongodb.core.query.Criteria;
-import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.ChangeStreamOptions;
-import org.springframework.data.mongodb.core.query.CriteriaDefinition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
+// Change-stream ingestion mode (default): Kafka Connect sinks log-topic into MongoDB and this service
+// tails the network_logs collection. See KafkaLogIngestionService for the direct Kafka mode.
+//
+// Batches go through IngestionGate, which retries failed batches, parks those that keep failing in the
+// dead-letter store and sheds low-priority logs while the stream is far behind.
+//
+// Several instances can share the stream (threatsense.sharding): each one owns a set of source-IP hash buckets
+// (ShardMembership) and its change stream carries a $match on them, so MongoDB sends every log to exactly one
+// instance and all logs of a (src, dest) pair reach the same detectors. A new assignment reopens the stream.
+//
+// network_logs expires through a TTL index (mongo-init.js); the deletes it issues are filtered out of the stream.
+//
+// Progress is tracked with change-stream resume tokens: batches complete in stream order (flatMapSequential),
+// the token of the newest completed batch is kept in memory and persisted every checkpoint interval, and both
+// startup and reconnects resume right after it.
 @Service
+@ConditionalOnProperty(name = "threatsense.ingest.mode", havingValue = "change-stream", matchIfMissing = true)
 public class LogProcessorService {
 
+    private static final Logger logger = LoggerFactory.getLogger(LogProcessorService.class);
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286; // resume token fell off the oplog
+    // network_logs expires through a TTL index; its deletes carry no log
+    private static final Document SKIP_DELETES = new Document("$match", new Document("operationType", new Document("$ne", "delete")));
+
+    private record Progress(BsonDocument token, Instant clusterTime) {
+    }
+
     private final ReactiveMongoTemplate mongoTemplate;
-    private final StructuredLogRepository structuredLogRepository;
-    private final AlertingService alertingService;
+    private final IngestionGate ingestionGate;
+    private final ChangeStreamCheckpointStore checkpointStore;
+    private final PipelineMetrics pipelineMetrics;
+    private final ShardMembership shardMembership;
+
+    // A batch is flushed when it reaches batchSize rows or flushInterval has passed, whichever comes first
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final int concurrency; // batches processed at once
+    private final int prefetch;    // change-stream events requested ahead of processing
+
+    private final AtomicReference<BsonDocument> completedToken = new AtomicReference<>();
+    private volatile BsonDocument savedToken;
+    private ShardAssignment previousAssignment; // only used on the assignment thread (switchMap)
+    private Disposable subscription;
 
     public LogProcessorService(ReactiveMongoTemplate mongoTemplate,
-                               StructuredLogRepository structuredLogRepository,
-                               AlertingService alertingService) {
+                               IngestionGate ingestionGate,
+                               ChangeStreamCheckpointStore checkpointStore,
+                               PipelineMetrics pipelineMetrics,
+                               ShardMembership shardMembership,
+                               @Value("${threatsense.ingest.batch-size:500}") int batchSize,
+                               @Value("${threatsense.ingest.flush-interval:50ms}") Duration flushInterval,
+                               @Value("${threatsense.ingest.change-stream.concurrency:4}") int concurrency,
+                               @Value("${threatsense.ingest.change-stream.prefetch:2000}") int prefetch) {
         this.mongoTemplate = mongoTemplate;
-        this.structuredLogRepository = structuredLogRepository;
-        this.alertingService = alertingService;
+        this.ingestionGate = ingestionGate;
+        this.checkpointStore = checkpointStore;
+        this.pipelineMetrics = pipelineMetrics;
+        this.shardMembership = shardMembership;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.concurrency = concurrency;
+        this.prefetch = prefetch;
     }
 
     @PostConstruct
     public void initChangeStreamListener() {
-        System.out.println("Starting MongoDB Change Stream listener...");
+        logger.info("Starting MongoDB Change Stream listener...");
+
+        subscription = checkpointStore.load()
+                .doOnNext(token -> {
+                    completedToken.set(token);
+                    savedToken = token;
+                    logger.info("Resuming change stream from checkpoint {}", token.toJson());
+                })
+                .onErrorResume(e -> {
+                    logger.warn("Could not load change stream checkpoint, starting from now: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .thenMany(shardMembership.assignments()
+                        .distinctUntilChanged()
+                        // a new assignment cancels the current stream (batches in flight are read again) and reopens it
+                        .switchMap(this::ingest))
+                .subscribe(progress -> {
+                    completedToken.set(progress.token());
+                    if (progress.clusterTime() != null) {
+                        shardMembership.recordProgress(progress.clusterTime());
+                    }
+                });
+    }
+
+    // The change stream of the assignment's buckets. It resumes after the last completed batch, except that
+    // taking over buckets (or starting up) with a known handover point starts at that cluster time instead,
+    // until the first batch of the new stream completes.
+    private Flux<Progress> ingest(ShardAssignment assignment) {
+        if (assignment.buckets().isEmpty()) {
+            logger.info("This instance owns no source-IP buckets, not reading the change stream");
+            return Flux.never();
+        }
+        Instant handover = assignment.gainsFrom(previousAssignment) ? shardMembership.handoverPoint() : null;
+        previousAssignment = assignment;
+        BsonDocument tokenAtSwitch = completedToken.get();
+        return Flux.defer(() -> {
+                    BsonDocument token = completedToken.get();
+                    return handover != null && token == tokenAtSwitch
+                            ? openChangeStream(null, handover, assignment)
+                            : openChangeStream(token, null, assignment);
+                })
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> logger.warn("Error in change stream, reconnecting from last checkpoint: {}", signal.failure().toString())))
+                .limitRate(prefetch)
+                .bufferTimeout(batchSize, flushInterval, true) // fair backpressure: only pulls what processing has asked for
+                .flatMapSequential(this::processBatch, concurrency, 1);
+    }
+
+    @Scheduled(initialDelayString = "${threatsense.ingest.change-stream.checkpoint.interval:5s}",
+            fixedDelayString = "${threatsense.ingest.change-stream.checkpoint.interval:5s}")
+    public void saveCheckpoint() {
+        BsonDocument token = completedToken.get();
+        if (token != null && token != savedToken) {
+            checkpointStore.save(token)
+                    .doOnSuccess(v -> savedToken = token)
+                    .doOnError(e -> logger.warn("Could not save change stream checkpoint: {}", e.getMessage()))
+                    .onErrorComplete()
+                    .block();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+        saveCheckpoint();
+    }
+
+    private Flux<ChangeStreamEvent<RawNetworkLog>> openChangeStream(BsonDocument resumeToken, Instant startAt, ShardAssignment assignment) {
+        ChangeStreamOptions.ChangeStreamOptionsBuilder options = ChangeStreamOptions.builder()
+                .returnFullDocumentOnUpdate();
+        if (resumeToken != null) {
+            options.resumeAfter(resumeToken);
+        } else if (startAt != null) {
+            options.resumeAt(startAt);
+        }
+        if (assignment.ownsAll()) {
+            options.filter(SKIP_DELETES);
+        } else {
+            options.filter(SKIP_DELETES, assignment.toMatchStage()); // MongoDB only sends this instance's buckets
+        }
 
         // Start a change stream on the collection
         Flux<ChangeStreamEvent<RawNetworkLog>> changeStream = mongoTemplate.changeStream(
                 "network_logs_db",              // DB name
                 "network_logs",              // Collection name (adjust to your actual name)
-                ChangeStreamOptions.builder()
-                        .returnFullDocumentOnUpdate()
-                        .build(),
+                options.build(),
                 RawNetworkLog.class
         );
 
-        changeStream
-                .doOnSubscribe(subscription -> System.out.println("Subscribed to change stream"))
-                .doOnError(error -> System.err.println("Error in change stream: " + error))
-                .flatMap(event -> {
-                    RawNetworkLog rawLog = event.getBody();
-
-                    StructuredNetworkLog structuredLog = new StructuredNetworkLog(
-                            rawLog.getSrcIP(),
-                            rawLog.getDestIP(),
-                            rawLog.getPort(),
-                            rawLog.getProtocol(),
-                            rawLog.getBytes(),
-                            rawLog.getTimestamp(),
-                            rawLog.getMessage(),
-                            rawLog.getRawLog()
-                    );
-
-                    return structuredLogRepository.save(structuredLog)
-                            .flatMap(saved -> { // Use flatMap to chain the next reactive operation
-                                System.out.println("LogProcessorService: Saved structured log to PostgreSQL: " + saved.getLogId());
-                                // Directly call the AlertingService here, passing the logId
-                                return alertingService.analyzeAndAlert(saved.getId())
-                                        .then(Mono.just(saved)); // Pass the saved log through (or just Mono.empty() if no further chaining needed)
-                            })
-                            .doOnError(e -> System.err.println("LogProcessorService: Error saving structured log or triggering alert: " + e.getMessage()));
-                })
-                .subscribe();
+        return changeStream
+                .doOnSubscribe(subscription -> logger.info("Subscribed to change stream"))
+                .onErrorResume(e -> (resumeToken != null || startAt != null) && isHistoryLost(e), e -> {
+                    logger.warn("Change stream checkpoint is no longer in the oplog, continuing from now: {}", e.getMessage());
+                    completedToken.set(null);
+                    return openChangeStream(null, null, assignment);
+                });
+    }
+
+    // Returns the resume token and cluster time of the batch's last event once the whole batch has been processed
+    private Mono<Progress> processBatch(List<ChangeStreamEvent<RawNetworkLog>> events) {
+        List<RawNetworkLog> batch = new ArrayList<>(events.size());
+        for (ChangeStreamEvent<RawNetworkLog> event : events) {
+            if (event.getOperationType() == OperationType.DELETE) {
+                continue; // TTL expiry (also dropped by SKIP_DELETES on the server); only advances the token
+            }
+            pipelineMetrics.recordReceived("change-stream", event.getTimestamp()); // clusterTime of the insert
+            if (event.getBody() != null) { // other operations without a document only advance the token
+                batch.add(event.getBody());
+            }
+        }
+        BsonValue lastToken = events.get(events.size() - 1).getResumeToken();
+        Instant lastTime = events.get(events.size() - 1).getTimestamp();
+        Instant oldest = events.get(0).getTimestamp();
+        long lagMillis = oldest != null ? System.currentTimeMillis() - oldest.toEpochMilli() : 0;
+
+        // retried, shed or parked by the gate. An error means the batch could not even be parked (counted as
+        // rejected): like an uncommitted Kafka offset, the token must not move past it, so it is submitted again
+        // until it goes through, which holds the stream back in the meantime.
+        return ingestionGate.submit(batch, lagMillis)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> logger.error("A batch of {} logs could neither be saved nor parked, retrying: {}",
+                                batch.size(), signal.failure().getMessage())))
+                .then(Mono.justOrEmpty(lastToken).map(token -> new Progress(token.asDocument(), lastTime)));
+    }
+
+    private static boolean isHistoryLost(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException mongoException && mongoException.getCode() == CHANGE_STREAM_HISTORY_LOST) {
+                return true;
+            }
+        }
+        return false;
     }
 }
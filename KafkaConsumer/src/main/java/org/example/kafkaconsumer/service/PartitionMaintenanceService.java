@@ -0,0 +1,222 @@
+package org.example.kafkaconsumer.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+// Keeps the range partitions of network_logs and its co-partitioned alerts table (see db/schema.sql) ahead of
+// the data and enforces retention:
+//
+// - Partitions span 'interval' (default one day), aligned to UTC. Every partition from the one 'retention' back
+//   (backfills and late logs) to 'premake' ahead is created, both tables in one statement batch, so a log
+//   partition never exists without its alerts partition. Existing partitions are left alone.
+// - Partitions whose upper bound is older than 'retention' are dropped whole, alerts first (they reference the
+//   logs), instead of deleting rows. A retention of zero keeps everything.
+// - Rows that arrived for a range without a partition sit in the default partitions, which have no bound, and a
+//   partition cannot be created while the default one holds rows in its range. Each run therefore deletes the
+//   default rows past retention and moves the others into newly created partitions of their range: in one
+//   transaction they are taken out into temporary tables, the partitions are created and the rows inserted again.
+//
+// Runs at startup and then every maintenance-interval; a failed step is logged and retried on the next run.
+@Service
+@ConditionalOnProperty(name = "threatsense.postgres.partitioning.enabled", havingValue = "true", matchIfMissing = true)
+public class PartitionMaintenanceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionMaintenanceService.class);
+
+    // Created in this order and dropped in reverse: alerts references network_logs
+    private static final List<String> TABLES = List.of("network_logs", "alerts");
+
+    private static final DateTimeFormatter DAY_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter HOUR_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd_HH").withZone(ZoneOffset.UTC);
+
+    // Partitions of both tables whose upper bound is at or before $1, alerts first. The bound is read back from
+    // the catalog, so partitions made with a different interval (or by hand) are handled too; the default
+    // partition has no bound and never matches.
+    private static final String EXPIRED_PARTITIONS_SQL =
+            "SELECT parent.relname AS parent_table, child.relname AS partition_name " +
+            "FROM pg_inherits i " +
+            "JOIN pg_class parent ON parent.oid = i.inhparent " +
+            "JOIN pg_class child ON child.oid = i.inhrelid " +
+            "WHERE parent.relname IN ('network_logs', 'alerts') " +
+            "AND (regexp_match(pg_get_expr(child.relpartbound, child.oid), 'TO \\(''([^'']+)''\\)'))[1]::timestamptz <= $1 " +
+            "ORDER BY parent.relname = 'network_logs', child.relname";
+
+    // Partition starts of the ranges that have rows in a default partition, at or after $2 (all of them if null)
+    private static final String DEFAULT_PARTITION_RANGES_SQL =
+            "SELECT to_timestamp(floor(extract(epoch FROM timestamp) / $1) * $1) AS start FROM network_logs_default " +
+            "WHERE timestamp >= COALESCE($2, '-infinity'::timestamptz) " +
+            "UNION " +
+            "SELECT to_timestamp(floor(extract(epoch FROM network_log_timestamp) / $1) * $1) FROM alerts_default " +
+            "WHERE network_log_timestamp >= COALESCE($2, '-infinity'::timestamptz)";
+
+    private final DatabaseClient databaseClient;
+    private final Duration interval;
+    private final int premake;
+    private final Duration retention;
+
+    public PartitionMaintenanceService(DatabaseClient databaseClient,
+                                       @Value("${threatsense.postgres.partitioning.interval:1d}") Duration interval,
+                                       @Value("${threatsense.postgres.partitioning.premake:7}") int premake,
+                                       @Value("${threatsense.postgres.partitioning.retention:30d}") Duration retention) {
+        if (interval.toHours() < 1 || interval.toSeconds() % 3600 != 0) {
+            throw new IllegalArgumentException("threatsense.postgres.partitioning.interval must be a whole number of hours: " + interval);
+        }
+        this.databaseClient = databaseClient;
+        this.interval = interval;
+        this.premake = premake;
+        this.retention = retention;
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${threatsense.postgres.partitioning.maintenance-interval:1h}")
+    public void maintain() {
+        Instant now = Instant.now();
+        moveDefaultPartitionRows(now)
+                .then(createPartitions(now))
+                .then(dropExpiredPartitions(now))
+                .timeout(Duration.ofMinutes(5)) // runs on the shared scheduler thread
+                .onErrorResume(e -> {
+                    logger.warn("Partition maintenance failed: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .block();
+    }
+
+    Mono<Void> createPartitions(Instant now) {
+        return Flux.fromIterable(partitionStarts(now, interval, premake, retention))
+                .concatMap(start -> databaseClient.sql(createPartitionSql(start, start.plus(interval), interval))
+                        .then()
+                        .onErrorResume(e -> {
+                            logger.warn("Could not create partitions starting {}: {}", start, e.getMessage());
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+
+    // Deletes the default partitions' rows past retention, then gives every other range found there its partitions
+    Mono<Void> moveDefaultPartitionRows(Instant now) {
+        Instant cutoff = retentionCutoff(now, interval, retention);
+        Mono<Void> deleteExpired = cutoff == null ? Mono.empty() : databaseClient.sql(deleteExpiredDefaultRowsSql(cutoff))
+                .fetch()
+                .rowsUpdated()
+                .doOnNext(rows -> {
+                    if (rows > 0) {
+                        logger.info("Deleted {} rows past retention from the default partitions", rows);
+                    }
+                })
+                .then();
+        GenericExecuteSpec ranges = databaseClient.sql(DEFAULT_PARTITION_RANGES_SQL).bind(0, interval.toSeconds());
+        ranges = cutoff == null ? ranges.bindNull(1, Instant.class) : ranges.bind(1, cutoff);
+        return deleteExpired.thenMany(ranges.map((row, metadata) -> row.get("start", Instant.class)).all())
+                .collectList() // read all ranges before moving any
+                .flatMapMany(Flux::fromIterable)
+                .concatMap(start -> databaseClient.sql(moveOutOfDefaultSql(start, start.plus(interval), interval))
+                        .then()
+                        .doOnSuccess(v -> logger.info("Moved rows from the default partitions into new partitions starting {}", start))
+                        .onErrorResume(e -> {
+                            logger.warn("Could not move default partition rows starting {}: {}", start, e.getMessage());
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+
+    Mono<Void> dropExpiredPartitions(Instant now) {
+        if (retention.isZero() || retention.isNegative()) {
+            return Mono.empty();
+        }
+        return databaseClient.sql(EXPIRED_PARTITIONS_SQL)
+                .bind(0, now.minus(retention))
+                .map((row, metadata) -> row.get("partition_name", String.class))
+                .all()
+                .concatMap(partition -> databaseClient.sql("DROP TABLE IF EXISTS " + quoteIdentifier(partition))
+                        .then()
+                        .doOnSuccess(v -> logger.info("Dropped expired partition {}", partition)))
+                .then();
+    }
+
+    // Start of the partition containing 'time': partitions are aligned to multiples of the interval since the epoch (UTC)
+    static Instant partitionStart(Instant time, Duration interval) {
+        long seconds = interval.toSeconds();
+        return Instant.ofEpochSecond(Math.floorDiv(time.getEpochSecond(), seconds) * seconds);
+    }
+
+    // Starts of the partitions to keep in place: from the one holding now - retention (or now, if everything is
+    // kept) to 'premake' intervals ahead
+    static List<Instant> partitionStarts(Instant now, Duration interval, int premake, Duration retention) {
+        Instant cutoff = retentionCutoff(now, interval, retention);
+        Instant first = cutoff != null ? cutoff : partitionStart(now, interval);
+        Instant last = partitionStart(now, interval).plus(interval.multipliedBy(premake));
+        List<Instant> starts = new ArrayList<>();
+        for (Instant start = first; !start.isAfter(last); start = start.plus(interval)) {
+            starts.add(start);
+        }
+        return starts;
+    }
+
+    // Rows before this instant are past retention: their partition ends at or before now - retention. Null if
+    // everything is kept.
+    static Instant retentionCutoff(Instant now, Duration interval, Duration retention) {
+        if (retention.isZero() || retention.isNegative()) {
+            return null;
+        }
+        return partitionStart(now.minus(retention), interval);
+    }
+
+    static String partitionName(String table, Instant start, Duration interval) {
+        boolean daily = interval.toSeconds() % Duration.ofDays(1).toSeconds() == 0;
+        return table + "_p" + (daily ? DAY_SUFFIX : HOUR_SUFFIX).format(start);
+    }
+
+    // Both statements go out as one simple-query batch, which PostgreSQL runs as a single implicit transaction
+    static String createPartitionSql(Instant start, Instant end, Duration interval) {
+        StringBuilder sql = new StringBuilder();
+        for (String table : TABLES) {
+            sql.append("CREATE TABLE IF NOT EXISTS ").append(partitionName(table, start, interval))
+                    .append(" PARTITION OF ").append(table)
+                    .append(" FOR VALUES FROM ('").append(start).append("') TO ('").append(end).append("');");
+        }
+        return sql.toString();
+    }
+
+    // Alerts first: they reference the logs (a cascading delete would also remove them)
+    static String deleteExpiredDefaultRowsSql(Instant cutoff) {
+        return "DELETE FROM alerts_default WHERE network_log_timestamp < '" + cutoff + "';" +
+                "DELETE FROM network_logs_default WHERE timestamp < '" + cutoff + "';";
+    }
+
+    // One simple-query batch, so one transaction: the range's default rows are moved out into temporary tables
+    // (alerts first), the partitions created, and the rows inserted again through the parent tables
+    static String moveOutOfDefaultSql(Instant start, Instant end, Duration interval) {
+        return "CREATE TEMP TABLE moved_alerts (LIKE alerts) ON COMMIT DROP;" +
+                "WITH moved AS (DELETE FROM alerts_default WHERE " + inRange("network_log_timestamp", start, end) +
+                " RETURNING *) INSERT INTO moved_alerts SELECT * FROM moved;" +
+                "CREATE TEMP TABLE moved_logs (LIKE network_logs) ON COMMIT DROP;" +
+                "WITH moved AS (DELETE FROM network_logs_default WHERE " + inRange("timestamp", start, end) +
+                " RETURNING *) INSERT INTO moved_logs SELECT * FROM moved;" +
+                createPartitionSql(start, end, interval) +
+                "INSERT INTO network_logs SELECT * FROM moved_logs;" +
+                "INSERT INTO alerts SELECT * FROM moved_alerts;";
+    }
+
+    private static String inRange(String column, Instant start, Instant end) {
+        return column + " >= '" + start + "' AND " + column + " < '" + end + "'";
+    }
+
+    private static String quoteIdentifier(String name) {
+        return '"' + name.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,132 @@
+package org.example.kafkaconsumer.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.kafkaconsumer.model.RawNetworkLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Kafka mode's optional raw log archive (threatsense.ingest.kafka.archive-raw-logs): writes consumed raw logs to
+// the raw store, the MongoDB time-series collection threatsense.raw-store.collection (mongo-init.js), bucketed by
+// srcIP and time, compressed, and expired by the collection itself. Backfills in Kafka mode read it.
+//
+// - archive() is fire-and-forget, so MongoDB stays off the detection path; at most maxInFlight writes run at once
+//   and batches beyond that are skipped (and counted) rather than queued.
+// - Each batch is one unordered bulk insert, so one rejected document does not stop the rest. A failed insert is
+//   retried with only the documents MongoDB reports as not written for a transient reason; if the error does not
+//   say (e.g. the connection dropped mid-write), the whole batch is sent again.
+// - The raw store is at-least-once: a time-series collection has no unique _id, so a re-sent batch, or a Kafka
+//   batch delivered twice, leaves copies behind. BackfillService drops them when reading.
+//
+//   threatsense.rawstore.skipped   raw logs left out of the raw store
+@Component
+public class RawLogArchiver {
+
+    private static final Logger logger = LoggerFactory.getLogger(RawLogArchiver.class);
+    private static final Duration RETRY_DELAY = Duration.ofMillis(200);
+    // Write errors that say nothing about the document: a write conflict, or the node stepping down, shutting down or
+    // being unreachable (the driver's retryable-write codes)
+    private static final Set<Integer> TRANSIENT_ERROR_CODES = Set.of(
+            6, 7, 89, 91, 112, 189, 262, 9001, 10107, 11600, 11602, 13435, 13436);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final String collection;
+    private final int retries;
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter skipped;
+
+    public RawLogArchiver(ReactiveMongoTemplate mongoTemplate, MeterRegistry registry,
+                          @Value("${threatsense.raw-store.collection:raw_logs}") String collection,
+                          @Value("${threatsense.raw-store.retries:3}") int retries,
+                          @Value("${threatsense.ingest.kafka.archive-max-in-flight:4}") int maxInFlight) {
+        this.mongoTemplate = mongoTemplate;
+        this.collection = collection;
+        this.retries = retries;
+        this.maxInFlight = maxInFlight;
+        this.skipped = Counter.builder("threatsense.rawstore.skipped")
+                .description("Raw logs that could not be written to the raw store")
+                .register(registry);
+    }
+
+    public void archive(List<RawNetworkLog> rawLogs) {
+        if (rawLogs.isEmpty()) {
+            return;
+        }
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            skipped.increment(rawLogs.size());
+            logger.warn("MongoDB archive is behind, skipped {} raw logs ({} total)", rawLogs.size(), getSkippedLogs());
+            return;
+        }
+        write(rawLogs, retries)
+                .doFinally(signal -> inFlight.decrementAndGet())
+                .subscribe();
+    }
+
+    // Completes once the logs are written, or once the ones still failing after attemptsLeft retries are counted
+    Mono<Void> write(List<RawNetworkLog> rawLogs, int attemptsLeft) {
+        return bulkInsert(rawLogs).onErrorResume(e -> {
+            List<RawNetworkLog> failed = toRetry(e, rawLogs);
+            if (failed.isEmpty()) {
+                return Mono.empty(); // rejected for good (counted), or only the write concern was not met
+            }
+            if (attemptsLeft == 0) {
+                skipped.increment(failed.size());
+                logger.warn("Error archiving {} raw logs to MongoDB: {}", failed.size(), e.getMessage());
+                return Mono.empty();
+            }
+            return Mono.delay(RETRY_DELAY).then(write(failed, attemptsLeft - 1));
+        });
+    }
+
+    public long getSkippedLogs() {
+        return (long) skipped.count();
+    }
+
+    // The documents of a failed unordered bulk insert worth sending again: those whose write error is transient, or
+    // all of them if the error carries no per-document result. Documents MongoDB rejected for good (validation,
+    // duplicate key, ...) would fail again and are counted as skipped right away.
+    private List<RawNetworkLog> toRetry(Throwable error, List<RawNetworkLog> rawLogs) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            List<BulkWriteError> writeErrors = cause instanceof BulkOperationException e ? e.getErrors()
+                    : cause instanceof MongoBulkWriteException e ? e.getWriteErrors() : null;
+            if (writeErrors != null) {
+                List<RawNetworkLog> retry = new ArrayList<>(writeErrors.size());
+                for (BulkWriteError writeError : writeErrors) {
+                    if (TRANSIENT_ERROR_CODES.contains(writeError.getCode())) {
+                        retry.add(rawLogs.get(writeError.getIndex()));
+                    }
+                }
+                int rejected = writeErrors.size() - retry.size();
+                if (rejected > 0) {
+                    skipped.increment(rejected);
+                    logger.warn("MongoDB rejected {} raw logs: {}", rejected, writeErrors.get(0).getMessage());
+                }
+                return retry;
+            }
+        }
+        return rawLogs;
+    }
+
+    private Mono<Void> bulkInsert(List<RawNetworkLog> rawLogs) {
+        return Mono.defer(() -> mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, RawNetworkLog.class, collection)
+                        .insert(rawLogs)
+                        .execute())
+                .then();
+    }
+}
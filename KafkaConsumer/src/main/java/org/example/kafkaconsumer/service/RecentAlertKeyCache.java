@@ -0,0 +1,34 @@
+package org.example.kafkaconsumer.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Bounded LRU of recently written (network_log_id, alert_type) keys. Lets AlertingService drop hot duplicates
+// (e.g. a re-delivered log) without touching the database; the unique constraint on alerts remains the
+// source of truth for anything that has been evicted.
+class RecentAlertKeyCache {
+
+    private record AlertKey(long networkLogId, String alertType) {
+    }
+
+    private final Map<AlertKey, Boolean> keys;
+
+    RecentAlertKeyCache(int capacity) {
+        this.keys = new LinkedHashMap<>(Math.min(capacity, 1 << 16), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<AlertKey, Boolean> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    // Returns false if the key was already seen, otherwise records it and returns true
+    synchronized boolean markIfAbsent(long networkLogId, String alertType) {
+        return keys.putIfAbsent(new AlertKey(networkLogId, alertType), Boolean.TRUE) == null;
+    }
+
+    // Used when the write for a marked key failed, so a later retry is not mistaken for a duplicate
+    synchronized void forget(long networkLogId, String alertType) {
+        keys.remove(new AlertKey(networkLogId, alertType));
+    }
+}
@@ -0,0 +1,122 @@
+package org.example.kafkaconsumer.sharding;
+
+import jakarta.annotation.PreDestroy;
+import org.example.kafkaconsumer.postgres.repository.ConsumerInstanceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+
+// Dynamic membership (threatsense.sharding.mode=postgres): instances find each other through heartbeats in the
+// consumer_instances table and each computes the same rendezvous assignment from the list of live instances.
+//
+// - Every heartbeat-interval an instance upserts its row (with how far it has processed) and reads the live
+//   instances: those with a heartbeat within member-timeout that have not left.
+// - When the list changes, the new assignment is emitted and LogProcessorService reopens its change stream with the
+//   new bucket filter. An instance that gained buckets starts at the handover point: the oldest progress in the
+//   table, which covers events of the moved buckets that their previous owner had not processed yet. Events it
+//   reads twice are absorbed by the idempotent inserts and alert dedup.
+// - A clean shutdown marks the row as left so the others rebalance at their next heartbeat; a crashed instance is
+//   noticed after member-timeout.
+@Component
+@ConditionalOnProperty(name = "threatsense.sharding.mode", havingValue = "postgres")
+public class PostgresShardMembership implements ShardMembership {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostgresShardMembership.class);
+
+    private final ConsumerInstanceRepository consumerInstanceRepository;
+    private final String instanceId;
+    private final int bucketCount;
+    private final Duration memberTimeout;
+
+    private final Sinks.Many<ShardAssignment> assignments = Sinks.many().replay().latest();
+    private volatile ShardAssignment current;
+    private volatile Instant handoverPoint;
+    private volatile Instant processedUpTo;
+
+    public PostgresShardMembership(ConsumerInstanceRepository consumerInstanceRepository,
+                                   @Value("${threatsense.sharding.instance-id:}") String instanceId,
+                                   @Value("${threatsense.sharding.buckets:64}") int bucketCount,
+                                   @Value("${threatsense.sharding.member-timeout:20s}") Duration memberTimeout) {
+        this.consumerInstanceRepository = consumerInstanceRepository;
+        this.instanceId = instanceId.isBlank() ? defaultInstanceId() : instanceId;
+        this.bucketCount = bucketCount;
+        this.memberTimeout = memberTimeout;
+        logger.info("Sharding the change stream through consumer_instances as {}", this.instanceId);
+    }
+
+    @Override
+    public Flux<ShardAssignment> assignments() {
+        return assignments.asFlux();
+    }
+
+    @Override
+    public void recordProgress(Instant processedUpTo) {
+        this.processedUpTo = processedUpTo;
+    }
+
+    @Override
+    public Instant handoverPoint() {
+        return handoverPoint;
+    }
+
+    @Scheduled(fixedDelayString = "${threatsense.sharding.heartbeat-interval:5s}")
+    public void heartbeat() {
+        consumerInstanceRepository.heartbeat(instanceId, processedUpTo)
+                .then(consumerInstanceRepository.findLive(memberTimeout).collect(LinkedHashSet<String>::new, Set::add))
+                .zipWith(consumerInstanceRepository.findOldestProgress().map(Optional::of).defaultIfEmpty(Optional.empty()))
+                .doOnNext(live -> update(live.getT1(), live.getT2().orElse(null)))
+                // departed rows are kept for a while: their progress is part of the handover point
+                .then(consumerInstanceRepository.deleteOlderThan(memberTimeout.multipliedBy(10)))
+                .onErrorResume(e -> {
+                    logger.warn("Sharding heartbeat failed, keeping buckets {}: {}", current != null ? current.buckets() : "none", e.getMessage());
+                    return Mono.empty();
+                })
+                .block(Duration.ofSeconds(30));
+    }
+
+    @PreDestroy
+    public void leave() {
+        consumerInstanceRepository.leave(instanceId, processedUpTo)
+                .onErrorResume(e -> {
+                    logger.warn("Could not leave the consumer group cleanly, the others rebalance after {}: {}", memberTimeout, e.getMessage());
+                    return Mono.empty();
+                })
+                .block(Duration.ofSeconds(10));
+    }
+
+    private void update(Set<String> live, Instant oldestProgress) {
+        live.add(instanceId); // this instance's own heartbeat was just written
+        ShardAssignment assignment = ShardAssignment.ofMembers(bucketCount, live, instanceId);
+        if (!assignment.equals(current)) {
+            logger.info("Consumer instances {}: this instance now owns {} of {} source-IP buckets {}",
+                    live, assignment.buckets().size(), bucketCount, assignment.buckets());
+            handoverPoint = oldestProgress;
+            current = assignment;
+            assignments.tryEmitNext(assignment);
+        }
+    }
+
+    private static String defaultInstanceId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "consumer";
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.kafkaconsumer.sharding;
+
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+// The hash buckets of source IP that one consumer instance owns. A log belongs to bucket
+// |toHashedIndexKey(srcIP) mod bucketCount|, computed by MongoDB in the change stream's $match, so each instance only
+// receives its own logs and every (src, dest) pair is always seen by the same instance.
+//
+// Buckets are spread over the members by rendezvous hashing: each bucket goes to the member with the highest
+// hash of (member, bucket). When a member joins or leaves, only the buckets it gains or had move, about
+// bucketCount / members of them; all others stay where they are.
+public record ShardAssignment(int bucketCount, Set<Integer> buckets) {
+
+    public ShardAssignment {
+        buckets = Collections.unmodifiableSortedSet(new TreeSet<>(buckets));
+    }
+
+    // Every bucket: one instance, or sharding off
+    public static ShardAssignment all(int bucketCount) {
+        Set<Integer> buckets = new TreeSet<>();
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            buckets.add(bucket);
+        }
+        return new ShardAssignment(bucketCount, buckets);
+    }
+
+    // Static membership: instance 'index' of 'count' owns the buckets congruent to index
+    public static ShardAssignment ofIndex(int bucketCount, int count, int index) {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Instance index must be between 0 and " + (count - 1) + ", got " + index);
+        }
+        Set<Integer> buckets = new TreeSet<>();
+        for (int bucket = index; bucket < bucketCount; bucket += count) {
+            buckets.add(bucket);
+        }
+        return new ShardAssignment(bucketCount, buckets);
+    }
+
+    // Rendezvous assignment of the buckets among the live members, as seen by member 'self'
+    public static ShardAssignment ofMembers(int bucketCount, Collection<String> members, String self) {
+        List<Long> memberHashes = new ArrayList<>(members.size());
+        List<String> names = new ArrayList<>(members);
+        for (String member : names) {
+            memberHashes.add(mix(member.hashCode() * 0x9E3779B97F4A7C15L + member.length()));
+        }
+        Set<Integer> buckets = new TreeSet<>();
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            String owner = null;
+            long best = 0;
+            for (int i = 0; i < names.size(); i++) {
+                long weight = mix(memberHashes.get(i) ^ (bucket + 1) * 0xC2B2AE3D27D4EB4FL);
+                // ties (practically impossible) go to the smaller name, so every member computes the same owner
+                if (owner == null || Long.compareUnsigned(weight, best) > 0
+                        || (weight == best && names.get(i).compareTo(owner) < 0)) {
+                    owner = names.get(i);
+                    best = weight;
+                }
+            }
+            if (self.equals(owner)) {
+                buckets.add(bucket);
+            }
+        }
+        return new ShardAssignment(bucketCount, buckets);
+    }
+
+    public boolean ownsAll() {
+        return buckets.size() == bucketCount;
+    }
+
+    // True if this assignment has a bucket that 'previous' did not have
+    public boolean gainsFrom(ShardAssignment previous) {
+        return previous == null || previous.bucketCount != bucketCount || !previous.buckets.containsAll(buckets);
+    }
+
+    // Change-stream stage that keeps the events of the owned buckets
+    public Document toMatchStage() {
+        Document bucket = new Document("$abs", new Document("$mod",
+                List.of(new Document("$toHashedIndexKey", "$fullDocument.srcIP"), (long) bucketCount)));
+        return new Document("$match", new Document("$expr", new Document("$in", List.of(bucket, List.copyOf(buckets)))));
+    }
+
+    // splitmix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
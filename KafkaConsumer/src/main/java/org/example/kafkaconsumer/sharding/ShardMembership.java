@@ -0,0 +1,25 @@
+package org.example.kafkaconsumer.sharding;
+
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+
+// Which source-IP buckets this consumer instance owns in change-stream mode (threatsense.sharding.mode):
+// StaticShardMembership for none/static, PostgresShardMembership for instances that find each other through a
+// heartbeat table and rebalance when one joins or leaves.
+public interface ShardMembership {
+
+    // The current assignment, then every change to it
+    Flux<ShardAssignment> assignments();
+
+    // How far (change-stream cluster time) this instance has processed its buckets
+    default void recordProgress(Instant processedUpTo) {
+    }
+
+    // Where an instance that takes over buckets with the latest assignment starts reading: the oldest progress any
+    // current or recently departed owner had reported when the assignment changed, so that no event of a moved
+    // bucket is skipped. Null if unknown.
+    default Instant handoverPoint() {
+        return null;
+    }
+}
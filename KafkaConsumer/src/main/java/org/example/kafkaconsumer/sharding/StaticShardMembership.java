@@ -0,0 +1,39 @@
+package org.example.kafkaconsumer.sharding;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+// Default membership: all buckets (threatsense.sharding.mode=none), or a fixed share of them (mode=static) given by
+// instance-index out of instance-count. Changing the instance count means restarting every instance with new
+// settings; each one then resumes from its own checkpoint.
+@Component
+@ConditionalOnExpression("'${threatsense.sharding.mode:none}' != 'postgres'")
+public class StaticShardMembership implements ShardMembership {
+
+    private static final Logger logger = LoggerFactory.getLogger(StaticShardMembership.class);
+
+    private final ShardAssignment assignment;
+
+    public StaticShardMembership(@Value("${threatsense.sharding.mode:none}") String mode,
+                                 @Value("${threatsense.sharding.buckets:64}") int bucketCount,
+                                 @Value("${threatsense.sharding.instance-count:1}") int instanceCount,
+                                 @Value("${threatsense.sharding.instance-index:0}") int instanceIndex) {
+        if (mode.equals("static")) {
+            this.assignment = ShardAssignment.ofIndex(bucketCount, instanceCount, instanceIndex);
+            logger.info("Static sharding: instance {} of {} owns source-IP buckets {}", instanceIndex, instanceCount, assignment.buckets());
+        } else if (mode.equals("none")) {
+            this.assignment = ShardAssignment.all(bucketCount);
+        } else {
+            throw new IllegalArgumentException("Unknown threatsense.sharding.mode: " + mode + " (none, static or postgres)");
+        }
+    }
+
+    @Override
+    public Flux<ShardAssignment> assignments() {
+        return Flux.just(assignment);
+    }
+}
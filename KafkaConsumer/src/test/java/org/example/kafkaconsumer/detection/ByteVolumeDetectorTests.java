@@ -0,0 +1,111 @@
+package org.example.kafkaconsumer.detection;
+
+import org.example.kafkaconsumer.model.IpAddress;
+import org.example.kafkaconsumer.postgres.entity.StructuredNetworkLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ByteVolumeDetectorTests {
+
+    private static final Instant START = Instant.parse("2025-01-01T00:00:00Z");
+
+    @TempDir
+    Path dir;
+
+    private ByteVolumeDetector detector(boolean offHeap, String snapshotFile) {
+        return new ByteVolumeDetector(true, Duration.ofMinutes(1), 0.1, 4, 10, 0, Duration.ofDays(1),
+                1000, 1000, offHeap, snapshotFile);
+    }
+
+    @Test
+    void alertsOnceWhenABucketExceedsTheBaseline() {
+        ByteVolumeDetector detector = detector(true, "");
+        learnBaseline(detector, 20);
+
+        // the 21st minute: normal traffic first, then a burst crossing mean + 4 stddev for host and pair
+        assertNull(detector.record(log("10.0.0.2", 1000, minute(20))));
+        ByteVolumeDetector.Finding[] findings = detector.record(log("10.0.0.2", 50_000, minute(20).plusSeconds(1)));
+        assertNotNull(findings);
+        assertEquals(2, findings.length);
+        assertNull(findings[0].destIP());
+        assertEquals(IpAddress.parse("10.0.0.2"), findings[1].destIP());
+        assertEquals(51_000, findings[0].bytes());
+
+        assertNull(detector.record(log("10.0.0.2", 50_000, minute(20).plusSeconds(2))));
+    }
+
+    @Test
+    void noAlertBeforeMinSamples() {
+        ByteVolumeDetector detector = detector(false, "");
+        learnBaseline(detector, 5);
+        assertNull(detector.record(log("10.0.0.2", 1_000_000, minute(5))));
+    }
+
+    @Test
+    void baselinesSurviveARestartThroughTheSnapshot() {
+        String file = dir.resolve("baselines.bin").toString();
+        ByteVolumeDetector first = detector(false, file);
+        learnBaseline(first, 20);
+        first.snapshot();
+
+        ByteVolumeDetector restarted = detector(true, file);
+        assertNull(restarted.record(log("10.0.0.2", 1000, minute(20))));
+        assertNotNull(restarted.record(log("10.0.0.2", 50_000, minute(20).plusSeconds(1))));
+    }
+
+    @Test
+    void idleKeysMakeRoomOnceTheWatermarkMovesOn() {
+        ByteVolumeDetector detector = new ByteVolumeDetector(true, Duration.ofMinutes(1), 0.1, 4, 10, 0, Duration.ofMinutes(5),
+                2, 2, false, "");
+        detector.record(log("10.0.0.2", 100, minute(0)));
+        detector.record(log("10.0.0.3", 100, minute(10)));
+        // the pair table holds two pairs; the one idle since minute 0 is swept out for a third
+        detector.record(log("10.0.0.4", 100, minute(10)));
+        assertEquals(0, detector.droppedKeys());
+        // full again in the same bucket: no second sweep, the key is dropped
+        detector.record(log("10.0.0.5", 100, minute(10)));
+        assertEquals(1, detector.droppedKeys());
+    }
+
+    @Test
+    void removingIdleRecordsKeepsTheOthersReachable() {
+        VolumeBaselineTable table = new VolumeBaselineTable(5000, false);
+        for (long key = 0; key < 5000; key++) {
+            table.setBucket(table.slotFor(key), key % 2); // odd keys stay active
+        }
+        assertEquals(8192, table.capacity()); // grown from its initial size as keys arrived
+
+        assertEquals(2500, table.removeIdle(1));
+
+        assertEquals(2500, table.size());
+        for (long key = 1; key < 5000; key += 2) {
+            int slot = table.slotFor(key);
+            assertEquals(key, table.key(slot));
+            assertEquals(1, table.bucket(slot));
+        }
+        assertEquals(2500, table.size()); // all found, none inserted again
+    }
+
+    // one bucket per minute of 900..1100 bytes between 10.0.0.1 and 10.0.0.2
+    private static void learnBaseline(ByteVolumeDetector detector, int minutes) {
+        for (int m = 0; m < minutes; m++) {
+            assertNull(detector.record(log("10.0.0.2", 900 + (m % 3) * 100, minute(m))));
+        }
+    }
+
+    private static Instant minute(int m) {
+        return START.plus(Duration.ofMinutes(m));
+    }
+
+    private static StructuredNetworkLog log(String dest, long bytes, Instant timestamp) {
+        return new StructuredNetworkLog(IpAddress.parse("10.0.0.1"), IpAddress.parse(dest), 443, "TCP", bytes, timestamp, "", "");
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.kafkaconsumer.detection;
+
+import org.example.kafkaconsumer.model.IpAddress;
+import org.example.kafkaconsumer.postgres.entity.FrequentConnectionAlertDTO;
+import org.example.kafkaconsumer.postgres.entity.StructuredNetworkLog;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FrequentConnectionDetectorTests {
+
+    private static final Instant START = Instant.parse("2025-01-01T00:00:00Z");
+
+    private final FrequentConnectionDetector detector =
+            new FrequentConnectionDetector(true, Duration.ofSeconds(60), Duration.ofSeconds(10), 3, 1000);
+
+    @Test
+    void alertsOnceWhenThresholdIsCrossed() {
+        for (int i = 0; i < 3; i++) {
+            assertNull(detector.record(log(i, "10.0.0.1", "10.0.0.2", START.plusSeconds(i))));
+        }
+        FrequentConnectionAlertDTO alert = detector.record(log(3, "10.0.0.1", "10.0.0.2", START.plusSeconds(3)));
+        assertNotNull(alert);
+        assertEquals(4L, alert.getConnectionCount());
+        assertEquals(3L, alert.getLatestLogId());
+        assertEquals(IpAddress.parse("10.0.0.1"), alert.getSrcIP());
+
+        assertNull(detector.record(log(4, "10.0.0.1", "10.0.0.2", START.plusSeconds(4))));
+        assertNull(detector.record(log(5, "10.0.0.1", "10.0.0.3", START.plusSeconds(5))));
+    }
+
+    @Test
+    void oldBucketsSlideOutOfTheWindow() {
+        for (int i = 0; i < 3; i++) {
+            assertNull(detector.record(log(i, "10.0.0.1", "10.0.0.2", START)));
+        }
+        // 70s later the first three events have left the 60s window
+        assertNull(detector.record(log(3, "10.0.0.1", "10.0.0.2", START.plusSeconds(70))));
+        assertNull(detector.record(log(4, "10.0.0.1", "10.0.0.2", START.plusSeconds(71))));
+        assertNull(detector.record(log(5, "10.0.0.1", "10.0.0.2", START.plusSeconds(72))));
+        assertNotNull(detector.record(log(6, "10.0.0.1", "10.0.0.2", START.plusSeconds(73))));
+    }
+
+    @Test
+    void tracksIpv6PairsByValue() {
+        for (int i = 0; i < 3; i++) {
+            assertNull(detector.record(log(i, "2001:db8::1", "2001:db8::2", START)));
+        }
+        assertNotNull(detector.record(log(3, "2001:db8::1", "2001:db8::2", START)));
+    }
+
+    private static StructuredNetworkLog log(long id, String src, String dest, Instant timestamp) {
+        StructuredNetworkLog log = new StructuredNetworkLog(IpAddress.parse(src), IpAddress.parse(dest), 443, "TCP", 100, timestamp, null, null);
+        log.setId(id);
+        return log;
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.kafkaconsumer.detection;
+
+import org.example.kafkaconsumer.model.IpAddress;
+import org.example.kafkaconsumer.postgres.entity.StructuredNetworkLog;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PortScanDetectorTests {
+
+    private static final Instant START = Instant.parse("2025-01-01T00:00:00Z");
+
+    private final PortScanDetector detector =
+            new PortScanDetector(true, Duration.ofSeconds(60), 4, 20, 20, 8, 1000);
+
+    @Test
+    void sketchEstimatesDistinctCountsWithinTheExpectedError() {
+        HyperLogLogRing sketch = new HyperLogLogRing(8, 4);
+        for (int value = 0; value < 20_000; value++) {
+            sketch.add(value % 4, HyperLogLogRing.hash(value));
+            sketch.add(value % 4, HyperLogLogRing.hash(value)); // repeats do not count
+        }
+        assertEquals(20_000, sketch.estimate(), 20_000 * 0.2);
+
+        HyperLogLogRing small = new HyperLogLogRing(6, 1);
+        for (int value = 0; value < 30; value++) {
+            small.add(0, HyperLogLogRing.hash(value));
+        }
+        assertEquals(30, small.estimate(), 4);
+    }
+
+    @Test
+    void reportsAPortSweepOnce() {
+        PortScanDetector.Finding finding = null;
+        int port = 1;
+        while (finding == null && port < 100) {
+            finding = detector.record(log("10.0.0.1", "10.0.0.2", port, START.plusMillis(port)));
+            port++;
+        }
+        assertNotNull(finding);
+        assertTrue(finding.portScan());
+        assertFalse(finding.hostSweep());
+        assertEquals(IpAddress.parse("10.0.0.1"), finding.srcIP());
+
+        for (int more = 0; more < 50; more++) {
+            assertNull(detector.record(log("10.0.0.1", "10.0.0.2", port + more, START.plusSeconds(1))));
+        }
+    }
+
+    @Test
+    void repeatedPortsAndOldSubWindowsDoNotCount() {
+        for (int i = 0; i < 200; i++) {
+            assertNull(detector.record(log("10.0.0.1", "10.0.0.2", 443, START.plusMillis(i))));
+        }
+        for (int port = 1; port <= 15; port++) {
+            assertNull(detector.record(log("10.0.0.3", "10.0.0.2", port, START)));
+        }
+        // 70s later the first 15 ports have left the 60s window
+        for (int port = 16; port <= 30; port++) {
+            assertNull(detector.record(log("10.0.0.3", "10.0.0.2", port, START.plusSeconds(70))));
+        }
+    }
+
+    @Test
+    void reportsAHostSweep() {
+        PortScanDetector.Finding finding = null;
+        for (int host = 1; host < 100 && finding == null; host++) {
+            finding = detector.record(log("10.0.0.1", "10.0.1." + host, 22, START));
+        }
+        assertNotNull(finding);
+        assertTrue(finding.hostSweep());
+        assertFalse(finding.portScan());
+    }
+
+    private static StructuredNetworkLog log(String src, String dest, long port, Instant timestamp) {
+        return new StructuredNetworkLog(IpAddress.parse(src), IpAddress.parse(dest), port, "TCP", 100, timestamp, "", "");
+    }
+}
@@ -0,0 +1,128 @@
+package org.example.kafkaconsumer.detection.rules;
+
+import org.example.kafkaconsumer.intel.ThreatIntelIndex;
+import org.example.kafkaconsumer.model.IpAddress;
+import org.example.kafkaconsumer.postgres.entity.StructuredNetworkLog;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CompiledRuleSetTests {
+
+    private static final ThreatIntelIndex INTEL = intel();
+
+    private static ThreatIntelIndex intel() {
+        ThreatIntelIndex.Builder builder = ThreatIntelIndex.builder(4);
+        builder.addIpOrCidr("1.2.3.4");
+        builder.addIpOrCidr("2001:db8::/32");
+        builder.addPortOrRange("3389");
+        builder.addPortOrRange("22");
+        return builder.build();
+    }
+
+    private static StructuredNetworkLog log(String src, String dest, long port, String protocol, long bytes) {
+        return new StructuredNetworkLog(IpAddress.parse(src), IpAddress.parse(dest), port, protocol, bytes, Instant.now(), null, null);
+    }
+
+    private static CompiledRuleSet compile(String yaml) {
+        return CompiledRuleSet.compile(DetectionRuleLoader.load(new ByteArrayInputStream(yaml.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void bundledRulesKeepTheBuiltInAlertMessages() throws Exception {
+        CompiledRuleSet rules;
+        try (InputStream in = getClass().getResourceAsStream("/detection-rules.yml")) {
+            rules = CompiledRuleSet.compile(DetectionRuleLoader.load(in));
+        }
+
+        StructuredNetworkLog portLog = log("8.8.8.8", "9.9.9.9", 3389, "TCP", 100);
+        assertEquals(0b01, rules.evaluate(portLog, INTEL));
+        assertEquals("Detected connection to suspicious port: 3389 from 8.8.8.8 to 9.9.9.9. Protocol: TCP", rules.message(0, portLog, INTEL));
+
+        StructuredNetworkLog ipLog = log("8.8.8.8", "1.2.3.4", 443, "HTTPS", 100);
+        assertEquals(0b10, rules.evaluate(ipLog, INTEL));
+        assertEquals("Detected connection involving blacklisted IP: 1.2.3.4 (Source: 8.8.8.8, Dest: 1.2.3.4)", rules.message(1, ipLog, INTEL));
+
+        assertEquals(0b11, rules.evaluate(log("2001:db8::1", "9.9.9.9", 22, "TCP", 100), INTEL));
+        assertEquals(0, rules.evaluate(log("8.8.8.8", "9.9.9.9", 443, "HTTPS", 100), INTEL));
+    }
+
+    @Test
+    void conditionsAreAndedAcrossFieldsAndOredWithinAField() {
+        CompiledRuleSet rules = compile("""
+                rules:
+                  - id: large-internal-upload
+                    alert-type: Large Upload
+                    severity: LOW
+                    when:
+                      src-ip: [10.0.0.0/8, 192.168.0.0/16]
+                      protocol: [http, https]
+                      min-bytes: 50000
+                  - id: telnet
+                    alert-type: Telnet
+                    severity: MEDIUM
+                    message: "telnet to {destIP}:{port} by {srcIP}"
+                    when:
+                      port: 23
+                      dest-ip: 172.16.0.0/12
+                  - id: disabled
+                    alert-type: Never
+                    severity: LOW
+                    enabled: false
+                    when:
+                      port: 0-65535
+                """);
+
+        assertEquals(2, rules.size());
+        assertEquals(0b01, rules.evaluate(log("10.1.2.3", "8.8.8.8", 443, "HTTPS", 60000), INTEL));
+        assertEquals(0b01, rules.evaluate(log("192.168.1.1", "8.8.8.8", 80, "Http", 50000), INTEL));
+        assertEquals(0, rules.evaluate(log("10.1.2.3", "8.8.8.8", 443, "HTTPS", 49999), INTEL));
+        assertEquals(0, rules.evaluate(log("11.1.2.3", "8.8.8.8", 443, "HTTPS", 60000), INTEL));
+        assertEquals(0, rules.evaluate(log("10.1.2.3", "8.8.8.8", 443, "UDP", 60000), INTEL));
+
+        StructuredNetworkLog telnet = log("10.1.2.3", "172.20.0.1", 23, "TCP", 10);
+        assertEquals(0b10, rules.evaluate(telnet, INTEL));
+        assertEquals("telnet to 172.20.0.1:23 by 10.1.2.3", rules.message(1, telnet, INTEL));
+        assertEquals(0, rules.evaluate(log("10.1.2.3", "172.32.0.1", 23, "TCP", 10), INTEL));
+    }
+
+    @Test
+    void rejectsInvalidDefinitions() {
+        assertThrows(IllegalArgumentException.class, () -> compile("""
+                rules:
+                  - id: typo
+                    alert-type: X
+                    severity: LOW
+                    when:
+                      prot: 23
+                """));
+        assertThrows(IllegalArgumentException.class, () -> compile("""
+                rules:
+                  - id: bad-cidr
+                    alert-type: X
+                    severity: LOW
+                    when:
+                      src-ip: 10.0.0.0/33
+                """));
+        assertThrows(IllegalArgumentException.class, () -> compile("""
+                rules:
+                  - id: no-conditions
+                    alert-type: X
+                    severity: LOW
+                """));
+
+        List<DetectionRule> tooMany = new ArrayList<>();
+        for (int i = 0; i <= CompiledRuleSet.MAX_RULES; i++) {
+            tooMany.add(new DetectionRule("r" + i, "X", "LOW", null, List.of(Integer.toString(i)), null, null, null, null, null, null));
+        }
+        assertThrows(IllegalArgumentException.class, () -> CompiledRuleSet.compile(tooMany));
+    }
+}
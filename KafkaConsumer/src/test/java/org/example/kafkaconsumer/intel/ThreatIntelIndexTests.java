@@ -0,0 +1,101 @@
+package org.example.kafkaconsumer.intel;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ThreatIntelIndexTests {
+
+    @Test
+    void parsesIpv4AndIpv6() {
+        assertEquals(0x01020304L, IpAddresses.parseIpv4("1.2.3.4"));
+        assertEquals(0xFFFFFFFFL, IpAddresses.parseIpv4("255.255.255.255"));
+        assertEquals(-1, IpAddresses.parseIpv4("256.1.1.1"));
+        assertEquals(-1, IpAddresses.parseIpv4("1.2.3"));
+        assertEquals(-1, IpAddresses.parseIpv4("1.2.3.4.5"));
+
+        long[] out = new long[2];
+        assertTrue(IpAddresses.parseIpv6("2001:db8::1", out));
+        assertArrayEquals(new long[]{0x20010DB800000000L, 1L}, out);
+        assertTrue(IpAddresses.parseIpv6("::ffff:1.2.3.4", out));
+        assertArrayEquals(new long[]{0L, 0x0000FFFF01020304L}, out);
+        assertTrue(IpAddresses.parseIpv6("::", out));
+        assertArrayEquals(new long[]{0L, 0L}, out);
+        assertTrue(IpAddresses.parseIpv6("1:2:3:4:5:6:7:8", out));
+        assertArrayEquals(new long[]{0x0001000200030004L, 0x0005000600070008L}, out);
+        assertTrue(IpAddresses.parseIpv6("1:2:3:4:5::8", out));
+        assertArrayEquals(new long[]{0x0001000200030004L, 0x0005000000000008L}, out);
+        assertTrue(IpAddresses.parseIpv6("1::6:7:8:9:a", out));
+        assertArrayEquals(new long[]{0x0001000000000006L, 0x00070008_0009000AL}, out);
+        assertTrue(IpAddresses.parseIpv6("fe80::", out));
+        assertArrayEquals(new long[]{0xFE80000000000000L, 0L}, out);
+        assertTrue(IpAddresses.parseIpv6("1:2:3:4:5:6:1.2.3.4", out));
+        assertArrayEquals(new long[]{0x0001000200030004L, 0x0005000601020304L}, out);
+        assertTrue(IpAddresses.parseIpv6("64:ff9b::7:1.2.3.4%eth0", out));
+        assertArrayEquals(new long[]{0x0064FF9B00000000L, 0x0000000701020304L}, out);
+        assertFalse(IpAddresses.parseIpv6("1::2::3", out));
+        assertFalse(IpAddresses.parseIpv6("1:2:3:4:5:6:7:8:9", out));
+        assertFalse(IpAddresses.parseIpv6("12345::", out));
+        assertFalse(IpAddresses.parseIpv6("1:2:3:4:5:6:7", out));
+        assertFalse(IpAddresses.parseIpv6("1:2:3:4:5:6:7::8", out));
+        assertFalse(IpAddresses.parseIpv6("1:2:3:4:5:1.2.3.4", out));
+    }
+
+    @Test
+    void matchesAddressesAndCidrRanges() {
+        ThreatIntelIndex.Builder builder = ThreatIntelIndex.builder(8);
+        assertTrue(builder.addIpOrCidr("1.2.3.4"));
+        assertTrue(builder.addIpOrCidr("10.0.0.0/8"));
+        assertTrue(builder.addIpOrCidr("192.168.1.128/25"));
+        assertTrue(builder.addIpOrCidr("2001:db8::/32"));
+        assertFalse(builder.addIpOrCidr("not-an-ip"));
+        assertFalse(builder.addIpOrCidr("1.2.3.4/33"));
+        ThreatIntelIndex index = builder.build();
+
+        assertEquals(4, index.blacklistSize());
+        assertTrue(index.isBlacklisted("1.2.3.4"));
+        assertFalse(index.isBlacklisted("1.2.3.5"));
+        assertTrue(index.isBlacklisted("10.255.0.1"));
+        assertFalse(index.isBlacklisted("11.0.0.1"));
+        assertTrue(index.isBlacklisted("192.168.1.200"));
+        assertFalse(index.isBlacklisted("192.168.1.127"));
+        assertTrue(index.isBlacklisted("2001:db8:ffff::1"));
+        assertFalse(index.isBlacklisted("2001:db9::1"));
+        assertTrue(index.isBlacklisted("::ffff:10.1.2.3")); // IPv4-mapped IPv6 hits the IPv4 ranges
+        assertFalse(index.isBlacklisted("garbage"));
+    }
+
+    @Test
+    void orsValuesOfAllContainingPrefixes() {
+        IpPrefixTrie trie = new IpPrefixTrie();
+        trie.insertIpv4(IpAddresses.parseIpv4("10.0.0.0"), 8, 1L);
+        trie.insertIpv4(IpAddresses.parseIpv4("10.1.0.0"), 16, 2L);
+        trie.insertIpv4(IpAddresses.parseIpv4("10.1.2.3"), 32, 4L);
+        trie.insertIpv4(IpAddresses.parseIpv4("10.2.0.0"), 16, 8L);
+
+        assertEquals(7L, trie.matchIpv4(IpAddresses.parseIpv4("10.1.2.3")));
+        assertEquals(3L, trie.matchIpv4(IpAddresses.parseIpv4("10.1.9.9")));
+        assertEquals(9L, trie.matchIpv4(IpAddresses.parseIpv4("10.2.0.1")));
+        assertEquals(1L, trie.matchIpv4(IpAddresses.parseIpv4("10.3.0.1")));
+        assertEquals(0L, trie.matchIpv4(IpAddresses.parseIpv4("11.1.2.3")));
+    }
+
+    @Test
+    void matchesPortsAndRanges() {
+        ThreatIntelIndex.Builder builder = ThreatIntelIndex.builder(0);
+        assertTrue(builder.addPortOrRange("22"));
+        assertTrue(builder.addPortOrRange("6000-6002"));
+        assertFalse(builder.addPortOrRange("70000"));
+        ThreatIntelIndex index = builder.build();
+
+        assertEquals(4, index.suspiciousPortCount());
+        assertTrue(index.isSuspiciousPort(22));
+        assertTrue(index.isSuspiciousPort(6001));
+        assertFalse(index.isSuspiciousPort(6003));
+        assertFalse(index.isSuspiciousPort(-1));
+        assertFalse(index.isSuspiciousPort(65536));
+    }
+}
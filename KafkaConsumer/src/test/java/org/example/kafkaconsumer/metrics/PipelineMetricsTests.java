@@ -0,0 +1,53 @@
+package org.example.kafkaconsumer.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PipelineMetricsTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final PipelineMetrics metrics = new PipelineMetrics(registry);
+
+    @Test
+    void alertWritesAreTimedByOutcomeAndCountedByType() {
+        metrics.timeAlertWrite("Blacklisted IP Activity", Mono.just(1L)).block();
+        metrics.timeAlertWrite("Blacklisted IP Activity", Mono.just(2L)).block();
+        metrics.timeAlertWrite("Blacklisted IP Activity", Mono.empty()).block();
+        metrics.timeAlertWrite("Frequent Connection", Mono.<Long>error(new IllegalStateException("db down")))
+                .onErrorResume(e -> Mono.empty())
+                .block();
+
+        assertEquals(2.0, registry.get("threatsense.alerts.raised").tag("type", "Blacklisted IP Activity").counter().count());
+        assertEquals(2, registry.get("threatsense.alert.write").tag("outcome", "inserted").timer().count());
+        assertEquals(1, registry.get("threatsense.alert.write").tag("outcome", "duplicate").timer().count());
+        assertEquals(1, registry.get("threatsense.alert.write").tag("outcome", "error").timer().count());
+        assertEquals(0.0, registry.get("threatsense.alert.writes.in-flight").gauge().value());
+    }
+
+    @Test
+    void batchesAreTrackedInFlightUntilTheyComplete() {
+        Mono<Void> batch = metrics.trackBatch(Mono.fromRunnable(() ->
+                assertEquals(1.0, registry.get("threatsense.ingest.batches.in-flight").gauge().value())));
+
+        batch.block();
+
+        assertEquals(0.0, registry.get("threatsense.ingest.batches.in-flight").gauge().value());
+    }
+
+    @Test
+    void lagIgnoresMissingAndFutureTimestamps() {
+        long now = System.currentTimeMillis();
+        metrics.recordPipelineLag(Instant.ofEpochMilli(now - 250), now);
+        metrics.recordPipelineLag(Instant.ofEpochMilli(now + 1000), now);
+        metrics.recordPipelineLag(null, now);
+        metrics.recordReceived("kafka", now + 60_000);
+
+        assertEquals(1, registry.get("threatsense.pipeline.lag").timer().count());
+        assertEquals(0, registry.find("threatsense.ingest.receive.lag").timers().size());
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.kafkaconsumer.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IpAddressTests {
+
+    @Test
+    void parsesBothFamiliesIntoOneRepresentation() {
+        IpAddress ipv4 = IpAddress.parse("192.168.1.20");
+        assertTrue(ipv4.isIpv4());
+        assertEquals(0xC0A80114L, ipv4.ipv4());
+        assertEquals("192.168.1.20", ipv4.toString());
+        assertEquals(ipv4, IpAddress.parse("::ffff:192.168.1.20"));
+
+        IpAddress ipv6 = IpAddress.parse("2001:DB8:0:0:1:0:0:1");
+        assertFalse(ipv6.isIpv4());
+        assertEquals("2001:db8::1:0:0:1", ipv6.toString());
+        assertEquals("::1", IpAddress.parse("0:0:0:0:0:0:0:1").toString());
+        assertEquals("2001:db8:0:1:1:1:1:1", IpAddress.parse("2001:db8:0:1:1:1:1:1").toString());
+    }
+
+    @Test
+    void rejectsInvalidAddresses() {
+        assertNull(IpAddress.tryParse("256.1.1.1"));
+        assertNull(IpAddress.tryParse("example.com"));
+        assertNull(IpAddress.tryParse(null));
+        assertThrows(IllegalArgumentException.class, () -> IpAddress.parse("1.2.3"));
+    }
+
+    @Test
+    void convertsToAndFromInetAddress() throws Exception {
+        for (String text : new String[]{"10.0.0.1", "2001:db8::ff00:42:8329"}) {
+            IpAddress address = IpAddress.parse(text);
+            InetAddress inet = address.toInetAddress();
+            assertEquals(InetAddress.getByName(text), inet);
+            assertEquals(address, IpAddress.fromInetAddress(inet));
+        }
+    }
+}
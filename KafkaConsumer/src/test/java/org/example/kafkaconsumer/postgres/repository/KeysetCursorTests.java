@@ -0,0 +1,50 @@
+package org.example.kafkaconsumer.postgres.repository;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeysetCursorTests {
+
+    @Test
+    void cursorRoundTripsThroughItsToken() {
+        KeysetCursor cursor = new KeysetCursor(Instant.parse("2026-10-17T13:45:10.123456Z"), 42);
+
+        assertEquals(cursor, KeysetCursor.decode(cursor.encode()));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("not a cursor"));
+    }
+
+    @Test
+    void filterNumbersBindMarkersAndSkipsMissingValues() {
+        SqlFilter filter = new SqlFilter()
+                .and("timestamp >= ?", Instant.EPOCH)
+                .and("protocol = ?", (Object) null)
+                .and("(src_ip = ? OR dest_ip = ?)", "10.0.0.1", "10.0.0.1");
+
+        assertEquals(" WHERE timestamp >= $1 AND (src_ip = $2 OR dest_ip = $3)", filter.where());
+        assertEquals("$4", filter.marker(10));
+    }
+
+    @Test
+    void readAllContinuesAfterTheLastRowOfEachFullPage() {
+        List<Long> ids = LongStream.rangeClosed(1, 7).map(i -> 8 - i).boxed().toList(); // 7..1, newest first
+        List<KeysetCursor> seeks = new ArrayList<>();
+
+        List<Long> read = KeysetCursor.<Long>readAll(after -> {
+                    seeks.add(after);
+                    long below = after == null ? Long.MAX_VALUE : after.id();
+                    return Flux.fromIterable(ids).filter(id -> id < below).take(3);
+                }, id -> new KeysetCursor(Instant.EPOCH, id), 3)
+                .collectList().block();
+
+        assertEquals(ids, read);
+        assertEquals(3, seeks.size()); // pages of 3, 3 and 1 rows
+    }
+}
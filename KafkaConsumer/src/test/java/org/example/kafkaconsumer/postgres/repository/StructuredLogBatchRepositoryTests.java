@@ -0,0 +1,58 @@
+package org.example.kafkaconsumer.postgres.repository;
+
+import org.example.kafkaconsumer.model.IpAddress;
+import org.example.kafkaconsumer.postgres.entity.StructuredNetworkLog;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.RowsFetchSpec;
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StructuredLogBatchRepositoryTests {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void splitsBatchesBeyondTheBindParameterLimit() {
+        DatabaseClient databaseClient = mock(DatabaseClient.class);
+        DatabaseClient.GenericExecuteSpec spec = mock(DatabaseClient.GenericExecuteSpec.class);
+        RowsFetchSpec<Object> rows = mock(RowsFetchSpec.class);
+        List<Integer> parameters = new ArrayList<>(); // bind parameters per statement
+        when(databaseClient.sql(anyString())).thenAnswer(invocation -> {
+            parameters.add(0);
+            return spec;
+        });
+        when(spec.bind(anyInt(), any())).thenAnswer(invocation -> {
+            parameters.set(parameters.size() - 1, parameters.get(parameters.size() - 1) + 1);
+            return spec;
+        });
+        when(spec.bindNull(anyInt(), any())).thenAnswer(invocation -> {
+            parameters.set(parameters.size() - 1, parameters.get(parameters.size() - 1) + 1);
+            return spec;
+        });
+        when(spec.map(any(BiFunction.class))).thenReturn(rows);
+        when(rows.all()).thenReturn(Flux.empty());
+
+        List<StructuredNetworkLog> logs = new ArrayList<>();
+        for (int i = 0; i < StructuredLogBatchRepository.MAX_ROWS_PER_STATEMENT + 10; i++) {
+            logs.add(new StructuredNetworkLog(IpAddress.parse("10.0.0.1"), IpAddress.parse("10.0.0.9"), 443, "TCP", 1, Instant.now(), null, null));
+        }
+        logs.add(logs.get(0)); // written once
+
+        new StructuredLogBatchRepository(databaseClient).insertAll(logs).blockLast();
+
+        assertEquals(List.of(StructuredLogBatchRepository.MAX_ROWS_PER_STATEMENT * 9, 10 * 9), parameters);
+        assertTrue(parameters.get(0) <= 65_535);
+    }
+}
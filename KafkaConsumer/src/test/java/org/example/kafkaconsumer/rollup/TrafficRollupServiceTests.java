@@ -0,0 +1,78 @@
+package org.example.kafkaconsumer.rollup;
+
+import org.example.kafkaconsumer.model.IpAddress;
+import org.example.kafkaconsumer.postgres.entity.StructuredNetworkLog;
+import org.example.kafkaconsumer.postgres.entity.TrafficRollup;
+import org.example.kafkaconsumer.postgres.repository.TrafficRollupRepository;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TrafficRollupServiceTests {
+
+    private final List<TrafficRollup> written = new ArrayList<>();
+    private final TrafficRollupRepository repository = mock(TrafficRollupRepository.class);
+
+    @SuppressWarnings("unchecked")
+    private TrafficRollupService service(int maxValuesPerMinute) {
+        when(repository.addMinuteRollups(anyList())).thenAnswer(invocation -> {
+            written.addAll(invocation.getArgument(0, List.class));
+            return Mono.empty();
+        });
+        return new TrafficRollupService(repository, true, maxValuesPerMinute, Duration.ofDays(7), Duration.ofDays(400));
+    }
+
+    @Test
+    void sumsBytesAndConnectionsPerMinuteAndValue() {
+        TrafficRollupService service = service(100);
+        Instant now = Instant.now();
+        Instant minute = Instant.ofEpochMilli(Math.floorDiv(now.toEpochMilli(), 60_000) * 60_000);
+
+        service.record(List.of(log("10.0.0.1", "10.0.0.9", 100, minute.plusSeconds(1)),
+                log("10.0.0.1", "10.0.0.8", 50, minute.plusSeconds(30)),
+                log("10.0.0.2", "10.0.0.9", 7, minute.plusSeconds(61))));
+        service.flush();
+
+        assertEquals(new TrafficRollup("src_ip", minute, "10.0.0.1", 150, 2), find("src_ip", minute, "10.0.0.1"));
+        assertEquals(new TrafficRollup("dest_ip", minute, "10.0.0.9", 100, 1), find("dest_ip", minute, "10.0.0.9"));
+        assertEquals(new TrafficRollup("protocol", minute, "TCP", 150, 2), find("protocol", minute, "TCP"));
+        assertEquals(new TrafficRollup("port", minute.plusSeconds(60), "443", 7, 1), find("port", minute.plusSeconds(60), "443"));
+
+        written.clear();
+        service.flush();
+        assertTrue(written.isEmpty());
+    }
+
+    @Test
+    void valuesBeyondTheCapAreCountedAsOther() {
+        TrafficRollupService service = service(2);
+        Instant time = Instant.now();
+        Instant minute = Instant.ofEpochMilli(Math.floorDiv(time.toEpochMilli(), 60_000) * 60_000);
+
+        service.record(List.of(log("10.0.0.1", "10.0.0.9", 1, time), log("10.0.0.2", "10.0.0.9", 1, time),
+                log("10.0.0.3", "10.0.0.9", 1, time), log("10.0.0.4", "10.0.0.9", 1, time)));
+        service.flush();
+
+        assertEquals(new TrafficRollup("src_ip", minute, TrafficRollupService.OTHER, 2, 2), find("src_ip", minute, TrafficRollupService.OTHER));
+    }
+
+    private TrafficRollup find(String dimension, Instant bucketStart, String value) {
+        return written.stream()
+                .filter(row -> row.dimension().equals(dimension) && row.bucketStart().equals(bucketStart) && row.value().equals(value))
+                .findFirst().orElseThrow();
+    }
+
+    private static StructuredNetworkLog log(String src, String dest, long bytes, Instant timestamp) {
+        return new StructuredNetworkLog(IpAddress.parse(src), IpAddress.parse(dest), 443, "TCP", bytes, timestamp, "", "");
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.kafkaconsumer.serde;
+
+import org.example.kafkaconsumer.model.RawNetworkLog;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// The byte arrays match the ones the producer's NetworkLogBinaryCodecTest expects its encoder to write, so together
+// the two tests cover the producer -> consumer round trip.
+class NetworkLogBinaryCodecTests {
+
+    @Test
+    void decodesIpv4RecordAsWrittenByTheProducer() {
+        byte[] data = {
+                1, 0,                                   // version, flags
+                (byte) 192, (byte) 168, 1, 10,          // srcIP
+                10, 0, 0, 1,                            // destIP
+                0x0D, 0x3D,                             // port 3389
+                1,                                      // TCP
+                (byte) 0xAC, 0x02,                      // bytes 300 (varint)
+                0, 0x05, (byte) 0xF1, 0x28, (byte) 0x84, 0x0D, 0x40, 0 // epoch micros of 2023-01-01T00:00:00Z
+        };
+
+        RawNetworkLog log = NetworkLogBinaryCodec.decode(data);
+
+        assertEquals("192.168.1.10", log.getSrcIP());
+        assertEquals("10.0.0.1", log.getDestIP());
+        assertEquals(3389, log.getPort());
+        assertEquals("TCP", log.getProtocol());
+        assertEquals(300, log.getBytes());
+        assertEquals(Instant.parse("2023-01-01T00:00:00Z"), log.getTimestamp());
+        assertNull(log.getMessage());
+        assertNull(log.getRawLog());
+    }
+
+    @Test
+    void decodesIpv6OtherProtocolAndOptionalStrings() {
+        byte[] proto = "QUIC".getBytes(StandardCharsets.UTF_8);
+        byte[] message = "hello".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer out = ByteBuffer.allocate(64);
+        out.put((byte) 1).put((byte) (1 | 4));                 // srcIP IPv6, message present
+        out.putLong(0x20010DB800000000L).putLong(1L);           // 2001:db8::1
+        out.put(new byte[]{1, 2, 3, 4});
+        out.putShort((short) 443);
+        out.put((byte) 127).put((byte) proto.length).put(proto);
+        out.put((byte) 0);                                      // bytes 0
+        out.putLong(Long.MIN_VALUE);                            // no timestamp
+        out.put((byte) message.length).put(message);
+        byte[] data = Arrays.copyOf(out.array(), out.position());
+
+        RawNetworkLog log = NetworkLogBinaryCodec.decode(data);
+
+        assertEquals("2001:db8:0:0:0:0:0:1", log.getSrcIP());
+        assertEquals("1.2.3.4", log.getDestIP());
+        assertEquals(443, log.getPort());
+        assertEquals("QUIC", log.getProtocol());
+        assertNull(log.getTimestamp());
+        assertEquals("hello", log.getMessage());
+        assertNull(log.getRawLog());
+    }
+
+    @Test
+    void rejectsUnknownVersion() {
+        assertThrows(IllegalArgumentException.class, () -> NetworkLogBinaryCodec.decode(new byte[]{2, 0}));
+    }
+}
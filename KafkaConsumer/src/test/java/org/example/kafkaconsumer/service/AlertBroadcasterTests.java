@@ -0,0 +1,53 @@
+package org.example.kafkaconsumer.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.kafkaconsumer.postgres.entity.Alert;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AlertBroadcasterTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void newSubscribersGetRecentAlertsThenLiveOnesMatchingTheirFilter() {
+        AlertBroadcaster broadcaster = new AlertBroadcaster(registry, 2, 16);
+        broadcaster.publish(alert(1, "HIGH"));
+        broadcaster.publish(alert(2, "LOW"));
+        broadcaster.publish(alert(3, "HIGH"));
+
+        StepVerifier.create(broadcaster.subscribe(alert -> alert.getSeverity().equals("HIGH")).map(Alert::getId))
+                .expectNext(3L) // replay holds the last two alerts, 2 and 3, and only 3 passes the filter
+                .then(() -> broadcaster.publish(alert(4, "HIGH")))
+                .expectNext(4L)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void slowSubscriberDropsItsOldestAlertsWithoutBlockingPublish() {
+        AlertBroadcaster broadcaster = new AlertBroadcaster(registry, 1, 2);
+
+        StepVerifier.create(broadcaster.subscribe(alert -> true).map(Alert::getId), 0)
+                .then(() -> {
+                    for (long id = 1; id <= 5; id++) {
+                        broadcaster.publish(alert(id, "HIGH"));
+                    }
+                })
+                .thenRequest(2)
+                .expectNext(4L, 5L)
+                .thenCancel()
+                .verify();
+        assertEquals(3.0, registry.counter("threatsense.alerts.stream.dropped").count());
+    }
+
+    private static Alert alert(long id, String severity) {
+        Alert alert = new Alert(id, Instant.EPOCH, "Test", severity, "test alert");
+        alert.setId(id);
+        return alert;
+    }
+}
@@ -0,0 +1,203 @@
+package org.example.kafkaconsumer.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.kafkaconsumer.metrics.PipelineMetrics;
+import org.example.kafkaconsumer.model.IpAddress;
+import org.example.kafkaconsumer.postgres.entity.Alert;
+import org.example.kafkaconsumer.postgres.entity.AlertOccurrences;
+import org.example.kafkaconsumer.postgres.repository.AlertBatchRepository;
+import org.example.kafkaconsumer.service.AlertCoalescer.Offer;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AlertCoalescerTests {
+
+    private static final IpAddress SRC = IpAddress.parse("10.0.0.1");
+    private static final IpAddress DEST = IpAddress.parse("10.0.0.9");
+    private static final Instant T0 = Instant.parse("2026-01-01T00:00:00Z");
+
+    private final List<Alert> inserted = new ArrayList<>();
+    private final List<AlertOccurrences> updated = new ArrayList<>();
+    private final AtomicLong ids = new AtomicLong(100);
+    private final AtomicBoolean failWrites = new AtomicBoolean();
+    private final AlertBatchRepository repository = mock(AlertBatchRepository.class);
+
+    @SuppressWarnings("unchecked")
+    private AlertCoalescer coalescer(int maxGroups) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        when(repository.insertAll(anyList())).thenAnswer(invocation -> {
+            if (failWrites.get()) {
+                return Flux.error(new IllegalStateException("database down"));
+            }
+            List<Alert> alerts = new ArrayList<>(invocation.getArgument(0, List.class));
+            alerts.forEach(alert -> alert.setId(ids.incrementAndGet()));
+            inserted.addAll(alerts);
+            return Flux.fromIterable(alerts);
+        });
+        when(repository.addOccurrences(anyList())).thenAnswer(invocation -> {
+            if (failWrites.get()) {
+                return Mono.error(new IllegalStateException("database down"));
+            }
+            List<AlertOccurrences> rows = invocation.getArgument(0, List.class);
+            updated.addAll(rows);
+            return Mono.just((long) rows.size());
+        });
+        return new AlertCoalescer(repository, new AlertBroadcaster(registry, 16, 16), new PipelineMetrics(registry), registry,
+                true, Duration.ofMinutes(5), maxGroups);
+    }
+
+    @Test
+    void firstAlertIsWrittenByTheCallerAndRepeatsOnlyCount() {
+        AlertCoalescer coalescer = coalescer(100);
+        Alert first = alert(10_000, T0);
+        assertEquals(Offer.FIRST, coalescer.offer(first, SRC, DEST));
+        coalescer.writeFirst(first, stored(first)).block();
+        for (int i = 1; i < 1000; i++) {
+            assertEquals(Offer.COALESCED, coalescer.offer(alert(i, T0.plusMillis(i)), SRC, DEST));
+        }
+        coalescer.flush();
+        assertTrue(inserted.isEmpty()); // the first alert was stored with its batch
+        assertEquals(List.of(new AlertOccurrences(first.getId(), T0, 999, T0.plusMillis(1), T0.plusMillis(999))), updated);
+
+        for (int i = 1000; i < 1500; i++) {
+            coalescer.offer(alert(i, T0.plusSeconds(10)), SRC, DEST);
+        }
+        coalescer.flush();
+        assertEquals(new AlertOccurrences(first.getId(), T0, 500, T0.plusSeconds(10), T0.plusSeconds(10)), updated.get(1));
+
+        coalescer.flush(); // nothing new
+        assertEquals(2, updated.size());
+    }
+
+    @Test
+    void otherPairsTypesAndWindowsGetTheirOwnRows() {
+        AlertCoalescer coalescer = coalescer(100);
+        List<Offer> offers = new ArrayList<>();
+        offers.add(offerAndStore(coalescer, alert(1, T0), SRC, DEST));
+        offers.add(offerAndStore(coalescer, alert(2, T0), SRC, IpAddress.parse("10.0.0.8")));
+        offers.add(offerAndStore(coalescer, new Alert(3L, T0, "Suspicious Port Activity", "MEDIUM", "port 23"), SRC, DEST));
+        offers.add(offerAndStore(coalescer, alert(4, T0.plus(Duration.ofMinutes(6))), SRC, DEST)); // closes the first group
+        offers.add(offerAndStore(coalescer, alert(5, T0.plus(Duration.ofMinutes(7))), SRC, DEST));
+        coalescer.flush();
+
+        assertEquals(List.of(Offer.FIRST, Offer.FIRST, Offer.FIRST, Offer.FIRST, Offer.COALESCED), offers);
+        assertEquals(List.of(new AlertOccurrences(4, T0.plus(Duration.ofMinutes(6)), 1,
+                T0.plus(Duration.ofMinutes(7)), T0.plus(Duration.ofMinutes(7)))), updated);
+    }
+
+    @Test
+    void failedFirstWriteIsInsertedByTheFlushWithItsCounts() {
+        AlertCoalescer coalescer = coalescer(100);
+        Alert first = alert(1, T0);
+        coalescer.offer(first, SRC, DEST);
+        coalescer.writeFirst(first, Mono.error(new IllegalStateException("database down"))).onErrorComplete().block();
+        coalescer.offer(alert(2, T0.plusSeconds(1)), SRC, DEST);
+        failWrites.set(true);
+        coalescer.flush();
+        coalescer.offer(alert(3, T0.plusSeconds(2)), SRC, DEST);
+        failWrites.set(false);
+        coalescer.flush();
+        assertEquals(1, inserted.size());
+        assertEquals(3, inserted.get(0).getOccurrenceCount());
+        assertEquals(T0.plusSeconds(2), inserted.get(0).getLastSeen());
+
+        // the retried batch offers the first alert again: it is already counted
+        assertEquals(Offer.COALESCED, coalescer.offer(alert(1, T0), SRC, DEST));
+        coalescer.offer(alert(4, T0.plusSeconds(3)), SRC, DEST);
+        failWrites.set(true);
+        coalescer.flush();
+        failWrites.set(false);
+        coalescer.flush();
+        assertEquals(1, updated.size());
+        assertEquals(1, updated.get(0).count());
+    }
+
+    @Test
+    void retriedFirstWriteBeforeTheFlushIsWrittenByTheBatch() {
+        AlertCoalescer coalescer = coalescer(100);
+        Alert first = alert(1, T0);
+        coalescer.offer(first, SRC, DEST);
+        coalescer.writeFirst(first, Mono.error(new IllegalStateException("database down"))).onErrorComplete().block();
+        coalescer.offer(alert(2, T0.plusSeconds(1)), SRC, DEST);
+
+        Alert retried = alert(1, T0);
+        assertEquals(Offer.FIRST, coalescer.offer(retried, SRC, DEST));
+        coalescer.writeFirst(retried, stored(retried)).block();
+        coalescer.flush();
+        assertTrue(inserted.isEmpty());
+        assertEquals(List.of(new AlertOccurrences(retried.getId(), T0, 1, T0.plusSeconds(1), T0.plusSeconds(1))), updated);
+    }
+
+    @Test
+    void redeliveredFirstAlertKeepsCountingIntoItsExistingRow() {
+        AlertCoalescer coalescer = coalescer(100);
+        when(repository.findId(any())).thenReturn(Mono.just(42L));
+        Alert redelivered = alert(1, T0);
+        assertEquals(Offer.FIRST, coalescer.offer(redelivered, SRC, DEST));
+        coalescer.writeFirst(redelivered, Mono.empty()).block(); // ON CONFLICT DO NOTHING: the row exists
+        coalescer.offer(alert(2, T0.plusSeconds(1)), SRC, DEST);
+        coalescer.offer(alert(3, T0.plusSeconds(2)), SRC, DEST);
+        coalescer.flush();
+        assertEquals(List.of(new AlertOccurrences(42, T0, 2, T0.plusSeconds(1), T0.plusSeconds(2))), updated);
+    }
+
+    @Test
+    void replayGroupsAreKeptApartFromTheLiveOnesAndWrittenWhenTheReplayEnds() {
+        AlertCoalescer live = coalescer(100);
+        AlertCoalescer replay = live.withEmptyState();
+        Instant yesterday = T0.minus(Duration.ofDays(1));
+        assertEquals(Offer.FIRST, offerAndStore(live, alert(1, T0), SRC, DEST));
+        assertEquals(Offer.FIRST, offerAndStore(replay, alert(2, yesterday), SRC, DEST));
+        for (int i = 0; i < 10; i++) { // interleaved event times close neither group
+            assertEquals(Offer.COALESCED, live.offer(alert(10 + i, T0.plusSeconds(i + 1)), SRC, DEST));
+            assertEquals(Offer.COALESCED, replay.offer(alert(20 + i, yesterday.plusSeconds(i + 1)), SRC, DEST));
+        }
+
+        replay.flushAll().block();
+        assertEquals(List.of(new AlertOccurrences(2, yesterday, 10, yesterday.plusSeconds(1), yesterday.plusSeconds(10))), updated);
+        live.flush();
+        assertEquals(new AlertOccurrences(1, T0, 10, T0.plusSeconds(1), T0.plusSeconds(10)), updated.get(1));
+        assertTrue(inserted.isEmpty());
+    }
+
+    @Test
+    void refusesNewGroupsBeyondTheLimit() {
+        AlertCoalescer coalescer = coalescer(1);
+        assertEquals(Offer.FIRST, coalescer.offer(alert(1, T0), SRC, DEST));
+        assertEquals(Offer.REFUSED, coalescer.offer(alert(2, T0), DEST, SRC));
+        assertEquals(Offer.COALESCED, coalescer.offer(alert(3, T0.plusSeconds(1)), SRC, DEST)); // existing groups still take repeats
+    }
+
+    private Offer offerAndStore(AlertCoalescer coalescer, Alert alert, IpAddress src, IpAddress dest) {
+        Offer offer = coalescer.offer(alert, src, dest);
+        if (offer == Offer.FIRST) {
+            coalescer.writeFirst(alert, stored(alert)).block();
+        }
+        return offer;
+    }
+
+    // The caller's insertIfAbsent of a new row; ids follow the log ids
+    private static Mono<Alert> stored(Alert alert) {
+        alert.setId(alert.getNetworkLogId());
+        return Mono.just(alert);
+    }
+
+    private static Alert alert(long logId, Instant logTimestamp) {
+        return new Alert(logId, logTimestamp, "Blacklisted IP Activity", "HIGH", "Traffic involving blacklisted IP");
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.kafkaconsumer.service;
+
+import org.example.kafkaconsumer.model.RawNetworkLog;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BackfillServiceTests {
+
+    @Test
+    void rangeIsWidenedToWholeMinutesAndSplitIntoChunks() {
+        List<BackfillService.Chunk> chunks = BackfillService.chunks(
+                Instant.parse("2025-03-01T10:00:30Z"), Instant.parse("2025-03-01T12:30:10Z"), Duration.ofHours(1), 100);
+
+        assertEquals(List.of(
+                new BackfillService.Chunk(Instant.parse("2025-03-01T10:00:00Z"), Instant.parse("2025-03-01T11:00:00Z")),
+                new BackfillService.Chunk(Instant.parse("2025-03-01T11:00:00Z"), Instant.parse("2025-03-01T12:00:00Z")),
+                new BackfillService.Chunk(Instant.parse("2025-03-01T12:00:00Z"), Instant.parse("2025-03-01T12:31:00Z"))),
+                chunks);
+    }
+
+    @Test
+    void invalidRangesAndChunkSizesAreRejected() {
+        Instant from = Instant.parse("2025-03-01T00:00:00Z");
+        assertThrows(IllegalArgumentException.class, () -> BackfillService.chunks(from, from, Duration.ofHours(1), 100));
+        assertThrows(IllegalArgumentException.class, () -> BackfillService.chunks(from, from.plusSeconds(3600), Duration.ofSeconds(90), 100));
+        assertThrows(IllegalArgumentException.class, () -> BackfillService.chunks(from, from.plus(Duration.ofDays(30)), Duration.ofHours(1), 100));
+    }
+
+    @Test
+    void theSameRangeAndChunkSizeIsTheSameJob() {
+        Instant from = Instant.parse("2025-03-01T00:00:00Z");
+        Instant to = Instant.parse("2025-03-02T00:00:00Z");
+
+        assertEquals(BackfillService.jobId(from, to, Duration.ofHours(1)), BackfillService.jobId(from.plusSeconds(5), to, Duration.ofHours(1)));
+        assertNotEquals(BackfillService.jobId(from, to, Duration.ofHours(1)), BackfillService.jobId(from, to, Duration.ofMinutes(30)));
+    }
+
+    @Test
+    void logsReadFromMongoMapToTheSameLogIdEveryTime() {
+        RawNetworkLog raw = new RawNetworkLog("65f1c0ffee0000000000abcd", "10.0.0.1", "10.0.0.2", 443, "TCP", 100,
+                Instant.parse("2025-03-01T00:00:00Z"), null, null);
+
+        assertEquals(IngestionPipeline.toStructuredLog(raw).getLogId(), IngestionPipeline.toStructuredLog(raw).getLogId());
+        raw.setId(null);
+        assertNotEquals(IngestionPipeline.toStructuredLog(raw).getLogId(), IngestionPipeline.toStructuredLog(raw).getLogId());
+    }
+
+    @Test
+    void copiesOfARawLogAreReadOnce() {
+        Instant t0 = Instant.parse("2025-03-01T00:00:00Z");
+        Instant t1 = t0.plusSeconds(1);
+        List<RawNetworkLog> stored = List.of(raw("a", t0), raw("b", t0), raw("a", t0), raw("c", t1), raw("d", t1), raw("c", t1));
+
+        List<String> read = stored.stream().filter(BackfillService.firstCopies()).map(RawNetworkLog::getId).toList();
+
+        assertEquals(List.of("a", "b", "c", "d"), read);
+    }
+
+    private static RawNetworkLog raw(String id, Instant timestamp) {
+        return new RawNetworkLog(id, "10.0.0.1", "10.0.0.2", 443, "TCP", 100, timestamp, null, null);
+    }
+}
@@ -0,0 +1,126 @@
+package org.example.kafkaconsumer.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.kafkaconsumer.deadletter.DeadLetterStore;
+import org.example.kafkaconsumer.model.RawNetworkLog;
+import org.example.kafkaconsumer.postgres.entity.StructuredNetworkLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IngestionGateTests {
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final IngestionPipeline pipeline = mock(IngestionPipeline.class);
+    private final AlertingService alertingService = mock(AlertingService.class);
+    private static final Map<String, String> ID_BY_LOG_ID = Stream.of("a", "b", "c", "d")
+            .collect(Collectors.toMap(IngestionPipeline::logIdOf, id -> id));
+
+    private final List<List<String>> processed = new ArrayList<>(); // ids of the processed raw logs, per batch
+    private List<RawNetworkLog> lastRawBatch;
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+
+    @SuppressWarnings("unchecked")
+    private IngestionGate gate(DataSize maxBytes) throws Exception {
+        when(pipeline.process(anyList())).thenAnswer(invocation -> Mono.defer(() -> {
+            if (failuresLeft.getAndDecrement() > 0) {
+                return Mono.error(new IllegalStateException("database down"));
+            }
+            lastRawBatch = invocation.getArgument(0, List.class);
+            processed.add(lastRawBatch.stream().map(RawNetworkLog::getId).toList());
+            return Mono.<Void>empty();
+        }));
+        when(pipeline.processMapped(anyList())).thenAnswer(invocation -> Mono.fromRunnable(() ->
+                processed.add(((List<StructuredNetworkLog>) invocation.getArgument(0, List.class)).stream()
+                        .map(log -> ID_BY_LOG_ID.get(log.getLogId())).toList())));
+        // logs to port 23 match a HIGH rule
+        when(alertingService.matchesRule(any(), anySet())).thenAnswer(invocation ->
+                invocation.getArgument(0, StructuredNetworkLog.class).getPort() == 23);
+        DeadLetterStore store = new DeadLetterStore(new ObjectMapper().findAndRegisterModules(), directory.toString(), maxBytes);
+        return new IngestionGate(pipeline, alertingService, store, registry, Duration.ofSeconds(30), Set.of("CRITICAL", "HIGH"),
+                3, Duration.ofMillis(1), Duration.ofMillis(5), 50);
+    }
+
+    @Test
+    void retriesFailedBatchesThenParksAndRedeliversThem() throws Exception {
+        IngestionGate gate = gate(DataSize.ofMegabytes(1));
+        failuresLeft.set(1);
+        gate.submit(List.of(log("a", 80)), 0).block();
+        assertEquals(1, processed.size());
+        assertEquals(1.0, registry.counter("threatsense.ingest.retries").count());
+
+        failuresLeft.set(100);
+        gate.submit(List.of(log("b", 80), log("c", 443)), 0).block(); // completes: parked
+        assertEquals(2.0, registry.counter("threatsense.deadletter.parked", "reason", "failure").count());
+
+        gate.redeliver(); // still failing: stays parked
+        failuresLeft.set(0);
+        gate.redeliver();
+        assertEquals(List.of("b", "c"), processed.get(processed.size() - 1));
+        assertEquals(Instant.parse("2026-01-01T00:00:00Z"), lastRawBatch.get(0).getTimestamp());
+        assertEquals(2.0, registry.counter("threatsense.deadletter.redelivered").count());
+
+        gate.redeliver(); // nothing left
+        assertEquals(2, processed.size());
+    }
+
+    @Test
+    void shedsLowPriorityLogsWhileFarBehind() throws Exception {
+        IngestionGate gate = gate(DataSize.ofMegabytes(1));
+        gate.submit(List.of(log("a", 80), log("b", 23), log("c", 443)), Duration.ofMinutes(5).toMillis()).block();
+        assertEquals(List.of("b"), processed.get(0)); // mapped once, processed without mapping again
+        assertEquals(2.0, registry.counter("threatsense.deadletter.parked", "reason", "overload").count());
+        assertTrue(gate.isOverloaded());
+
+        gate.redeliver(); // not while overloaded
+        assertEquals(1, processed.size());
+
+        gate.submit(List.of(log("d", 80)), 0).block(); // caught up
+        gate.redeliver();
+        assertEquals(List.of("a", "c"), processed.get(2));
+    }
+
+    @Test
+    void rejectsWhatCanNeitherBeSavedNorParked() throws Exception {
+        IngestionGate gate = gate(DataSize.ofBytes(0));
+        RawNetworkLog invalid = new RawNetworkLog("x", "not-an-ip", "10.0.0.9", 80, "TCP", 100, Instant.parse("2026-01-01T00:00:00Z"), null, null);
+        gate.submit(List.of(log("a", 80), log("b", 23), invalid), Duration.ofMinutes(5).toMillis()).block(); // store full: nothing shed
+        assertEquals(List.of("b", "a"), processed.get(0)); // from the mapped logs, the invalid one counted only once
+        verify(pipeline, times(1)).skipInvalid(invalid);
+
+        failuresLeft.set(100);
+        assertThrows(IllegalStateException.class, () -> gate.submit(List.of(log("c", 80)), 0).block());
+        assertEquals(1.0, registry.counter("threatsense.ingest.rejected").count());
+    }
+
+    private static RawNetworkLog log(String id, long port) {
+        return new RawNetworkLog(id, "10.0.0.1", "10.0.0.9", port, "TCP", 100, Instant.parse("2026-01-01T00:00:00Z"), null, null);
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.kafkaconsumer.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.kafkaconsumer.metrics.PipelineMetrics;
+import org.example.kafkaconsumer.model.IpAddress;
+import org.example.kafkaconsumer.postgres.entity.StructuredNetworkLog;
+import org.example.kafkaconsumer.postgres.entity.TrafficRollup;
+import org.example.kafkaconsumer.postgres.repository.StructuredLogBatchRepository;
+import org.example.kafkaconsumer.postgres.repository.StructuredLogBatchRepository.SavedLog;
+import org.example.kafkaconsumer.postgres.repository.TrafficRollupRepository;
+import org.example.kafkaconsumer.rollup.TrafficRollupService;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IngestionPipelineTests {
+
+    private final StructuredLogBatchRepository logRepository = mock(StructuredLogBatchRepository.class);
+    private final TrafficRollupRepository rollupRepository = mock(TrafficRollupRepository.class);
+    private final AlertingService alertingService = mock(AlertingService.class);
+    private final List<TrafficRollup> written = new ArrayList<>();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void onlyNewlyInsertedRowsAreAddedToTheRollups() {
+        when(rollupRepository.addMinuteRollups(anyList())).thenAnswer(invocation -> {
+            written.addAll(invocation.getArgument(0, List.class));
+            return Mono.empty();
+        });
+        when(alertingService.analyzeAll(anyList())).thenReturn(Mono.empty());
+        TrafficRollupService rollups = new TrafficRollupService(rollupRepository, true, 100, Duration.ofDays(7), Duration.ofDays(400));
+        IngestionPipeline pipeline = new IngestionPipeline(logRepository, alertingService,
+                new PipelineMetrics(new SimpleMeterRegistry()), rollups);
+        Instant now = Instant.now();
+        StructuredNetworkLog stored = log(100, now);
+        StructuredNetworkLog fresh = log(7, now);
+        // the first row was already written by an earlier delivery of the batch
+        when(logRepository.insertAll(anyList())).thenReturn(Flux.just(new SavedLog(stored, false), new SavedLog(fresh, true)));
+
+        pipeline.processMapped(List.of(stored, fresh)).block();
+        rollups.flush();
+
+        TrafficRollup protocol = written.stream().filter(row -> row.dimension().equals("protocol")).findFirst().orElseThrow();
+        assertEquals(7, protocol.bytes());
+        assertEquals(1, protocol.connections());
+    }
+
+    private static StructuredNetworkLog log(long bytes, Instant timestamp) {
+        return new StructuredNetworkLog(IpAddress.parse("10.0.0.1"), IpAddress.parse("10.0.0.9"), 443, "TCP", bytes, timestamp, "", "");
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.kafkaconsumer.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartitionMaintenanceServiceTests {
+
+    @Test
+    void partitionsAreAlignedToTheIntervalInUtc() {
+        Instant time = Instant.parse("2026-10-17T13:45:10Z");
+
+        assertEquals(Instant.parse("2026-10-17T00:00:00Z"), PartitionMaintenanceService.partitionStart(time, Duration.ofDays(1)));
+        assertEquals(Instant.parse("2026-10-17T12:00:00Z"), PartitionMaintenanceService.partitionStart(time, Duration.ofHours(6)));
+        assertEquals("network_logs_p20261017", PartitionMaintenanceService.partitionName("network_logs", Instant.parse("2026-10-17T00:00:00Z"), Duration.ofDays(1)));
+        assertEquals("alerts_p20261017_12", PartitionMaintenanceService.partitionName("alerts", Instant.parse("2026-10-17T12:00:00Z"), Duration.ofHours(6)));
+    }
+
+    @Test
+    void createsLogAndAlertPartitionsTogether() {
+        String sql = PartitionMaintenanceService.createPartitionSql(
+                Instant.parse("2026-10-17T00:00:00Z"), Instant.parse("2026-10-18T00:00:00Z"), Duration.ofDays(1));
+
+        assertEquals("CREATE TABLE IF NOT EXISTS network_logs_p20261017 PARTITION OF network_logs"
+                + " FOR VALUES FROM ('2026-10-17T00:00:00Z') TO ('2026-10-18T00:00:00Z');"
+                + "CREATE TABLE IF NOT EXISTS alerts_p20261017 PARTITION OF alerts"
+                + " FOR VALUES FROM ('2026-10-17T00:00:00Z') TO ('2026-10-18T00:00:00Z');", sql);
+    }
+
+    @Test
+    void partitionsAreKeptFromRetentionBackToPremakeAhead() {
+        Instant now = Instant.parse("2026-10-17T13:45:10Z");
+
+        List<Instant> starts = PartitionMaintenanceService.partitionStarts(now, Duration.ofDays(1), 2, Duration.ofDays(3));
+
+        assertEquals(List.of(Instant.parse("2026-10-14T00:00:00Z"), Instant.parse("2026-10-15T00:00:00Z"),
+                Instant.parse("2026-10-16T00:00:00Z"), Instant.parse("2026-10-17T00:00:00Z"),
+                Instant.parse("2026-10-18T00:00:00Z"), Instant.parse("2026-10-19T00:00:00Z")), starts);
+        // without retention only today and the premade ones; older ranges get theirs when rows arrive for them
+        assertEquals(3, PartitionMaintenanceService.partitionStarts(now, Duration.ofDays(1), 2, Duration.ZERO).size());
+    }
+
+    @Test
+    void defaultPartitionRowsPastRetentionAreDeletedAndOthersMovedIntoTheirPartitions() {
+        Instant now = Instant.parse("2026-10-17T13:45:10Z");
+        Instant cutoff = PartitionMaintenanceService.retentionCutoff(now, Duration.ofDays(1), Duration.ofDays(3));
+
+        // the partition starting at the cutoff still holds rows younger than the retention, so it is kept
+        assertEquals(Instant.parse("2026-10-14T00:00:00Z"), cutoff);
+        assertNull(PartitionMaintenanceService.retentionCutoff(now, Duration.ofDays(1), Duration.ZERO));
+        assertEquals("DELETE FROM alerts_default WHERE network_log_timestamp < '2026-10-14T00:00:00Z';"
+                + "DELETE FROM network_logs_default WHERE timestamp < '2026-10-14T00:00:00Z';",
+                PartitionMaintenanceService.deleteExpiredDefaultRowsSql(cutoff));
+
+        Instant start = Instant.parse("2026-10-15T00:00:00Z");
+        String move = PartitionMaintenanceService.moveOutOfDefaultSql(start, start.plus(Duration.ofDays(1)), Duration.ofDays(1));
+        String createPartitions = PartitionMaintenanceService.createPartitionSql(start, start.plus(Duration.ofDays(1)), Duration.ofDays(1));
+        assertTrue(move.contains("DELETE FROM network_logs_default WHERE timestamp >= '2026-10-15T00:00:00Z' AND timestamp < '2026-10-16T00:00:00Z'"));
+        // rows leave the default partitions before their partitions are created, and go back in through the parents
+        assertTrue(move.indexOf("DELETE FROM alerts_default") < move.indexOf("DELETE FROM network_logs_default"));
+        assertTrue(move.indexOf("DELETE FROM network_logs_default") < move.indexOf(createPartitions));
+        assertTrue(move.endsWith(createPartitions + "INSERT INTO network_logs SELECT * FROM moved_logs;INSERT INTO alerts SELECT * FROM moved_alerts;"));
+    }
+}
@@ -0,0 +1,113 @@
+package org.example.kafkaconsumer.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.example.kafkaconsumer.model.RawNetworkLog;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RawLogArchiverTests {
+
+    private static final int WRITE_CONFLICT = 112;
+    private static final int DOCUMENT_VALIDATION_FAILURE = 121;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+    private final ReactiveBulkOperations bulk = mock(ReactiveBulkOperations.class);
+    private final List<List<RawNetworkLog>> inserts = new ArrayList<>();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private RuntimeException failure;
+
+    private RawLogArchiver archiver() {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, RawNetworkLog.class, "raw_logs")).thenReturn(bulk);
+        when(bulk.insert(anyList())).thenAnswer(invocation -> {
+            inserts.add(invocation.getArgument(0));
+            return bulk;
+        });
+        when(bulk.execute()).thenAnswer(invocation -> failuresLeft.getAndDecrement() > 0
+                ? Mono.error(failure)
+                : Mono.just(BulkWriteResult.unacknowledged()));
+        return new RawLogArchiver(mongoTemplate, registry, "raw_logs", 2, 4);
+    }
+
+    @Test
+    void retriesOnlyTheDocumentsWithATransientWriteError() {
+        RawLogArchiver archiver = archiver();
+        List<RawNetworkLog> batch = List.of(log("a"), log("b"), log("c"));
+        // the translated error keeps the driver's per-document result as its cause
+        failure = new DataIntegrityViolationException("bulk write failed", rejected(WRITE_CONFLICT, 1));
+        failuresLeft.set(1);
+
+        archiver.write(batch, 2).block();
+
+        assertEquals(List.of(batch, List.of(batch.get(1))), inserts);
+        assertEquals(0, archiver.getSkippedLogs());
+    }
+
+    @Test
+    void doesNotRetryDocumentsRejectedForGood() {
+        RawLogArchiver archiver = archiver();
+        List<RawNetworkLog> batch = List.of(log("a"), log("b"), log("c"));
+        failure = new DataIntegrityViolationException("bulk write failed", rejected(DOCUMENT_VALIDATION_FAILURE, 2));
+        failuresLeft.set(1);
+
+        archiver.write(batch, 2).block();
+
+        assertEquals(List.of(batch), inserts);
+        assertEquals(1, archiver.getSkippedLogs());
+    }
+
+    @Test
+    void resendsTheWholeBatchWhenTheErrorDoesNotSayWhatWasWritten() {
+        RawLogArchiver archiver = archiver();
+        List<RawNetworkLog> batch = List.of(log("a"), log("b"));
+        failure = new IllegalStateException("mongo down");
+        failuresLeft.set(1);
+
+        archiver.write(batch, 2).block();
+
+        assertEquals(List.of(batch, batch), inserts);
+    }
+
+    @Test
+    void countsLogsThatCannotBeArchived() {
+        RawLogArchiver archiver = archiver();
+        failure = new DataIntegrityViolationException("bulk write failed", rejected(WRITE_CONFLICT, 0));
+        failuresLeft.set(100);
+
+        archiver.write(List.of(log("a"), log("b")), 2).block();
+
+        assertEquals(3, inserts.size());
+        assertEquals(1, archiver.getSkippedLogs()); // "b" was written by the first insert
+        assertEquals(1.0, registry.counter("threatsense.rawstore.skipped").count());
+    }
+
+    private static MongoBulkWriteException rejected(int code, int index) {
+        return new MongoBulkWriteException(BulkWriteResult.unacknowledged(),
+                List.of(new BulkWriteError(code, "write failed", new BsonDocument(), index)),
+                null, new ServerAddress(), Set.of());
+    }
+
+    private static RawNetworkLog log(String id) {
+        return new RawNetworkLog(id, "10.0.0.1", "10.0.0.9", 443, "TCP", 100, Instant.parse("2026-01-01T00:00:00Z"), null, null);
+    }
+}
@@ -0,0 +1,67 @@
+package org.example.kafkaconsumer.sharding;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardAssignmentTests {
+
+    private static final int BUCKETS = 256;
+
+    @Test
+    void membersSplitEveryBucketExactlyOnce() {
+        List<String> members = List.of("consumer-a", "consumer-b", "consumer-c", "consumer-d");
+        Set<Integer> seen = new HashSet<>();
+        for (String member : members) {
+            Set<Integer> buckets = ShardAssignment.ofMembers(BUCKETS, members, member).buckets();
+            assertTrue(buckets.size() > BUCKETS / 4 / 2, member + " owns only " + buckets.size() + " buckets");
+            for (int bucket : buckets) {
+                assertTrue(seen.add(bucket), "bucket " + bucket + " has two owners");
+            }
+        }
+        assertEquals(BUCKETS, seen.size());
+    }
+
+    @Test
+    void joiningMemberOnlyTakesBucketsFromOthers() {
+        List<String> before = List.of("consumer-a", "consumer-b", "consumer-c");
+        List<String> after = List.of("consumer-a", "consumer-b", "consumer-c", "consumer-d");
+        int moved = 0;
+        for (String member : before) {
+            ShardAssignment previous = ShardAssignment.ofMembers(BUCKETS, before, member);
+            ShardAssignment next = ShardAssignment.ofMembers(BUCKETS, after, member);
+            assertTrue(previous.buckets().containsAll(next.buckets()), member + " gained buckets");
+            assertFalse(next.gainsFrom(previous));
+            moved += previous.buckets().size() - next.buckets().size();
+        }
+        assertEquals(ShardAssignment.ofMembers(BUCKETS, after, "consumer-d").buckets().size(), moved);
+        assertTrue(ShardAssignment.ofMembers(BUCKETS, after, "consumer-d").gainsFrom(null));
+    }
+
+    @Test
+    void staticInstancesCoverAllBuckets() {
+        Set<Integer> seen = new HashSet<>();
+        for (int index = 0; index < 3; index++) {
+            seen.addAll(ShardAssignment.ofIndex(64, 3, index).buckets());
+        }
+        assertEquals(ShardAssignment.all(64).buckets(), seen);
+        assertTrue(ShardAssignment.all(64).ownsAll());
+        assertFalse(ShardAssignment.ofIndex(64, 3, 1).ownsAll());
+        assertThrows(IllegalArgumentException.class, () -> ShardAssignment.ofIndex(64, 3, 3));
+    }
+
+    @Test
+    void matchStageSelectsOwnedBucketsOfTheSourceIpHash() {
+        Document stage = new ShardAssignment(4, Set.of(3, 1)).toMatchStage();
+        assertEquals("{\"$match\": {\"$expr\": {\"$in\": [{\"$abs\": {\"$mod\": [{\"$toHashedIndexKey\": \"$fullDocument.srcIP\"}, 4]}}, [1, 3]]}}}",
+                stage.toJson());
+    }
+}
@@ -0,0 +1,213 @@
+package org.example.producer;
+
+import org.example.producer.model.NetworkLog;
+import org.example.producer.replay.LogLineParser;
+import org.example.producer.replay.MappedLineReader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+// Replay mode: sends captured logs from a file (NDJSON or RAW_LOG_ENTRY lines, see LogLineParser) instead of
+// generated ones, for repeatable regression and capacity runs. The file is read through memory mappings
+// (MappedLineReader) and each line is parsed from the mapped bytes, so multi-gigabyte files stream without
+// being loaded onto the heap.
+//
+// --pace=max sends as fast as the producer accepts; --pace=original reproduces the gaps between the logs'
+// timestamps (divided by --speed). --shift-timestamps moves the timestamps so the first log is "now", keeping
+// their spacing. Records are keyed by source IP, like the other modes, and progress is reported periodically.
+public class FileReplayer {
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final Options options;
+
+    private final AtomicBoolean running = new AtomicBoolean(true);
+    private volatile long filePosition;
+    private long skippedLines;
+
+    public FileReplayer(Options options) {
+        this.options = options;
+    }
+
+    public void run() throws IOException {
+        System.out.println("Starting file replay: " + options);
+        CountDownLatch closed = new CountDownLatch(1);
+        // The JVM exits once the hooks return, so the hook waits for the loop below to stop and the sender to flush
+        // and close; otherwise the records still queued in the producer would be lost on Ctrl+C
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            running.set(false);
+            try {
+                if (!closed.await(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    System.err.println("Producer did not close within " + SHUTDOWN_TIMEOUT_SECONDS + "s, unsent records are lost");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        long startNanos = System.nanoTime();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        RecordSender sender = new RecordSender(options.producer);
+        try (MappedLineReader reader = new MappedLineReader(options.file)) {
+            long[] lastReport = {startNanos, 0};
+            int reportInterval = options.producer.reportIntervalSeconds;
+            reporter.scheduleAtFixedRate(() -> report(sender, lastReport, reader.size()), reportInterval, reportInterval, TimeUnit.SECONDS);
+            for (int loop = 0; running.get() && (options.loops <= 0 || loop < options.loops); loop++) {
+                if (loop > 0) {
+                    reader.rewind();
+                }
+                replay(reader, sender);
+            }
+        } finally {
+            try {
+                sender.close();
+            } finally {
+                reporter.shutdownNow();
+                closed.countDown();
+            }
+        }
+
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.printf("File replay finished: sent=%d acked=%d failed=%d skipped lines=%d in %.1fs -> %.0f msgs/s acked%n",
+                sender.sent(), sender.acked(), sender.failed(), skippedLines, seconds, sender.acked() / seconds);
+    }
+
+    private void replay(MappedLineReader reader, RecordSender sender) throws IOException {
+        LogLineParser parser = null;
+        Duration shift = null;
+        long firstEventMicros = Long.MIN_VALUE;
+        long startNanos = 0;
+        long lineNumber = 0;
+        while (running.get() && reader.nextLine()) {
+            lineNumber++;
+            filePosition = reader.position();
+            if (parser == null) {
+                LogLineParser.Format format = options.input != null ? options.input
+                        : LogLineParser.Format.detect(reader.buffer(), reader.lineStart(), reader.lineEnd());
+                parser = new LogLineParser(format);
+            }
+            NetworkLog log;
+            try {
+                log = parser.parse(reader.buffer(), reader.lineStart(), reader.lineEnd());
+            } catch (RuntimeException e) { // a bad line is skipped, the capture may be truncated or mixed
+                skippedLines++;
+                if (skippedLines == 1) {
+                    System.err.println("Skipping unparseable line " + lineNumber + ": " + e.getMessage());
+                }
+                continue;
+            }
+            if (log == null) {
+                continue;
+            }
+
+            Instant timestamp = log.getTimestamp();
+            if (timestamp != null) {
+                long eventMicros = timestamp.getEpochSecond() * 1_000_000L + timestamp.getNano() / 1_000;
+                if (firstEventMicros == Long.MIN_VALUE) {
+                    firstEventMicros = eventMicros;
+                    startNanos = System.nanoTime();
+                    shift = Duration.between(timestamp, Instant.now());
+                }
+                if (options.pace == Pace.ORIGINAL) {
+                    waitUntil(startNanos + (long) ((eventMicros - firstEventMicros) * 1_000 / options.speed));
+                }
+                if (options.shiftTimestamps) {
+                    log.setTimestamp(timestamp.plus(shift));
+                }
+            }
+            sender.send(log);
+        }
+    }
+
+    // Logs out of timestamp order are sent right away rather than waited for
+    private void waitUntil(long dueNanos) {
+        long remaining;
+        while (running.get() && (remaining = dueNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(Math.min(remaining, 100_000_000L)); // wake up now and then to notice a shutdown
+        }
+    }
+
+    private void report(RecordSender sender, long[] lastReport, long fileSize) {
+        long now = System.nanoTime();
+        long sentNow = sender.sent();
+        double seconds = (now - lastReport[0]) / 1e9;
+        System.out.printf("sent %.0f msgs/s, acked total %d, failed total %d, file %.1f%%%n",
+                (sentNow - lastReport[1]) / seconds, sender.acked(), sender.failed(),
+                fileSize == 0 ? 100.0 : filePosition * 100.0 / fileSize);
+        lastReport[0] = now;
+        lastReport[1] = sentNow;
+    }
+
+    public enum Pace {
+        ORIGINAL,
+        MAX
+    }
+
+    // Command-line options in --name=value form; anything not given keeps its default
+    public static final class Options {
+        Path file;
+        LogLineParser.Format input;  // null = detect from the first line
+        Pace pace = Pace.MAX;
+        double speed = 1.0;          // with pace=original: 2.0 replays twice as fast as captured
+        boolean shiftTimestamps;
+        int loops = 1;               // 0 = repeat until interrupted
+        final ProducerOptions producer = new ProducerOptions();
+
+        public static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                    continue;
+                }
+                String name = arg.substring(2, arg.indexOf('='));
+                String value = arg.substring(arg.indexOf('=') + 1);
+                switch (name) {
+                    case "file":
+                        options.file = Paths.get(value);
+                        break;
+                    case "input":
+                        options.input = value.equalsIgnoreCase("auto") ? null : LogLineParser.Format.valueOf(value.trim().toUpperCase());
+                        break;
+                    case "pace":
+                        options.pace = Pace.valueOf(value.trim().toUpperCase());
+                        break;
+                    case "speed":
+                        options.speed = Double.parseDouble(value);
+                        break;
+                    case "shift-timestamps":
+                        options.shiftTimestamps = Boolean.parseBoolean(value);
+                        break;
+                    case "loops":
+                        options.loops = Integer.parseInt(value);
+                        break;
+                    default:
+                        if (!options.producer.parse(name, value)) {
+                            throw new IllegalArgumentException("Unknown replay option: --" + name);
+                        }
+                }
+            }
+            if (options.file == null) {
+                throw new IllegalArgumentException("--file is required");
+            }
+            if (!(options.speed > 0)) {
+                throw new IllegalArgumentException("--speed must be positive");
+            }
+            return options;
+        }
+
+        @Override
+        public String toString() {
+            return "file=" + file + ", input=" + (input != null ? input : "auto") + ", pace=" + pace +
+                    (pace == Pace.ORIGINAL ? " x" + speed : "") + ", shift-timestamps=" + shiftTimestamps +
+                    ", loops=" + (loops > 0 ? loops : "unlimited") + ", " + producer;
+        }
+    }
+}
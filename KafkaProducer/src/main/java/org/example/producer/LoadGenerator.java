@@ -0,0 +1,145 @@
+package org.example.producer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+// Load-test mode for capacity planning of the consumer: several generator threads share one KafkaProducer and
+// send synthetic logs at a target aggregate rate. Records are keyed by source IP and nothing is printed per record;
+// achieved throughput and send-latency percentiles (measured in the send callbacks) are reported periodically.
+public class LoadGenerator {
+
+    private final Producer producer;
+    private final Options options;
+
+    private final LatencyHistogram intervalLatency = new LatencyHistogram();
+    private final LatencyHistogram totalLatency = new LatencyHistogram();
+    private final AtomicBoolean running = new AtomicBoolean(true);
+
+    public LoadGenerator(Producer producer, Options options) {
+        this.producer = producer;
+        this.options = options;
+    }
+
+    public void run() {
+        System.out.println("Starting load generator: " + options);
+        RecordSender sender = new RecordSender(options.producer, intervalLatency, totalLatency);
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        List<Thread> threads = new ArrayList<>();
+        long startNanos = System.nanoTime();
+        long[] lastReport = {startNanos, 0, 0}; // time, sent, acked at the previous report
+
+        int reportInterval = options.producer.reportIntervalSeconds;
+        reporter.scheduleAtFixedRate(() -> report(sender, lastReport), reportInterval, reportInterval, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> running.set(false)));
+
+        double perThreadRate = options.rate / (double) options.threads;
+        for (int i = 0; i < options.threads; i++) {
+            Thread thread = new Thread(() -> generate(sender, perThreadRate, startNanos), "loadgen-" + i);
+            threads.add(thread);
+            thread.start();
+        }
+
+        try {
+            if (options.durationSeconds > 0) {
+                TimeUnit.SECONDS.sleep(options.durationSeconds);
+                running.set(false);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            running.set(false);
+            Thread.currentThread().interrupt();
+        } finally {
+            sender.close();
+            reporter.shutdownNow();
+        }
+
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        LatencyHistogram.Snapshot latency = totalLatency.snapshot();
+        System.out.printf("Load generator finished: sent=%d acked=%d failed=%d in %.1fs -> %.0f msgs/s acked; "
+                        + "send latency p50=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms%n",
+                sender.sent(), sender.acked(), sender.failed(), seconds, sender.acked() / seconds,
+                latency.percentile(50) / 1000.0, latency.percentile(99) / 1000.0,
+                latency.percentile(99.9) / 1000.0, latency.max() / 1000.0);
+    }
+
+    private void generate(RecordSender sender, double ratePerSecond, long startNanos) {
+        long generated = 0;
+        while (running.get()) {
+            // Send whatever is due by now; at high rates this sends in small bursts instead of sleeping per record
+            long due = ratePerSecond <= 0 ? generated + 1000 : (long) ((System.nanoTime() - startNanos) / 1e9 * ratePerSecond);
+            if (due <= generated) {
+                LockSupport.parkNanos(100_000);
+                continue;
+            }
+            for (; generated < due && running.get(); generated++) {
+                sender.send(producer.generateRandomNetworkLog());
+            }
+        }
+    }
+
+    private void report(RecordSender sender, long[] lastReport) {
+        long now = System.nanoTime();
+        long sentNow = sender.sent();
+        long ackedNow = sender.acked();
+        double seconds = (now - lastReport[0]) / 1e9;
+        LatencyHistogram.Snapshot latency = intervalLatency.snapshotAndReset();
+        System.out.printf("sent %.0f msgs/s, acked %.0f msgs/s, failed total %d; send latency p50=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms%n",
+                (sentNow - lastReport[1]) / seconds, (ackedNow - lastReport[2]) / seconds, sender.failed(),
+                latency.percentile(50) / 1000.0, latency.percentile(99) / 1000.0,
+                latency.percentile(99.9) / 1000.0, latency.max() / 1000.0);
+        lastReport[0] = now;
+        lastReport[1] = sentNow;
+        lastReport[2] = ackedNow;
+    }
+
+    // Command-line options in --name=value form; anything not given keeps its default
+    public static final class Options {
+        final ProducerOptions producer = new ProducerOptions();
+        long rate = 10_000;        // target msgs/s across all threads, 0 = as fast as possible
+        int threads = 2;
+        long durationSeconds = 60; // 0 = run until interrupted
+
+        public static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                    continue;
+                }
+                String name = arg.substring(2, arg.indexOf('='));
+                String value = arg.substring(arg.indexOf('=') + 1);
+                switch (name) {
+                    case "rate":
+                        options.rate = Long.parseLong(value);
+                        break;
+                    case "threads":
+                        options.threads = Integer.parseInt(value);
+                        break;
+                    case "duration":
+                        options.durationSeconds = Long.parseLong(value);
+                        break;
+                    default:
+                        if (!options.producer.parse(name, value)) {
+                            throw new IllegalArgumentException("Unknown load generator option: --" + name);
+                        }
+                }
+            }
+            if (options.threads < 1) {
+                throw new IllegalArgumentException("--threads must be at least 1");
+            }
+            return options;
+        }
+
+        @Override
+        public String toString() {
+            return "rate=" + (rate > 0 ? rate + " msgs/s" : "unlimited") + ", threads=" + threads +
+                    ", duration=" + (durationSeconds > 0 ? durationSeconds + "s" : "unlimited") + ", " + producer;
+        }
+    }
+}
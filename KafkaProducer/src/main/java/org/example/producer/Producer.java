@@ -1,6 +1,7 @@
 package org.example.producer;
 
 import org.example.producer.model.NetworkLog;
+import org.example.producer.serde.WireFormat;
 
 import com.fasterxml.jackson.databind.ObjectMapper; // JSON Serialization
 import com.fasterxml.jackson.databind.SerializationFeature; // for pretty print
@@ -11,9 +12,11 @@ import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.common.serialization.StringSerializer;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.util.Properties;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class Producer {
 
@@ -26,9 +29,7 @@ public class Producer {
     private static final int FREQ_TEST_PROBABILITY = 3; // Send test freq log approx. 1 out of 3 times (33%)
 
 
-    private final Random random = new Random();
     private final ObjectMapper objectMapper; // ObjectMapper is thread-safe after configuration
-    private int logSequence = 0;
 
     // Array of suspicious ports to inject for testing
     private static final int[] SUSPICIOUS_PORTS_ARRAY = {21, 23, 80, 443, 3389, 22, 445};
@@ -47,7 +48,9 @@ public class Producer {
         this.objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false); // Write dates as ISO 8601 strings
     }
 
-    private NetworkLog generateRandomNetworkLog() {
+    // Thread-safe: uses ThreadLocalRandom so several LoadGenerator threads can share one Producer
+    public NetworkLog generateRandomNetworkLog() {
+        Random random = ThreadLocalRandom.current();
         String srcIP;
         String destIP;
         String message;
@@ -57,13 +60,13 @@ public class Producer {
         if (random.nextInt(10) == 0) { // Approx 10% chance for srcIP to be blacklisted
             srcIP = BLACKLISTED_IPS_ARRAY[random.nextInt(BLACKLISTED_IPS_ARRAY.length)];
         } else {
-            srcIP = generateRandomIpAddress();
+            srcIP = generateRandomIpAddress(random);
         }
 
         if (random.nextInt(10) == 0) { // Approx 10% chance for destIP to be blacklisted
             destIP = BLACKLISTED_IPS_ARRAY[random.nextInt(BLACKLISTED_IPS_ARRAY.length)];
         } else {
-            destIP = generateRandomIpAddress();
+            destIP = generateRandomIpAddress(random);
         }
         /*
         if (random.nextInt(FREQ_TEST_PROBABILITY) == 0) { // e.g., 1 out of 3 times
@@ -93,7 +96,7 @@ public class Producer {
         return new NetworkLog(srcIP, destIP, port, protocol, bytes, timestamp); // add raw_log and message here
     }
 
-    private String generateRandomIpAddress() {
+    private String generateRandomIpAddress(Random random) {
         return random.nextInt(256) + "." +
                 random.nextInt(256) + "." +
                 random.nextInt(256) + "." +
@@ -101,14 +104,18 @@ public class Producer {
     }
 
     public void startProducing() {
+        startProducing(WireFormat.JSON);
+    }
+
+    public void startProducing(WireFormat format) {
         // Define Producer Properties
         Properties props = new Properties();
         props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, BOOTSTRAP_SERVERS);
         props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
-        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName()); // We'll serialize to String (JSON)
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, format.serializer().getName()); // JSON or compact binary
 
         // Create the KafkaProducer instance
-        KafkaProducer<String, String> producer = new KafkaProducer<>(props); // Key and Value are both String
+        KafkaProducer<String, NetworkLog> producer = new KafkaProducer<>(props);
 
         System.out.println("Starting Kafka Producer...");
 
@@ -116,13 +123,10 @@ public class Producer {
             // Loop indefinitely to keep sending logs
             while (true) {
                 NetworkLog log = generateRandomNetworkLog();
-                String logKey = "plain-log-seq-" + (logSequence++);
+                String logKey = log.getSrcIP(); // key by source IP so a host's traffic stays on one partition
 
-                // Manually serialize NetworkLog object to JSON string
-                String jsonLog = objectMapper.writeValueAsString(log);
-
-                // Create a ProducerRecord (topic, key, value)
-                ProducerRecord<String, String> record = new ProducerRecord<>(TOPIC_NAME, logKey, jsonLog);
+                // Create a ProducerRecord (topic, key, value); the configured serializer encodes the value
+                ProducerRecord<String, NetworkLog> record = new ProducerRecord<>(TOPIC_NAME, logKey, log);
 
                 // Send the record asynchronously with a callback
                 producer.send(record, (metadata, exception) -> {
@@ -134,7 +138,7 @@ public class Producer {
                     }
                 });
 
-                System.out.println("Produced: [Key=" + logKey + ", JSON=" + jsonLog + "]");
+                System.out.println("Produced: [Key=" + logKey + ", " + format + ", JSON=" + objectMapper.writeValueAsString(log) + "]");
 
                 Thread.sleep(1000); // Wait for 1 second before sending the next log
             }
@@ -153,6 +157,22 @@ public class Producer {
     }
 
     public static void main(String[] args) {
-        new Producer().startProducing();
+        if (args.length > 0 && args[0].equals("loadgen")) {
+            // e.g. loadgen --rate=200000 --threads=4 --duration=60 --linger-ms=10 --batch-size=131072 --compression=lz4 --format=binary
+            new LoadGenerator(new Producer(), LoadGenerator.Options.parse(args)).run();
+            return;
+        }
+        if (args.length > 0 && args[0].equals("replay")) {
+            // e.g. replay --file=capture.ndjson --pace=original --speed=2 --shift-timestamps=true --format=binary
+            try {
+                new FileReplayer(FileReplayer.Options.parse(args)).run();
+            } catch (IOException e) {
+                System.err.println("Could not replay file: " + e.getMessage());
+            }
+            return;
+        }
+        // optional first argument --format=binary sends the compact binary encoding instead of JSON
+        WireFormat format = args.length > 0 && args[0].startsWith("--format=") ? WireFormat.parse(args[0].substring(9)) : WireFormat.JSON;
+        new Producer().startProducing(format);
     }
 }
\ No newline at end of file
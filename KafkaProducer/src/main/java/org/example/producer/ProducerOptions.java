@@ -0,0 +1,77 @@
+package org.example.producer;
+
+import org.example.producer.serde.WireFormat;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+
+import java.util.Properties;
+
+// Kafka producer options shared by the load generator and the file replayer (--name=value on the command line);
+// each mode parses its own options and hands the rest to parse(name, value).
+public final class ProducerOptions {
+
+    String bootstrapServers = "localhost:9092";
+    String topic = "log-topic";
+    WireFormat format = WireFormat.JSON;
+    int lingerMs = 5;
+    int batchSize = 64 * 1024;
+    String compression = "lz4";
+    String acks = "1";
+    long bufferMemory = 64L * 1024 * 1024;
+    int reportIntervalSeconds = 5;
+
+    // Returns false if 'name' is not a producer option
+    boolean parse(String name, String value) {
+        switch (name) {
+            case "bootstrap":
+                bootstrapServers = value;
+                return true;
+            case "topic":
+                topic = value;
+                return true;
+            case "format":
+                format = WireFormat.parse(value);
+                return true;
+            case "linger-ms":
+                lingerMs = Integer.parseInt(value);
+                return true;
+            case "batch-size":
+                batchSize = Integer.parseInt(value);
+                return true;
+            case "compression":
+                compression = value;
+                return true;
+            case "acks":
+                acks = value;
+                return true;
+            case "buffer-memory":
+                bufferMemory = Long.parseLong(value);
+                return true;
+            case "report-interval":
+                reportIntervalSeconds = Integer.parseInt(value);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    Properties toProperties() {
+        Properties props = new Properties();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, format.serializer().getName());
+        props.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compression);
+        props.put(ProducerConfig.ACKS_CONFIG, acks);
+        props.put(ProducerConfig.BUFFER_MEMORY_CONFIG, bufferMemory);
+        return props;
+    }
+
+    @Override
+    public String toString() {
+        return "linger.ms=" + lingerMs + ", batch.size=" + batchSize + ", compression=" + compression +
+                ", acks=" + acks + ", format=" + format + ", topic=" + topic + ", bootstrap=" + bootstrapServers;
+    }
+}
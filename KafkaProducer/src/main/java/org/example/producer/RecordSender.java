@@ -0,0 +1,76 @@
+package org.example.producer;
+
+import org.example.producer.model.NetworkLog;
+
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// One KafkaProducer shared by the sending threads of a load or replay run. Records are keyed by source IP;
+// sent, acknowledged and failed records are counted, and send latency (measured in the callbacks) goes to the
+// given histograms. Only the first failure is printed, not every record.
+final class RecordSender implements AutoCloseable {
+
+    private final KafkaProducer<String, NetworkLog> kafkaProducer;
+    private final String topic;
+    private final LatencyHistogram[] latencies;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder acked = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final AtomicBoolean firstErrorReported = new AtomicBoolean();
+
+    RecordSender(ProducerOptions options, LatencyHistogram... latencies) {
+        this.kafkaProducer = new KafkaProducer<>(options.toProperties());
+        this.topic = options.topic;
+        this.latencies = latencies;
+    }
+
+    void send(NetworkLog log) {
+        long sendNanos = System.nanoTime();
+        try {
+            kafkaProducer.send(new ProducerRecord<>(topic, log.getSrcIP(), log), (metadata, exception) -> {
+                if (exception == null) {
+                    long micros = (System.nanoTime() - sendNanos) / 1000;
+                    for (LatencyHistogram latency : latencies) {
+                        latency.record(micros);
+                    }
+                    acked.increment();
+                } else {
+                    recordFailure(exception);
+                }
+            });
+            sent.increment();
+        } catch (RuntimeException e) { // e.g. a SerializationException, thrown before the record is queued
+            recordFailure(e);
+        }
+    }
+
+    long sent() {
+        return sent.sum();
+    }
+
+    long acked() {
+        return acked.sum();
+    }
+
+    long failed() {
+        return failed.sum();
+    }
+
+    // Waits for the queued records, then closes the producer
+    @Override
+    public void close() {
+        kafkaProducer.flush();
+        kafkaProducer.close();
+    }
+
+    private void recordFailure(Exception exception) {
+        failed.increment();
+        if (firstErrorReported.compareAndSet(false, true)) {
+            System.err.println("Error sending message: " + exception.getMessage());
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package org.example.producer.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.time.Instant; // For timestamp
 
+@JsonInclude(JsonInclude.Include.NON_NULL) // message/rawLog are only set by file replay; generated logs omit them
 public class NetworkLog {
     private String srcIP;
     private String destIP;
@@ -9,7 +12,8 @@ public class NetworkLog {
     private String protocol;
     private long bytes;
     private Instant timestamp;
-
+    private String message;
+    private String rawLog;
 
     public NetworkLog() {} // default constructor required by Jackson for deserialization
 
@@ -29,6 +33,8 @@ public class NetworkLog {
     public String getProtocol() {return protocol;}
     public long  getBytes() {return bytes;}
     public Instant getTimestamp() {return timestamp;}
+    public String getMessage() {return message;}
+    public String getRawLog() {return rawLog;}
 
     // --- Setters (REQUIRED by Jackson for deserialization)
     public void setSrcIP(String srcIP) {this.srcIP = srcIP;}
@@ -37,6 +43,8 @@ public class NetworkLog {
     public void setProtocol(String protocol) {this.protocol = protocol;}
     public void setBytes(long bytes) {this.bytes = bytes;}
     public void setTimestamp(Instant timestamp) {this.timestamp = timestamp;}
+    public void setMessage(String message) {this.message = message;}
+    public void setRawLog(String rawLog) {this.rawLog = rawLog;}
 
     @Override
     public String toString() {
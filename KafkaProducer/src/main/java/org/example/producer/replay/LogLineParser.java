@@ -0,0 +1,546 @@
+package org.example.producer.replay;
+
+import org.example.producer.model.NetworkLog;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+
+// Parses captured log lines straight from a (memory-mapped) byte buffer into NetworkLogs. Field names, numbers,
+// timestamps and the common protocol names are matched and converted on the bytes; only the string values a
+// NetworkLog keeps (addresses, message, raw line) become Strings, once each. Not thread-safe: an instance reuses
+// one scratch array.
+//
+// Two line formats are understood:
+// - NDJSON: one flat JSON object per line, as written by the producer's JSON serializer or exported from MongoDB
+//   (srcIP, destIP, port, protocol, bytes, timestamp, message, rawLog; other fields are skipped). timestamp is an
+//   ISO-8601 string or epoch seconds.
+// - RAW: the "RAW_LOG_ENTRY: <message> from <src> to <dest> on <port>" text form, optionally preceded by an
+//   ISO-8601 timestamp and a space. The text form has no protocol or byte count; those are set to UNKNOWN and 0,
+//   and the whole line is kept as rawLog.
+public final class LogLineParser {
+
+    public enum Format {
+        NDJSON,
+        RAW;
+
+        // The format of a file judging by its first non-blank line
+        public static Format detect(ByteBuffer buffer, int start, int end) {
+            for (int i = start; i < end; i++) {
+                byte b = buffer.get(i);
+                if (b != ' ' && b != '\t') {
+                    return b == '{' ? NDJSON : RAW;
+                }
+            }
+            return NDJSON;
+        }
+    }
+
+    static final String UNKNOWN_PROTOCOL = "UNKNOWN";
+
+    private static final byte[] SRC_IP = ascii("srcIP");
+    private static final byte[] DEST_IP = ascii("destIP");
+    private static final byte[] PORT = ascii("port");
+    private static final byte[] PROTOCOL = ascii("protocol");
+    private static final byte[] BYTES = ascii("bytes");
+    private static final byte[] TIMESTAMP = ascii("timestamp");
+    private static final byte[] MESSAGE = ascii("message");
+    private static final byte[] RAW_LOG = ascii("rawLog");
+
+    private static final byte[] RAW_PREFIX = ascii("RAW_LOG_ENTRY: ");
+    private static final byte[] FROM = ascii(" from ");
+    private static final byte[] TO = ascii(" to ");
+    private static final byte[] ON = ascii(" on ");
+
+    private static final String[] PROTOCOLS = {"TCP", "UDP", "ICMP", "HTTP", "HTTPS"};
+    private static final byte[][] PROTOCOL_BYTES = new byte[PROTOCOLS.length][];
+
+    static {
+        for (int i = 0; i < PROTOCOLS.length; i++) {
+            PROTOCOL_BYTES[i] = ascii(PROTOCOLS[i]);
+        }
+    }
+
+    private final Format format;
+    private byte[] scratch = new byte[256];
+
+    private ByteBuffer in;
+    private int lineStart;
+    private int pos;
+    private int end;
+
+    public LogLineParser(Format format) {
+        this.format = format;
+    }
+
+    // Parses buffer[start, end); returns null for a blank line, throws IllegalArgumentException for a malformed one
+    public NetworkLog parse(ByteBuffer buffer, int start, int end) {
+        this.in = buffer;
+        this.lineStart = start;
+        this.pos = start;
+        this.end = end;
+        skipWhitespace();
+        if (pos >= end) {
+            return null;
+        }
+        return format == Format.NDJSON ? parseJson() : parseRaw();
+    }
+
+    // --- NDJSON ---
+
+    private NetworkLog parseJson() {
+        NetworkLog log = new NetworkLog();
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return log;
+        }
+        while (true) {
+            skipWhitespace();
+            expect('"');
+            int keyStart = pos;
+            int keyEnd = skipString();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            readField(log, keyStart, keyEnd);
+            skipWhitespace();
+            byte b = next();
+            if (b == '}') {
+                break;
+            }
+            if (b != ',') {
+                throw error("expected ',' or '}'");
+            }
+        }
+        if (log.getSrcIP() == null || log.getDestIP() == null) {
+            throw error("srcIP and destIP are required");
+        }
+        return log;
+    }
+
+    private void readField(NetworkLog log, int keyStart, int keyEnd) {
+        if (peek() == 'n') { // null leaves the field unset
+            expectLiteral("null");
+        } else if (keyEquals(keyStart, keyEnd, SRC_IP)) {
+            log.setSrcIP(readString());
+        } else if (keyEquals(keyStart, keyEnd, DEST_IP)) {
+            log.setDestIP(readString());
+        } else if (keyEquals(keyStart, keyEnd, PORT)) {
+            log.setPort((int) readLong());
+        } else if (keyEquals(keyStart, keyEnd, PROTOCOL)) {
+            log.setProtocol(readProtocol());
+        } else if (keyEquals(keyStart, keyEnd, BYTES)) {
+            log.setBytes(readLong());
+        } else if (keyEquals(keyStart, keyEnd, TIMESTAMP)) {
+            log.setTimestamp(readTimestamp());
+        } else if (keyEquals(keyStart, keyEnd, MESSAGE)) {
+            log.setMessage(readString());
+        } else if (keyEquals(keyStart, keyEnd, RAW_LOG)) {
+            log.setRawLog(readString());
+        } else {
+            skipValue();
+        }
+    }
+
+    private String readProtocol() {
+        expect('"');
+        int start = pos;
+        int stringEnd = skipString();
+        for (int i = 0; i < PROTOCOLS.length; i++) {
+            if (stringEnd - start == PROTOCOL_BYTES[i].length && regionEquals(start, PROTOCOL_BYTES[i])) {
+                return PROTOCOLS[i]; // shared instance, no allocation
+            }
+        }
+        pos = start - 1;
+        return readString();
+    }
+
+    private Instant readTimestamp() {
+        if (peek() != '"') { // epoch seconds, with an optional fraction (Jackson's numeric Instant)
+            boolean negative = peek() == '-';
+            if (negative) {
+                pos++;
+            }
+            long seconds = readDigits();
+            long nanos = 0;
+            if (pos < end && peek() == '.') {
+                pos++;
+                int digits = 0;
+                while (pos < end && isDigit(peek())) {
+                    if (digits++ < 9) {
+                        nanos = nanos * 10 + (next() - '0');
+                    } else {
+                        pos++;
+                    }
+                }
+                for (; digits < 9; digits++) {
+                    nanos *= 10;
+                }
+            }
+            return negative ? Instant.ofEpochSecond(-seconds, -nanos) : Instant.ofEpochSecond(seconds, nanos);
+        }
+        expect('"');
+        int start = pos;
+        int stringEnd = skipString();
+        Instant instant = parseIsoInstant(start, stringEnd);
+        return instant != null ? instant : OffsetDateTime.parse(string(start, stringEnd)).toInstant();
+    }
+
+    private String readString() {
+        expect('"');
+        int length = 0;
+        while (true) {
+            if (pos >= end) {
+                throw error("unterminated string");
+            }
+            byte b = next();
+            if (b == '"') {
+                break;
+            }
+            if (b == '\\') {
+                length = readEscape(length);
+            } else {
+                ensureScratch(length + 1);
+                scratch[length++] = b;
+            }
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    // Writes the UTF-8 bytes of one escape sequence to scratch[length...]; returns the new length
+    private int readEscape(int length) {
+        ensureScratch(length + 4);
+        byte b = next();
+        switch (b) {
+            case '"':
+            case '\\':
+            case '/':
+                scratch[length++] = b;
+                return length;
+            case 'b':
+                scratch[length++] = '\b';
+                return length;
+            case 'f':
+                scratch[length++] = '\f';
+                return length;
+            case 'n':
+                scratch[length++] = '\n';
+                return length;
+            case 'r':
+                scratch[length++] = '\r';
+                return length;
+            case 't':
+                scratch[length++] = '\t';
+                return length;
+            case 'u':
+                int codePoint = readHex4();
+                if (Character.isHighSurrogate((char) codePoint) && pos + 6 <= end && in.get(pos) == '\\' && in.get(pos + 1) == 'u') {
+                    pos += 2;
+                    int low = readHex4();
+                    codePoint = Character.isLowSurrogate((char) low) ? Character.toCodePoint((char) codePoint, (char) low) : '?';
+                }
+                return putUtf8(codePoint, length);
+            default:
+                throw error("invalid escape");
+        }
+    }
+
+    private int putUtf8(int codePoint, int length) {
+        if (codePoint < 0x80) {
+            scratch[length++] = (byte) codePoint;
+        } else if (codePoint < 0x800) {
+            scratch[length++] = (byte) (0xC0 | (codePoint >> 6));
+            scratch[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            scratch[length++] = (byte) (0xE0 | (codePoint >> 12));
+            scratch[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            scratch[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+            scratch[length++] = (byte) (0xF0 | (codePoint >> 18));
+            scratch[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            scratch[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            scratch[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+        return length;
+    }
+
+    private int readHex4() {
+        if (pos + 4 > end) {
+            throw error("truncated \\u escape");
+        }
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(in.get(pos++), 16);
+            if (digit < 0) {
+                throw error("invalid \\u escape");
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    private long readLong() {
+        boolean negative = peek() == '-';
+        if (negative) {
+            pos++;
+        }
+        long value = readDigits();
+        return negative ? -value : value;
+    }
+
+    private long readDigits() {
+        int start = pos;
+        long value = 0;
+        while (pos < end && isDigit(peek())) {
+            value = Math.addExact(Math.multiplyExact(value, 10), next() - '0');
+        }
+        if (pos == start) {
+            throw error("expected a number");
+        }
+        return value;
+    }
+
+    // Moves past the closing quote of a string whose opening quote was consumed; returns the position of that quote
+    private int skipString() {
+        while (pos < end) {
+            byte b = next();
+            if (b == '"') {
+                return pos - 1;
+            }
+            if (b == '\\') {
+                pos++;
+            }
+        }
+        throw error("unterminated string");
+    }
+
+    private void skipValue() {
+        byte b = peek();
+        if (b == '"') {
+            pos++;
+            skipString();
+            return;
+        }
+        if (b == '{' || b == '[') {
+            int depth = 0;
+            do {
+                b = next();
+                if (b == '"') {
+                    skipString();
+                } else if (b == '{' || b == '[') {
+                    depth++;
+                } else if (b == '}' || b == ']') {
+                    depth--;
+                }
+            } while (depth > 0 && pos < end);
+            return;
+        }
+        while (pos < end && b != ',' && b != '}') { // number or literal
+            pos++;
+            b = pos < end ? peek() : 0;
+        }
+    }
+
+    // --- RAW_LOG_ENTRY text ---
+
+    private NetworkLog parseRaw() {
+        int prefix = indexOf(RAW_PREFIX, pos, end);
+        if (prefix < 0) {
+            throw error("not a RAW_LOG_ENTRY line");
+        }
+        Instant timestamp = null;
+        if (prefix > pos) {
+            int timestampEnd = prefix;
+            while (timestampEnd > pos && in.get(timestampEnd - 1) == ' ') {
+                timestampEnd--;
+            }
+            timestamp = parseIsoInstant(pos, timestampEnd);
+            if (timestamp == null) {
+                timestamp = OffsetDateTime.parse(string(pos, timestampEnd)).toInstant();
+            }
+        }
+        // the message may contain anything, so the address and port markers are searched from the right
+        int on = lastIndexOf(ON, prefix, end);
+        int to = on < 0 ? -1 : lastIndexOf(TO, prefix, on);
+        int from = to < 0 ? -1 : lastIndexOf(FROM, prefix, to);
+        if (from < 0) {
+            throw error("expected '<message> from <src> to <dest> on <port>'");
+        }
+        NetworkLog log = new NetworkLog();
+        log.setMessage(string(prefix + RAW_PREFIX.length, from));
+        log.setSrcIP(string(from + FROM.length, to));
+        log.setDestIP(string(to + TO.length, on));
+        pos = on + ON.length;
+        log.setPort((int) readDigits());
+        log.setProtocol(UNKNOWN_PROTOCOL);
+        log.setTimestamp(timestamp);
+        log.setRawLog(string(prefix, end));
+        return log;
+    }
+
+    // --- shared helpers ---
+
+    // Fast path for "yyyy-MM-ddTHH:mm:ss[.fraction]Z"; returns null for anything else (offsets, other layouts)
+    private Instant parseIsoInstant(int start, int stringEnd) {
+        int length = stringEnd - start;
+        if (length < 20 || in.get(stringEnd - 1) != 'Z' || in.get(start + 4) != '-' || in.get(start + 7) != '-'
+                || (in.get(start + 10) != 'T' && in.get(start + 10) != 't') || in.get(start + 13) != ':' || in.get(start + 16) != ':') {
+            return null;
+        }
+        int year = digits(start, 4);
+        int month = digits(start + 5, 2);
+        int day = digits(start + 8, 2);
+        int hour = digits(start + 11, 2);
+        int minute = digits(start + 14, 2);
+        int second = digits(start + 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || hour > 23 || minute < 0 || minute > 59
+                || second < 0 || second > 59) {
+            return null;
+        }
+        long nanos = 0;
+        int i = start + 19;
+        if (i < stringEnd - 1) {
+            if (in.get(i) != '.') {
+                return null;
+            }
+            int fractionDigits = 0;
+            for (i++; i < stringEnd - 1; i++) {
+                byte b = in.get(i);
+                if (!isDigit(b) || fractionDigits == 9) {
+                    return null;
+                }
+                nanos = nanos * 10 + (b - '0');
+                fractionDigits++;
+            }
+            if (fractionDigits == 0) {
+                return null;
+            }
+            for (; fractionDigits < 9; fractionDigits++) {
+                nanos *= 10;
+            }
+        }
+        long epochSecond = epochDay(year, month, day) * 86_400L + hour * 3_600L + minute * 60L + second;
+        return Instant.ofEpochSecond(epochSecond, nanos);
+    }
+
+    // Days since 1970-01-01 of a proleptic Gregorian date (Hinnant's days_from_civil)
+    static long epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097L + dayOfEra - 719_468L;
+    }
+
+    private int digits(int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            byte b = in.get(i);
+            if (!isDigit(b)) {
+                return -1;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    private String string(int start, int stringEnd) {
+        int length = stringEnd - start;
+        ensureScratch(length);
+        for (int i = 0; i < length; i++) {
+            scratch[i] = in.get(start + i);
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private boolean keyEquals(int keyStart, int keyEnd, byte[] key) {
+        return keyEnd - keyStart == key.length && regionEquals(keyStart, key);
+    }
+
+    private boolean regionEquals(int start, byte[] expected) {
+        for (int i = 0; i < expected.length; i++) {
+            if (in.get(start + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int indexOf(byte[] needle, int from, int to) {
+        for (int i = from; i <= to - needle.length; i++) {
+            if (regionEquals(i, needle)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int lastIndexOf(byte[] needle, int from, int to) {
+        for (int i = to - needle.length; i >= from; i--) {
+            if (regionEquals(i, needle)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void expect(char c) {
+        if (pos >= end || in.get(pos) != c) {
+            throw error("expected '" + c + "'");
+        }
+        pos++;
+    }
+
+    private void expectLiteral(String literal) {
+        for (int i = 0; i < literal.length(); i++) {
+            expect(literal.charAt(i));
+        }
+    }
+
+    private byte peek() {
+        if (pos >= end) {
+            throw error("unexpected end of line");
+        }
+        return in.get(pos);
+    }
+
+    private byte next() {
+        byte b = peek();
+        pos++;
+        return b;
+    }
+
+    private void skipWhitespace() {
+        while (pos < end) {
+            byte b = in.get(pos);
+            if (b != ' ' && b != '\t' && b != '\r') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private void ensureScratch(int length) {
+        if (length > scratch.length) {
+            byte[] larger = new byte[Math.max(length, scratch.length * 2)];
+            System.arraycopy(scratch, 0, larger, 0, scratch.length);
+            scratch = larger;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Malformed " + format + " line at column " + (pos - lineStart + 1) + ": " + message);
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,121 @@
+package org.example.producer.replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Reads the lines of a file of any size through read-only memory mappings, without copying them onto the heap.
+// The file is mapped in windows of at most windowSize bytes; a window always starts at a line start, so a line is
+// never split across two mappings (a single line longer than a window is an error).
+//
+// After nextLine() returns true, the line is buffer()[lineStart(), lineEnd()), without its \n or \r\n. The buffer is
+// only valid until the next call. Earlier windows are unmapped by the garbage collector; they only hold address
+// space, not heap.
+public final class MappedLineReader implements Closeable {
+
+    static final long DEFAULT_WINDOW_SIZE = 256L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final long windowSize;
+
+    private MappedByteBuffer window;
+    private long windowStart; // file offset of window position 0
+    private int windowLimit;
+    private int next;         // window position of the next line
+    private int lineStart;
+    private int lineEnd;
+
+    public MappedLineReader(Path file) throws IOException {
+        this(file, DEFAULT_WINDOW_SIZE);
+    }
+
+    MappedLineReader(Path file, long windowSize) throws IOException {
+        if (windowSize < 1 || windowSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Window size must be between 1 and " + Integer.MAX_VALUE + " bytes");
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.windowSize = windowSize;
+        map(0);
+    }
+
+    public boolean nextLine() throws IOException {
+        while (true) {
+            if (windowStart + next >= fileSize) {
+                return false;
+            }
+            int newline = indexOfNewline(next);
+            if (newline >= 0) {
+                setLine(next, newline);
+                next = newline + 1;
+                return true;
+            }
+            if (windowStart + windowLimit >= fileSize) { // last line without a trailing newline
+                setLine(next, windowLimit);
+                next = windowLimit;
+                return true;
+            }
+            if (next == 0) {
+                throw new IOException("Line at offset " + windowStart + " is longer than " + windowSize + " bytes");
+            }
+            map(windowStart + next); // the rest of the line is beyond this window: remap from its start
+        }
+    }
+
+    public MappedByteBuffer buffer() {
+        return window;
+    }
+
+    public int lineStart() {
+        return lineStart;
+    }
+
+    public int lineEnd() {
+        return lineEnd;
+    }
+
+    // File offset after the current line, for progress reporting
+    public long position() {
+        return windowStart + next;
+    }
+
+    public long size() {
+        return fileSize;
+    }
+
+    // Starts over at the beginning of the file
+    public void rewind() throws IOException {
+        map(0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        windowLimit = (int) Math.min(windowSize, fileSize - start);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, windowLimit);
+        next = 0;
+    }
+
+    private int indexOfNewline(int from) {
+        MappedByteBuffer buffer = window;
+        for (int i = from; i < windowLimit; i++) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void setLine(int start, int end) {
+        lineStart = start;
+        lineEnd = end > start && window.get(end - 1) == '\r' ? end - 1 : end;
+    }
+}
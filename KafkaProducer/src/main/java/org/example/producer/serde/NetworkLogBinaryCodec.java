@@ -0,0 +1,229 @@
+package org.example.producer.serde;
+
+import org.example.producer.model.NetworkLog;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+// Compact binary encoding of a NetworkLog. The consumer module has a matching decoder
+// (org.example.kafkaconsumer.serde.NetworkLogBinaryCodec); keep the two in step.
+//
+// Version 1 layout (big-endian):
+//   u8      version (1)
+//   u8      flags: bit0 srcIP is IPv6, bit1 destIP is IPv6, bit2 message present, bit3 rawLog present
+//   4|16 B  srcIP  (raw address bytes)
+//   4|16 B  destIP (raw address bytes)
+//   u16     port
+//   u8      protocol code: 0 none, 1 TCP, 2 UDP, 3 ICMP, 4 HTTP, 5 HTTPS, 127 other (varint length + UTF-8 follow)
+//   varint  bytes (unsigned LEB128)
+//   i64     timestamp in epoch microseconds (Long.MIN_VALUE when absent)
+//   [varint length + UTF-8] message, if flagged
+//   [varint length + UTF-8] rawLog, if flagged
+public final class NetworkLogBinaryCodec {
+
+    public static final byte VERSION = 1;
+
+    static final int FLAG_SRC_IPV6 = 1;
+    static final int FLAG_DEST_IPV6 = 1 << 1;
+    static final int FLAG_MESSAGE = 1 << 2;
+    static final int FLAG_RAW_LOG = 1 << 3;
+
+    static final int PROTOCOL_NONE = 0;
+    static final int PROTOCOL_OTHER = 127;
+    private static final String[] PROTOCOLS = {null, "TCP", "UDP", "ICMP", "HTTP", "HTTPS"};
+
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private NetworkLogBinaryCodec() {
+    }
+
+    public static byte[] encode(NetworkLog log) {
+        return encode(log, log.getMessage(), log.getRawLog());
+    }
+
+    public static byte[] encode(NetworkLog log, String message, String rawLog) {
+        byte[] src = addressBytes(log.getSrcIP());
+        byte[] dest = addressBytes(log.getDestIP());
+        int protocolCode = protocolCode(log.getProtocol());
+        byte[] protocol = protocolCode == PROTOCOL_OTHER ? log.getProtocol().getBytes(StandardCharsets.UTF_8) : null;
+        byte[] messageBytes = message != null ? message.getBytes(StandardCharsets.UTF_8) : null;
+        byte[] rawLogBytes = rawLog != null ? rawLog.getBytes(StandardCharsets.UTF_8) : null;
+
+        int size = 2 + src.length + dest.length + 2 + 1 + varintSize(log.getBytes()) + 8
+                + sizeOfString(protocol) + sizeOfString(messageBytes) + sizeOfString(rawLogBytes);
+        ByteBuffer out = ByteBuffer.allocate(size);
+
+        int flags = (src.length == 16 ? FLAG_SRC_IPV6 : 0) | (dest.length == 16 ? FLAG_DEST_IPV6 : 0)
+                | (messageBytes != null ? FLAG_MESSAGE : 0) | (rawLogBytes != null ? FLAG_RAW_LOG : 0);
+        out.put(VERSION);
+        out.put((byte) flags);
+        out.put(src);
+        out.put(dest);
+        out.putShort((short) log.getPort());
+        out.put((byte) protocolCode);
+        if (protocol != null) {
+            putString(out, protocol);
+        }
+        putVarint(out, log.getBytes());
+        out.putLong(toEpochMicros(log.getTimestamp()));
+        if (messageBytes != null) {
+            putString(out, messageBytes);
+        }
+        if (rawLogBytes != null) {
+            putString(out, rawLogBytes);
+        }
+        return out.array();
+    }
+
+    public static NetworkLog decode(byte[] data) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        byte version = in.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported NetworkLog binary version: " + version);
+        }
+        int flags = in.get();
+        String src = readAddress(in, (flags & FLAG_SRC_IPV6) != 0);
+        String dest = readAddress(in, (flags & FLAG_DEST_IPV6) != 0);
+        int port = in.getShort() & 0xFFFF;
+        int protocolCode = in.get() & 0xFF;
+        String protocol = protocolCode == PROTOCOL_OTHER ? readString(in)
+                : protocolCode < PROTOCOLS.length ? PROTOCOLS[protocolCode] : null;
+        long bytes = readVarint(in);
+        long micros = in.getLong();
+        Instant timestamp = micros == NO_TIMESTAMP ? null
+                : Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000L);
+        NetworkLog log = new NetworkLog(src, dest, port, protocol, bytes, timestamp);
+        if ((flags & FLAG_MESSAGE) != 0) {
+            log.setMessage(readString(in));
+        }
+        if ((flags & FLAG_RAW_LOG) != 0) {
+            log.setRawLog(readString(in));
+        }
+        return log;
+    }
+
+    static int protocolCode(String protocol) {
+        if (protocol == null) {
+            return PROTOCOL_NONE;
+        }
+        for (int code = 1; code < PROTOCOLS.length; code++) {
+            if (PROTOCOLS[code].equals(protocol)) {
+                return code;
+            }
+        }
+        return PROTOCOL_OTHER;
+    }
+
+    static long toEpochMicros(Instant timestamp) {
+        if (timestamp == null) {
+            return NO_TIMESTAMP;
+        }
+        return Math.addExact(Math.multiplyExact(timestamp.getEpochSecond(), 1_000_000L), timestamp.getNano() / 1_000);
+    }
+
+    private static byte[] addressBytes(String ip) {
+        if (ip == null) {
+            throw new IllegalArgumentException("IP address is required");
+        }
+        if (ip.indexOf(':') < 0) {
+            byte[] address = new byte[4];
+            int octet = 0;
+            int value = -1;
+            for (int i = 0; i <= ip.length(); i++) {
+                char c = i < ip.length() ? ip.charAt(i) : '.';
+                if (c == '.') {
+                    if (value < 0 || value > 255 || octet == 4) {
+                        throw new IllegalArgumentException("Invalid IPv4 address: " + ip);
+                    }
+                    address[octet++] = (byte) value;
+                    value = -1;
+                } else if (c >= '0' && c <= '9') {
+                    value = (value < 0 ? 0 : value * 10) + (c - '0');
+                } else {
+                    throw new IllegalArgumentException("Invalid IPv4 address: " + ip);
+                }
+            }
+            if (octet != 4) {
+                throw new IllegalArgumentException("Invalid IPv4 address: " + ip);
+            }
+            return address;
+        }
+        try {
+            byte[] address = InetAddress.getByName(ip).getAddress(); // a literal containing ':' never triggers a DNS lookup
+            if (address.length == 4) { // IPv4-mapped IPv6 literals come back as IPv4
+                byte[] mapped = new byte[16];
+                mapped[10] = (byte) 0xFF;
+                mapped[11] = (byte) 0xFF;
+                System.arraycopy(address, 0, mapped, 12, 4);
+                return mapped;
+            }
+            return address;
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Invalid IPv6 address: " + ip, e);
+        }
+    }
+
+    private static String readAddress(ByteBuffer in, boolean ipv6) {
+        if (!ipv6) {
+            return (in.get() & 0xFF) + "." + (in.get() & 0xFF) + "." + (in.get() & 0xFF) + "." + (in.get() & 0xFF);
+        }
+        byte[] address = new byte[16];
+        in.get(address);
+        StringBuilder text = new StringBuilder(39);
+        for (int i = 0; i < 16; i += 2) {
+            if (i > 0) {
+                text.append(':');
+            }
+            text.append(Integer.toHexString(((address[i] & 0xFF) << 8) | (address[i + 1] & 0xFF)));
+        }
+        return text.toString();
+    }
+
+    private static int sizeOfString(byte[] value) {
+        return value == null ? 0 : varintSize(value.length) + value.length;
+    }
+
+    private static void putString(ByteBuffer out, byte[] value) {
+        putVarint(out, value.length);
+        out.put(value);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = (int) readVarint(in);
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    static void putVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.producer.serde;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+import org.example.producer.model.NetworkLog;
+
+// Kafka value serializer for the compact binary format (see NetworkLogBinaryCodec)
+public class NetworkLogBinarySerializer implements Serializer<NetworkLog> {
+
+    @Override
+    public byte[] serialize(String topic, NetworkLog log) {
+        if (log == null) {
+            return null;
+        }
+        try {
+            return NetworkLogBinaryCodec.encode(log);
+        } catch (RuntimeException e) {
+            throw new SerializationException("Could not encode NetworkLog for topic " + topic, e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.example.producer.serde;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+import org.example.producer.model.NetworkLog;
+
+// Kafka value serializer for the original JSON format (ISO-8601 timestamps), which the MongoDB sink connector expects
+public class NetworkLogJsonSerializer implements Serializer<NetworkLog> {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+
+    @Override
+    public byte[] serialize(String topic, NetworkLog log) {
+        if (log == null) {
+            return null;
+        }
+        try {
+            return OBJECT_MAPPER.writeValueAsBytes(log);
+        } catch (JsonProcessingException e) {
+            throw new SerializationException("Could not write NetworkLog as JSON for topic " + topic, e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.example.producer.serde;
+
+import org.apache.kafka.common.serialization.Serializer;
+import org.example.producer.model.NetworkLog;
+
+// Value format used on a topic. The consumer must be configured with the same format for that topic
+// (threatsense.ingest.kafka.binary-topics).
+public enum WireFormat {
+    JSON(NetworkLogJsonSerializer.class),
+    BINARY(NetworkLogBinarySerializer.class);
+
+    private final Class<? extends Serializer<NetworkLog>> serializer;
+
+    WireFormat(Class<? extends Serializer<NetworkLog>> serializer) {
+        this.serializer = serializer;
+    }
+
+    public Class<? extends Serializer<NetworkLog>> serializer() {
+        return serializer;
+    }
+
+    public static WireFormat parse(String value) {
+        return valueOf(value.trim().toUpperCase());
+    }
+}
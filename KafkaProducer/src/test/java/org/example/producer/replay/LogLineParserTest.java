@@ -0,0 +1,108 @@
+package org.example.producer.replay;
+
+import junit.framework.TestCase;
+import org.example.producer.model.NetworkLog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LogLineParserTest extends TestCase {
+
+    public void testParsesProducerJson() {
+        NetworkLog log = parse(LogLineParser.Format.NDJSON,
+                "{\"srcIP\":\"10.0.0.1\",\"destIP\":\"2001:db8::1\",\"port\":443,\"protocol\":\"TCP\",\"bytes\":1234,"
+                        + "\"timestamp\":\"2025-03-01T10:15:30.123456Z\",\"extra\":{\"a\":[1,\"}\"]},\"message\":null}");
+
+        assertEquals("10.0.0.1", log.getSrcIP());
+        assertEquals("2001:db8::1", log.getDestIP());
+        assertEquals(443, log.getPort());
+        assertEquals("TCP", log.getProtocol());
+        assertEquals(1234, log.getBytes());
+        assertEquals(Instant.parse("2025-03-01T10:15:30.123456Z"), log.getTimestamp());
+        assertNull(log.getMessage());
+    }
+
+    public void testDecodesEscapesAndOtherTimestampForms() {
+        NetworkLog log = parse(LogLineParser.Format.NDJSON,
+                "{ \"srcIP\" : \"1.2.3.4\", \"destIP\": \"5.6.7.8\", \"protocol\": \"SCTP\", \"timestamp\": 1700000000.5,"
+                        + " \"message\": \"a \\\"quoted\\\" caf\\u00e9 \\ud83d\\ude00\\n\" }");
+
+        assertEquals("SCTP", log.getProtocol());
+        assertEquals(Instant.ofEpochSecond(1_700_000_000L, 500_000_000), log.getTimestamp());
+        assertEquals("a \"quoted\" café 😀\n", log.getMessage());
+
+        log = parse(LogLineParser.Format.NDJSON, "{\"srcIP\":\"1.2.3.4\",\"destIP\":\"5.6.7.8\",\"timestamp\":\"2025-03-01T12:00:00+02:00\"}");
+        assertEquals(Instant.parse("2025-03-01T10:00:00Z"), log.getTimestamp());
+    }
+
+    public void testParsesRawLogEntries() {
+        NetworkLog log = parse(LogLineParser.Format.RAW,
+                "2025-03-01T10:15:30Z RAW_LOG_ENTRY: Download from mirror Started from 192.168.1.10 to 10.0.0.5 on 8080");
+
+        assertEquals("Download from mirror Started", log.getMessage());
+        assertEquals("192.168.1.10", log.getSrcIP());
+        assertEquals("10.0.0.5", log.getDestIP());
+        assertEquals(8080, log.getPort());
+        assertEquals(LogLineParser.UNKNOWN_PROTOCOL, log.getProtocol());
+        assertEquals(Instant.parse("2025-03-01T10:15:30Z"), log.getTimestamp());
+        assertEquals("RAW_LOG_ENTRY: Download from mirror Started from 192.168.1.10 to 10.0.0.5 on 8080", log.getRawLog());
+
+        assertNull(parse(LogLineParser.Format.RAW, "RAW_LOG_ENTRY: x from 1.1.1.1 to 2.2.2.2 on 1").getTimestamp());
+    }
+
+    public void testRejectsMalformedLines() {
+        try {
+            parse(LogLineParser.Format.NDJSON, "{\"srcIP\":\"1.2.3.4\",\"port\":12");
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            parse(LogLineParser.Format.RAW, "something else entirely");
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testEpochDayMatchesJavaTime() {
+        for (String date : new String[]{"1970-01-01", "2000-02-29", "2024-12-31", "1969-07-20", "2100-03-01"}) {
+            java.time.LocalDate expected = java.time.LocalDate.parse(date);
+            assertEquals(expected.toEpochDay(),
+                    LogLineParser.epochDay(expected.getYear(), expected.getMonthValue(), expected.getDayOfMonth()));
+        }
+    }
+
+    public void testReaderRemapsLinesThatCrossAWindow() throws IOException {
+        Path file = Files.createTempFile("replay", ".ndjson");
+        try {
+            Files.write(file, "first line\r\nsecond\n\nthird line without newline".getBytes(StandardCharsets.UTF_8));
+            List<String> lines = new ArrayList<>();
+            try (MappedLineReader reader = new MappedLineReader(file, 32)) { // the last line starts in the first window and ends beyond it
+                while (reader.nextLine()) {
+                    byte[] line = new byte[reader.lineEnd() - reader.lineStart()];
+                    for (int i = 0; i < line.length; i++) {
+                        line[i] = reader.buffer().get(reader.lineStart() + i);
+                    }
+                    lines.add(new String(line, StandardCharsets.UTF_8));
+                }
+            }
+            assertEquals(4, lines.size());
+            assertEquals("first line", lines.get(0));
+            assertEquals("second", lines.get(1));
+            assertEquals("", lines.get(2));
+            assertEquals("third line without newline", lines.get(3));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static NetworkLog parse(LogLineParser.Format format, String line) {
+        byte[] bytes = ("  " + line).getBytes(StandardCharsets.UTF_8);
+        return new LogLineParser(format).parse(ByteBuffer.wrap(bytes), 2, bytes.length);
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.producer.serde;
+
+import junit.framework.TestCase;
+import org.example.producer.model.NetworkLog;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+
+// The expected bytes are the ones the consumer's NetworkLogBinaryCodecTests decode, so together the two tests cover
+// the producer -> consumer round trip without either module depending on the other.
+public class NetworkLogBinaryCodecTest extends TestCase {
+
+    public void testEncodesIpv4RecordAsTheConsumerReadsIt() {
+        byte[] expected = {
+                1, 0,                                   // version, flags
+                (byte) 192, (byte) 168, 1, 10,          // srcIP
+                10, 0, 0, 1,                            // destIP
+                0x0D, 0x3D,                             // port 3389
+                1,                                      // TCP
+                (byte) 0xAC, 0x02,                      // bytes 300 (varint)
+                0, 0x05, (byte) 0xF1, 0x28, (byte) 0x84, 0x0D, 0x40, 0 // epoch micros of 2023-01-01T00:00:00Z
+        };
+
+        byte[] data = NetworkLogBinaryCodec.encode(
+                new NetworkLog("192.168.1.10", "10.0.0.1", 3389, "TCP", 300, Instant.parse("2023-01-01T00:00:00Z")));
+
+        assertTrue(Arrays.equals(expected, data));
+    }
+
+    public void testEncodesIpv6OtherProtocolAndOptionalStringsAsTheConsumerReadsThem() {
+        byte[] proto = "QUIC".getBytes(StandardCharsets.UTF_8);
+        byte[] message = "hello".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer out = ByteBuffer.allocate(64);
+        out.put((byte) 1).put((byte) (1 | 4));                 // srcIP IPv6, message present
+        out.putLong(0x20010DB800000000L).putLong(1L);           // 2001:db8::1
+        out.put(new byte[]{1, 2, 3, 4});
+        out.putShort((short) 443);
+        out.put((byte) 127).put((byte) proto.length).put(proto);
+        out.put((byte) 0);                                      // bytes 0
+        out.putLong(Long.MIN_VALUE);                            // no timestamp
+        out.put((byte) message.length).put(message);
+        byte[] expected = Arrays.copyOf(out.array(), out.position());
+
+        NetworkLog log = new NetworkLog("2001:db8::1", "1.2.3.4", 443, "QUIC", 0, null);
+        log.setMessage("hello");
+
+        assertTrue(Arrays.equals(expected, NetworkLogBinaryCodec.encode(log)));
+    }
+
+    public void testRoundTripsEveryField() {
+        NetworkLog log = new NetworkLog("::ffff:10.0.0.7", "172.16.0.1", 65535, "UDP", 1L << 40,
+                Instant.parse("2025-03-01T10:15:30.123456789Z"));
+        log.setMessage("café");
+        log.setRawLog("2025-03-01T10:15:30Z RAW_LOG_ENTRY: x");
+
+        NetworkLog decoded = NetworkLogBinaryCodec.decode(NetworkLogBinaryCodec.encode(log));
+
+        assertEquals("0:0:0:0:0:ffff:a00:7", decoded.getSrcIP()); // IPv4-mapped addresses stay IPv6
+        assertEquals("172.16.0.1", decoded.getDestIP());
+        assertEquals(65535, decoded.getPort());
+        assertEquals("UDP", decoded.getProtocol());
+        assertEquals(1L << 40, decoded.getBytes());
+        assertEquals(Instant.parse("2025-03-01T10:15:30.123456Z"), decoded.getTimestamp()); // microsecond precision
+        assertEquals("café", decoded.getMessage());
+        assertEquals("2025-03-01T10:15:30Z RAW_LOG_ENTRY: x", decoded.getRawLog());
+    }
+
+    public void testRejectsInvalidAddresses() {
+        try {
+            NetworkLogBinaryCodec.encode(new NetworkLog("10.0.0.256", "10.0.0.1", 80, "TCP", 1, null));
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // out-of-range octet
+        }
+    }
+}
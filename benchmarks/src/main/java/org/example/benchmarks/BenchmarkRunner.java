@@ -0,0 +1,25 @@
+package org.example.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Entry point of target/benchmarks.jar. Accepts the usual JMH command line (benchmark regex, -f, -wi, -i, -p ...)
+// and always adds the GC profiler, so every result carries gc.alloc.rate.norm (bytes allocated per operation)
+// next to the throughput.
+//
+//   java -jar target/benchmarks.jar                       # everything
+//   java -jar target/benchmarks.jar ThreatIntel -p feedSize=100000
+//   java -jar target/benchmarks.jar -rf json -rff target/jmh-result.json
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
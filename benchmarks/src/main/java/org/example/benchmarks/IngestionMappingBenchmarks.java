@@ -0,0 +1,88 @@
+package org.example.benchmarks;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.example.kafkaconsumer.model.RawNetworkLog;
+import org.example.kafkaconsumer.postgres.entity.StructuredNetworkLog;
+import org.example.kafkaconsumer.serde.NetworkLogBinaryCodec;
+import org.example.kafkaconsumer.service.IngestionPipeline;
+import org.example.producer.Producer;
+import org.example.producer.model.NetworkLog;
+import org.example.producer.serde.NetworkLogBinarySerializer;
+import org.example.producer.serde.NetworkLogJsonSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Consumer ingestion path per record: decoding the Kafka value (JSON or binary) into a RawNetworkLog and mapping
+// it to the StructuredNetworkLog row. The mapping includes UUID.randomUUID() for log_id, which is also measured
+// on its own since it draws from SecureRandom.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngestionMappingBenchmarks {
+
+    private static final int POOL_SIZE = 1024; // power of two, see next()
+
+    // Same setup as the ObjectMapper Spring Boot auto-configures for KafkaLogIngestionService
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private final byte[][] jsonValues = new byte[POOL_SIZE][];
+    private final byte[][] binaryValues = new byte[POOL_SIZE][];
+    private final RawNetworkLog[] rawLogs = new RawNetworkLog[POOL_SIZE];
+    private int cursor;
+
+    @Setup
+    public void setUp() throws IOException {
+        Producer producer = new Producer();
+        NetworkLogJsonSerializer jsonSerializer = new NetworkLogJsonSerializer();
+        NetworkLogBinarySerializer binarySerializer = new NetworkLogBinarySerializer();
+        for (int i = 0; i < POOL_SIZE; i++) {
+            NetworkLog log = producer.generateRandomNetworkLog();
+            jsonValues[i] = jsonSerializer.serialize("log-topic", log);
+            binaryValues[i] = binarySerializer.serialize("log-topic", log);
+            rawLogs[i] = objectMapper.readValue(jsonValues[i], RawNetworkLog.class);
+        }
+    }
+
+    private int next() {
+        return cursor++ & (POOL_SIZE - 1);
+    }
+
+    @Benchmark
+    public RawNetworkLog decodeJson() throws IOException {
+        return objectMapper.readValue(jsonValues[next()], RawNetworkLog.class);
+    }
+
+    @Benchmark
+    public RawNetworkLog decodeBinary() {
+        return NetworkLogBinaryCodec.decode(binaryValues[next()]);
+    }
+
+    @Benchmark
+    public StructuredNetworkLog toStructuredLog() {
+        return IngestionPipeline.toStructuredLog(rawLogs[next()]);
+    }
+
+    @Benchmark
+    public UUID randomUuid() {
+        return UUID.randomUUID();
+    }
+}
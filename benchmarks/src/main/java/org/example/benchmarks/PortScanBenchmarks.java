@@ -0,0 +1,60 @@
+package org.example.benchmarks;
+
+import org.example.kafkaconsumer.detection.PortScanDetector;
+import org.example.kafkaconsumer.model.IpAddress;
+import org.example.kafkaconsumer.postgres.entity.StructuredNetworkLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Port-scan detector update per log: sketch updates for distinct ports and hosts of the log's source, spread
+// over 'sources' source IPs that each hit random ports and hosts (the worst case for the sketches).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PortScanBenchmarks {
+
+    private static final int LOG_COUNT = 4096; // power of two, see record()
+
+    @Param({"100", "10000"})
+    public int sources;
+
+    private PortScanDetector detector;
+    private final StructuredNetworkLog[] logs = new StructuredNetworkLog[LOG_COUNT];
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        // thresholds above anything reachable, so the benchmark measures tracking rather than alerts
+        detector = new PortScanDetector(true, Duration.ofSeconds(60), 4, Long.MAX_VALUE, Long.MAX_VALUE, 6, 50_000);
+        SplittableRandom random = new SplittableRandom(42);
+        Instant start = Instant.now();
+        for (int i = 0; i < LOG_COUNT; i++) {
+            int source = random.nextInt(sources);
+            logs[i] = new StructuredNetworkLog(IpAddress.ofIpv4(0x0A00_0000L | source),
+                    IpAddress.ofIpv4(0xC0A8_0000L | random.nextInt(65536)), random.nextInt(65536), "TCP",
+                    random.nextInt(100_000), start.plusMillis(i), null, null);
+        }
+    }
+
+    @Benchmark
+    public Object record() {
+        return detector.record(logs[cursor++ & (LOG_COUNT - 1)]);
+    }
+}
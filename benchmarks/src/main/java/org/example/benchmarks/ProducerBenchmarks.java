@@ -0,0 +1,69 @@
+package org.example.benchmarks;
+
+import org.example.producer.Producer;
+import org.example.producer.model.NetworkLog;
+import org.example.producer.serde.NetworkLogBinarySerializer;
+import org.example.producer.serde.NetworkLogJsonSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Producer hot path: building a random NetworkLog and encoding it for Kafka in either wire format.
+// Serialization runs over a fixed pool of pre-generated logs so it is measured without the generator.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProducerBenchmarks {
+
+    private static final int POOL_SIZE = 1024; // power of two, see next()
+    private static final String TOPIC = "log-topic";
+
+    private final Producer producer = new Producer();
+    private final NetworkLogJsonSerializer jsonSerializer = new NetworkLogJsonSerializer();
+    private final NetworkLogBinarySerializer binarySerializer = new NetworkLogBinarySerializer();
+    private final NetworkLog[] logs = new NetworkLog[POOL_SIZE];
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < POOL_SIZE; i++) {
+            logs[i] = producer.generateRandomNetworkLog();
+        }
+    }
+
+    private NetworkLog next() {
+        return logs[cursor++ & (POOL_SIZE - 1)];
+    }
+
+    @Benchmark
+    public NetworkLog generateRandomNetworkLog() {
+        return producer.generateRandomNetworkLog();
+    }
+
+    @Benchmark
+    public byte[] serializeJson() {
+        return jsonSerializer.serialize(TOPIC, next());
+    }
+
+    @Benchmark
+    public byte[] serializeBinary() {
+        return binarySerializer.serialize(TOPIC, next());
+    }
+
+    @Benchmark
+    public byte[] generateAndSerializeJson() {
+        return jsonSerializer.serialize(TOPIC, producer.generateRandomNetworkLog());
+    }
+}
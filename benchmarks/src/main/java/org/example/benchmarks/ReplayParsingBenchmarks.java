@@ -0,0 +1,70 @@
+package org.example.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.example.producer.Producer;
+import org.example.producer.model.NetworkLog;
+import org.example.producer.replay.LogLineParser;
+import org.example.producer.serde.NetworkLogJsonSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+// Producer file replay: parsing one captured NDJSON line from a direct (mapped-like) buffer with LogLineParser,
+// against Jackson reading the same line from a byte[].
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReplayParsingBenchmarks {
+
+    private static final int POOL_SIZE = 1024; // power of two, see next()
+
+    private final LogLineParser parser = new LogLineParser(LogLineParser.Format.NDJSON);
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final byte[][] lines = new byte[POOL_SIZE][];
+    private final int[] offsets = new int[POOL_SIZE + 1];
+    private ByteBuffer file;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        Producer producer = new Producer();
+        NetworkLogJsonSerializer serializer = new NetworkLogJsonSerializer();
+        int size = 0;
+        for (int i = 0; i < POOL_SIZE; i++) {
+            lines[i] = serializer.serialize("log-topic", producer.generateRandomNetworkLog());
+            offsets[i] = size;
+            size += lines[i].length;
+        }
+        offsets[POOL_SIZE] = size;
+        file = ByteBuffer.allocateDirect(size);
+        for (byte[] line : lines) {
+            file.put(line);
+        }
+    }
+
+    @Benchmark
+    public NetworkLog parseMappedLine() {
+        int i = cursor++ & (POOL_SIZE - 1);
+        return parser.parse(file, offsets[i], offsets[i + 1]);
+    }
+
+    @Benchmark
+    public NetworkLog jacksonReadLine() throws IOException {
+        return objectMapper.readValue(lines[cursor++ & (POOL_SIZE - 1)], NetworkLog.class);
+    }
+}
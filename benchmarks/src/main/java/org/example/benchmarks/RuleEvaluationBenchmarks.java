@@ -0,0 +1,90 @@
+package org.example.benchmarks;
+
+import org.example.kafkaconsumer.detection.rules.CompiledRuleSet;
+import org.example.kafkaconsumer.detection.rules.DetectionRule;
+import org.example.kafkaconsumer.intel.ThreatIntelIndex;
+import org.example.kafkaconsumer.model.IpAddress;
+import org.example.kafkaconsumer.postgres.entity.StructuredNetworkLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Single-pass evaluation of the compiled detection rules per log: the two bundled intel rules plus ruleCount-2
+// synthetic port/protocol/CIDR/byte rules, against a 10k-entry blacklist. Most logs match nothing, which is the
+// path that must stay allocation-free.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RuleEvaluationBenchmarks {
+
+    private static final int LOG_COUNT = 4096; // power of two, see next()
+    private static final String[] PROTOCOLS = {"TCP", "UDP", "ICMP", "HTTP", "HTTPS"};
+
+    @Param({"2", "20", "64"})
+    public int ruleCount;
+
+    private CompiledRuleSet rules;
+    private ThreatIntelIndex intel;
+    private final StructuredNetworkLog[] logs = new StructuredNetworkLog[LOG_COUNT];
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        ThreatIntelIndex.Builder builder = ThreatIntelIndex.builder(10_000);
+        for (int i = 0; i < 10_000; i++) {
+            builder.addIpOrCidr(randomIp(random));
+        }
+        for (String port : new String[]{"22", "23", "445", "3389"}) {
+            builder.addPortOrRange(port);
+        }
+        intel = builder.build();
+
+        List<DetectionRule> definitions = new ArrayList<>();
+        definitions.add(new DetectionRule("suspicious-port", "Suspicious Port Activity", "HIGH", null,
+                List.of(DetectionRule.INTEL_SUSPICIOUS_PORTS), null, null, null, null, null, null));
+        definitions.add(new DetectionRule("blacklisted-ip", "Blacklisted IP Activity", "CRITICAL", null,
+                null, null, null, null, List.of(DetectionRule.INTEL_BLACKLIST), null, null));
+        for (int i = 2; i < ruleCount; i++) {
+            int port = 1000 + random.nextInt(60000);
+            definitions.add(new DetectionRule("rule-" + i, "Synthetic " + i, "LOW", null,
+                    List.of(port + "-" + (port + 10)),
+                    List.of(PROTOCOLS[i % PROTOCOLS.length]),
+                    i % 2 == 0 ? List.of(random.nextInt(224) + ".0.0.0/8") : null,
+                    null, null,
+                    i % 3 == 0 ? 50_000L : null, null));
+        }
+        rules = CompiledRuleSet.compile(definitions);
+
+        for (int i = 0; i < LOG_COUNT; i++) {
+            logs[i] = new StructuredNetworkLog(IpAddress.parse(randomIp(random)), IpAddress.parse(randomIp(random)), random.nextInt(65536),
+                    PROTOCOLS[random.nextInt(PROTOCOLS.length)], random.nextInt(100_000), Instant.now(), null, null);
+        }
+    }
+
+    private static String randomIp(SplittableRandom random) {
+        return random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256);
+    }
+
+    @Benchmark
+    public long evaluate() {
+        return rules.evaluate(logs[cursor++ & (LOG_COUNT - 1)], intel);
+    }
+}
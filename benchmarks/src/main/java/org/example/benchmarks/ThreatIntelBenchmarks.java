@@ -0,0 +1,90 @@
+package org.example.benchmarks;
+
+import org.example.kafkaconsumer.intel.ThreatIntelIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// The per-log checks AlertingService runs against the threat-intel feeds, at feed sizes seen in real blocklists.
+// The feed holds feedSize single addresses plus feedSize/100 CIDR ranges; about 10% of the probed addresses are
+// listed. listContains is the List<String>.contains() lookup AlertingService used before ThreatIntelIndex, kept
+// as a baseline.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ThreatIntelBenchmarks {
+
+    private static final int PROBE_COUNT = 4096; // power of two, see next()
+
+    @Param({"1000", "100000"})
+    public int feedSize;
+
+    private ThreatIntelIndex index;
+    private List<String> blacklistList;
+    private final String[] probes = new String[PROBE_COUNT];
+    private final long[] ports = new long[PROBE_COUNT];
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        ThreatIntelIndex.Builder builder = ThreatIntelIndex.builder(feedSize);
+        blacklistList = new ArrayList<>(feedSize);
+        for (int i = 0; i < feedSize; i++) {
+            String ip = randomIp(random);
+            builder.addIpOrCidr(ip);
+            blacklistList.add(ip);
+        }
+        for (int i = 0; i < feedSize / 100; i++) {
+            builder.addIpOrCidr(random.nextInt(224) + "." + random.nextInt(256) + "." + random.nextInt(256) + ".0/24");
+        }
+        for (String port : new String[]{"21", "22", "23", "445", "3389", "6000-6063"}) {
+            builder.addPortOrRange(port);
+        }
+        index = builder.build();
+
+        for (int i = 0; i < PROBE_COUNT; i++) {
+            probes[i] = random.nextInt(10) == 0 ? blacklistList.get(random.nextInt(feedSize)) : randomIp(random);
+            ports[i] = random.nextInt(65536);
+        }
+    }
+
+    private static String randomIp(SplittableRandom random) {
+        return random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256);
+    }
+
+    private int next() {
+        return cursor++ & (PROBE_COUNT - 1);
+    }
+
+    @Benchmark
+    public boolean isBlacklisted() {
+        return index.isBlacklisted(probes[next()]);
+    }
+
+    @Benchmark
+    public boolean isSuspiciousPort() {
+        return index.isSuspiciousPort(ports[next()]);
+    }
+
+    @Benchmark
+    public boolean listContains() {
+        return blacklistList.contains(probes[next()]);
+    }
+}
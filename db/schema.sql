@@ -1,29 +1,44 @@
 -- Table: network_logs
+-- Range-partitioned on timestamp (daily by default). Partitions are created ahead of time and dropped after the
+-- retention period by the consumer's PartitionMaintenanceService; rows outside every partition land in the
+-- default partition, from which its next run moves them into a partition of their range (or deletes them once
+-- past retention). A primary key or unique constraint on a partitioned table must include the partition key,
+-- hence (id, timestamp) and (log_id, timestamp). id still comes from one sequence and stays unique on its own.
 CREATE TABLE network_logs (
-    id BIGSERIAL PRIMARY KEY, -- Auto-incrementing primary key (BIGSERIAL for potentially many logs)
-    log_id VARCHAR(36) UNIQUE NOT NULL, -- Your application's UUID for the log (from NetworkLog.java)
-    timestamp TIMESTAMPTZ NOT NULL, -- When the log event occurred (with timezone)
-    src_ip VARCHAR(45) NOT NULL, -- Source IP address (supports IPv4 and IPv6)
-    dest_ip VARCHAR(45) NOT NULL, -- Destination IP address
+    id BIGSERIAL, -- Auto-incrementing id (BIGSERIAL for potentially many logs)
+    log_id VARCHAR(36) NOT NULL, -- Your application's UUID for the log (from NetworkLog.java)
+    timestamp TIMESTAMPTZ NOT NULL, -- When the log event occurred (with timezone); the partition key
+    src_ip INET NOT NULL, -- Source IP address, IPv4 or IPv6 (7 or 19 bytes instead of up to 45 characters)
+    dest_ip INET NOT NULL, -- Destination IP address
     port INTEGER NOT NULL, -- The port (from your NetworkLog POJO)
     protocol VARCHAR(10) NOT NULL, -- e.g., TCP, UDP, ICMP, HTTP
     bytes BIGINT NOT NULL, -- Number of bytes transferred, use BIGINT for large values
     message TEXT, -- The descriptive log message
-    raw_log TEXT -- The original raw log string
-);
+    raw_log TEXT, -- The original raw log string
+
+    CONSTRAINT pk_network_logs PRIMARY KEY (id, timestamp),
+    CONSTRAINT uq_network_logs_log_id UNIQUE (log_id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+CREATE TABLE network_logs_default PARTITION OF network_logs DEFAULT;
 
--- Indexes for network_logs
-CREATE INDEX idx_network_logs_timestamp ON network_logs (timestamp DESC);
+-- Indexes for network_logs (created on every partition)
+-- (timestamp, id) is the keyset of the /api/logs pages and also serves plain time-range scans
+CREATE INDEX idx_network_logs_timestamp_id ON network_logs (timestamp DESC, id DESC);
+-- B-tree indexes on inet also serve CIDR containment (src_ip <<= '10.0.0.0/8') as a range scan
 CREATE INDEX idx_network_logs_src_ip ON network_logs (src_ip);
 CREATE INDEX idx_network_logs_dest_ip ON network_logs (dest_ip);
 CREATE INDEX idx_network_logs_protocol ON network_logs (protocol);
 
 
 -- Table: alerts
+-- Co-partitioned with network_logs on the triggering log's timestamp, using the same partition bounds, so
+-- retention drops an alerts partition together with the network_logs partition it references.
 CREATE TABLE alerts (
-    id SERIAL PRIMARY KEY, -- Auto-incrementing primary key for each alert
-    alert_id VARCHAR(36) UNIQUE NOT NULL, -- A unique ID for the alert itself (can be new UUID)
+    id SERIAL, -- Auto-incrementing id for each alert
+    alert_id VARCHAR(36) NOT NULL, -- A unique ID for the alert itself (can be new UUID)
     network_log_id BIGINT NOT NULL, -- Foreign key referencing the 'network_logs.id' that triggered this alert
+    network_log_timestamp TIMESTAMPTZ NOT NULL, -- Timestamp of that log; the partition key, and part of the foreign key
     alert_type VARCHAR(50) NOT NULL, -- e.g., 'Port Scan', 'Failed Login', 'High Traffic'
     severity VARCHAR(20) NOT NULL, -- e.g., 'CRITICAL', 'HIGH', 'MEDIUM', 'LOW', 'INFORMATIONAL'
     status VARCHAR(20) DEFAULT 'NEW', -- e.g., 'NEW', 'IN_PROGRESS', 'ACKNOWLEDGED', 'CLOSED'
@@ -31,13 +46,87 @@ CREATE TABLE alerts (
     raised_at TIMESTAMPTZ NOT NULL, -- When this alert was generated/raised
     acknowledged_by VARCHAR(100), -- User who acknowledged the alert
     acknowledged_at TIMESTAMPTZ, -- When the alert was acknowledged
+    -- Repeats of the same (alert type, src, dest) within the coalescing window are folded into one row
+    -- (AlertCoalescer): how many occurrences it stands for, and the event times of the first and last one
+    occurrence_count BIGINT NOT NULL DEFAULT 1,
+    first_seen TIMESTAMPTZ NOT NULL,
+    last_seen TIMESTAMPTZ NOT NULL,
+
+    CONSTRAINT pk_alerts PRIMARY KEY (id, network_log_timestamp),
+    CONSTRAINT uq_alerts_alert_id UNIQUE (alert_id, network_log_timestamp),
 
     CONSTRAINT fk_network_log
-        FOREIGN KEY (network_log_id)
-        REFERENCES network_logs (id) ON DELETE CASCADE
-);
+        FOREIGN KEY (network_log_id, network_log_timestamp)
+        REFERENCES network_logs (id, timestamp) ON DELETE CASCADE,
+
+    -- One alert per log and alert type. Alert inserts use ON CONFLICT DO NOTHING against this,
+    -- and its index (leading on network_log_id) also serves lookups of a log's alerts.
+    CONSTRAINT uq_alerts_network_log_type
+        UNIQUE (network_log_id, network_log_timestamp, alert_type)
+) PARTITION BY RANGE (network_log_timestamp);
+
+CREATE TABLE alerts_default PARTITION OF alerts DEFAULT;
 
 -- Indexes for alerts
-CREATE INDEX idx_alerts_raised_at ON alerts (raised_at DESC);
+-- (raised_at, id) is the keyset of the /api/alerts pages
+CREATE INDEX idx_alerts_raised_at_id ON alerts (raised_at DESC, id DESC);
 CREATE INDEX idx_alerts_severity ON alerts (severity);
 CREATE INDEX idx_alerts_status ON alerts (status);
+
+
+-- Tables: traffic_rollups_1m, traffic_rollups_1h
+-- Bytes and connection counts per dimension value (src_ip, dest_ip, port, protocol) and time bucket, kept by
+-- TrafficRollupService and queried by /api/traffic instead of scanning network_logs.
+-- '(other)' collects values beyond the per-minute cardinality cap.
+CREATE TABLE traffic_rollups_1m (
+    dimension VARCHAR(16) NOT NULL, -- 'src_ip', 'dest_ip', 'port' or 'protocol'
+    bucket_start TIMESTAMPTZ NOT NULL, -- Start of the minute (event time, UTC)
+    dim_value VARCHAR(45) NOT NULL, -- The IP, port or protocol
+    bytes BIGINT NOT NULL,
+    connections BIGINT NOT NULL,
+
+    CONSTRAINT pk_traffic_rollups_1m PRIMARY KEY (dimension, bucket_start, dim_value)
+);
+
+-- Recomputed from traffic_rollups_1m for recent hours; kept much longer than the minute table
+CREATE TABLE traffic_rollups_1h (
+    dimension VARCHAR(16) NOT NULL,
+    bucket_start TIMESTAMPTZ NOT NULL, -- Start of the hour (UTC)
+    dim_value VARCHAR(45) NOT NULL,
+    bytes BIGINT NOT NULL,
+    connections BIGINT NOT NULL,
+
+    CONSTRAINT pk_traffic_rollups_1h PRIMARY KEY (dimension, bucket_start, dim_value)
+);
+
+-- Retention deletes by bucket_start across all dimensions
+CREATE INDEX idx_traffic_rollups_1m_bucket_start ON traffic_rollups_1m (bucket_start);
+CREATE INDEX idx_traffic_rollups_1h_bucket_start ON traffic_rollups_1h (bucket_start);
+
+
+-- Table: backfill_progress
+-- One row per chunk of a backfill job (BackfillService, POST /api/backfill). A chunk is marked DONE once its raw
+-- logs are written and analyzed; starting the same job again skips DONE chunks and re-runs the rest, which is
+-- safe because network_logs and alerts inserts are idempotent.
+CREATE TABLE backfill_progress (
+    job_id VARCHAR(36) NOT NULL, -- Derived from the job's time range and chunk size
+    chunk_start TIMESTAMPTZ NOT NULL, -- Chunk covers raw logs with chunk_start <= timestamp < chunk_end
+    chunk_end TIMESTAMPTZ NOT NULL,
+    status VARCHAR(16) NOT NULL, -- 'RUNNING', 'DONE' or 'FAILED'
+    logs_processed BIGINT NOT NULL DEFAULT 0, -- Structured logs written by the last run of the chunk
+    error TEXT, -- Last failure of a FAILED chunk
+    updated_at TIMESTAMPTZ NOT NULL,
+
+    CONSTRAINT pk_backfill_progress PRIMARY KEY (job_id, chunk_start)
+);
+
+-- Table: consumer_instances
+-- Membership of the consumer instances that share the MongoDB change stream by source-IP bucket
+-- (threatsense.sharding.mode=postgres, PostgresShardMembership). Each instance upserts its row every heartbeat;
+-- rows stop counting after the member timeout and are deleted a while later.
+CREATE TABLE consumer_instances (
+    instance_id VARCHAR(100) PRIMARY KEY,
+    heartbeat_at TIMESTAMPTZ NOT NULL, -- Last heartbeat, on the database clock
+    processed_up_to TIMESTAMPTZ, -- Change-stream cluster time the instance has processed its buckets up to
+    left_at TIMESTAMPTZ -- Set when the instance shut down cleanly, so the others rebalance without waiting
+);
@@ -3,6 +3,8 @@ const rootPassword = process.env.MONGO_INITDB_ROOT_PASSWORD;
 const appDbName = "network_logs_db";
 const appUsername = "mongoadmin";
 const appPassword = "password";
+// Raw logs are kept for rawLogRetentionSeconds, both in network_logs and in Kafka mode's raw store
+const rawLogRetentionSeconds = 30 * 24 * 3600;
 
 print("Started running mongo-init.js");
 
@@ -27,5 +29,28 @@ try {
     print(`Error creating user: ${e}`);
 }
 
+try {
+    // 4. Backfills read network_logs by time range, sorted by timestamp; the same index expires it (the consumer's
+    //    change stream skips the TTL deletes)
+    const appDb = db.getSiblingDB(appDbName);
+    appDb.network_logs.createIndex({ timestamp: 1 }, { expireAfterSeconds: rawLogRetentionSeconds });
+    print("Created TTL index on network_logs.");
+
+    // 5. raw_logs is the raw store Kafka mode archives to and backfills from: a time-series collection, so MongoDB
+    //    groups the logs of a source IP into compressed time buckets and drops whole buckets on expiry. network_logs
+    //    cannot be one, since change streams cannot watch time-series collections.
+    if (!appDb.getCollectionNames().includes("raw_logs")) {
+        appDb.createCollection("raw_logs", {
+            timeseries: { timeField: "timestamp", metaField: "srcIP", granularity: "seconds" },
+            expireAfterSeconds: rawLogRetentionSeconds
+        });
+    }
+    // backfills read time ranges in timestamp order
+    appDb.raw_logs.createIndex({ timestamp: 1 });
+    print("Created time-series collection raw_logs.");
+} catch (e) {
+    print(`Error creating collections: ${e}`);
+}
+
 print("Completed mongo-init.js");
 